@@ -0,0 +1,362 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/*
+    Runner of the gatorTaxi benchmarks (see GatorTaxiBenchmark), in the spirit of JMH:
+    every benchmark runs for every combination of the parameter values, in a fresh JVM (fork) by default,
+    so the JIT profile of one benchmark does not leak into the next. Each fork runs the warmup iterations,
+    whose times are dropped, and then the measurement iterations. The score is the average time per operation,
+    and the results are written as JSON, in the same layout as JMH's -rf json.
+    The garbage collections during the timed part are reported as secondary metrics, like JMH's -prof gc:
+    gc.count collections, gc.time total milliseconds and gc.maxPause the longest collection in milliseconds, per iteration,
+    and gc.alloc.norm the bytes allocated per operation by the benchmark thread (like JMH's gc.alloc.rate.norm).
+    A benchmark may report more secondary metrics, for example the answer latency percentiles of the server benchmark,
+    the ride queue size of the expiry benchmark, or the bytes per pending ride of the footprint benchmark.
+
+    Usage: java -cp <classes> BenchmarkRunner [options] [benchmark regex]
+    -p name=v1,v2,...   values of a parameter: pendingRides, rideIndex, rideQueue, workload, maxCost, journal, store, metrics, shards,
+                        connections, pipeline, format, rideTtl, threads, rangeRides
+    -wi n               warmup iterations (default 3)
+    -i n                measurement iterations (default 5)
+    -f n                forks per benchmark and parameter combination, 0 runs in this JVM (default 1)
+    -ops n              operations per iteration (default 100000)
+    -rf file            JSON result file (default bench-results.json)
+    -l                  list the benchmarks
+ */
+public class BenchmarkRunner {
+
+    private static final String RESULT_PREFIX = "# iteration ";
+    private static final String PRIMARY_METRIC = "ns/op";
+    // confidence of the scoreConfidence interval, the same as JMH's
+    private static final double CONFIDENCE = 0.999;
+    // secondary metrics and their units
+    private static final String[][] SECONDARY_METRICS = {{"gc.count", "counts"}, {"gc.time", "ms"}, {"gc.maxPause", "ms"}, {"gc.alloc.norm", "B/op"},
+            {"latency.p50", "us"}, {"latency.p99", "us"}, {"latency.p99.9", "us"}, {"latency.max", "us"},
+            {"heap.size", "rides"}, {"heap.depth", "levels"}, {"memory.perRide", "bytes"}};
+
+    private final Map<String, String[]> params = new LinkedHashMap<>();
+    private Pattern filter = Pattern.compile(".*");
+    private int warmupIterations = 3;
+    private int iterations = 5;
+    private int forks = 1;
+    private int operations = 100_000;
+    private String resultFile = "bench-results.json";
+
+    BenchmarkRunner() {
+        params.put("pendingRides", new String[]{"1000", "100000", "1000000"});
+        params.put("rideIndex", new String[]{"rbt"});
+        params.put("rideQueue", new String[]{"binary"});
+        params.put("workload", new String[]{"uniform"});
+        params.put("maxCost", new String[]{"1000"});
+        params.put("journal", new String[]{"off"});
+        params.put("store", new String[]{"heap"});
+        params.put("metrics", new String[]{"off"});
+        params.put("shards", new String[]{"1"});
+        params.put("connections", new String[]{"1000"});
+        params.put("pipeline", new String[]{"16"});
+        params.put("format", new String[]{"text"});
+        params.put("rideTtl", new String[]{"10000"});
+        params.put("threads", new String[]{"1"});
+        params.put("rangeRides", new String[]{"10"});
+    }
+
+    public static void main(String[] args) throws Exception {
+        // a fork gets: --fork benchmark warmupIterations iterations operations name=value...
+        if(args.length > 0 && args[0].equals("--fork")) {
+            runFork(args);
+            return;
+        }
+
+        BenchmarkRunner runner = new BenchmarkRunner();
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "-p":
+                    String[] param = args[++i].split("=", 2);
+                    if(!runner.params.containsKey(param[0]))  throw new IllegalArgumentException("Unknown parameter: " + param[0]);
+                    runner.params.put(param[0], param[1].split(","));
+                    break;
+                case "-wi": runner.warmupIterations = Integer.parseInt(args[++i]); break;
+                case "-i": runner.iterations = Integer.parseInt(args[++i]); break;
+                case "-f": runner.forks = Integer.parseInt(args[++i]); break;
+                case "-ops": runner.operations = Integer.parseInt(args[++i]); break;
+                case "-rf": runner.resultFile = args[++i]; break;
+                case "-l":
+                    GatorTaxiBenchmark.all().keySet().forEach(System.out::println);
+                    return;
+                default: runner.filter = Pattern.compile(args[i]);
+            }
+        }
+        runner.run();
+    }
+
+    /*
+        This function runs every benchmark matching the filter for every parameter combination, and writes the results
+     */
+    private void run() throws IOException, InterruptedException {
+        List<Map<String, String>> combinations = new ArrayList<>();
+        combine(new ArrayList<>(params.keySet()), 0, new LinkedHashMap<>(), combinations);
+
+        StringBuilder json = new StringBuilder("[\n");
+        int results = 0;
+        for(String benchmark : GatorTaxiBenchmark.all().keySet()) {
+            if(!filter.matcher(benchmark).find())   continue;
+            for(Map<String, String> combination : combinations) {
+                System.out.println("# Benchmark: " + benchmark + " " + combination);
+                List<Map<String, double[]>> forkResults = new ArrayList<>();
+                if(forks == 0)  forkResults.add(measure(benchmark, combination, warmupIterations, iterations, operations));
+                for(int fork = 0; fork < forks; fork++)
+                    forkResults.add(runInFork(benchmark, combination));
+
+                if(results++ > 0)   json.append(",\n");
+                appendResult(json, benchmark, combination, forkResults);
+            }
+        }
+        json.append("\n]\n");
+
+        try(Writer writer = Files.newBufferedWriter(Paths.get(resultFile), StandardCharsets.UTF_8)) {
+            writer.write(json.toString());
+        }
+        System.out.println("# Results written to " + resultFile);
+    }
+
+    private void combine(List<String> names, int index, Map<String, String> current, List<Map<String, String>> combinations) {
+        if(index == names.size()) {
+            combinations.add(new LinkedHashMap<>(current));
+            return;
+        }
+        for(String value : params.get(names.get(index))) {
+            current.put(names.get(index), value);
+            combine(names, index + 1, current, combinations);
+        }
+    }
+
+    /*
+        This function runs the warmup and measurement iterations of a benchmark, and returns the ns/op
+        and the garbage collection metrics of every measurement iteration, by metric name
+     */
+    private static Map<String, double[]> measure(String name, Map<String, String> combination, int warmupIterations, int iterations, int operations) throws IOException {
+        GatorTaxiBenchmark benchmark = GatorTaxiBenchmark.all().get(name);
+        GcMonitor gc = new GcMonitor();
+        Map<String, double[]> results = new LinkedHashMap<>();
+        results.put(PRIMARY_METRIC, new double[iterations]);
+        results.put("gc.count", new double[iterations]);
+        results.put("gc.time", new double[iterations]);
+        results.put("gc.maxPause", new double[iterations]);
+        results.put("gc.alloc.norm", new double[iterations]);
+
+        for(int i = 0; i < warmupIterations + iterations; i++) {
+            benchmark.setUp(combination, operations);
+            gc.start();
+            long start = System.nanoTime();
+            benchmark.run();
+            benchmark.commit();
+            double score = (double) (System.nanoTime() - start) / Math.max(benchmark.operations, 1);
+            gc.stop();
+            double allocated = (double) gc.allocated / Math.max(benchmark.operations, 1);
+            Map<String, Double> metrics = benchmark.secondaryMetrics();
+            benchmark.tearDown();
+
+            boolean warmup = i < warmupIterations;
+            StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%s %d: %.3f ns/op, %d gc, %d ms gc, %d ms max gc pause, %.3f B/op allocated",
+                    warmup ? "# Warmup Iteration" : "Iteration", warmup ? i + 1 : i - warmupIterations + 1, score, gc.count, gc.time, gc.maxPause, allocated));
+            metrics.forEach((metric, value) -> line.append(String.format(Locale.ROOT, ", %s %.3f", metric, value)));
+            System.out.println(line);
+            if(warmup)  continue;
+            int iteration = i - warmupIterations;
+            results.get(PRIMARY_METRIC)[iteration] = score;
+            results.get("gc.count")[iteration] = gc.count;
+            results.get("gc.time")[iteration] = gc.time;
+            results.get("gc.maxPause")[iteration] = gc.maxPause;
+            results.get("gc.alloc.norm")[iteration] = allocated;
+            metrics.forEach((metric, value) -> results.computeIfAbsent(metric, unused -> new double[iterations])[iteration] = value);
+        }
+        gc.close();
+        return results;
+    }
+
+    /*
+        This function runs a benchmark in a new JVM with the same class path, and parses the scores it prints
+     */
+    private Map<String, double[]> runInFork(String benchmark, Map<String, String> combination) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        // Metrics are switched on for the whole JVM
+        if(combination.getOrDefault("metrics", "off").equals("on")) command.add("-DgatorTaxi.metrics=true");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(BenchmarkRunner.class.getName());
+        command.add("--fork");
+        command.add(benchmark);
+        command.add(Integer.toString(warmupIterations));
+        command.add(Integer.toString(iterations));
+        command.add(Integer.toString(operations));
+        combination.forEach((name, value) -> command.add(name + "=" + value));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Map<String, double[]> results = new LinkedHashMap<>();
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                if(line.startsWith(RESULT_PREFIX)) {
+                    // # iteration <metric>: value,value,...
+                    String[] result = line.substring(RESULT_PREFIX.length()).split(": ", 2);
+                    String[] values = result[1].split(",");
+                    double[] scores = new double[values.length];
+                    for(int i = 0; i < values.length; i++)
+                        scores[i] = Double.parseDouble(values[i]);
+                    results.put(result[0], scores);
+                } else  System.out.println(line);
+            }
+        }
+        if(process.waitFor() != 0 || !results.containsKey(PRIMARY_METRIC))
+            throw new IllegalStateException("Benchmark fork failed: " + benchmark + " " + combination);
+        return results;
+    }
+
+    private static void runFork(String[] args) throws IOException {
+        Map<String, String> combination = new LinkedHashMap<>();
+        for(int i = 5; i < args.length; i++) {
+            String[] param = args[i].split("=", 2);
+            combination.put(param[0], param[1]);
+        }
+        Map<String, double[]> results = measure(args[1], combination, Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+
+        for(Map.Entry<String, double[]> result : results.entrySet()) {
+            StringBuilder line = new StringBuilder(RESULT_PREFIX).append(result.getKey()).append(": ");
+            double[] scores = result.getValue();
+            for(int i = 0; i < scores.length; i++)
+                line.append(i == 0 ? "" : ",").append(scores[i]);
+            System.out.println(line);
+        }
+    }
+
+    /*
+        This function appends the result of a benchmark as a JSON object, with the average of all measurement iterations as score,
+        and the half-width of their 99.9% confidence interval as error
+     */
+    private void appendResult(StringBuilder json, String benchmark, Map<String, String> combination, List<Map<String, double[]>> forkResults) {
+        json.append("    {\n");
+        json.append("        \"benchmark\" : \"gatorTaxi.").append(benchmark).append("\",\n");
+        json.append("        \"mode\" : \"avgt\",\n");
+        json.append("        \"threads\" : ").append(GatorTaxiBenchmark.all().get(benchmark).threads(combination)).append(",\n");
+        json.append("        \"forks\" : ").append(forkResults.size()).append(",\n");
+        json.append("        \"jvm\" : \"").append(escape(Paths.get(System.getProperty("java.home"), "bin", "java").toString())).append("\",\n");
+        json.append("        \"jdkVersion\" : \"").append(escape(System.getProperty("java.version"))).append("\",\n");
+        json.append("        \"warmupIterations\" : ").append(warmupIterations).append(",\n");
+        json.append("        \"measurementIterations\" : ").append(iterations).append(",\n");
+        json.append("        \"operationsPerIteration\" : ").append(operations).append(",\n");
+        json.append("        \"params\" : {\n");
+        int param = 0;
+        for(Map.Entry<String, String> entry : combination.entrySet()) {
+            json.append("            \"").append(escape(entry.getKey())).append("\" : \"").append(escape(entry.getValue())).append('"');
+            json.append(++param < combination.size() ? ",\n" : "\n");
+        }
+        json.append("        },\n");
+        json.append("        \"primaryMetric\" : ");
+        appendMetric(json, forkResults, PRIMARY_METRIC, PRIMARY_METRIC, "        ");
+        json.append(",\n");
+        json.append("        \"secondaryMetrics\" : {\n");
+        // the metrics, that some benchmarks do not report, are only written for the others
+        List<String[]> metrics = new ArrayList<>();
+        for(String[] metric : SECONDARY_METRICS) {
+            if(forkResults.stream().anyMatch(results -> results.containsKey(metric[0])))    metrics.add(metric);
+        }
+        for(int i = 0; i < metrics.size(); i++) {
+            json.append("            \"").append(metrics.get(i)[0]).append("\" : ");
+            appendMetric(json, forkResults, metrics.get(i)[0], metrics.get(i)[1], "            ");
+            json.append(i + 1 < metrics.size() ? ",\n" : "\n");
+        }
+        json.append("        }\n");
+        json.append("    }");
+    }
+
+    /*
+        This function appends the score, error and raw data of one metric over all forks as a JSON object.
+        Like JMH, the error is the half-width of the CONFIDENCE (99.9%) confidence interval of the mean, from Student's t distribution
+        with count - 1 degrees of freedom, and scoreConfidence is that interval. A single score has no error
+     */
+    private static void appendMetric(StringBuilder json, List<Map<String, double[]>> forkResults, String metric, String unit, String indent) {
+        double sum = 0, squares = 0;
+        int count = 0;
+        for(Map<String, double[]> results : forkResults) {
+            for(double score : results.getOrDefault(metric, new double[0])) {
+                sum += score;
+                count++;
+            }
+        }
+        double mean = count == 0 ? 0 : sum / count;
+        for(Map<String, double[]> results : forkResults) {
+            for(double score : results.getOrDefault(metric, new double[0]))
+                squares += (score - mean) * (score - mean);
+        }
+        double error = count > 1 ? studentQuantile(CONFIDENCE, count - 1) * Math.sqrt(squares / (count - 1) / count) : 0;
+
+        json.append("{\n");
+        json.append(String.format(Locale.ROOT, "%s    \"score\" : %.6f,%n", indent, mean));
+        json.append(String.format(Locale.ROOT, "%s    \"scoreError\" : %.6f,%n", indent, error));
+        json.append(String.format(Locale.ROOT, "%s    \"scoreConfidence\" : [%.6f, %.6f],%n", indent, mean - error, mean + error));
+        json.append(indent).append("    \"scoreUnit\" : \"").append(unit).append("\",\n");
+        json.append(indent).append("    \"rawData\" : [");
+        for(int fork = 0; fork < forkResults.size(); fork++) {
+            double[] scores = forkResults.get(fork).getOrDefault(metric, new double[0]);
+            json.append(fork == 0 ? "[" : ", [");
+            for(int i = 0; i < scores.length; i++)
+                json.append(String.format(Locale.ROOT, i == 0 ? "%.6f" : ", %.6f", scores[i]));
+            json.append(']');
+        }
+        json.append("]\n");
+        json.append(indent).append('}');
+    }
+
+    /*
+        This function returns P(|T| < t) for Student's t distribution with the input degrees of freedom,
+        by the finite series for integer degrees of freedom (Abramowitz and Stegun 26.7.3 and 26.7.4)
+     */
+    static double studentTwoSided(double t, int degreesOfFreedom) {
+        double theta = Math.atan(t / Math.sqrt(degreesOfFreedom)), cos2 = Math.cos(theta) * Math.cos(theta);
+        double sum = 1, term = 1;
+        if(degreesOfFreedom % 2 == 1) {
+            if(degreesOfFreedom == 1)   return 2 * theta / Math.PI;
+            for(int i = 3; i <= degreesOfFreedom - 2; i += 2) {
+                term *= cos2 * (i - 1) / i;
+                sum += term;
+            }
+            return 2 / Math.PI * (theta + Math.sin(theta) * Math.cos(theta) * sum);
+        }
+        for(int i = 2; i <= degreesOfFreedom - 2; i += 2) {
+            term *= cos2 * (i - 1) / i;
+            sum += term;
+        }
+        return Math.sin(theta) * sum;
+    }
+
+    /*
+        This function returns the t, for which P(|T| < t) is the input confidence, by bisection
+     */
+    static double studentQuantile(double confidence, int degreesOfFreedom) {
+        double low = 0, high = 1;
+        while(studentTwoSided(high, degreesOfFreedom) < confidence)
+            high *= 2;
+        for(int i = 0; i < 100; i++) {
+            double mid = (low + high) / 2;
+            if(studentTwoSided(mid, degreesOfFreedom) < confidence)  low = mid;
+            else    high = mid;
+        }
+        return (low + high) / 2;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,954 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.stream.Stream;
+
+/*
+    Base class of the gatorTaxi benchmarks.
+    Before every iteration, setUp builds a fresh gatorTaxi with pendingRides rides and prepares the commands of the iteration,
+    run then executes them and is the only timed part. The output goes to a sink, that discards it.
+
+    Parameters (see BenchmarkRunner):
+    pendingRides - number of rides in the gatorTaxi before the iteration
+    rideIndex    - ride index implementation: rbt, array-rbt, bplus
+    rideQueue    - ride queue implementation: binary, 4-ary, pairing, bucket, or ride-array for the Ride[] heap of the first MinHeap (RideArrayHeap)
+    workload     - distribution of the ride numbers: uniform, sequential, zipfian
+    maxCost      - ride costs are uniform in 1 .. maxCost, for example 50 (many equal costs) or 1000000 (beyond the BucketQueue range)
+    journal      - off, or the FsyncPolicy of a Journal in a temporary directory, that logs every change: always, interval, never.
+                   The log is committed at the end of the timed part (mixed.batched commits after every batch, like main does)
+    store        - heap, mapped for a MappedRideStore in a temporary directory, or unified for a RideStore,
+                   mapped and unified replace rideIndex and rideQueue
+    metrics      - off or on, Metrics of every command. It is fixed when the JVM starts, so on needs forks
+    shards       - number of shards of the sharded benchmarks (ShardedGatorTaxi)
+    connections  - number of client connections of the server benchmark (GatorTaxiServer and LoadGenerator)
+    pipeline     - answers, that every connection of the server benchmark waits for at most
+    format       - text or binary (BinaryProtocol), format of the trace of the replay benchmark
+    rideTtl      - time to live in commands of the rides inserted by the expiry benchmark, 0 for none
+    threads      - number of dispatcher threads of the concurrent benchmark (ConcurrentGatorTaxi), for example 1,2,4,8,16,32
+    rangeRides   - number of rides, a range print of the rangeSearch benchmark returns on average, 10 for narrow scans
+                   or for example 100000 for wide ones. Its operations are lowered, so that an iteration scans at most MAX_SCANNED_RIDES rides
+ */
+public abstract class GatorTaxiBenchmark {
+
+    private static final long SEED = 42;
+    // rides, that the range prints of one iteration of the rangeSearch benchmark return at most on average
+    private static final long MAX_SCANNED_RIDES = 100_000_000;
+
+    private static final long FSYNC_INTERVAL_MILLIS = 100;
+
+    protected gatorTaxi gTaxi;
+    protected RideIndex rides;
+    protected RideQueue minCostRides;
+    protected WorkloadGenerator generator;
+    protected Map<String, String> params;
+    protected Path journalDirectory;
+    protected Journal journal;
+    protected Path storeDirectory;
+    protected MappedRideStore store;
+    protected int pendingRides;
+    // cost and duration of the n-th inserted ride of the set up
+    protected int[] rideCosts;
+    protected int[] tripDurations;
+    // number of operations of the current iteration
+    protected int operations;
+
+    /*
+        This function returns the benchmarks by name, in the order they are run
+     */
+    static Map<String, GatorTaxiBenchmark> all() {
+        Map<String, GatorTaxiBenchmark> benchmarks = new LinkedHashMap<>();
+        benchmarks.put("insert", new Insert());
+        benchmarks.put("print", new Print());
+        benchmarks.put("rangeSearch", new RangeSearch());
+        benchmarks.put("getNextRide", new GetNextRide());
+        benchmarks.put("getNextRides.10", new GetNextRides(10));
+        benchmarks.put("getNextRides.100", new GetNextRides(100));
+        benchmarks.put("peekTopK.10", new PeekTopK(10));
+        benchmarks.put("peekTopK.100", new PeekTopK(100));
+        benchmarks.put("updateTrip.shorter", new UpdateTrip(UpdateTrip.SHORTER));
+        benchmarks.put("updateTrip.longer", new UpdateTrip(UpdateTrip.LONGER));
+        benchmarks.put("updateTrip.cancel", new UpdateTrip(UpdateTrip.CANCEL));
+        benchmarks.put("cancelTrip", new CancelTrip());
+        benchmarks.put("cancelInsert", new CancelInsert());
+        benchmarks.put("mixed", new Mixed(false));
+        benchmarks.put("mixed.batched", new Mixed(true));
+        benchmarks.put("recovery", new Recovery());
+        benchmarks.put("sharded", new Sharded(false));
+        benchmarks.put("sharded.perRide", new Sharded(true));
+        benchmarks.put("server", new Server());
+        benchmarks.put("replay", new Replay());
+        benchmarks.put("expiry", new Expiry());
+        benchmarks.put("startup.insert", new Startup(false));
+        benchmarks.put("startup.bulk", new Startup(true));
+        benchmarks.put("footprint", new Footprint());
+        benchmarks.put("concurrent", new Concurrent());
+        return benchmarks;
+    }
+
+    /*
+        This function returns the number of threads, that run the operations of the benchmark
+     */
+    int threads(Map<String, String> params) {
+        return 1;
+    }
+
+    /*
+        This function builds the gatorTaxi of the next iteration, and calls prepare for the commands of the iteration
+     */
+    void setUp(Map<String, String> params, int maxOperations) throws IOException {
+        this.params = params;
+        if(params.getOrDefault("metrics", "off").equals("on") != Metrics.ENABLED)
+            throw new IllegalArgumentException("metrics=" + params.get("metrics") + " does not match -DgatorTaxi.metrics of this JVM, run it in a fork");
+        pendingRides = Integer.parseInt(params.get("pendingRides"));
+        WorkloadGenerator.Distribution distribution = WorkloadGenerator.Distribution.valueOf(params.get("workload").toUpperCase());
+        generator = new WorkloadGenerator(distribution, SEED, pendingRides, Integer.parseInt(params.getOrDefault("maxCost", "1000")));
+
+        if(params.getOrDefault("store", "heap").equals("mapped")) {
+            storeDirectory = Files.createTempDirectory("gatorTaxi-store");
+            store = MappedRideStore.open(storeDirectory.resolve("rides"));
+            rides = store.index();
+            minCostRides = store.queue();
+        } else  createRides();
+        String fsyncPolicy = journalPolicy();
+        if(!fsyncPolicy.equals("off")) {
+            journalDirectory = Files.createTempDirectory("gatorTaxi-journal");
+            journal = new Journal(journalDirectory, FsyncPolicy.of(fsyncPolicy), FSYNC_INTERVAL_MILLIS, 0);
+            rides = journal.recover(rides, minCostRides);
+        }
+        OutputSink out = new OutputSink(Channels.newChannel(OutputStream.nullOutputStream()));
+        gTaxi = new gatorTaxi(out, rides, minCostRides);
+        rideCosts = new int[pendingRides];
+        tripDurations = new int[pendingRides];
+        boolean insert = insertsPendingRides();
+        for(int i = 0; i < pendingRides; i++) {
+            rideCosts[i] = generator.nextRideCost();
+            tripDurations[i] = generator.nextTripDuration();
+            int rideNo = generator.nextInsertRideNo();
+            if(insert)  gTaxi.insert(rideNo, rideCosts[i], tripDurations[i]);
+        }
+        if(journal != null) journal.snapshot();
+
+        operations = maxOperations;
+        prepare();
+    }
+
+    /*
+        This function sets rides and minCostRides to an empty ride index and ride queue on the Java heap,
+        of the rideIndex and rideQueue parameters, or of a RideStore for store unified
+     */
+    protected void createRides() {
+        if(params.getOrDefault("store", "heap").equals("unified")) {
+            RideStore rideStore = new RideStore();
+            rides = rideStore.index();
+            minCostRides = rideStore.queue();
+        } else {
+            rides = RideIndex.create(params.get("rideIndex"));
+            minCostRides = rideQueue(params.get("rideQueue"));
+        }
+    }
+
+    /*
+        This function returns the ride queue of the rideQueue parameter, RideArrayHeap is only known to the benchmarks
+     */
+    protected static RideQueue rideQueue(String name) {
+        return name.equals("ride-array") ? new RideArrayHeap() : RideQueue.create(name);
+    }
+
+    /*
+        This function returns the FsyncPolicy of the journal, or off
+     */
+    protected String journalPolicy() {
+        return params.getOrDefault("journal", "off");
+    }
+
+    /*
+        This function returns false, if the benchmark loads the pending rides itself, then the set up only draws them
+     */
+    protected boolean insertsPendingRides() {
+        return true;
+    }
+
+    /*
+        This function commits the changes of the iteration to the journal, it is part of the timed operations
+     */
+    void commit() {
+        try {
+            if(journal != null) journal.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+        This function closes the journal and the ride store of the iteration, and deletes their directories
+     */
+    void tearDown() throws IOException {
+        if(journal != null) journal.close();
+        if(store != null)   store.close();
+        journal = null;
+        store = null;
+        deleteDirectory(journalDirectory);
+        deleteDirectory(storeDirectory);
+        journalDirectory = null;
+        storeDirectory = null;
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        if(directory == null)   return;
+        try(Stream<Path> files = Files.walk(directory)) {
+            for(Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+                Files.delete(file);
+        }
+    }
+
+    /*
+        This function prepares the commands of the iteration, and may lower operations
+     */
+    abstract void prepare();
+
+    /*
+        This function executes the operations of the iteration
+     */
+    abstract void run();
+
+    /*
+        This function returns the metrics of the last run besides its time, by metric name (see BenchmarkRunner)
+     */
+    Map<String, Double> secondaryMetrics() {
+        return Map.of();
+    }
+
+    /*
+        This function returns the indexes of distinct rides of the set up in random order,
+        for the operations, that remove a ride or change it for the next operation on it
+     */
+    protected int[] distinctRides() {
+        operations = Math.min(operations, pendingRides);
+        int[] indexes = new int[pendingRides];
+        for(int i = 0; i < pendingRides; i++)
+            indexes[i] = i;
+        for(int i = 0; i < operations; i++) {
+            int j = i + generator.nextInt(pendingRides - i);
+            int temp = indexes[i];
+            indexes[i] = indexes[j];
+            indexes[j] = temp;
+        }
+        return Arrays.copyOf(indexes, operations);
+    }
+
+    static final class Insert extends GatorTaxiBenchmark {
+        private int[] rideNos, costs, durations;
+
+        @Override
+        void prepare() {
+            rideNos = new int[operations];
+            costs = new int[operations];
+            durations = new int[operations];
+            for(int i = 0; i < operations; i++) {
+                rideNos[i] = generator.nextInsertRideNo();
+                costs[i] = generator.nextRideCost();
+                durations[i] = generator.nextTripDuration();
+            }
+        }
+
+        @Override
+        void run() {
+            for(int i = 0; i < operations; i++)
+                gTaxi.insert(rideNos[i], costs[i], durations[i]);
+        }
+    }
+
+    static final class Print extends GatorTaxiBenchmark {
+        private int[] rideNos;
+
+        @Override
+        void prepare() {
+            rideNos = new int[operations];
+            for(int i = 0; i < operations; i++)
+                rideNos[i] = generator.nextExistingRideNo();
+        }
+
+        @Override
+        void run() {
+            for(int rideNo : rideNos)
+                gTaxi.print(rideNo);
+        }
+    }
+
+    static final class RangeSearch extends GatorTaxiBenchmark {
+        private int[] rideNos1, rideNos2;
+
+        @Override
+        void prepare() {
+            int rangeRides = Integer.parseInt(params.getOrDefault("rangeRides", "10"));
+            operations = (int) Math.max(1, Math.min(operations, MAX_SCANNED_RIDES / rangeRides));
+            rideNos1 = new int[operations];
+            rideNos2 = new int[operations];
+            int width = generator.rangeWidth(rangeRides);
+            for(int i = 0; i < operations; i++) {
+                rideNos1[i] = generator.nextExistingRideNo();
+                rideNos2[i] = (int) Math.min(Integer.MAX_VALUE, (long) rideNos1[i] + width);
+            }
+        }
+
+        @Override
+        void run() {
+            for(int i = 0; i < operations; i++)
+                gTaxi.rangeSearch(rideNos1[i], rideNos2[i]);
+        }
+    }
+
+    static final class GetNextRide extends GatorTaxiBenchmark {
+        @Override
+        void prepare() {
+            operations = Math.min(operations, pendingRides);
+        }
+
+        @Override
+        void run() {
+            for(int i = 0; i < operations; i++)
+                gTaxi.getNextRide();
+        }
+    }
+
+    /*
+        Bulk dispatch of the k cheapest rides, an operation is one GetNextRide(k)
+     */
+    static final class GetNextRides extends GatorTaxiBenchmark {
+        private final int k;
+
+        GetNextRides(int k) {
+            this.k = k;
+        }
+
+        @Override
+        void prepare() {
+            operations = Math.max(Math.min(operations, pendingRides / k), 1);
+        }
+
+        @Override
+        void run() {
+            for(int i = 0; i < operations; i++)
+                gTaxi.getNextRides(k);
+        }
+    }
+
+    /*
+        Read of the k cheapest rides without removing them, an operation is one PeekNextRides(k)
+     */
+    static final class PeekTopK extends GatorTaxiBenchmark {
+        private final int k;
+
+        PeekTopK(int k) {
+            this.k = k;
+        }
+
+        @Override
+        void prepare() {
+        }
+
+        @Override
+        void run() {
+            for(int i = 0; i < operations; i++)
+                gTaxi.peekNextRides(k);
+        }
+    }
+
+    /*
+        Every branch of updateTrip: a shorter trip only updates the ride, a longer trip (up to twice the duration)
+        raises the cost by 10, and a trip more than twice as long cancels the ride
+     */
+    static final class UpdateTrip extends GatorTaxiBenchmark {
+        static final int SHORTER = 0, LONGER = 1, CANCEL = 2;
+
+        private final int branch;
+        private int[] rideNos, newTripDurations;
+
+        UpdateTrip(int branch) {
+            this.branch = branch;
+        }
+
+        @Override
+        void prepare() {
+            int[] indexes = distinctRides();
+            rideNos = new int[operations];
+            newTripDurations = new int[operations];
+            for(int i = 0; i < operations; i++) {
+                int index = indexes[i], tripDuration = tripDurations[index];
+                rideNos[i] = generator.rideNo(index);
+                if(branch == SHORTER)   newTripDurations[i] = Math.max(tripDuration - 1, 1);
+                else if(branch == LONGER)   newTripDurations[i] = tripDuration + 1 + generator.nextInt(tripDuration);
+                else    newTripDurations[i] = 2 * tripDuration + 1;
+            }
+        }
+
+        @Override
+        void run() {
+            for(int i = 0; i < operations; i++)
+                gTaxi.updateTrip(rideNos[i], newTripDurations[i]);
+        }
+    }
+
+    static final class CancelTrip extends GatorTaxiBenchmark {
+        private int[] rideNos;
+
+        @Override
+        void prepare() {
+            int[] indexes = distinctRides();
+            rideNos = new int[operations];
+            for(int i = 0; i < operations; i++)
+                rideNos[i] = generator.rideNo(indexes[i]);
+        }
+
+        @Override
+        void run() {
+            for(int rideNo : rideNos)
+                gTaxi.cancelTrip(rideNo);
+        }
+    }
+
+    /*
+        Churn at a constant number of pending rides: an operation cancels a ride of the set up and inserts a new ride.
+        The ride index frees and fills nodes all the time, for example the B+ tree empties leaves and splits others
+     */
+    static final class CancelInsert extends GatorTaxiBenchmark {
+        private int[] cancelRideNos, insertRideNos, costs, durations;
+
+        @Override
+        void prepare() {
+            int[] indexes = distinctRides();
+            cancelRideNos = new int[operations];
+            insertRideNos = new int[operations];
+            costs = new int[operations];
+            durations = new int[operations];
+            for(int i = 0; i < operations; i++) {
+                cancelRideNos[i] = generator.rideNo(indexes[i]);
+                insertRideNos[i] = generator.nextInsertRideNo();
+                costs[i] = generator.nextRideCost();
+                durations[i] = generator.nextTripDuration();
+            }
+        }
+
+        @Override
+        void run() {
+            for(int i = 0; i < operations; i++) {
+                gTaxi.cancelTrip(cancelRideNos[i]);
+                gTaxi.insert(insertRideNos[i], costs[i], durations[i]);
+            }
+        }
+    }
+
+    /*
+        Mixed workload of all commands (see WorkloadGenerator), executed one by one, or in batches like main does
+     */
+    static final class Mixed extends GatorTaxiBenchmark {
+        private static final int BATCH_SIZE = 4096;
+
+        private final boolean batched;
+        private final Command[] batch = new Command[BATCH_SIZE];
+        private Command[] commands;
+
+        Mixed(boolean batched) {
+            this.batched = batched;
+        }
+
+        @Override
+        void prepare() {
+            commands = new Command[operations];
+            for(int i = 0; i < operations; i++)
+                commands[i] = new Command();
+            generator.fillMixed(commands);
+        }
+
+        @Override
+        void run() {
+            if(!batched) {
+                for(Command command : commands)
+                    gTaxi.execute(command);
+                return;
+            }
+
+            for(int from = 0; from < operations; from += BATCH_SIZE) {
+                int count = Math.min(BATCH_SIZE, operations - from);
+                System.arraycopy(commands, from, batch, 0, count);
+                gTaxi.execute(batch, count);
+                commit();
+            }
+        }
+    }
+
+    /*
+        Recovery of the journal: the pending rides are in the snapshot, and a mixed workload of operations commands in the log tail.
+        One operation is one recovery, which loads the snapshot, merges the log tail, and builds the ride index and ride queue.
+        Without a journal parameter, the journal does not fsync (never)
+     */
+    static final class Recovery extends GatorTaxiBenchmark {
+        private Journal recovered;
+
+        @Override
+        protected String journalPolicy() {
+            String fsyncPolicy = super.journalPolicy();
+            return fsyncPolicy.equals("off") ? "never" : fsyncPolicy;
+        }
+
+        @Override
+        void prepare() {
+            Command[] commands = new Command[operations];
+            for(int i = 0; i < operations; i++)
+                commands[i] = new Command();
+            generator.fillMixed(commands);
+            gTaxi.execute(commands, operations);
+            try {
+                journal.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            operations = 1;
+        }
+
+        @Override
+        void run() {
+            try {
+                recovered = new Journal(journalDirectory, FsyncPolicy.NEVER, FSYNC_INTERVAL_MILLIS, 0);
+                recovered.recover(RideIndex.create(params.get("rideIndex")), rideQueue(params.get("rideQueue")));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        void tearDown() throws IOException {
+            recovered.close();
+            super.tearDown();
+        }
+    }
+
+    /*
+        Replayed mixed command stream on a ShardedGatorTaxi with the same pending rides, executed in batches like main does.
+        The perRide variant has no commands on all rides (GetNextRide, range Print), so the shards are never stopped by them
+     */
+    static final class Sharded extends GatorTaxiBenchmark {
+        private static final int BATCH_SIZE = 4096;
+
+        private final boolean perRide;
+        private final Command[] batch = new Command[BATCH_SIZE];
+        private Command[] commands;
+        private ShardedGatorTaxi sharded;
+
+        Sharded(boolean perRide) {
+            this.perRide = perRide;
+        }
+
+        @Override
+        void prepare() {
+            OutputSink out = new OutputSink(Channels.newChannel(OutputStream.nullOutputStream()));
+            sharded = new ShardedGatorTaxi(out, Integer.parseInt(params.getOrDefault("shards", "1")), params.get("rideIndex"), params.get("rideQueue"));
+            Command[] inserts = new Command[Math.min(pendingRides, BATCH_SIZE)];
+            for(int from = 0; from < pendingRides; from += inserts.length) {
+                int count = Math.min(inserts.length, pendingRides - from);
+                for(int i = 0; i < count; i++)
+                    inserts[i] = new Command(CommandType.INSERT, generator.rideNo(from + i), rideCosts[from + i], tripDurations[from + i]);
+                sharded.execute(inserts, count);
+            }
+
+            commands = new Command[operations];
+            for(int i = 0; i < operations; i++)
+                commands[i] = new Command();
+            if(perRide) generator.fillMixed(commands, WorkloadGenerator.PER_RIDE_MIX);
+            else    generator.fillMixed(commands);
+        }
+
+        @Override
+        void run() {
+            for(int from = 0; from < operations; from += BATCH_SIZE) {
+                int count = Math.min(BATCH_SIZE, operations - from);
+                System.arraycopy(commands, from, batch, 0, count);
+                sharded.execute(batch, count);
+            }
+        }
+
+        @Override
+        void tearDown() throws IOException {
+            sharded.close();
+            super.tearDown();
+        }
+    }
+
+    /*
+        Mixed workload sent to a GatorTaxiServer over connections localhost TCP connections, each pipelining up to pipeline commands.
+        The server runs on its own thread over the rides of the set up, the LoadGenerator connects before the timed part.
+        The time per operation is the inverse throughput, the latencies of the answers are reported as secondary metrics
+     */
+    static final class Server extends GatorTaxiBenchmark {
+        private GatorTaxiServer server;
+        private Thread serverThread;
+        private LoadGenerator load;
+
+        @Override
+        void prepare() {
+            try {
+                server = new GatorTaxiServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+                gatorTaxi engine = new gatorTaxi(server.outputSink(), rides, minCostRides);
+                serverThread = new Thread(() -> {
+                    try {
+                        server.serve((batch, count) -> {
+                            engine.execute(batch, count);
+                            commit();
+                        });
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, "gatorTaxi-server");
+                serverThread.start();
+                load = new LoadGenerator(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.port()),
+                        Integer.parseInt(params.getOrDefault("connections", "1000")), Integer.parseInt(params.getOrDefault("pipeline", "16")));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            Command[] commands = new Command[operations];
+            for(int i = 0; i < operations; i++)
+                commands[i] = new Command();
+            generator.fillMixed(commands);
+            load.load(commands);
+        }
+
+        @Override
+        void run() {
+            try {
+                load.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        Map<String, Double> secondaryMetrics() {
+            Map<String, Double> metrics = new LinkedHashMap<>();
+            metrics.put("latency.p50", load.latencies.percentile(50) / 1000.0);
+            metrics.put("latency.p99", load.latencies.percentile(99) / 1000.0);
+            metrics.put("latency.p99.9", load.latencies.percentile(99.9) / 1000.0);
+            metrics.put("latency.max", load.latencies.max() / 1000.0);
+            return metrics;
+        }
+
+        @Override
+        void tearDown() throws IOException {
+            load.close();
+            server.close();
+            try {
+                serverThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.tearDown();
+        }
+    }
+
+    /*
+        End-to-end replay of a trace of operations mixed commands from a file in the format of the format parameter:
+        the commands are read and decoded, executed in batches like main does, and the answers are written in the same format
+        to a sink, that discards them. The trace is written once for the parameters and operations, before the first iteration.
+        The commands do not depend on the format, so the text and binary replays of the same parameters execute the same trace
+     */
+    static final class Replay extends GatorTaxiBenchmark {
+        private static final int BATCH_SIZE = 4096;
+
+        private final Command[] batch = new Command[BATCH_SIZE];
+        private Path trace;
+        private Map<String, String> traceParams;
+        private int traceOperations;
+        private boolean binary;
+        private gatorTaxi engine;
+
+        Replay() {
+            for(int i = 0; i < BATCH_SIZE; i++)
+                batch[i] = new Command();
+        }
+
+        @Override
+        void prepare() {
+            binary = params.getOrDefault("format", "text").equals("binary");
+            WritableByteChannel discard = Channels.newChannel(OutputStream.nullOutputStream());
+            engine = new gatorTaxi(binary ? new BinaryOutputSink(discard) : new OutputSink(discard), rides, minCostRides);
+            if(params.equals(traceParams) && operations == traceOperations) return;
+
+            try {
+                if(trace != null)   Files.delete(trace);
+                trace = Files.createTempFile("gatorTaxi-trace", binary ? ".bin" : ".txt");
+                trace.toFile().deleteOnExit();
+                try(FileChannel output = FileChannel.open(trace, StandardOpenOption.WRITE)) {
+                    ByteBuffer buffer = ByteBuffer.allocate(BATCH_SIZE * BinaryProtocol.MAX_COMMAND_SIZE * 4).order(ByteOrder.LITTLE_ENDIAN);
+                    for(int from = 0; from < operations; from += BATCH_SIZE) {
+                        int count = Math.min(BATCH_SIZE, operations - from);
+                        Command[] commands = count == BATCH_SIZE ? batch : Arrays.copyOf(batch, count);
+                        generator.fillMixed(commands);
+                        for(Command command : commands) {
+                            if(binary)  BinaryProtocol.encode(command, buffer);
+                            else    buffer.put(command.toString().getBytes(StandardCharsets.US_ASCII)).put((byte) '\n');
+                        }
+                        buffer.flip();
+                        while(buffer.hasRemaining())
+                            output.write(buffer);
+                        buffer.clear();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            traceParams = params;
+            traceOperations = operations;
+        }
+
+        @Override
+        void run() {
+            try {
+                FileChannel input = FileChannel.open(trace, StandardOpenOption.READ);
+                try(CommandSource source = binary ? new BinaryCommandDecoder(input) : new CommandParser(input)) {
+                    int count;
+                    do {
+                        count = source.nextBatch(batch);
+                        engine.execute(batch, count);
+                        commit();
+                    } while(count == BATCH_SIZE);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /*
+        Constant arrival of rides with a time to live of rideTtl commands: inserts outnumber the commands, that remove a ride,
+        so without expiry the ride queue grows for as long as the workload runs. With expiry it levels off at about
+        the pending rides of the set up (which do not expire), plus the arrivals of the last rideTtl commands.
+        Every command is timed on its own, and the ride queue size and depth at the end of the run are reported,
+        so runs with more operations show whether the size and the latency percentiles stay flat
+     */
+    static final class Expiry extends GatorTaxiBenchmark {
+        // percentage of Insert, Print, range Print, GetNextRide, UpdateTrip and CancelRide commands
+        private static final int[] ARRIVAL_MIX = {30, 40, 0, 5, 15, 10};
+
+        private Command[] commands;
+        private gatorTaxi engine;
+        private Histogram latencies;
+
+        @Override
+        void prepare() {
+            int rideTtl = Integer.parseInt(params.getOrDefault("rideTtl", "10000"));
+            engine = new gatorTaxi(new OutputSink(Channels.newChannel(OutputStream.nullOutputStream())), rides, minCostRides,
+                    DuplicatePolicy.REJECT, rideTtl);
+            commands = new Command[operations];
+            for(int i = 0; i < operations; i++)
+                commands[i] = new Command();
+            generator.fillMixed(commands, ARRIVAL_MIX);
+            latencies = new Histogram();
+        }
+
+        @Override
+        void run() {
+            for(Command command : commands) {
+                long start = System.nanoTime();
+                engine.execute(command);
+                latencies.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        Map<String, Double> secondaryMetrics() {
+            Map<String, Double> metrics = new LinkedHashMap<>();
+            metrics.put("latency.p50", latencies.percentile(50) / 1000.0);
+            metrics.put("latency.p99", latencies.percentile(99) / 1000.0);
+            metrics.put("latency.p99.9", latencies.percentile(99.9) / 1000.0);
+            metrics.put("latency.max", latencies.max() / 1000.0);
+            metrics.put("heap.size", (double) minCostRides.size());
+            // levels of a binary heap of that size
+            metrics.put("heap.depth", (double) (32 - Integer.numberOfLeadingZeros(minCostRides.size())));
+            return metrics;
+        }
+    }
+
+    /*
+        Start up of a gatorTaxi with the pendingRides rides of the set up, given in insertion order (scrambled ride numbers for
+        the uniform workload): either inserted one by one, or bulk loaded with gatorTaxi.load (parallel sort, linear builds).
+        One operation is one start up into a new ride index and ride queue, the set up does not insert the rides itself
+     */
+    static final class Startup extends GatorTaxiBenchmark {
+        private final boolean bulk;
+        private int[] rideNos;
+        private gatorTaxi engine;
+
+        Startup(boolean bulk) {
+            this.bulk = bulk;
+        }
+
+        @Override
+        protected boolean insertsPendingRides() {
+            return false;
+        }
+
+        @Override
+        void prepare() {
+            rideNos = new int[pendingRides];
+            for(int i = 0; i < pendingRides; i++)
+                rideNos[i] = generator.rideNo(i);
+            engine = null;
+            operations = 1;
+        }
+
+        @Override
+        void run() {
+            createRides();
+            engine = new gatorTaxi(new OutputSink(Channels.newChannel(OutputStream.nullOutputStream())), rides, minCostRides);
+            if(bulk) {
+                engine.load(rideNos, rideCosts, tripDurations, pendingRides);
+                return;
+            }
+            for(int i = 0; i < pendingRides; i++)
+                engine.insert(rideNos[i], rideCosts[i], tripDurations[i]);
+        }
+    }
+
+    /*
+        Memory of the pending rides: the pendingRides rides of the set up are inserted into a new ride index and ride queue,
+        one operation is one insert. After the run, the heap is measured after full collections with and without the rides,
+        and memory.perRide is the difference per ride, in bytes. Compare store heap with store unified,
+        or the ride indexes rbt, array-rbt and bplus with the same rideQueue
+     */
+    static final class Footprint extends GatorTaxiBenchmark {
+        private int[] rideNos;
+        private gatorTaxi engine;
+
+        @Override
+        protected boolean insertsPendingRides() {
+            return false;
+        }
+
+        @Override
+        void prepare() {
+            rideNos = new int[pendingRides];
+            for(int i = 0; i < pendingRides; i++)
+                rideNos[i] = generator.rideNo(i);
+            operations = pendingRides;
+        }
+
+        @Override
+        void run() {
+            createRides();
+            engine = new gatorTaxi(new OutputSink(Channels.newChannel(OutputStream.nullOutputStream())), rides, minCostRides);
+            for(int i = 0; i < pendingRides; i++)
+                engine.insert(rideNos[i], rideCosts[i], tripDurations[i]);
+        }
+
+        @Override
+        Map<String, Double> secondaryMetrics() {
+            long withRides = usedHeap();
+            engine = null;
+            rides = null;
+            minCostRides = null;
+            long withoutRides = usedHeap();
+            return Map.of("memory.perRide", (double) (withRides - withoutRides) / Math.max(pendingRides, 1));
+        }
+
+        private static long usedHeap() {
+            Runtime runtime = Runtime.getRuntime();
+            for(int i = 0; i < 3; i++)
+                System.gc();
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+
+    /*
+        Mixed workload (see WorkloadGenerator) on threads dispatcher threads, that share the pending rides of a ConcurrentGatorTaxi.
+        The commands are split evenly over the threads, which start together, and the run ends when the last one is done,
+        so the time per operation is the inverse throughput of all threads. Compare threads 1 to 32 for the scaling
+     */
+    static final class Concurrent extends GatorTaxiBenchmark {
+        private ConcurrentGatorTaxi concurrent;
+        private Thread[] workers;
+        private CyclicBarrier start;
+        private CyclicBarrier end;
+
+        @Override
+        int threads(Map<String, String> params) {
+            return Integer.parseInt(params.getOrDefault("threads", "1"));
+        }
+
+        @Override
+        protected boolean insertsPendingRides() {
+            return false;
+        }
+
+        @Override
+        void prepare() {
+            concurrent = new ConcurrentGatorTaxi();
+            for(int i = 0; i < pendingRides; i++)
+                concurrent.insert(generator.rideNo(i), rideCosts[i], tripDurations[i]);
+
+            Command[] commands = new Command[operations];
+            for(int i = 0; i < operations; i++)
+                commands[i] = new Command();
+            generator.fillMixed(commands);
+
+            int threads = threads(params);
+            workers = new Thread[threads];
+            start = new CyclicBarrier(threads + 1);
+            end = new CyclicBarrier(threads + 1);
+            for(int thread = 0; thread < threads; thread++) {
+                int from = (int) ((long) operations * thread / threads), to = (int) ((long) operations * (thread + 1) / threads);
+                workers[thread] = new Thread(() -> {
+                    await(start);
+                    for(int i = from; i < to; i++)
+                        execute(commands[i]);
+                    await(end);
+                }, "gatorTaxi-dispatcher-" + thread);
+                workers[thread].setDaemon(true);
+                workers[thread].start();
+            }
+        }
+
+        private void execute(Command command) {
+            int[] args = command.args;
+            switch(command.type) {
+                case INSERT: concurrent.insert(args[0], args[1], args[2]); break;
+                case PRINT: concurrent.print(args[0]); break;
+                case RANGE_PRINT: concurrent.rangeSearch(args[0], args[1]); break;
+                case GET_NEXT_RIDE: concurrent.getNextRide(); break;
+                case UPDATE_TRIP: concurrent.updateTrip(args[0], args[1]); break;
+                case CANCEL_RIDE: concurrent.cancelTrip(args[0]); break;
+                default: throw new IllegalArgumentException("Unsupported command: " + command);
+            }
+        }
+
+        @Override
+        void run() {
+            await(start);
+            await(end);
+        }
+
+        private static void await(CyclicBarrier barrier) {
+            try {
+                barrier.await();
+            } catch (InterruptedException | BrokenBarrierException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/*
+    Garbage collections of the JVM between start and stop: the number of collections and their total time
+    come from the GarbageCollectorMXBeans, the longest single collection from their notifications.
+    With the concurrent collectors, the time of a collection is not all pause time, so gc.maxPause is an upper bound of the longest pause.
+    The bytes allocated in between are counted for the thread, that calls start and stop (com.sun.management.ThreadMXBean),
+    so the allocations of other threads, for example of the server or the shards, are not included.
+    Reading the counter allocates a few hundred bytes itself, which are measured once and left out.
+ */
+public class GcMonitor implements NotificationListener, AutoCloseable {
+    // the notifications come from another thread, so stop waits at most this long for the collections it counted
+    private static final long NOTIFICATION_WAIT_MILLIS = 1000;
+
+    // collections, total milliseconds and longest collection in milliseconds of the last start - stop
+    long count;
+    long time;
+    long maxPause;
+    // bytes allocated by the thread of start - stop
+    long allocated;
+    // bytes allocated by one reading of the allocation counter
+    private static final long READ_ALLOCATION = readAllocation();
+
+    // JVM uptime at start and stop, collections that started in between are counted
+    private long startUptime;
+    private long stopUptime;
+    private long notified;
+
+    GcMonitor() {
+        for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if(collector instanceof NotificationEmitter)
+                ((NotificationEmitter) collector).addNotificationListener(this, null, null);
+        }
+    }
+
+    synchronized void start() {
+        count = -collections();
+        time = -collectionTime();
+        maxPause = 0;
+        notified = 0;
+        startUptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        stopUptime = Long.MAX_VALUE;
+        allocated = -allocatedBytes();
+    }
+
+    synchronized void stop() {
+        allocated += allocatedBytes() - READ_ALLOCATION;
+        count += collections();
+        time += collectionTime();
+        stopUptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        long deadline = System.currentTimeMillis() + NOTIFICATION_WAIT_MILLIS;
+        try {
+            for(long wait; notified < count && (wait = deadline - System.currentTimeMillis()) > 0; )
+                wait(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+        This function returns the bytes, that the current thread has allocated so far
+     */
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    /*
+        This function returns the bytes allocated between two readings of the allocation counter, after the first readings are done
+     */
+    static long readAllocation() {
+        long allocation = 0;
+        for(int i = 0; i < 3; i++) {
+            long before = allocatedBytes();
+            allocation = allocatedBytes() - before;
+        }
+        return allocation;
+    }
+
+    private static long collections() {
+        long collections = 0;
+        for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            collections += Math.max(collector.getCollectionCount(), 0);
+        return collections;
+    }
+
+    private static long collectionTime() {
+        long time = 0;
+        for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            time += Math.max(collector.getCollectionTime(), 0);
+        return time;
+    }
+
+    @Override
+    public synchronized void handleNotification(Notification notification, Object handback) {
+        if(!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))    return;
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        long startTime = info.getGcInfo().getStartTime();
+        if(startTime < startUptime || startTime > stopUptime) return;
+        maxPause = Math.max(maxPause, info.getGcInfo().getDuration());
+        notified++;
+        notifyAll();
+    }
+
+    @Override
+    public void close() {
+        for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if(!(collector instanceof NotificationEmitter)) continue;
+            try {
+                ((NotificationEmitter) collector).removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                // not registered
+            }
+        }
+    }
+}
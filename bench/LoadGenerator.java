@@ -0,0 +1,233 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+
+/*
+    Load generator of the GatorTaxiServer: many client connections on one NIO selector thread,
+    each of them pipelining its share of the commands with at most pipeline answers outstanding.
+    The commands are dealt to the connections in turns, and sent as text lines like the input file.
+    The latency of every printing command, from the write of its line to the read of its answer, is recorded in a Histogram.
+    A connection, whose last command does not print, ends with an extra Print(0), so that its answer tells the commands are executed.
+
+    With more than SOURCE_PORTS connections to a loopback server, the connections are spread over the source addresses 127.0.0.2, 127.0.0.3, ...,
+    as every source address has only about that many ephemeral ports. Both ends need a limit of open files (ulimit -n) above the connections.
+
+    Usage: java -cp <classes> LoadGenerator [options]   (against a server started with -DgatorTaxi.port=<port>, that has no rides yet)
+    -port p             port of the server on localhost (default 7070)
+    -c n                connections (default 1000)
+    -d n                pipeline depth, answers outstanding per connection (default 16)
+    -n n                mixed workload commands (default 1000000)
+    -pendingRides n     rides inserted before the commands (default 100000)
+ */
+public class LoadGenerator implements Closeable {
+    private static final int SOURCE_PORTS = 25_000;
+    private static final int READ_BUFFER_SIZE = 1 << 12;
+    private static final String BARRIER = "Print(0)\n";
+
+    private final Selector selector;
+    private final Client[] clients;
+    private final int pipeline;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    // latencies of the answers of the last run, in nanoseconds
+    Histogram latencies = new Histogram();
+
+    /*
+        This function opens the connections, and waits until all of them are connected
+     */
+    LoadGenerator(InetSocketAddress server, int connections, int pipeline) throws IOException {
+        this.selector = Selector.open();
+        this.clients = new Client[connections];
+        this.pipeline = pipeline;
+        boolean spread = connections > SOURCE_PORTS && server.getAddress().isLoopbackAddress();
+        for(int i = 0; i < connections; i++) {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            if(spread)  channel.bind(new InetSocketAddress(InetAddress.getByAddress(new byte[]{127, 0, 0, (byte) (2 + i / SOURCE_PORTS)}), 0));
+            clients[i] = new Client(channel);
+            if(channel.connect(server)) clients[i].key = channel.register(selector, 0, clients[i]);
+            else    clients[i].key = channel.register(selector, SelectionKey.OP_CONNECT, clients[i]);
+        }
+
+        int connecting = 0;
+        for(Client client : clients)
+            if(client.key.interestOps() == SelectionKey.OP_CONNECT) connecting++;
+        while(connecting > 0) {
+            selector.select();
+            for(SelectionKey key : selector.selectedKeys()) {
+                if(((SocketChannel) key.channel()).finishConnect()) {
+                    key.interestOps(0);
+                    connecting--;
+                }
+            }
+            selector.selectedKeys().clear();
+        }
+    }
+
+    /*
+        This function deals the commands to the connections, and encodes them for the next run
+     */
+    void load(Command[] commands) {
+        StringBuilder[] requests = new StringBuilder[clients.length];
+        int[] printing = new int[clients.length];
+        for(int i = 0; i < clients.length; i++) {
+            requests[i] = new StringBuilder();
+            // the last command dealt to the connection, if any
+            int last = i + (commands.length - 1 - i) / clients.length * clients.length;
+            if(i < commands.length && !commands[last].type.printsLine())    printing[i]++;
+        }
+        for(int i = 0; i < commands.length; i++)
+            if(commands[i].type.printsLine())   printing[i % clients.length]++;
+        for(int i = 0; i < clients.length; i++) {
+            clients[i].answerEnds = new int[printing[i]];
+            clients[i].sentNanos = new long[printing[i]];
+            clients[i].sent = 0;
+            clients[i].answered = 0;
+        }
+
+        // the end of the line of every printing command is where the client waits for its answer
+        for(int i = 0; i < commands.length; i++) {
+            Client client = clients[i % clients.length];
+            StringBuilder request = requests[i % clients.length].append(commands[i]).append('\n');
+            if(commands[i].type.printsLine())   client.answerEnds[client.sent++] = request.length();
+        }
+        for(int i = 0; i < clients.length; i++) {
+            Client client = clients[i];
+            if(client.sent < client.answerEnds.length) {
+                requests[i].append(BARRIER);
+                client.answerEnds[client.sent] = requests[i].length();
+            }
+            client.requests = ByteBuffer.wrap(requests[i].toString().getBytes(StandardCharsets.US_ASCII));
+            client.sent = 0;
+        }
+    }
+
+    /*
+        This function sends the loaded commands, and returns once every connection got all its answers
+     */
+    void run() throws IOException {
+        latencies = new Histogram();
+        int running = 0;
+        for(Client client : clients) {
+            if(client.answerEnds.length == 0)   continue;
+            running++;
+            send(client);
+        }
+
+        while(running > 0) {
+            selector.select();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while(keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Client client = (Client) key.attachment();
+                if(key.isReadable() && receive(client)) running--;
+                else if(key.isWritable())   send(client);
+            }
+        }
+    }
+
+    /*
+        This function writes the commands of the client, up to the pipeline depth of outstanding answers
+     */
+    private void send(Client client) throws IOException {
+        int window = Math.min(client.answered + pipeline, client.answerEnds.length);
+        client.requests.limit(client.answerEnds[window - 1]);
+        client.channel.write(client.requests);
+        long now = System.nanoTime();
+        while(client.sent < window && client.answerEnds[client.sent] <= client.requests.position())
+            client.sentNanos[client.sent++] = now;
+
+        int interest = SelectionKey.OP_READ;
+        if(client.requests.hasRemaining())  interest |= SelectionKey.OP_WRITE;
+        client.key.interestOps(interest);
+    }
+
+    /*
+        This function reads the answers of the client, and returns true, once it got all of them
+     */
+    private boolean receive(Client client) throws IOException {
+        readBuffer.clear();
+        if(client.channel.read(readBuffer) < 0) throw new IOException("Server closed the connection");
+        long now = System.nanoTime();
+        for(int i = 0; i < readBuffer.position(); i++) {
+            if(readBuffer.get(i) == '\n')   latencies.record(now - client.sentNanos[client.answered++]);
+        }
+        if(client.answered == client.answerEnds.length) {
+            client.key.interestOps(0);
+            return true;
+        }
+        send(client);
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for(Client client : clients)
+            client.channel.close();
+        selector.close();
+    }
+
+    /*
+        One connection, with its encoded commands and the send times of its printing commands
+     */
+    private static final class Client {
+        final SocketChannel channel;
+        SelectionKey key;
+        ByteBuffer requests;
+        int[] answerEnds;
+        long[] sentNanos;
+        // printing commands, that are sent and answered
+        int sent;
+        int answered;
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 7070, connections = 1000, pipeline = 16, commandCount = 1_000_000, pendingRides = 100_000;
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "-port": port = Integer.parseInt(args[++i]); break;
+                case "-c": connections = Integer.parseInt(args[++i]); break;
+                case "-d": pipeline = Integer.parseInt(args[++i]); break;
+                case "-n": commandCount = Integer.parseInt(args[++i]); break;
+                case "-pendingRides": pendingRides = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        WorkloadGenerator generator = new WorkloadGenerator(WorkloadGenerator.Distribution.UNIFORM, 42, pendingRides);
+        Command[] inserts = new Command[pendingRides];
+        for(int i = 0; i < pendingRides; i++)
+            inserts[i] = new Command(CommandType.INSERT, generator.nextInsertRideNo(), generator.nextRideCost(), generator.nextTripDuration());
+        Command[] commands = new Command[commandCount];
+        for(int i = 0; i < commandCount; i++)
+            commands[i] = new Command();
+        generator.fillMixed(commands);
+
+        try(LoadGenerator load = new LoadGenerator(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), connections, pipeline)) {
+            load.load(inserts);
+            load.run();
+            load.load(commands);
+            long start = System.nanoTime();
+            load.run();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Histogram latency = load.latencies;
+            System.out.printf(Locale.ROOT, "%d connections, pipeline %d: %.0f commands/s, latency p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n",
+                    connections, pipeline, commandCount / seconds, latency.percentile(50) / 1000.0, latency.percentile(99) / 1000.0,
+                    latency.percentile(99.9) / 1000.0, latency.max() / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+    The MinHeap of the first gatorTaxi, kept as the baseline of the packed MinHeap in the benchmarks (rideQueue ride-array).
+    Every heap slot points to a Ride object, comparing two slots reads both objects (Ride.compareTo),
+    sifting swaps the slots and writes both rides into a boxed HashMap<Integer, Integer> rideMap.
+    Only what the RideQueue interface needs was added: the heap grows, and removal and key changes sift the ride in place.
+ */
+public class RideArrayHeap implements RideQueue {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    public Ride[] heap;
+    public int size;
+    public int capacity;
+
+    Map<Integer, Integer> rideMap;
+    // candidates of peekTopK, kept between calls
+    private final CandidateHeap candidates = new CandidateHeap();
+
+    RideArrayHeap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    RideArrayHeap(int capacity) {
+        this.heap = new Ride[Math.max(capacity, 1)];
+        this.size = 0;
+        this.capacity = heap.length;
+        this.rideMap = new HashMap<>();
+    }
+
+    private int getLeft(int index) {
+        return 2 * index + 1;
+    }
+
+    private int getRight(int index) {
+        return 2 * index + 2;
+    }
+
+    private int getParent(int index) {
+        return (index - 1)/2;
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        if(capacity > this.capacity) {
+            heap = Arrays.copyOf(heap, capacity);
+            this.capacity = capacity;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void insert(int rideNo, int rideCost, int tripDuration) {
+        if(size == capacity)    ensureCapacity(capacity << 1);
+
+        heap[size++] = new Ride(rideNo, rideCost, tripDuration);
+        rideMap.put(rideNo, size - 1);
+        heapifyUp(size - 1);
+    }
+
+    /*
+        This function provides the implementation of swap the values of two indexes of the heap
+     */
+    private void swap(int index1, int index2) {
+        Ride temp = heap[index1];
+        heap[index1] = heap[index2];
+        heap[index2] = temp;
+
+        rideMap.put(heap[index1].rideNo, index1);
+        rideMap.put(heap[index2].rideNo, index2);
+    }
+
+    private int findMinIndex(int index1, int index2) {
+        return heap[index1].compareTo(heap[index2]) < 0 ? index1 : index2;
+    }
+
+    private void heapifyUp(int index) {
+        Ride heapifyRide = heap[index];
+        int parent = getParent(index);
+        while(index > 0 && heapifyRide.compareTo(heap[parent]) < 0) {
+            swap(index, parent);
+            index = parent;
+            parent = getParent(index);
+        }
+    }
+
+    private void heapifyDown(int index) {
+        while(index < size) {
+            int minIndex = index, left = getLeft(index), right = getRight(index);
+            if(left < size){
+                minIndex = findMinIndex(minIndex, left);
+                if(right < size)
+                    minIndex = findMinIndex(minIndex, right);
+            }
+            if(minIndex == index)   break;
+            swap(index, minIndex);
+            index = minIndex;
+        }
+    }
+
+    @Override
+    public int peekRideNo() {
+        return heap[0].rideNo;
+    }
+
+    @Override
+    public int peekRideCost() {
+        return heap[0].rideCost;
+    }
+
+    @Override
+    public int peekTripDuration() {
+        return heap[0].tripDuration;
+    }
+
+    @Override
+    public void peekTopK(int k, RideVisitor visitor) {
+        candidates.clear();
+        if(size > 0)    candidates.push(MinHeap.key(heap[0].rideCost, heap[0].tripDuration), 0);
+        for(int visited = 0; visited < k && !candidates.isEmpty(); visited++) {
+            int index = candidates.pop();
+            visitor.visit(heap[index].rideNo, heap[index].rideCost, heap[index].tripDuration);
+            int left = getLeft(index), right = getRight(index);
+            if(left < size) candidates.push(MinHeap.key(heap[left].rideCost, heap[left].tripDuration), left);
+            if(right < size)    candidates.push(MinHeap.key(heap[right].rideCost, heap[right].tripDuration), right);
+        }
+    }
+
+    @Override
+    public int extractMin() {
+        int minRideNo = heap[0].rideNo;
+        deleteKey(0);
+        return minRideNo;
+    }
+
+    /*
+        This function deletes the ride of the input index: the last ride takes its place, and is sifted up or down
+     */
+    private void deleteKey(int index) {
+        rideMap.remove(heap[index].rideNo);
+        Ride last = heap[--size];
+        heap[size] = null;
+        if(index == size)   return;
+
+        heap[index] = last;
+        rideMap.put(last.rideNo, index);
+        heapifyUp(index);
+        heapifyDown(rideMap.get(last.rideNo));
+    }
+
+    @Override
+    public boolean remove(int rideNo) {
+        Integer index = rideMap.get(rideNo);
+        if(index == null)   return false;
+        deleteKey(index);
+        return true;
+    }
+
+    @Override
+    public boolean decreaseKey(int rideNo, int rideCost, int tripDuration) {
+        Integer index = rideMap.get(rideNo);
+        if(index == null)   return false;
+        heap[index].rideCost = rideCost;
+        heap[index].tripDuration = tripDuration;
+        heapifyUp(index);
+        return true;
+    }
+
+    @Override
+    public boolean increaseKey(int rideNo, int rideCost, int tripDuration) {
+        Integer index = rideMap.get(rideNo);
+        if(index == null)   return false;
+        heap[index].rideCost = rideCost;
+        heap[index].tripDuration = tripDuration;
+        heapifyDown(index);
+        return true;
+    }
+}
@@ -0,0 +1,175 @@
+import java.util.SplittableRandom;
+
+/*
+    Generator of ride numbers and command streams for the benchmarks.
+
+    Inserted rides never reuse a ride number: the n-th inserted ride gets rideNo(n), so a generated stream never
+    hits "Duplicate RideNumber", whichever rides GetNextRide removes. The distribution decides what rideNo(n) is,
+    and which of the inserted rides the other commands (Print, UpdateTrip, CancelRide) address:
+    UNIFORM     - scrambled ride numbers, every inserted ride is addressed with the same probability
+    SEQUENTIAL  - ride numbers 1, 2, 3, ... in insertion order, addressed uniformly
+    ZIPFIAN     - scrambled ride numbers, the most recently inserted rides are hot keys (Zipfian, theta 0.99)
+ */
+public class WorkloadGenerator {
+
+    public enum Distribution {
+        UNIFORM,
+        SEQUENTIAL,
+        ZIPFIAN
+    }
+
+    // percentage of each command in a mixed workload, in the order of CommandType
+    private static final int[] MIX = {30, 15, 5, 15, 15, 20};
+    // mix of only the commands on a single ride, which a ShardedGatorTaxi executes in parallel
+    static final int[] PER_RIDE_MIX = {40, 25, 0, 0, 15, 20};
+    private static final int MAX_COST = 1000;
+    private static final int MAX_DURATION = 240;
+    // number of rides, a range print of a mixed workload returns on average
+    private static final int RANGE_RIDES = 10;
+
+    private final Distribution distribution;
+    // ride costs are drawn uniformly from 1 .. maxCost
+    private final int maxCost;
+    private final SplittableRandom random;
+    private final Zipfian zipfian;
+    // number of rides inserted so far
+    private int inserted;
+
+    WorkloadGenerator(Distribution distribution, long seed, int hotKeyRange) {
+        this(distribution, seed, hotKeyRange, MAX_COST);
+    }
+
+    WorkloadGenerator(Distribution distribution, long seed, int hotKeyRange, int maxCost) {
+        if(maxCost < 1) throw new IllegalArgumentException("Maximum ride cost must be at least 1: " + maxCost);
+        this.distribution = distribution;
+        this.maxCost = maxCost;
+        this.random = new SplittableRandom(seed);
+        this.zipfian = distribution == Distribution.ZIPFIAN ? new Zipfian(Math.max(hotKeyRange, 2)) : null;
+    }
+
+    /*
+        This function returns the ride number of the n-th inserted ride.
+        Multiplying by an odd constant is a bijection on 31 bits, so scrambled ride numbers are unique and positive
+     */
+    public int rideNo(int n) {
+        if(distribution == Distribution.SEQUENTIAL) return n + 1;
+        return ((n + 1) * 0x9E3779B1) & 0x7FFFFFFF;
+    }
+
+    public int inserted() {
+        return inserted;
+    }
+
+    /*
+        This function returns the ride number of a new ride
+     */
+    public int nextInsertRideNo() {
+        return rideNo(inserted++);
+    }
+
+    public int nextRideCost() {
+        return 1 + random.nextInt(maxCost);
+    }
+
+    public int nextTripDuration() {
+        return 1 + random.nextInt(MAX_DURATION);
+    }
+
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    /*
+        This function returns the ride number of an already inserted ride (it may be removed by now), picked by the distribution
+     */
+    public int nextExistingRideNo() {
+        if(inserted == 0)   return rideNo(0);
+        if(distribution == Distribution.ZIPFIAN)
+            return rideNo(Math.max(inserted - 1 - zipfian.next(random), 0));
+        return rideNo(random.nextInt(inserted));
+    }
+
+    /*
+        This function returns the width of a ride number range, that contains about the input number of rides.
+        Sequential ride numbers are dense, scrambled ones are spread over all positive ints
+     */
+    public int rangeWidth(int rides) {
+        if(distribution == Distribution.SEQUENTIAL) return rides;
+        return (int) Math.min(Integer.MAX_VALUE, (long) (Integer.MAX_VALUE / Math.max(inserted, 1)) * rides);
+    }
+
+    /*
+        This function fills the commands with a mixed workload
+     */
+    public void fillMixed(Command[] commands) {
+        fillMixed(commands, MIX);
+    }
+
+    /*
+        This function fills the commands with a workload of the input mix, the percentage of each command in the order of CommandType
+     */
+    public void fillMixed(Command[] commands, int[] mix) {
+        for(Command command : commands) {
+            int choice = random.nextInt(100), type = 0;
+            while(choice >= mix[type])  choice -= mix[type++];
+
+            CommandType commandType = CommandType.values()[type];
+            command.type = commandType;
+            int[] args = command.args;
+            switch(commandType) {
+                case INSERT:
+                    args[0] = nextInsertRideNo();
+                    args[1] = nextRideCost();
+                    args[2] = nextTripDuration();
+                    args[3] = Command.NO_TTL;
+                    break;
+                case PRINT:
+                case CANCEL_RIDE:
+                    args[0] = nextExistingRideNo();
+                    break;
+                case RANGE_PRINT:
+                    args[0] = nextExistingRideNo();
+                    args[1] = (int) Math.min(Integer.MAX_VALUE, (long) args[0] + rangeWidth(RANGE_RIDES));
+                    args[2] = Command.NO_LIMIT;
+                    args[3] = Command.NO_CURSOR;
+                    break;
+                case UPDATE_TRIP:
+                    args[0] = nextExistingRideNo();
+                    args[1] = nextTripDuration();
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /*
+        Zipfian distribution of ranks 0 (hottest) .. n - 1, following the algorithm of Gray et al. used by YCSB
+     */
+    private static final class Zipfian {
+        private static final double THETA = 0.99;
+
+        private final int items;
+        private final double alpha;
+        private final double zetaN;
+        private final double eta;
+
+        Zipfian(int items) {
+            this.items = items;
+            double zeta2 = 1 + Math.pow(0.5, THETA);
+            double zeta = 0;
+            for(int i = 1; i <= items; i++)
+                zeta += 1 / Math.pow(i, THETA);
+            this.zetaN = zeta;
+            this.alpha = 1 / (1 - THETA);
+            this.eta = (1 - Math.pow(2.0 / items, 1 - THETA)) / (1 - zeta2 / zetaN);
+        }
+
+        int next(SplittableRandom random) {
+            double u = random.nextDouble(), uz = u * zetaN;
+            if(uz < 1)  return 0;
+            if(uz < 1 + Math.pow(0.5, THETA))   return 1;
+            return Math.min((int) (items * Math.pow(eta * u - eta + 1, alpha)), items - 1);
+        }
+    }
+}
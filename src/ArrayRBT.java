@@ -0,0 +1,474 @@
+import java.util.Arrays;
+
+/*
+    Red Black Tree Implementation, that does not allocate an object per node.
+    A node is an index (slot) into parallel primitive arrays, which hold the links (left, right, parent)
+    and the ride (rideNo, rideCost, tripDuration) inline. The color of a node is one bit in the red bitset.
+    Slot 0 is the NIL sentinel, it is always black, and stands for every missing child or parent.
+    Slots of deleted nodes are kept in a free list (linked through left) and reused by later inserts.
+ */
+public class ArrayRBT implements RideIndex {
+    public static final int NIL = 0;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] left;
+    private int[] right;
+    private int[] parent;
+    private int[] rideNos;
+    private int[] rideCosts;
+    private int[] tripDurations;
+    private long[] red;
+
+    private int root;
+    private int size;
+    // next slot, that was never used
+    private int nextSlot;
+    // head of the list of free slots
+    private int freeSlot;
+
+    ArrayRBT() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    ArrayRBT(int capacity) {
+        capacity = Math.max(capacity, 1) + 1;
+        this.left = new int[capacity];
+        this.right = new int[capacity];
+        this.parent = new int[capacity];
+        this.rideNos = new int[capacity];
+        this.rideCosts = new int[capacity];
+        this.tripDurations = new int[capacity];
+        this.red = new long[(capacity + 63) >>> 6];
+        this.root = NIL;
+        this.nextSlot = 1;
+        this.freeSlot = NIL;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /*
+        These functions return the ride stored in the input node
+     */
+    public int rideNo(int node) {
+        return rideNos[node];
+    }
+
+    public int rideCost(int node) {
+        return rideCosts[node];
+    }
+
+    public int tripDuration(int node) {
+        return tripDurations[node];
+    }
+
+    /*
+        This function updates the ride stored in the input node. The rideNo, which is the key of the tree, does not change
+     */
+    public void updateNode(int node, int rideCost, int tripDuration) {
+        rideCosts[node] = rideCost;
+        tripDurations[node] = tripDuration;
+    }
+
+    @Override
+    public boolean update(int rideNo, int rideCost, int tripDuration) {
+        int node = search(rideNo);
+        if(node == NIL) return false;
+        updateNode(node, rideCost, tripDuration);
+        return true;
+    }
+
+    private boolean isRed(int node) {
+        return (red[node >>> 6] & (1L << node)) != 0;
+    }
+
+    private void setRed(int node) {
+        red[node >>> 6] |= 1L << node;
+    }
+
+    private void setBlack(int node) {
+        red[node >>> 6] &= ~(1L << node);
+    }
+
+    /*
+        This function returns a free slot for a new node, growing the arrays if all slots are used
+     */
+    private int allocate() {
+        if(freeSlot != NIL) {
+            int node = freeSlot;
+            freeSlot = left[node];
+            return node;
+        }
+        if(nextSlot == left.length) grow();
+        return nextSlot++;
+    }
+
+    /*
+        This function adds the slot of a deleted node to the free list
+     */
+    private void free(int node) {
+        setBlack(node);
+        left[node] = freeSlot;
+        right[node] = parent[node] = NIL;
+        freeSlot = node;
+    }
+
+    private void grow() {
+        int capacity = left.length << 1;
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        rideNos = Arrays.copyOf(rideNos, capacity);
+        rideCosts = Arrays.copyOf(rideCosts, capacity);
+        tripDurations = Arrays.copyOf(tripDurations, capacity);
+        red = Arrays.copyOf(red, (capacity + 63) >>> 6);
+    }
+
+    /*
+        The function is used as part of fixing up the coloring
+        of red-black tree, while insertion or deletion operations.
+
+        A                                          B
+       / \        ->(rotate left on A)->          / \
+      C   B                                      A   E
+         / \                                    / \
+        D   E                                  C   D
+    */
+    private void rotateLeft(int node) {
+        int rightChild = right[node];
+        right[node] = left[rightChild];
+        if(left[rightChild] != NIL) parent[left[rightChild]] = node;
+        parent[rightChild] = parent[node];
+
+        if(parent[node] == NIL) root = rightChild;
+        else if(node == left[parent[node]]) left[parent[node]] = rightChild;
+        else    right[parent[node]] = rightChild;
+
+        left[rightChild] = node;
+        parent[node] = rightChild;
+    }
+
+    /*
+        The function is used as part of fixing up the coloring
+        of red-black tree, while insertion or deletion operations.
+
+            B                                          A
+           / \        ->(rotate right on B)->         / \
+          A   E                                      C   B
+         / \                                            / \
+        C   D                                          D   E
+     */
+    private void rotateRight(int node) {
+        int leftChild = left[node];
+        left[node] = right[leftChild];
+        if(right[leftChild] != NIL) parent[right[leftChild]] = node;
+        parent[leftChild] = parent[node];
+
+        if(parent[node] == NIL) root = leftChild;
+        else if(node == right[parent[node]]) right[parent[node]] = leftChild;
+        else    left[parent[node]] = leftChild;
+
+        right[leftChild] = node;
+        parent[node] = leftChild;
+    }
+
+    /*
+        This function provides the implementation of insert operation in the red black tree.
+        It returns false and leaves the tree unchanged, if the ride no already exists
+     */
+    @Override
+    public boolean insert(int rideNo, int rideCost, int tripDuration) {
+        int prevNode = NIL, currentNode = root;
+        while(currentNode != NIL) {
+            prevNode = currentNode;
+            if(rideNo == rideNos[currentNode])  return false;
+            currentNode = rideNo < rideNos[currentNode] ? left[currentNode] : right[currentNode];
+        }
+
+        int newNode = allocate();
+        rideNos[newNode] = rideNo;
+        rideCosts[newNode] = rideCost;
+        tripDurations[newNode] = tripDuration;
+        left[newNode] = right[newNode] = NIL;
+        parent[newNode] = prevNode;
+        setRed(newNode);
+
+        if(prevNode == NIL) root = newNode;
+        else if(rideNo < rideNos[prevNode]) left[prevNode] = newNode;
+        else    right[prevNode] = newNode;
+
+        fixColorViolations(newNode);
+        size++;
+        return true;
+    }
+
+    /*
+        The function provides the implementation of fixing 2 consecutive red nodes
+        (generated while insertion of nodes) in the red black tree.
+     */
+    private void fixColorViolations(int node) {
+        while(isRed(parent[node])) {
+            int parentNode = parent[node], grandParent = parent[parentNode];
+            if(parentNode == left[grandParent]) {
+                int uncle = right[grandParent];
+                if(isRed(uncle)) { // recolor and propagate the violation to grandparent
+                    setBlack(parentNode);
+                    setBlack(uncle);
+                    setRed(grandParent);
+                    node = grandParent;
+                } else {
+                    if(node == right[parentNode]) { // LR case, rotate left first & convert to LL case
+                        node = parentNode;
+                        rotateLeft(node);
+                        parentNode = parent[node];
+                    }
+                    setBlack(parentNode);
+                    setRed(grandParent);
+                    rotateRight(grandParent);
+                }
+            } else {
+                int uncle = left[grandParent];
+                if(isRed(uncle)) { // recolor and propagate the violation to grandparent
+                    setBlack(parentNode);
+                    setBlack(uncle);
+                    setRed(grandParent);
+                    node = grandParent;
+                } else {
+                    if(node == left[parentNode]) { // RL case, rotate right first & convert to RR case
+                        node = parentNode;
+                        rotateRight(node);
+                        parentNode = parent[node];
+                    }
+                    setBlack(parentNode);
+                    setRed(grandParent);
+                    rotateLeft(grandParent);
+                }
+            }
+        }
+        setBlack(root);
+    }
+
+    /*
+        This function provides an implementation of search a node with given ride no, it returns NIL if it does not exist
+     */
+    public int search(int rideNo) {
+        int current = root;
+        while(current != NIL && rideNos[current] != rideNo)
+            current = rideNo < rideNos[current] ? left[current] : right[current];
+        return current;
+    }
+
+    @Override
+    public boolean search(int rideNo, Ride result) {
+        int node = search(rideNo);
+        if(node == NIL) return false;
+        result.rideNo = rideNos[node];
+        result.rideCost = rideCosts[node];
+        result.tripDuration = tripDurations[node];
+        return true;
+    }
+
+    /*
+        This function builds the tree from the input rides, which must be sorted by ride no without duplicates.
+        The tree must be empty. The rides are stored in slots 1..count, the middle ride becomes the root of every subtree,
+        and all nodes are black except the nodes on the deepest level, which are red. O(n)
+     */
+    @Override
+    public void buildFromSorted(int[] sortedRideNos, int[] rideCosts, int[] tripDurations, int count) {
+        if(size != 0)   throw new IllegalStateException("ArrayRBT must be empty to be built from sorted rides");
+        while(left.length <= count) grow();
+        Arrays.fill(red, 0L);
+        freeSlot = NIL;
+
+        for(int i = 0; i < count; i++) {
+            this.rideNos[i + 1] = sortedRideNos[i];
+            this.rideCosts[i + 1] = rideCosts[i];
+            this.tripDurations[i + 1] = tripDurations[i];
+        }
+        nextSlot = count + 1;
+        size = count;
+        root = count == 0 ? NIL : buildSubtree(1, count, 0, 31 - Integer.numberOfLeadingZeros(count));
+        parent[root] = NIL;
+        parent[NIL] = NIL;
+        setBlack(root);
+    }
+
+    /*
+        This function is a helper function for buildFromSorted.
+        It links the subtree of slots [low, high] at the input level, and returns its root
+     */
+    private int buildSubtree(int low, int high, int level, int deepestLevel) {
+        if(low > high)  return NIL;
+
+        int node = (low + high) >>> 1;
+        if(level == deepestLevel)   setRed(node);
+        left[node] = buildSubtree(low, node - 1, level + 1, deepestLevel);
+        right[node] = buildSubtree(node + 1, high, level + 1, deepestLevel);
+        parent[left[node]] = node;
+        parent[right[node]] = node;
+        return node;
+    }
+
+    /*
+        This function returns the node with the smallest ride no in the subtree of the input node
+     */
+    private int minimum(int node) {
+        while(left[node] != NIL)    node = left[node];
+        return node;
+    }
+
+    /*
+        This function returns the in-order successor of the input node, or NIL
+     */
+    private int successor(int node) {
+        if(right[node] != NIL)  return minimum(right[node]);
+        int parentNode = parent[node];
+        while(parentNode != NIL && node == right[parentNode]) {
+            node = parentNode;
+            parentNode = parent[parentNode];
+        }
+        return parentNode;
+    }
+
+    /*
+        This function visits at most limit rides between the given bounds in order of ride no.
+        It finds the first node in the range, and walks the successors from there, without recursion
+     */
+    @Override
+    public void rangeSearch(int rideNo1, int rideNo2, int limit, RideVisitor visitor) {
+        int first = NIL, current = root;
+        while(current != NIL) {
+            if(rideNos[current] >= rideNo1) {
+                first = current;
+                current = left[current];
+            } else  current = right[current];
+        }
+
+        for(int node = first, visited = 0; node != NIL && rideNos[node] <= rideNo2 && visited < limit; node = successor(node), visited++)
+            visitor.visit(rideNos[node], rideCosts[node], tripDurations[node]);
+    }
+
+    /*
+        This function replaces the subtree of node with the subtree of replacement
+     */
+    private void transplant(int node, int replacement) {
+        if(parent[node] == NIL) root = replacement;
+        else if(node == left[parent[node]]) left[parent[node]] = replacement;
+        else    right[parent[node]] = replacement;
+        parent[replacement] = parent[node];
+    }
+
+    /*
+        This function provides the implementation of delete function in RBT for input ride no.
+        It returns false, if the ride does not exist
+     */
+    @Override
+    public boolean delete(int rideNo) {
+        int node = search(rideNo);
+        if(node == NIL) return false;
+
+        deleteNode(node);
+        return true;
+    }
+
+    /*
+        This function provides the implementation for node deletion.
+        A node with two children is replaced by its in-order successor node, the ride values are never copied between slots,
+        so the slots of all other nodes stay valid
+     */
+    public void deleteNode(int node) {
+        int removed = node, child;
+        boolean removedRed = isRed(removed);
+        if(left[node] == NIL) {
+            child = right[node];
+            transplant(node, child);
+        } else if(right[node] == NIL) {
+            child = left[node];
+            transplant(node, child);
+        } else {
+            removed = minimum(right[node]);
+            removedRed = isRed(removed);
+            child = right[removed];
+            if(parent[removed] == node) parent[child] = removed;
+            else {
+                transplant(removed, right[removed]);
+                right[removed] = right[node];
+                parent[right[removed]] = removed;
+            }
+            transplant(node, removed);
+            left[removed] = left[node];
+            parent[left[removed]] = removed;
+            if(isRed(node)) setRed(removed);
+            else    setBlack(removed);
+        }
+
+        if(!removedRed) fixDoubleBlack(child);
+        parent[NIL] = NIL;
+        free(node);
+        size--;
+    }
+
+    /*
+        This function provides the implementation of fixing the double black,
+        that is generated as part of delete node
+     */
+    private void fixDoubleBlack(int node) {
+        while(node != root && !isRed(node)) {
+            int parentNode = parent[node];
+            if(node == left[parentNode]) {
+                int sibling = right[parentNode];
+                if(isRed(sibling)) { // red sibling, rotate to get a black sibling
+                    setBlack(sibling);
+                    setRed(parentNode);
+                    rotateLeft(parentNode);
+                    sibling = right[parentNode];
+                }
+                if(!isRed(left[sibling]) && !isRed(right[sibling])) { // no red child, push the double black up
+                    setRed(sibling);
+                    node = parentNode;
+                } else {
+                    if(!isRed(right[sibling])) { // RL case, convert to RR case
+                        setBlack(left[sibling]);
+                        setRed(sibling);
+                        rotateRight(sibling);
+                        sibling = right[parentNode];
+                    }
+                    if(isRed(parentNode))   setRed(sibling);
+                    else    setBlack(sibling);
+                    setBlack(parentNode);
+                    setBlack(right[sibling]);
+                    rotateLeft(parentNode);
+                    node = root;
+                }
+            } else {
+                int sibling = left[parentNode];
+                if(isRed(sibling)) { // red sibling, rotate to get a black sibling
+                    setBlack(sibling);
+                    setRed(parentNode);
+                    rotateRight(parentNode);
+                    sibling = left[parentNode];
+                }
+                if(!isRed(left[sibling]) && !isRed(right[sibling])) { // no red child, push the double black up
+                    setRed(sibling);
+                    node = parentNode;
+                } else {
+                    if(!isRed(left[sibling])) { // LR case, convert to LL case
+                        setBlack(right[sibling]);
+                        setRed(sibling);
+                        rotateLeft(sibling);
+                        sibling = left[parentNode];
+                    }
+                    if(isRed(parentNode))   setRed(sibling);
+                    else    setBlack(sibling);
+                    setBlack(parentNode);
+                    setBlack(left[sibling]);
+                    rotateRight(parentNode);
+                    node = root;
+                }
+            }
+        }
+        setBlack(node);
+    }
+}
@@ -0,0 +1,394 @@
+import java.util.Arrays;
+
+/*
+    B+ Tree Implementation of the ride index.
+    All rides are stored in the leaves, as sorted primitive arrays of up to LEAF_CAPACITY rides,
+    so a search touches a few wide nodes instead of one node per level of a binary tree.
+    The leaves are linked to each other in order of ride no, a range search finds the first leaf
+    and then scans the leaves sequentially, visiting every ride without building a list.
+
+    Inner nodes hold up to INNER_CAPACITY children, keys[i] is the smallest ride no that can be in children[i + 1].
+    Nodes are split when they overflow. On delete, a node that falls below half full borrows from a sibling with more than half,
+    or is merged with it, so every node but the root stays at least half full under any mix of inserts and deletes.
+ */
+public class BPlusTree implements RideIndex {
+    private static final int LEAF_CAPACITY = 64;
+    private static final int INNER_CAPACITY = 64;
+    // fewest rides of a leaf and fewest children of an inner node, that is not the root
+    private static final int MIN_LEAF_COUNT = LEAF_CAPACITY / 2;
+    private static final int MIN_INNER_COUNT = INNER_CAPACITY / 2;
+    // the tree only gets deeper when a full root splits, so it never gets close to this depth
+    private static final int MAX_DEPTH = 64;
+
+    /*
+        Base class of leaf and inner nodes
+     */
+    private abstract static class Node {
+        int count;
+    }
+
+    private static final class Leaf extends Node {
+        final int[] rideNos = new int[LEAF_CAPACITY];
+        final int[] rideCosts = new int[LEAF_CAPACITY];
+        final int[] tripDurations = new int[LEAF_CAPACITY];
+        Leaf previous;
+        Leaf next;
+    }
+
+    private static final class Inner extends Node {
+        // count is the number of children, there are count - 1 keys
+        final int[] keys = new int[INNER_CAPACITY - 1];
+        final Node[] children = new Node[INNER_CAPACITY];
+    }
+
+    private Node root;
+    private int size;
+
+    // path of the last descent from the root: the inner nodes, and the index of the child taken in each of them
+    private final Inner[] pathNodes = new Inner[MAX_DEPTH];
+    private final int[] pathIndexes = new int[MAX_DEPTH];
+    private int pathLength;
+
+    BPlusTree() {
+        this.root = new Leaf();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /*
+        This function returns the index of the first element of the sorted values[0, count), that is >= value
+     */
+    private static int lowerBound(int[] values, int count, int value) {
+        int low = 0, high = count;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(values[mid] < value) low = mid + 1;
+            else    high = mid;
+        }
+        return low;
+    }
+
+    /*
+        This function returns the index of the first element of the sorted values[0, count), that is > value
+     */
+    private static int upperBound(int[] values, int count, int value) {
+        int low = 0, high = count;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(values[mid] <= value) low = mid + 1;
+            else    high = mid;
+        }
+        return low;
+    }
+
+    /*
+        This function descends from the root to the leaf, that can contain the input ride no, and records the path
+     */
+    private Leaf findLeaf(int rideNo) {
+        Node node = root;
+        pathLength = 0;
+        while(node instanceof Inner) {
+            Inner inner = (Inner) node;
+            int childIndex = upperBound(inner.keys, inner.count - 1, rideNo);
+            pathNodes[pathLength] = inner;
+            pathIndexes[pathLength++] = childIndex;
+            node = inner.children[childIndex];
+        }
+        return (Leaf) node;
+    }
+
+    @Override
+    public boolean search(int rideNo, Ride result) {
+        Leaf leaf = findLeaf(rideNo);
+        int index = lowerBound(leaf.rideNos, leaf.count, rideNo);
+        if(index == leaf.count || leaf.rideNos[index] != rideNo)    return false;
+
+        result.rideNo = rideNo;
+        result.rideCost = leaf.rideCosts[index];
+        result.tripDuration = leaf.tripDurations[index];
+        return true;
+    }
+
+    @Override
+    public boolean update(int rideNo, int rideCost, int tripDuration) {
+        Leaf leaf = findLeaf(rideNo);
+        int index = lowerBound(leaf.rideNos, leaf.count, rideNo);
+        if(index == leaf.count || leaf.rideNos[index] != rideNo)    return false;
+
+        leaf.rideCosts[index] = rideCost;
+        leaf.tripDurations[index] = tripDuration;
+        return true;
+    }
+
+    /*
+        This function provides the implementation of insert operation in the B+ tree.
+        A full leaf is split into two halves, and the new leaf is added to the parent, which may split in turn
+     */
+    @Override
+    public boolean insert(int rideNo, int rideCost, int tripDuration) {
+        Leaf leaf = findLeaf(rideNo);
+        int index = lowerBound(leaf.rideNos, leaf.count, rideNo);
+        if(index < leaf.count && leaf.rideNos[index] == rideNo) return false;
+
+        size++;
+        if(leaf.count < LEAF_CAPACITY) {
+            insertIntoLeaf(leaf, index, rideNo, rideCost, tripDuration);
+            return true;
+        }
+
+        Leaf newLeaf = new Leaf();
+        int half = LEAF_CAPACITY / 2;
+        System.arraycopy(leaf.rideNos, half, newLeaf.rideNos, 0, LEAF_CAPACITY - half);
+        System.arraycopy(leaf.rideCosts, half, newLeaf.rideCosts, 0, LEAF_CAPACITY - half);
+        System.arraycopy(leaf.tripDurations, half, newLeaf.tripDurations, 0, LEAF_CAPACITY - half);
+        newLeaf.count = LEAF_CAPACITY - half;
+        leaf.count = half;
+
+        newLeaf.next = leaf.next;
+        newLeaf.previous = leaf;
+        if(leaf.next != null)   leaf.next.previous = newLeaf;
+        leaf.next = newLeaf;
+
+        if(index <= half)   insertIntoLeaf(leaf, index, rideNo, rideCost, tripDuration);
+        else    insertIntoLeaf(newLeaf, index - half, rideNo, rideCost, tripDuration);
+
+        insertIntoParent(leaf, newLeaf.rideNos[0], newLeaf);
+        return true;
+    }
+
+    private static void insertIntoLeaf(Leaf leaf, int index, int rideNo, int rideCost, int tripDuration) {
+        int moved = leaf.count - index;
+        System.arraycopy(leaf.rideNos, index, leaf.rideNos, index + 1, moved);
+        System.arraycopy(leaf.rideCosts, index, leaf.rideCosts, index + 1, moved);
+        System.arraycopy(leaf.tripDurations, index, leaf.tripDurations, index + 1, moved);
+        leaf.rideNos[index] = rideNo;
+        leaf.rideCosts[index] = rideCost;
+        leaf.tripDurations[index] = tripDuration;
+        leaf.count++;
+    }
+
+    /*
+        This function adds newNode right after node (which was split) into the parent on the recorded path,
+        with key as the separator. Full parents are split up to the root, a split root gets a new root above it
+     */
+    private void insertIntoParent(Node node, int key, Node newNode) {
+        while(true) {
+            if(pathLength == 0) {
+                Inner newRoot = new Inner();
+                newRoot.children[0] = node;
+                newRoot.children[1] = newNode;
+                newRoot.keys[0] = key;
+                newRoot.count = 2;
+                root = newRoot;
+                return;
+            }
+
+            Inner parent = pathNodes[--pathLength];
+            int childIndex = pathIndexes[pathLength] + 1;
+            if(parent.count < INNER_CAPACITY) {
+                insertIntoInner(parent, childIndex, key, newNode);
+                return;
+            }
+
+            // split the parent: the upper half of the children moves into a new inner node,
+            // and the key between the two halves moves up to the grandparent
+            Inner newInner = new Inner();
+            int half = INNER_CAPACITY / 2;
+            System.arraycopy(parent.children, half, newInner.children, 0, INNER_CAPACITY - half);
+            System.arraycopy(parent.keys, half, newInner.keys, 0, INNER_CAPACITY - half - 1);
+            int upKey = parent.keys[half - 1];
+            Arrays.fill(parent.children, half, INNER_CAPACITY, null);
+            newInner.count = INNER_CAPACITY - half;
+            parent.count = half;
+
+            if(childIndex <= half)  insertIntoInner(parent, childIndex, key, newNode);
+            else    insertIntoInner(newInner, childIndex - half, key, newNode);
+
+            node = parent;
+            key = upKey;
+            newNode = newInner;
+        }
+    }
+
+    /*
+        This function inserts child at childIndex of the inner node, with key as the separator before it
+     */
+    private static void insertIntoInner(Inner inner, int childIndex, int key, Node child) {
+        System.arraycopy(inner.children, childIndex, inner.children, childIndex + 1, inner.count - childIndex);
+        System.arraycopy(inner.keys, childIndex - 1, inner.keys, childIndex, inner.count - childIndex);
+        inner.children[childIndex] = child;
+        inner.keys[childIndex - 1] = key;
+        inner.count++;
+    }
+
+    /*
+        This function provides the implementation of delete function in B+ tree for input ride no.
+        A leaf that falls below half full takes a ride from a sibling, or is merged with it (see rebalanceLeaf)
+     */
+    @Override
+    public boolean delete(int rideNo) {
+        Leaf leaf = findLeaf(rideNo);
+        int index = lowerBound(leaf.rideNos, leaf.count, rideNo);
+        if(index == leaf.count || leaf.rideNos[index] != rideNo)    return false;
+
+        size--;
+        int moved = leaf.count - index - 1;
+        System.arraycopy(leaf.rideNos, index + 1, leaf.rideNos, index, moved);
+        System.arraycopy(leaf.rideCosts, index + 1, leaf.rideCosts, index, moved);
+        System.arraycopy(leaf.tripDurations, index + 1, leaf.tripDurations, index, moved);
+        if(--leaf.count < MIN_LEAF_COUNT && pathLength > 0) rebalanceLeaf(leaf);
+        return true;
+    }
+
+    /*
+        This function refills the leaf at the end of the recorded path, which is below half full.
+        A sibling with more than half gives it one ride, and the separator between them is moved.
+        Otherwise the leaf and a sibling fit into one leaf: they are merged, and the parent, that lost a child, is rebalanced in turn
+     */
+    private void rebalanceLeaf(Leaf leaf) {
+        Inner parent = pathNodes[pathLength - 1];
+        int childIndex = pathIndexes[pathLength - 1];
+        Leaf left = childIndex > 0 ? (Leaf) parent.children[childIndex - 1] : null;
+        Leaf right = childIndex + 1 < parent.count ? (Leaf) parent.children[childIndex + 1] : null;
+
+        if(left != null && left.count > MIN_LEAF_COUNT) {
+            left.count--;
+            insertIntoLeaf(leaf, 0, left.rideNos[left.count], left.rideCosts[left.count], left.tripDurations[left.count]);
+            parent.keys[childIndex - 1] = leaf.rideNos[0];
+        } else if(right != null && right.count > MIN_LEAF_COUNT) {
+            insertIntoLeaf(leaf, leaf.count, right.rideNos[0], right.rideCosts[0], right.tripDurations[0]);
+            moveRides(right, 1, right, 0, --right.count);
+            parent.keys[childIndex] = right.rideNos[0];
+        } else if(left != null) {
+            mergeLeaves(left, leaf);
+            removeChild(childIndex);
+        } else {
+            mergeLeaves(leaf, right);
+            removeChild(childIndex + 1);
+        }
+    }
+
+    private static void moveRides(Leaf from, int fromIndex, Leaf to, int toIndex, int count) {
+        System.arraycopy(from.rideNos, fromIndex, to.rideNos, toIndex, count);
+        System.arraycopy(from.rideCosts, fromIndex, to.rideCosts, toIndex, count);
+        System.arraycopy(from.tripDurations, fromIndex, to.tripDurations, toIndex, count);
+    }
+
+    /*
+        This function moves all rides of the right leaf to the end of the left one, and unlinks the right leaf
+     */
+    private static void mergeLeaves(Leaf left, Leaf right) {
+        moveRides(right, 0, left, left.count, right.count);
+        left.count += right.count;
+        left.next = right.next;
+        if(right.next != null)  right.next.previous = left;
+    }
+
+    /*
+        This function removes the child at childIndex of the last inner node of the recorded path, after it was merged into a sibling.
+        An inner node, that falls below half full, takes a child from a sibling, or is merged with it, up to the root.
+        A root with a single child is replaced by that child
+     */
+    private void removeChild(int childIndex) {
+        Inner node = pathNodes[--pathLength];
+        removeFromInner(node, childIndex);
+        while(node.count < MIN_INNER_COUNT && pathLength > 0) {
+            Inner parent = pathNodes[pathLength - 1];
+            int nodeIndex = pathIndexes[pathLength - 1];
+            Inner left = nodeIndex > 0 ? (Inner) parent.children[nodeIndex - 1] : null;
+            Inner right = nodeIndex + 1 < parent.count ? (Inner) parent.children[nodeIndex + 1] : null;
+
+            if(left != null && left.count > MIN_INNER_COUNT) {
+                // the last child of the left sibling becomes the first child, the separators rotate through the parent
+                System.arraycopy(node.children, 0, node.children, 1, node.count);
+                System.arraycopy(node.keys, 0, node.keys, 1, node.count - 1);
+                node.children[0] = left.children[left.count - 1];
+                node.keys[0] = parent.keys[nodeIndex - 1];
+                node.count++;
+                parent.keys[nodeIndex - 1] = left.keys[left.count - 2];
+                left.children[--left.count] = null;
+                return;
+            }
+            if(right != null && right.count > MIN_INNER_COUNT) {
+                node.children[node.count] = right.children[0];
+                node.keys[node.count - 1] = parent.keys[nodeIndex];
+                node.count++;
+                parent.keys[nodeIndex] = right.keys[0];
+                removeFromInner(right, 0);
+                return;
+            }
+            if(left != null) {
+                mergeInners(left, parent.keys[nodeIndex - 1], node);
+                node = parent;
+                removeFromInner(node, nodeIndex);
+            } else {
+                mergeInners(node, parent.keys[nodeIndex], right);
+                node = parent;
+                removeFromInner(node, nodeIndex + 1);
+            }
+            pathLength--;
+        }
+        if(node == root && node.count == 1) root = node.children[0];
+    }
+
+    /*
+        This function moves all children and keys of the right inner node to the end of the left one, with key as the separator between them
+     */
+    private static void mergeInners(Inner left, int key, Inner right) {
+        left.keys[left.count - 1] = key;
+        System.arraycopy(right.keys, 0, left.keys, left.count, right.count - 1);
+        System.arraycopy(right.children, 0, left.children, left.count, right.count);
+        left.count += right.count;
+    }
+
+    /*
+        This function removes the child at childIndex of the inner node, together with one key next to it
+     */
+    private static void removeFromInner(Inner inner, int childIndex) {
+        System.arraycopy(inner.children, childIndex + 1, inner.children, childIndex, inner.count - childIndex - 1);
+        inner.children[inner.count - 1] = null;
+        int keyIndex = childIndex == 0 ? 0 : childIndex - 1;
+        if(inner.count > 1)
+            System.arraycopy(inner.keys, keyIndex + 1, inner.keys, keyIndex, inner.count - 2 - keyIndex);
+        inner.count--;
+    }
+
+    /*
+        This function visits at most limit rides between the given bounds in order of ride no, scanning the linked leaves
+     */
+    @Override
+    public void rangeSearch(int rideNo1, int rideNo2, int limit, RideVisitor visitor) {
+        if(rideNo1 > rideNo2)   return;
+
+        Leaf leaf = findLeaf(rideNo1);
+        int index = lowerBound(leaf.rideNos, leaf.count, rideNo1);
+        while(leaf != null) {
+            for(; index < leaf.count; index++) {
+                if(leaf.rideNos[index] > rideNo2 || limit-- == 0)   return;
+                visitor.visit(leaf.rideNos[index], leaf.rideCosts[index], leaf.tripDurations[index]);
+            }
+            leaf = leaf.next;
+            index = 0;
+        }
+    }
+
+    /*
+        This function searches all the input ride numbers, which must be sorted in ascending order, and visits the rides that exist.
+        Consecutive ride numbers often fall into the same leaf, so the current leaf is searched first, before descending from the root
+     */
+    @Override
+    public void searchSorted(int[] sortedRideNos, int count, RideVisitor visitor) {
+        Leaf leaf = null;
+        for(int i = 0; i < count; i++) {
+            int rideNo = sortedRideNos[i];
+            if(leaf == null || leaf.count == 0 || rideNo > leaf.rideNos[leaf.count - 1])  leaf = findLeaf(rideNo);
+
+            int index = lowerBound(leaf.rideNos, leaf.count, rideNo);
+            if(index < leaf.count && leaf.rideNos[index] == rideNo)
+                visitor.visit(rideNo, leaf.rideCosts[index], leaf.tripDurations[index]);
+        }
+    }
+}
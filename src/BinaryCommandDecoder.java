@@ -0,0 +1,68 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+
+/*
+    Decoder of commands in the binary format (see BinaryProtocol).
+    The input channel is read in large blocks into a direct little-endian byte buffer,
+    and the opcode and the int arguments of every command are read straight from it into the commands of the batch.
+    Unlike the text format, there is nothing to search for, every command has the fixed size of its opcode.
+ */
+public class BinaryCommandDecoder implements CommandSource {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    // bytes between position and limit are read from the channel, but not decoded yet
+    private final ByteBuffer buffer;
+    private boolean endOfInput;
+
+    BinaryCommandDecoder(ReadableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    BinaryCommandDecoder(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, BinaryProtocol.MAX_COMMAND_SIZE)).order(ByteOrder.LITTLE_ENDIAN).flip();
+    }
+
+    @Override
+    public int nextBatch(Command[] batch) throws IOException {
+        int count = 0;
+        while(count < batch.length) {
+            if(buffer.remaining() < BinaryProtocol.MAX_COMMAND_SIZE && !endOfInput) fill();
+            if(!buffer.hasRemaining())  break;
+
+            CommandType type = BinaryProtocol.typeOf(buffer.get(buffer.position()));
+            int argCount = BinaryProtocol.argCount(type);
+            if(buffer.remaining() < 1 + argCount * Integer.BYTES)    throw new EOFException("Truncated " + type.command + " command at the end of the input");
+            buffer.get();
+            Command command = batch[count++];
+            command.type = type;
+            for(int i = 0; i < argCount; i++)
+                command.args[i] = buffer.getInt();
+            if(type == CommandType.INSERT)  command.args[3] = Command.NO_TTL;
+        }
+        return count;
+    }
+
+    /*
+        This function moves the bytes, that are not decoded yet, to the front of the buffer, and fills the rest from the channel
+     */
+    private void fill() throws IOException {
+        buffer.compact();
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer) < 0) {
+                endOfInput = true;
+                break;
+            }
+        }
+        buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
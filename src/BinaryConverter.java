@@ -0,0 +1,97 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/*
+    Converter between the text and the binary format of the GatorTaxi application (see BinaryProtocol).
+
+    Usage: java BinaryConverter <text commands> <binary commands>
+           java BinaryConverter -answers <binary answers> <text output>
+    The first form encodes a text input file for -DgatorTaxi.format=binary,
+    the second writes the binary answers of output_file.bin as the text output, that the text input would have printed.
+ */
+public class BinaryConverter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int BATCH_SIZE = 4096;
+
+    private BinaryConverter() {
+    }
+
+    /*
+        This function encodes the text commands of the input file into the output file
+     */
+    static void encodeCommands(String textFile, String binaryFile) throws IOException {
+        try(CommandParser parser = new CommandParser(FileChannel.open(Paths.get(textFile), StandardOpenOption.READ));
+            FileChannel output = FileChannel.open(Paths.get(binaryFile), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            Command[] batch = new Command[BATCH_SIZE];
+            for(int i = 0; i < BATCH_SIZE; i++)
+                batch[i] = new Command();
+
+            int count;
+            do {
+                count = parser.nextBatch(batch);
+                for(int i = 0; i < count; i++) {
+                    if(buffer.remaining() < BinaryProtocol.MAX_COMMAND_SIZE)    write(buffer, output);
+                    BinaryProtocol.encode(batch[i], buffer);
+                }
+            } while(count == BATCH_SIZE);
+            write(buffer, output);
+        }
+    }
+
+    private static void write(ByteBuffer buffer, FileChannel output) throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining())
+            output.write(buffer);
+        buffer.clear();
+    }
+
+    /*
+        This function writes the binary answers of the input file as text lines into the output file
+     */
+    static void decodeAnswers(String binaryFile, String textFile) throws IOException {
+        try(FileChannel input = FileChannel.open(Paths.get(binaryFile), StandardOpenOption.READ);
+            OutputSink out = new OutputSink(FileChannel.open(Paths.get(textFile), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN).flip();
+            boolean endOfInput = false;
+            int rides = -1;
+            while(true) {
+                if(buffer.remaining() < 3 * Integer.BYTES && !endOfInput) {
+                    buffer.compact();
+                    endOfInput = input.read(buffer) < 0;
+                    buffer.flip();
+                    continue;
+                }
+                if(buffer.remaining() < Integer.BYTES)  break;
+
+                if(rides < 0) {
+                    // the start of an answer
+                    int count = buffer.getInt();
+                    if(count == BinaryProtocol.NO_ACTIVE_RIDES) out.noActiveRides();
+                    else if(count == BinaryProtocol.DUPLICATE_RIDE) out.duplicateRide();
+                    else if(count == 0) out.noRide();
+                    else    rides = count;
+                    continue;
+                }
+                if(buffer.remaining() < 3 * Integer.BYTES)  throw new IOException("Truncated answer at the end of " + binaryFile);
+                out.writeTriplet(buffer.getInt(), buffer.getInt(), buffer.getInt());
+                if(--rides > 0) out.writeByte(',');
+                else {
+                    out.endAnswer();
+                    rides = -1;
+                }
+            }
+            if(rides >= 0)  throw new IOException("Truncated answer at the end of " + binaryFile);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length == 3 && args[0].equals("-answers"))  decodeAnswers(args[1], args[2]);
+        else if(args.length == 2)   encodeCommands(args[0], args[1]);
+        else    throw new IllegalArgumentException("Usage: java BinaryConverter <text commands> <binary commands> | -answers <binary answers> <text output>");
+    }
+}
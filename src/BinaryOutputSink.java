@@ -0,0 +1,113 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+/*
+    Buffered output of the GatorTaxi application in the binary format (see BinaryProtocol).
+    The engine prints through the same functions as into the text OutputSink: the rides of an answer are counted while they are written,
+    and the count in front of them is filled in at the end of the line. The separators of the text format are not written.
+    An answer stays in the buffer until it is complete, so the buffer grows for an answer, that is larger than the buffer.
+ */
+public class BinaryOutputSink extends OutputSink {
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final int RIDE_SIZE = 3 * Integer.BYTES;
+    private static final int NO_ANSWER = -1;
+
+    // position of the ride count of the answer, that is being written
+    private int countPosition = NO_ANSWER;
+    private int rideCount;
+
+    BinaryOutputSink(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    BinaryOutputSink(WritableByteChannel channel, int bufferSize) {
+        super(channel, bufferSize);
+    }
+
+    /*
+        This function makes room for required bytes, the answer that is being written is kept in the buffer
+     */
+    @Override
+    void ensureSpace(int required) {
+        if(bytes.length - position >= required)  return;
+        try {
+            drain(countPosition == NO_ANSWER ? position : countPosition);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if(countPosition != NO_ANSWER)  countPosition = 0;
+        if(bytes.length - position < required)  grow(position + required);
+    }
+
+    private void putInt(int value) {
+        INT.set(bytes, position, value);
+        position += Integer.BYTES;
+    }
+
+    @Override
+    public void writeInt(int value) {
+        ensureSpace(Integer.BYTES);
+        putInt(value);
+    }
+
+    /*
+        This function writes nothing, the separators of the text format have no binary form
+     */
+    @Override
+    public void writeByte(char value) {
+    }
+
+    /*
+        This function appends the ride to the answer, that is being written, and starts a new answer if there is none
+     */
+    @Override
+    public void writeTriplet(int rideNo, int rideCost, int tripDuration) {
+        if(countPosition == NO_ANSWER) {
+            ensureSpace(Integer.BYTES + RIDE_SIZE);
+            countPosition = position;
+            position += Integer.BYTES;
+            rideCount = 0;
+        } else {
+            ensureSpace(RIDE_SIZE);
+        }
+        putInt(rideNo);
+        putInt(rideCost);
+        putInt(tripDuration);
+        rideCount++;
+    }
+
+    /*
+        This function ends the answer, that is being written, by filling in its number of rides
+     */
+    @Override
+    public void endAnswer() {
+        if(countPosition == NO_ANSWER) {
+            writeInt(0);
+            return;
+        }
+        INT.set(bytes, countPosition, rideCount);
+        countPosition = NO_ANSWER;
+    }
+
+    /*
+        These functions write the answers without rides: 0 rides, or NO_ACTIVE_RIDES and DUPLICATE_RIDE instead of the number of rides
+     */
+    @Override
+    public void noRide() {
+        writeInt(0);
+    }
+
+    @Override
+    public void noActiveRides() {
+        writeInt(BinaryProtocol.NO_ACTIVE_RIDES);
+    }
+
+    @Override
+    public void duplicateRide() {
+        writeInt(BinaryProtocol.DUPLICATE_RIDE);
+    }
+}
@@ -0,0 +1,80 @@
+import java.nio.ByteBuffer;
+
+/*
+    Binary format of the commands and answers of the GatorTaxi application, next to the text format.
+
+    A command is a one byte opcode followed by a fixed number of little-endian ints, its arguments:
+    opcode  command                                         arguments
+    1       Insert(rideNo, rideCost, tripDuration)          3
+    2       Print(rideNo)                                   1
+    3       Print(rideNo1, rideNo2, limit, afterRideNo)     4, Command.NO_LIMIT and Command.NO_CURSOR if they were not given
+    4       GetNextRide()                                   0
+    5       UpdateTrip(rideNo, newTripDuration)             2
+    6       CancelRide(rideNo)                              1
+    7       GetNextRide(k)                                  1
+    8       PeekNextRides(k)                                1
+    The opcode and the number of arguments are fields of the CommandType, CommandType.opcode and CommandType.binaryArgs.
+
+    A printing command is answered with a little-endian int, the number of rides of the answer, followed by every ride
+    as three little-endian ints (rideNo, rideCost, tripDuration). A ride no that is not found, or an empty range, has 0 rides.
+    The optional time to live of a text Insert has no binary form, a binary Insert is always Insert(rideNo, rideCost, tripDuration).
+
+    Instead of the number of rides, the answer is NO_ACTIVE_RIDES, if there are no rides to get, or DUPLICATE_RIDE, when a duplicate ride halts the engine (DuplicatePolicy.HALT).
+ */
+public final class BinaryProtocol {
+    static final int MAX_COMMAND_SIZE = 1 + 4 * Integer.BYTES;
+    // command type of every opcode, null for the unused ones
+    private static final CommandType[] TYPES = types();
+
+    static final int NO_ACTIVE_RIDES = -1;
+    static final int DUPLICATE_RIDE = -2;
+
+    private BinaryProtocol() {
+    }
+
+    /*
+        This function returns the command types indexed by their opcodes
+     */
+    private static CommandType[] types() {
+        int maxOpcode = 0;
+        for(CommandType type : CommandType.values())
+            maxOpcode = Math.max(maxOpcode, type.opcode);
+        CommandType[] types = new CommandType[maxOpcode + 1];
+        for(CommandType type : CommandType.values()) {
+            if(type.opcode < 1 || type.opcode > Byte.MAX_VALUE || types[type.opcode] != null)
+                throw new IllegalStateException("Invalid or repeated opcode " + type.opcode + " of " + type);
+            if(1 + type.binaryArgs * Integer.BYTES > MAX_COMMAND_SIZE)
+                throw new IllegalStateException("Too many binary arguments of " + type);
+            types[type.opcode] = type;
+        }
+        return types;
+    }
+
+    static int opcode(CommandType type) {
+        return type.opcode;
+    }
+
+    /*
+        This function returns the command type of the input opcode
+     */
+    static CommandType typeOf(int opcode) {
+        if(opcode < 1 || opcode >= TYPES.length || TYPES[opcode] == null)   throw new IllegalArgumentException("Unknown opcode: " + opcode);
+        return TYPES[opcode];
+    }
+
+    static int argCount(CommandType type) {
+        return type.binaryArgs;
+    }
+
+    /*
+        This function writes the input command into the buffer, that must be in little-endian order.
+        An Insert has no time to live in the binary format, the rides get the time to live of the engine (-DgatorTaxi.rideTtl)
+     */
+    static void encode(Command command, ByteBuffer buffer) {
+        if(command.type == CommandType.INSERT && command.args[3] != Command.NO_TTL)
+            throw new IllegalArgumentException("The binary format has no time to live of an Insert: " + command);
+        buffer.put((byte) opcode(command.type));
+        for(int i = 0; i < argCount(command.type); i++)
+            buffer.putInt(command.args[i]);
+    }
+}
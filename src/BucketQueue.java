@@ -0,0 +1,303 @@
+import java.util.Arrays;
+
+/*
+    Bucket queue of the pending rides, for the small integer costs and durations of the rides (fares in dollars, durations in minutes).
+    There is one bucket for every (rideCost, tripDuration) with 0 <= rideCost < 2^COST_BITS and 0 <= tripDuration < 2^DURATION_BITS,
+    numbered (rideCost << DURATION_BITS) | tripDuration, so the buckets are in the order of MinHeap.key.
+    A bucket is a circular doubly linked list of entries, rides with the same key leave in the order they came.
+
+    Three levels of bitmaps mark the non-empty buckets: a bit per bucket, a bit per word of buckets, and a bit per word of those.
+    The cheapest bucket is found with three numberOfTrailingZeros, and it is kept until it gets empty.
+    Insert, remove, decreaseKey and increaseKey are O(1), extractMin is O(1) plus finding the next bucket in the bitmaps.
+
+    Rides outside of the bucket range (negative, or too large, for example after many UpdateTrip +10) fall back to a MinHeap,
+    the cheapest ride is the cheaper of the first bucket and the top of that heap.
+    The entries are kept in primitive arrays like TimingWheel, rideMap maps every rideNo in a bucket to its entry.
+ */
+public class BucketQueue implements RideQueue {
+    private static final int COST_BITS = 11;
+    private static final int DURATION_BITS = 9;
+    private static final int BUCKETS = 1 << (COST_BITS + DURATION_BITS);
+    private static final int DURATION_MASK = (1 << DURATION_BITS) - 1;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NONE = -1;
+
+    // first entry of every bucket, NONE for an empty bucket
+    private final int[] heads = new int[BUCKETS];
+    // bitmaps of the non-empty buckets, of the non-empty words of buckets, and of the non-empty words of those
+    private final long[] buckets = new long[BUCKETS >>> 6];
+    private final long[] words = new long[BUCKETS >>> 12];
+    private final long[] groups = new long[Math.max(BUCKETS >>> 18, 1)];
+    // cheapest non-empty bucket, NONE if all buckets are empty
+    private int minBucket = NONE;
+
+    private int[] rideNos = new int[INITIAL_CAPACITY];
+    private int[] bucketOf = new int[INITIAL_CAPACITY];
+    private int[] next = new int[INITIAL_CAPACITY];
+    private int[] prev = new int[INITIAL_CAPACITY];
+    // entries in use or on the free list, the free list is linked by next
+    private int used;
+    private int free = NONE;
+    private final IntIntHashMap rideMap = new IntIntHashMap(NONE);
+
+    // rides outside of the bucket range
+    private final MinHeap overflow = new MinHeap();
+    // candidates of peekTopK from the overflow heap, collected for every call
+    private long[] overflowKeys = new long[INITIAL_CAPACITY];
+    private int[] overflowRideNos = new int[INITIAL_CAPACITY];
+    private int overflowCount;
+    private final RideVisitor overflowCollector = this::collectOverflow;
+
+    BucketQueue() {
+        Arrays.fill(heads, NONE);
+    }
+
+    /*
+        This function returns the bucket of the input key, or NONE if it is outside of the bucket range
+     */
+    private static int bucket(int rideCost, int tripDuration) {
+        if((rideCost >>> COST_BITS) != 0 || (tripDuration >>> DURATION_BITS) != 0)  return NONE;
+        return (rideCost << DURATION_BITS) | tripDuration;
+    }
+
+    private static long bucketKey(int bucket) {
+        return MinHeap.key(bucket >>> DURATION_BITS, bucket & DURATION_MASK);
+    }
+
+    @Override
+    public int size() {
+        return rideMap.size() + overflow.size();
+    }
+
+    @Override
+    public void insert(int rideNo, int rideCost, int tripDuration) {
+        int bucket = bucket(rideCost, tripDuration);
+        if(bucket == NONE) {
+            overflow.insert(rideNo, rideCost, tripDuration);
+            return;
+        }
+        int entry = allocate();
+        rideNos[entry] = rideNo;
+        rideMap.put(rideNo, entry);
+        link(entry, bucket);
+    }
+
+    /*
+        This function returns true, if the cheapest ride is in the overflow heap
+     */
+    private boolean overflowFirst() {
+        if(minBucket == NONE)   return true;
+        return !overflow.isEmpty() && MinHeap.key(overflow.peekRideCost(), overflow.peekTripDuration()) < bucketKey(minBucket);
+    }
+
+    @Override
+    public int peekRideNo() {
+        return overflowFirst() ? overflow.peekRideNo() : rideNos[heads[minBucket]];
+    }
+
+    @Override
+    public int peekRideCost() {
+        return overflowFirst() ? overflow.peekRideCost() : minBucket >>> DURATION_BITS;
+    }
+
+    @Override
+    public int peekTripDuration() {
+        return overflowFirst() ? overflow.peekTripDuration() : minBucket & DURATION_MASK;
+    }
+
+    @Override
+    public int extractMin() {
+        if(overflowFirst()) return overflow.extractMin();
+        int entry = heads[minBucket], rideNo = rideNos[entry];
+        rideMap.remove(rideNo);
+        unlink(entry);
+        release(entry);
+        return rideNo;
+    }
+
+    /*
+        This function visits the k cheapest rides in queue order. The buckets are walked from the cheapest one through the bitmaps,
+        and merged with the k cheapest rides of the overflow heap
+     */
+    @Override
+    public void peekTopK(int k, RideVisitor visitor) {
+        overflowCount = 0;
+        if(!overflow.isEmpty()) overflow.peekTopK(k, overflowCollector);
+
+        int visited = 0, taken = 0;
+        for(int bucket = minBucket; bucket != NONE && visited < k; bucket = nextBucket(bucket + 1)) {
+            long key = bucketKey(bucket);
+            for(; taken < overflowCount && overflowKeys[taken] < key && visited < k; taken++, visited++)
+                visitor.visit(overflowRideNos[taken], MinHeap.rideCost(overflowKeys[taken]), MinHeap.tripDuration(overflowKeys[taken]));
+            int head = heads[bucket], entry = head;
+            do {
+                if(visited++ == k)  return;
+                visitor.visit(rideNos[entry], bucket >>> DURATION_BITS, bucket & DURATION_MASK);
+                entry = next[entry];
+            } while(entry != head);
+        }
+        for(; taken < overflowCount && visited < k; taken++, visited++)
+            visitor.visit(overflowRideNos[taken], MinHeap.rideCost(overflowKeys[taken]), MinHeap.tripDuration(overflowKeys[taken]));
+    }
+
+    private void collectOverflow(int rideNo, int rideCost, int tripDuration) {
+        if(overflowCount == overflowKeys.length) {
+            overflowKeys = Arrays.copyOf(overflowKeys, overflowCount << 1);
+            overflowRideNos = Arrays.copyOf(overflowRideNos, overflowCount << 1);
+        }
+        overflowKeys[overflowCount] = MinHeap.key(rideCost, tripDuration);
+        overflowRideNos[overflowCount++] = rideNo;
+    }
+
+    @Override
+    public boolean remove(int rideNo) {
+        int entry = rideMap.remove(rideNo);
+        if(entry == NONE)   return overflow.remove(rideNo);
+        unlink(entry);
+        release(entry);
+        return true;
+    }
+
+    @Override
+    public boolean decreaseKey(int rideNo, int rideCost, int tripDuration) {
+        return changeKey(rideNo, rideCost, tripDuration, false);
+    }
+
+    @Override
+    public boolean increaseKey(int rideNo, int rideCost, int tripDuration) {
+        return changeKey(rideNo, rideCost, tripDuration, true);
+    }
+
+    /*
+        This function moves the ride to the bucket of its new key, which may be in or out of the bucket range, in O(1).
+        A ride, that stays in the overflow heap, is sifted there
+     */
+    private boolean changeKey(int rideNo, int rideCost, int tripDuration, boolean increase) {
+        int entry = rideMap.get(rideNo), bucket = bucket(rideCost, tripDuration);
+        if(entry == NONE) {
+            if(bucket == NONE)  return increase ? overflow.increaseKey(rideNo, rideCost, tripDuration) : overflow.decreaseKey(rideNo, rideCost, tripDuration);
+            if(!overflow.remove(rideNo))    return false;
+            insert(rideNo, rideCost, tripDuration);
+            return true;
+        }
+        unlink(entry);
+        if(bucket != NONE)  link(entry, bucket);
+        else {
+            rideMap.remove(rideNo);
+            release(entry);
+            overflow.insert(rideNo, rideCost, tripDuration);
+        }
+        return true;
+    }
+
+    /*
+        This function appends the entry to the list of the bucket, and marks the bucket as non-empty
+     */
+    private void link(int entry, int bucket) {
+        bucketOf[entry] = bucket;
+        int head = heads[bucket];
+        if(head == NONE) {
+            heads[bucket] = entry;
+            next[entry] = entry;
+            prev[entry] = entry;
+            buckets[bucket >>> 6] |= 1L << bucket;
+            words[bucket >>> 12] |= 1L << (bucket >>> 6);
+            groups[bucket >>> 18] |= 1L << (bucket >>> 12);
+            if(minBucket == NONE || bucket < minBucket) minBucket = bucket;
+            return;
+        }
+        int last = prev[head];
+        next[last] = entry;
+        prev[entry] = last;
+        next[entry] = head;
+        prev[head] = entry;
+    }
+
+    /*
+        This function takes the entry out of the list of its bucket. A bucket, that gets empty, is cleared in the bitmaps,
+        and the next non-empty bucket becomes the cheapest, if it was the cheapest
+     */
+    private void unlink(int entry) {
+        int bucket = bucketOf[entry];
+        if(next[entry] != entry) {
+            next[prev[entry]] = next[entry];
+            prev[next[entry]] = prev[entry];
+            if(heads[bucket] == entry)  heads[bucket] = next[entry];
+            return;
+        }
+        heads[bucket] = NONE;
+        if((buckets[bucket >>> 6] &= ~(1L << bucket)) == 0
+                && (words[bucket >>> 12] &= ~(1L << (bucket >>> 6))) == 0)
+            groups[bucket >>> 18] &= ~(1L << (bucket >>> 12));
+        if(bucket == minBucket) minBucket = nextBucket(bucket + 1);
+    }
+
+    /*
+        This function returns the first non-empty bucket from the input bucket on, or NONE.
+        It looks at most at one word on every level, and at the few words of the top level
+     */
+    private int nextBucket(int from) {
+        if(from >= BUCKETS) return NONE;
+        int word = from >>> 6;
+        long bits = buckets[word] & (-1L << from);
+        if(bits == 0) {
+            word = nextWord(word + 1);
+            if(word == NONE)    return NONE;
+            bits = buckets[word];
+        }
+        return (word << 6) | Long.numberOfTrailingZeros(bits);
+    }
+
+    /*
+        This function returns the first word of buckets with a non-empty bucket from the input word on, or NONE
+     */
+    private int nextWord(int from) {
+        if(from >= buckets.length)  return NONE;
+        int group = from >>> 6;
+        long bits = words[group] & (-1L << from);
+        if(bits == 0) {
+            group = nextGroup(group + 1);
+            if(group == NONE)   return NONE;
+            bits = words[group];
+        }
+        return (group << 6) | Long.numberOfTrailingZeros(bits);
+    }
+
+    private int nextGroup(int from) {
+        for(int index = from >>> 6; index < groups.length; index++) {
+            long bits = groups[index] & (index == from >>> 6 ? -1L << from : -1L);
+            if(bits != 0)   return (index << 6) | Long.numberOfTrailingZeros(bits);
+        }
+        return NONE;
+    }
+
+    private int allocate() {
+        if(free != NONE) {
+            int entry = free;
+            free = next[entry];
+            return entry;
+        }
+        if(used == rideNos.length) {
+            int capacity = rideNos.length << 1;
+            rideNos = Arrays.copyOf(rideNos, capacity);
+            bucketOf = Arrays.copyOf(bucketOf, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+        }
+        return used++;
+    }
+
+    private void release(int entry) {
+        next[entry] = free;
+        free = entry;
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        if(capacity <= rideNos.length)  return;
+        rideNos = Arrays.copyOf(rideNos, capacity);
+        bucketOf = Arrays.copyOf(bucketOf, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+    }
+}
@@ -0,0 +1,65 @@
+import java.util.Arrays;
+
+/*
+    Small binary min-heap of (key, node) pairs, that the ride queues use to read their k cheapest rides without removing them.
+    It starts with the root of the queue; every time the cheapest candidate is taken, its children in the queue become candidates.
+    So it never holds more than the visited rides and their children, and reading k rides costs O(k log(k)) for the array heaps.
+    A queue keeps one instance and clears it for every read, so small reads allocate nothing.
+ */
+public class CandidateHeap {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private long[] keys = new long[DEFAULT_CAPACITY];
+    private int[] nodes = new int[DEFAULT_CAPACITY];
+    private int size;
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /*
+        This function adds the node of the queue with the input key as a candidate
+     */
+    public void push(long key, int node) {
+        if(size == keys.length) {
+            keys = Arrays.copyOf(keys, size << 1);
+            nodes = Arrays.copyOf(nodes, size << 1);
+        }
+        int index = size++;
+        while(index > 0) {
+            int parent = (index - 1) >>> 1;
+            if(key >= keys[parent]) break;
+            keys[index] = keys[parent];
+            nodes[index] = nodes[parent];
+            index = parent;
+        }
+        keys[index] = key;
+        nodes[index] = node;
+    }
+
+    /*
+        This function removes the cheapest candidate, and returns its node. The heap must not be empty
+     */
+    public int pop() {
+        int node = nodes[0];
+        long key = keys[--size];
+        int last = nodes[size];
+        int index = 0;
+        while(true) {
+            int smallest = 2 * index + 1;
+            if(smallest >= size)    break;
+            if(smallest + 1 < size && keys[smallest + 1] < keys[smallest])  smallest++;
+            if(keys[smallest] >= key)   break;
+            keys[index] = keys[smallest];
+            nodes[index] = nodes[smallest];
+            index = smallest;
+        }
+        keys[index] = key;
+        nodes[index] = last;
+        return node;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+    POJO class for one parsed command of the GatorTaxi application.
+    Command objects are reused from batch to batch, so the arguments are copied in with set()
+
+    A range print has the optional arguments limit and afterRideNo: Print(rideNo1, rideNo2, limit, afterRideNo)
+    prints at most limit rides with afterRideNo < rideNo, so a client pages through a large range
+    by passing the last ride no it got as the next afterRideNo.
+    An Insert has the optional argument ttl: Insert(rideNo, rideCost, tripDuration, ttl) expires the ride after ttl commands.
+ */
+public class Command {
+    private static final int MAX_ARGS = 4;
+    // defaults of the optional range print arguments
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+    public static final int NO_CURSOR = Integer.MIN_VALUE;
+    // default of the optional time to live of an Insert, the ride gets the time to live of the gatorTaxi, if any
+    public static final int NO_TTL = 0;
+
+    public CommandType type;
+    public final int[] args;
+
+    Command() {
+        this.args = new int[MAX_ARGS];
+    }
+
+    Command(CommandType type, int... args) {
+        this();
+        set(type, args, args.length);
+    }
+
+    /*
+        This function overwrites this command with the input type and the first argCount arguments,
+        the optional arguments of a range print or an Insert that are not given get their defaults
+     */
+    public void set(CommandType type, int[] args, int argCount) {
+        this.type = type;
+        System.arraycopy(args, 0, this.args, 0, Math.min(argCount, MAX_ARGS));
+        if(type == CommandType.RANGE_PRINT) {
+            if(argCount < 3)    this.args[2] = NO_LIMIT;
+            if(argCount < 4)    this.args[3] = NO_CURSOR;
+        } else if(type == CommandType.INSERT && argCount < 4) {
+            this.args[3] = NO_TTL;
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch(type) {
+            case INSERT:
+                if(args[3] != NO_TTL)   return type.command + "(" + args[0] + "," + args[1] + "," + args[2] + "," + args[3] + ")";
+                return type.command + "(" + args[0] + "," + args[1] + "," + args[2] + ")";
+            case RANGE_PRINT:
+                if(args[3] != NO_CURSOR)    return type.command + "(" + args[0] + "," + args[1] + "," + args[2] + "," + args[3] + ")";
+                if(args[2] != NO_LIMIT) return type.command + "(" + args[0] + "," + args[1] + "," + args[2] + ")";
+                return type.command + "(" + args[0] + "," + args[1] + ")";
+            case UPDATE_TRIP: return type.command + "(" + args[0] + "," + args[1] + ")";
+            case GET_NEXT_RIDE: return type.command + "()";
+            default: return type.command + "(" + args[0] + ")";
+        }
+    }
+}
@@ -0,0 +1,240 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/*
+    Append-only binary log of the changes to the pending rides, written through a FileChannel.
+    Changes are appended to a buffer, and on commit the buffer is written as one frame (group commit):
+    all changes of a batch of commands share one write, and depending on the FsyncPolicy, one fsync.
+
+    File: MAGIC, VERSION, followed by frames.
+    Frame: payload length (int), CRC32 of the payload (int), payload.
+    Payload: records, PUT: op, rideNo, rideCost, tripDuration or REMOVE: op, rideNo. The op is one byte, the rest are ints.
+    PUT records the full ride after an insert or update, so replaying the log never depends on the order of equal rides in the heap.
+    A crash can leave a torn frame at the end of the file, replay stops at the first incomplete or corrupt frame and cuts the file there.
+ */
+public class CommandLog implements Closeable {
+    static final byte PUT = 1;
+    static final byte REMOVE = 2;
+
+    private static final int MAGIC = 0x47544C47;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final int PUT_SIZE = 1 + 3 * Integer.BYTES;
+    private static final int REMOVE_SIZE = 1 + Integer.BYTES;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /*
+        Receiver of the records of a replayed log, in the order they were appended
+     */
+    interface Replayer {
+        void put(int rideNo, int rideCost, int tripDuration);
+
+        void remove(int rideNo);
+    }
+
+    private final FileChannel channel;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    // the first FRAME_HEADER_SIZE bytes are kept free for the header of the frame
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CRC32 crc = new CRC32();
+
+    private long lastForce = System.nanoTime();
+    // true if frames were written after the last force
+    private boolean unforced;
+    // number of records appended since the log was opened
+    private long records;
+
+    /*
+        This function opens the log file for appending, a new file gets the header.
+        An existing file must have been replayed first, so that a torn frame at its end is cut off
+     */
+    CommandLog(Path file, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncIntervalMillis * 1_000_000;
+
+        if(channel.size() < HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            channel.truncate(0);
+            writeFully(header, 0);
+            channel.force(true);
+        }
+        channel.position(channel.size());
+        buffer.position(FRAME_HEADER_SIZE);
+    }
+
+    public long records() {
+        return records;
+    }
+
+    /*
+        This function appends a PUT record of the ride, it is written with the next frame
+     */
+    public void put(int rideNo, int rideCost, int tripDuration) {
+        ensureSpace(PUT_SIZE);
+        buffer.put(PUT).putInt(rideNo).putInt(rideCost).putInt(tripDuration);
+        records++;
+    }
+
+    /*
+        This function appends a REMOVE record of the ride, it is written with the next frame
+     */
+    public void remove(int rideNo) {
+        ensureSpace(REMOVE_SIZE);
+        buffer.put(REMOVE).putInt(rideNo);
+        records++;
+    }
+
+    private void ensureSpace(int required) {
+        if(buffer.remaining() >= required)  return;
+        try {
+            writeFrame();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+        This function writes the appended records as one frame, without forcing it to the disk
+     */
+    private void writeFrame() throws IOException {
+        int length = buffer.position() - FRAME_HEADER_SIZE;
+        if(length == 0) return;
+
+        buffer.flip().position(FRAME_HEADER_SIZE);
+        crc.reset();
+        crc.update(buffer);
+        buffer.putInt(0, length).putInt(4, (int) crc.getValue());
+        buffer.position(0);
+        while(buffer.hasRemaining())
+            channel.write(buffer);
+
+        buffer.clear().position(FRAME_HEADER_SIZE);
+        unforced = true;
+    }
+
+    /*
+        This function commits the records appended since the last commit: they are written as one frame,
+        and forced to the disk as the FsyncPolicy says
+     */
+    public void commit() throws IOException {
+        writeFrame();
+        if(!unforced)   return;
+        if(fsyncPolicy == FsyncPolicy.ALWAYS || (fsyncPolicy == FsyncPolicy.INTERVAL && System.nanoTime() - lastForce >= fsyncIntervalNanos))
+            force();
+    }
+
+    /*
+        This function commits the appended records and forces them to the disk, whatever the FsyncPolicy is
+     */
+    public void sync() throws IOException {
+        writeFrame();
+        if(unforced)    force();
+    }
+
+    private void force() throws IOException {
+        channel.force(false);
+        lastForce = System.nanoTime();
+        unforced = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(!channel.isOpen())   return;
+        try {
+            writeFrame();
+            if(unforced && fsyncPolicy != FsyncPolicy.NEVER)    force();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeFully(ByteBuffer source, long position) throws IOException {
+        while(source.hasRemaining())
+            position += channel.write(source, position);
+    }
+
+    /*
+        This function reads bytes from the channel into target until it is full, it returns false if the channel ends before
+     */
+    private static boolean readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        while(target.hasRemaining()) {
+            int read = channel.read(target, position);
+            if(read < 0)    return false;
+            position += read;
+        }
+        target.flip();
+        return true;
+    }
+
+    /*
+        This function replays the records of the log file in order, and returns the number of records.
+        Replay stops at the first incomplete or corrupt frame, and the file is cut there, so that new frames follow the last valid one
+     */
+    static long replay(Path file, Replayer replayer) throws IOException {
+        long replayed = 0;
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(Math.max(HEADER_SIZE, FRAME_HEADER_SIZE));
+            header.limit(HEADER_SIZE);
+            if(!readFully(channel, header, 0)) {
+                channel.truncate(0);
+                return 0;
+            }
+            if(header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException("Not a gatorTaxi command log: " + file);
+
+            CRC32 crc = new CRC32();
+            ByteBuffer payload = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = HEADER_SIZE;
+            while(true) {
+                header.clear().limit(FRAME_HEADER_SIZE);
+                if(!readFully(channel, header, position))   break;
+                int length = header.getInt(), checksum = header.getInt();
+                if(length <= 0 || length > size - position - FRAME_HEADER_SIZE)    break;
+
+                if(payload.capacity() < length) payload = ByteBuffer.allocate(length);
+                payload.clear().limit(length);
+                if(!readFully(channel, payload, position + FRAME_HEADER_SIZE))   break;
+                crc.reset();
+                crc.update(payload);
+                if((int) crc.getValue() != checksum)    break;
+
+                payload.rewind();
+                long frameRecords = replayFrame(payload, replayer);
+                if(frameRecords < 0)    break;
+                replayed += frameRecords;
+                position += FRAME_HEADER_SIZE + length;
+            }
+
+            if(position < size)  channel.truncate(position);
+        }
+        return replayed;
+    }
+
+    /*
+        This function replays the records of one frame, it returns -1 if the frame holds an unknown record
+     */
+    private static long replayFrame(ByteBuffer payload, Replayer replayer) {
+        long replayed = 0;
+        while(payload.hasRemaining()) {
+            byte op = payload.get();
+            if(op == PUT && payload.remaining() >= PUT_SIZE - 1)
+                replayer.put(payload.getInt(), payload.getInt(), payload.getInt());
+            else if(op == REMOVE && payload.remaining() >= REMOVE_SIZE - 1)
+                replayer.remove(payload.getInt());
+            else    return -1;
+            replayed++;
+        }
+        return replayed;
+    }
+}
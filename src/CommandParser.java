@@ -0,0 +1,197 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/*
+    Streaming parser for the text commands of the GatorTaxi application, for example Insert(5,50,120) or Print(1,6).
+    The input channel is read in large blocks into a reusable byte buffer, the command is recognised from its first byte,
+    and the integer arguments are parsed in place. No String or regex is involved per command.
+    After next() returns a command, its arguments are available in args[0 .. argCount - 1].
+    A command with fewer arguments than its type requires, or with an invalid number, throws a NumberFormatException.
+    The channel may be non-blocking, for example a client connection of the GatorTaxiServer:
+    next() then returns only the commands of whole lines, that have arrived so far.
+ */
+public class CommandParser implements CommandSource {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_ARGS = 4;
+
+    private final ReadableByteChannel channel;
+    private ByteBuffer buffer;
+    private byte[] bytes;
+    // bytes[position, limit) are read from the channel, but not parsed yet
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+
+    public final int[] args = new int[MAX_ARGS];
+    public int argCount;
+
+    CommandParser(ReadableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    CommandParser(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.bytes = new byte[bufferSize];
+        this.buffer = ByteBuffer.wrap(bytes);
+    }
+
+    /*
+        This function parses the next command, and returns its type.
+        Lines that are blank or do not start with a known command are skipped.
+        It returns null, once the whole input is consumed, or if a non-blocking channel has no whole line yet (see isEndOfInput())
+     */
+    public CommandType next() throws IOException {
+        while(true) {
+            int lineEnd = findLineEnd();
+            if(lineEnd < 0) return null;
+
+            int start = position;
+            position = lineEnd;
+            CommandType type = parseLine(start, lineEnd);
+            if(type != null)    return type;
+        }
+    }
+
+    @Override
+    public int nextBatch(Command[] batch) throws IOException {
+        int count = 0;
+        CommandType type;
+        while(count < batch.length && (type = next()) != null)
+            batch[count++].set(type, args, argCount);
+        return count;
+    }
+
+    /*
+        This function skips the line breaks before the next line, and returns the index of the end of that line.
+        The buffer is refilled (and grown, for a line longer than the buffer) until the whole line is in the buffer.
+        It returns -1, if there are no more lines, or if a non-blocking channel has no more bytes yet.
+        Then the start of the incomplete line stays in the buffer, for the next call
+     */
+    private int findLineEnd() throws IOException {
+        while(true) {
+            while(position < limit && isLineBreak(bytes[position]))
+                position++;
+            if(position < limit)    break;
+            if(endOfInput || fill() == 0)  return -1;
+        }
+
+        int index = position;
+        while(true) {
+            while(index < limit && !isLineBreak(bytes[index]))
+                index++;
+            if(index < limit || endOfInput)  return index;
+
+            index -= position;
+            if(fill() == 0) return -1;
+        }
+    }
+
+    private static boolean isLineBreak(byte current) {
+        return current == '\n' || current == '\r';
+    }
+
+    /*
+        This function moves the unparsed bytes to the front of the buffer, and reads more bytes from the channel.
+        It returns the number of bytes read, 0 only for a non-blocking channel, that has nothing to read
+     */
+    private int fill() throws IOException {
+        int remaining = limit - position;
+        if(remaining == bytes.length) {
+            byte[] grown = new byte[bytes.length << 1];
+            System.arraycopy(bytes, position, grown, 0, remaining);
+            bytes = grown;
+            buffer = ByteBuffer.wrap(bytes);
+        } else if(position > 0) {
+            System.arraycopy(bytes, position, bytes, 0, remaining);
+        }
+        position = 0;
+        limit = remaining;
+
+        buffer.clear().position(limit);
+        int read = channel.read(buffer);
+        if(read < 0)    endOfInput = true;
+        else    limit += read;
+        return read;
+    }
+
+    /*
+        This function returns true, if the channel has reached its end, so after next() returned null there are no more commands
+     */
+    public boolean isEndOfInput() {
+        return endOfInput;
+    }
+
+    /*
+        This function recognises the command in bytes[start, end) from its first byte,
+        and parses the integer arguments between the brackets
+     */
+    private CommandType parseLine(int start, int end) {
+        while(start < end && bytes[start] == ' ')   start++;
+        if(start == end)    return null;
+
+        CommandType type;
+        switch(bytes[start]) {
+            case 'I': type = CommandType.INSERT; break;
+            case 'P': type = start + 1 < end && bytes[start + 1] == 'e' ? CommandType.PEEK_NEXT_RIDES : CommandType.PRINT; break;
+            case 'G': type = CommandType.GET_NEXT_RIDE; break;
+            case 'U': type = CommandType.UPDATE_TRIP; break;
+            case 'C': type = CommandType.CANCEL_RIDE; break;
+            default: return null;
+        }
+
+        int index = start;
+        while(index < end && bytes[index] != '(') index++;
+        argCount = 0;
+        index++;
+        while(index < end && bytes[index] != ')') {
+            byte current = bytes[index];
+            if(current == ' ' || current == ',') {
+                index++;
+                continue;
+            }
+            if(argCount == MAX_ARGS)    throw new NumberFormatException("Too many arguments in command: " + line(start, end));
+            index = parseInt(index, end);
+        }
+
+        // Print(rideNo1, rideNo2) and the paged Print(rideNo1, rideNo2, limit[, afterRideNo]) are range prints
+        if(type == CommandType.PRINT && argCount >= 2)   type = CommandType.RANGE_PRINT;
+        // GetNextRide(k) dispatches the k cheapest rides at once
+        if(type == CommandType.GET_NEXT_RIDE && argCount == 1)   type = CommandType.GET_NEXT_RIDES;
+        // a short command would run with the arguments of an earlier one, since Command objects are reused
+        if(argCount < type.requiredArgs)    throw new NumberFormatException("Missing arguments in command: " + line(start, end));
+        return type;
+    }
+
+    /*
+        This function parses the decimal integer starting at bytes[index] into the next argument,
+        and returns the index right after it
+     */
+    private int parseInt(int index, int end) {
+        int start = index;
+        boolean negative = bytes[index] == '-';
+        if(negative || bytes[index] == '+')   index++;
+
+        long value = 0;
+        int digitsStart = index;
+        while(index < end && bytes[index] >= '0' && bytes[index] <= '9') {
+            value = value * 10 + (bytes[index++] - '0');
+            if(value > (long) Integer.MAX_VALUE + 1)    break;
+        }
+        if(negative)    value = -value;
+        if(index == digitsStart || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            throw new NumberFormatException("Invalid number in command: " + new String(bytes, start, Math.max(index, start + 1) - start));
+
+        args[argCount++] = (int) value;
+        return index;
+    }
+
+    private String line(int start, int end) {
+        return new String(bytes, start, end - start);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
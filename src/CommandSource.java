@@ -0,0 +1,14 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/*
+    Source of the commands of the GatorTaxi application, in the text (CommandParser) or binary (BinaryCommandDecoder) format
+ */
+public interface CommandSource extends Closeable {
+
+    /*
+        This function reads the next commands into the batch, and returns their number.
+        It returns less than batch.length commands only at the end of the input
+     */
+    int nextBatch(Command[] batch) throws IOException;
+}
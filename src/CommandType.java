@@ -0,0 +1,37 @@
+/*
+    CommandType class defines the commands,
+    that can be given to the GatorTaxi application
+ */
+public enum CommandType {
+
+    INSERT("Insert", 3, 1, 3),
+    PRINT("Print", 1, 2, 1),
+    RANGE_PRINT("Print", 2, 3, 4),
+    GET_NEXT_RIDE("GetNextRide", 0, 4, 0),
+    UPDATE_TRIP("UpdateTrip", 2, 5, 2),
+    CANCEL_RIDE("CancelRide", 1, 6, 1),
+    GET_NEXT_RIDES("GetNextRide", 1, 7, 1),
+    PEEK_NEXT_RIDES("PeekNextRides", 1, 8, 1);
+
+    String command;
+    // number of arguments, that a command of this type must have, the optional ones come after them
+    final int requiredArgs;
+    // opcode and number of arguments in the binary format (see BinaryProtocol), fixed so that reordering the types does not change the format
+    final int opcode;
+    final int binaryArgs;
+
+    CommandType(String command, int requiredArgs, int opcode, int binaryArgs) {
+        this.command = command;
+        this.requiredArgs = requiredArgs;
+        this.opcode = opcode;
+        this.binaryArgs = binaryArgs;
+    }
+
+    /*
+        This function returns true, if every command of this type prints exactly one line.
+        Insert, UpdateTrip and CancelRide print nothing (an Insert of a duplicate ride prints, if it halts the engine, see DuplicatePolicy.HALT)
+     */
+    boolean printsLine() {
+        return this != INSERT && this != UPDATE_TRIP && this != CANCEL_RIDE;
+    }
+}
@@ -0,0 +1,199 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+    Thread safe variant of the GatorTaxi engine, for many dispatcher threads working on the same pending rides.
+    The ride number index is split into stripes, every stripe is a RBT guarded by its own lock,
+    so operations on rides of different stripes do not block each other.
+    The cost priority of all pending rides is kept in a concurrent skip list ordered by (rideCost, tripDuration, rideNo).
+
+    A ride is added to or removed from the skip list only while holding the lock of its stripe,
+    so under that lock a ride is in the skip list if and only if it is in the stripe's RBT,
+    and every operation on a single ride takes effect atomically while its stripe is locked.
+    GetNextRide takes effect when, with the stripe of its candidate locked, it reads that candidate as the first ride of the skip list:
+    the candidate is the cheapest pending ride at that moment, and nobody can see it before it is removed, since that needs the lock.
+    An UpdateTrip adds the updated ride to the skip list before it removes the old one, so a pending ride is never missing from it.
+    Ride objects handed to the skip list or returned to callers are never modified, an update replaces the Ride.
+
+    Unlike gatorTaxi, the operations return their result instead of printing it, since there is no single output order.
+ */
+public class ConcurrentGatorTaxi {
+
+    private static final Comparator<Ride> RIDE_ORDER = (ride1, ride2) -> {
+        if(ride1.rideCost != ride2.rideCost)    return Integer.compare(ride1.rideCost, ride2.rideCost);
+        if(ride1.tripDuration != ride2.tripDuration)    return Integer.compare(ride1.tripDuration, ride2.tripDuration);
+        return Integer.compare(ride1.rideNo, ride2.rideNo);
+    };
+
+    private static final Comparator<Ride> RIDE_NO_ORDER = Comparator.comparingInt(ride -> ride.rideNo);
+
+    /*
+        One stripe of the ride number index
+     */
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final RBT rides = new RBT();
+    }
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+    private final ConcurrentSkipListSet<Ride> minCostRides;
+
+    ConcurrentGatorTaxi() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    ConcurrentGatorTaxi(int stripeCount) {
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(stripeCount, 2) - 1);
+        this.stripes = new Stripe[1 << bits];
+        for(int i = 0; i < stripes.length; i++)
+            stripes[i] = new Stripe();
+        this.stripeShift = 32 - bits;
+        this.minCostRides = new ConcurrentSkipListSet<>(RIDE_ORDER);
+    }
+
+    /*
+        This function returns the stripe owning the input rideNo.
+        The ride number is scrambled first, so that sequential ride numbers are spread over all stripes
+     */
+    private Stripe stripe(int rideNo) {
+        return stripes[(rideNo * 0x9E3779B9) >>> stripeShift];
+    }
+
+    /*
+        This function inserts a new ride, it returns false if the rideNo already exists
+     */
+    public boolean insert(int rideNo, int rideCost, int tripDuration) { // O(log(n))
+        Stripe stripe = stripe(rideNo);
+        Ride ride = new Ride(rideNo, rideCost, tripDuration);
+        stripe.lock.lock();
+        try {
+            if(!stripe.rides.insert(new RBTNode(ride)))  return false;
+            minCostRides.add(ride);
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /*
+        This function cancels the ride with input rideNo, it returns false if the ride does not exist
+     */
+    public boolean cancelTrip(int rideNo) { // O(log(n))
+        Stripe stripe = stripe(rideNo);
+        stripe.lock.lock();
+        try {
+            RBTNode node = stripe.rides.search(rideNo);
+            if(node == null)    return false;
+            Ride ride = node.ride;
+            stripe.rides.deleteRBTNode(node);
+            minCostRides.remove(ride);
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /*
+        This function updates the trip with input rideNo and newTripDuration, according to the same rules as gatorTaxi.updateTrip
+     */
+    public void updateTrip(int rideNo, int newTripDuration) { // O(log(n))
+        Stripe stripe = stripe(rideNo);
+        stripe.lock.lock();
+        try {
+            RBTNode node = stripe.rides.search(rideNo);
+            if(node == null)    return;
+
+            Ride ride = node.ride;
+            if(newTripDuration <= ride.tripDuration) {
+                if(newTripDuration == ride.tripDuration)    return;
+                node.ride = new Ride(rideNo, ride.rideCost, newTripDuration);
+                minCostRides.add(node.ride);
+                minCostRides.remove(ride);
+                return;
+            }
+
+            stripe.rides.deleteRBTNode(node);
+            if(newTripDuration <= 2 * ride.tripDuration) {
+                Ride updatedRide = new Ride(rideNo, ride.rideCost + 10, newTripDuration);
+                stripe.rides.insert(new RBTNode(updatedRide));
+                minCostRides.add(updatedRide);
+            }
+            minCostRides.remove(ride);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /*
+        This function removes and returns the ride with the lowest cost, or null if there are no pending rides.
+        The cheapest ride is read from the skip list, its stripe is locked, and the ride is removed only if it is still the first one.
+        If another thread removed or updated it, or added a cheaper ride in the meantime, the cheapest ride is read again
+     */
+    public Ride getNextRide() {
+        while(true) {
+            Ride ride = first();
+            if(ride == null)    return null;
+
+            Stripe stripe = stripe(ride.rideNo);
+            stripe.lock.lock();
+            try {
+                if(first() == ride) {
+                    minCostRides.remove(ride);
+                    stripe.rides.delete(ride.rideNo);
+                    return ride;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /*
+        This function returns the cheapest ride in the skip list, or null if it is empty
+     */
+    private Ride first() {
+        try {
+            return minCostRides.first();
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+
+    /*
+        This function returns the ride with input rideNo, or null if it does not exist
+     */
+    public Ride print(int rideNo) { // O(log(n))
+        Stripe stripe = stripe(rideNo);
+        stripe.lock.lock();
+        try {
+            RBTNode node = stripe.rides.search(rideNo);
+            return node == null ? null : node.ride;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /*
+        This function returns all rides with rideNo1 <= rideNo <= rideNo2, ordered by rideNo.
+        All stripes are locked (always in the same order) for a consistent snapshot
+     */
+    public List<Ride> rangeSearch(int rideNo1, int rideNo2) { // O(s * log(n) + S * log(S))
+        List<Ride> result = new ArrayList<>();
+        for(Stripe stripe : stripes)
+            stripe.lock.lock();
+        try {
+            for(Stripe stripe : stripes)
+                stripe.rides.rangeSearch(rideNo1, rideNo2, result);
+        } finally {
+            for(Stripe stripe : stripes)
+                stripe.lock.unlock();
+        }
+        result.sort(RIDE_NO_ORDER);
+        return result;
+    }
+}
@@ -0,0 +1,229 @@
+import java.util.Arrays;
+
+/*
+    This class defines the implementation of a d-ary MinHeap data structure for Ride.
+    Every node has up to arity children instead of two, so the heap is only log_d(n) levels deep:
+    sifting up (insert, decreaseKey) touches fewer levels, and the children of a node are next to each other in memory.
+    Like MinHeap, slots are parallel primitive arrays of packed (rideCost, tripDuration) keys and ride numbers,
+    and rideMap maps every rideNo to its slot.
+ */
+public class DaryHeap implements RideQueue {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final int arity;
+    private long[] keys;
+    private int[] rideNos;
+    private int size;
+
+    private final IntIntHashMap rideMap;
+    // false while heapify() sifts, then rideMap is filled in one pass afterwards
+    private boolean mapping = true;
+    // candidates of peekTopK, kept between calls
+    private final CandidateHeap candidates = new CandidateHeap();
+
+    DaryHeap(int arity) {
+        this(arity, DEFAULT_CAPACITY);
+    }
+
+    DaryHeap(int arity, int capacity) {
+        if(arity < 2)   throw new IllegalArgumentException("Heap arity must be at least 2: " + arity);
+        capacity = Math.max(capacity, 1);
+        this.arity = arity;
+        this.keys = new long[capacity];
+        this.rideNos = new int[capacity];
+        this.rideMap = new IntIntHashMap(capacity, -1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /*
+        This function returns the index of the first child for the input index
+     */
+    private int getFirstChild(int index) {
+        return arity * index + 1;
+    }
+
+    /*
+        This function returns the parent index for the input index
+     */
+    private int getParent(int index) {
+        return (index - 1) / arity;
+    }
+
+    private void grow() {
+        int newCapacity = keys.length < (Integer.MAX_VALUE >> 1) ? keys.length << 1 : Integer.MAX_VALUE - 8;
+        if(newCapacity <= keys.length)    throw new IllegalStateException("DaryHeap cannot grow beyond " + keys.length + " rides");
+        keys = Arrays.copyOf(keys, newCapacity);
+        rideNos = Arrays.copyOf(rideNos, newCapacity);
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        if(capacity > keys.length) {
+            keys = Arrays.copyOf(keys, capacity);
+            rideNos = Arrays.copyOf(rideNos, capacity);
+        }
+        rideMap.ensureCapacity(capacity);
+    }
+
+    private void place(int index, long key, int rideNo) {
+        keys[index] = key;
+        rideNos[index] = rideNo;
+        if(mapping) rideMap.put(rideNo, index);
+    }
+
+    @Override
+    public void insert(int rideNo, int rideCost, int tripDuration) {
+        if(size == keys.length) grow();
+
+        keys[size] = MinHeap.key(rideCost, tripDuration);
+        rideNos[size++] = rideNo;
+        heapifyUp(size - 1);
+    }
+
+    @Override
+    public void add(int rideNo, int rideCost, int tripDuration) {
+        if(size == keys.length) grow();
+
+        keys[size] = MinHeap.key(rideCost, tripDuration);
+        rideNos[size++] = rideNo;
+    }
+
+    /*
+        This function restores the heap order of the whole heap, with Floyd's bottom-up heapify. O(n)
+        Like MinHeap.heapify(), rideMap is filled in one pass once the sifts are done
+     */
+    @Override
+    public void heapify() {
+        mapping = false;
+        if(size >= 2) {
+            for(int index = getParent(size - 1); index >= 0; index--)
+                heapifyDown(index);
+        }
+        mapping = true;
+        rideMap.ensureCapacity(size);
+        for(int index = 0; index < size; index++)
+            rideMap.put(rideNos[index], index);
+    }
+
+    /*
+        This function moves the ride at the input index up, until its parent is not larger
+     */
+    private void heapifyUp(int index) {
+        long heapifyKey = keys[index];
+        int heapifyRideNo = rideNos[index];
+        while(index > 0) {
+            int parent = getParent(index);
+            if(heapifyKey >= keys[parent])  break;
+            place(index, keys[parent], rideNos[parent]);
+            index = parent;
+        }
+        place(index, heapifyKey, heapifyRideNo);
+    }
+
+    /*
+        This function visits the k cheapest rides in order, without removing them, walking the heap array with a candidate heap
+     */
+    @Override
+    public void peekTopK(int k, RideVisitor visitor) {
+        candidates.clear();
+        if(size > 0)    candidates.push(keys[0], 0);
+        for(int visited = 0; visited < k && !candidates.isEmpty(); visited++) {
+            int index = candidates.pop();
+            visitor.visit(rideNos[index], MinHeap.rideCost(keys[index]), MinHeap.tripDuration(keys[index]));
+            int firstChild = getFirstChild(index), lastChild = (int) Math.min(size, (long) firstChild + arity);
+            for(int childIndex = firstChild; childIndex < lastChild; childIndex++)
+                candidates.push(keys[childIndex], childIndex);
+        }
+    }
+
+    /*
+        This function moves the ride at the input index down, until none of its children is smaller
+     */
+    private void heapifyDown(int index) {
+        long heapifyKey = keys[index];
+        int heapifyRideNo = rideNos[index];
+        while(true) {
+            int firstChild = getFirstChild(index);
+            if(firstChild >= size || firstChild < 0)   break;
+
+            int lastChild = Math.min(firstChild + arity, size);
+            int minChild = firstChild;
+            for(int child = firstChild + 1; child < lastChild; child++) {
+                if(keys[child] < keys[minChild])    minChild = child;
+            }
+            if(keys[minChild] >= heapifyKey)    break;
+            place(index, keys[minChild], rideNos[minChild]);
+            index = minChild;
+        }
+        place(index, heapifyKey, heapifyRideNo);
+    }
+
+    @Override
+    public int peekRideNo() {
+        return rideNos[0];
+    }
+
+    @Override
+    public int peekRideCost() {
+        return MinHeap.rideCost(keys[0]);
+    }
+
+    @Override
+    public int peekTripDuration() {
+        return MinHeap.tripDuration(keys[0]);
+    }
+
+    @Override
+    public int extractMin() {
+        int minRideNo = rideNos[0];
+        removeAt(0);
+        return minRideNo;
+    }
+
+    /*
+        This function removes the ride at the input index: the last ride is moved into the hole,
+        and sifted up or down from there
+     */
+    private void removeAt(int index) {
+        rideMap.remove(rideNos[index]);
+        if(--size == index) return;
+
+        long key = keys[size];
+        keys[index] = key;
+        rideNos[index] = rideNos[size];
+        if(index > 0 && key < keys[getParent(index)])   heapifyUp(index);
+        else    heapifyDown(index);
+    }
+
+    @Override
+    public boolean remove(int rideNo) {
+        int index = rideMap.get(rideNo);
+        if(index < 0)   return false;
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    public boolean decreaseKey(int rideNo, int rideCost, int tripDuration) {
+        int index = rideMap.get(rideNo);
+        if(index < 0)   return false;
+
+        keys[index] = MinHeap.key(rideCost, tripDuration);
+        heapifyUp(index);
+        return true;
+    }
+
+    @Override
+    public boolean increaseKey(int rideNo, int rideCost, int tripDuration) {
+        int index = rideMap.get(rideNo);
+        if(index < 0)   return false;
+
+        keys[index] = MinHeap.key(rideCost, tripDuration);
+        heapifyDown(index);
+        return true;
+    }
+}
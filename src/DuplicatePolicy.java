@@ -0,0 +1,28 @@
+/*
+    DuplicatePolicy class defines what an Insert of a ride no, that is already pending, does
+ */
+public enum DuplicatePolicy {
+
+    // keep the pending ride, and go on without output: the engine can run in a server
+    REJECT("reject"),
+    // replace the cost and trip duration of the pending ride with the inserted ones
+    UPSERT("upsert"),
+    // print "Duplicate RideNumber", and halt the engine: the behaviour of the GatorTaxi application for an input file, main then exits
+    HALT("halt");
+
+    String policy;
+
+    DuplicatePolicy(String policy) {
+        this.policy = policy;
+    }
+
+    /*
+        This function returns the policy with the input name
+     */
+    static DuplicatePolicy of(String name) {
+        for(DuplicatePolicy duplicatePolicy : values()) {
+            if(duplicatePolicy.policy.equals(name))    return duplicatePolicy;
+        }
+        throw new IllegalArgumentException("Unknown duplicate policy: " + name);
+    }
+}
@@ -0,0 +1,28 @@
+/*
+    FsyncPolicy class defines when the command log forces its committed records to the disk
+ */
+public enum FsyncPolicy {
+
+    // force on every commit: a committed batch survives a crash of the machine
+    ALWAYS("always"),
+    // force on a commit, once the last force is older than the fsync interval: many batches share one fsync
+    INTERVAL("interval"),
+    // never force, the operating system writes the log back on its own: a committed batch survives a crash of the process only
+    NEVER("never");
+
+    String policy;
+
+    FsyncPolicy(String policy) {
+        this.policy = policy;
+    }
+
+    /*
+        This function returns the policy with the input name
+     */
+    static FsyncPolicy of(String name) {
+        for(FsyncPolicy fsyncPolicy : values()) {
+            if(fsyncPolicy.policy.equals(name))    return fsyncPolicy;
+        }
+        throw new IllegalArgumentException("Unknown fsync policy: " + name);
+    }
+}
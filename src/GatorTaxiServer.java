@@ -0,0 +1,316 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/*
+    TCP server of the GatorTaxi application, that executes the text commands of many client connections,
+    one command per line in the same format as the input file, and answers every command that prints (see CommandType.printsLine())
+    with its output line on the same connection.
+
+    One thread runs a non-blocking NIO selector loop, and is the single writer of the engine.
+    In every round of the loop, the commands of all connections, that have whole lines to read, are collected into one batch
+    and executed together, so the batch optimizations of gatorTaxi.execute(batch, count) apply across connections.
+    The engine prints into the output sink of the server, which collects the output of the batch in memory.
+    As every printing command prints exactly one line, the output lines are handed to the connections of the commands in order.
+
+    A client may pipeline any number of commands without waiting for the answers, the answers come back in the order of its commands.
+    A connection, that does not read its answers, is not read from either, once MAX_PENDING_OUTPUT bytes are waiting for it.
+    The engine must reject or upsert duplicate rides (see DuplicatePolicy): a halting duplicate prints a line, that answers no command.
+ */
+public class GatorTaxiServer implements Closeable {
+    // number of commands, that are executed as one batch
+    private static final int BATCH_SIZE = 4096;
+    private static final int READ_BUFFER_SIZE = 512;
+    private static final int WRITE_BUFFER_SIZE = 256;
+    // bytes of answers waiting for a connection, after which its commands are not read until it has read some answers
+    private static final int MAX_PENDING_OUTPUT = 1 << 20;
+    private static final int ACCEPT_BACKLOG = 1 << 12;
+
+    /*
+        Engine that executes a batch of commands, for example gatorTaxi.execute(batch, count), followed by a journal commit
+     */
+    interface BatchExecutor {
+        void execute(Command[] batch, int count) throws IOException;
+    }
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ResponseBuffer responses = new ResponseBuffer();
+    private final OutputSink out = new OutputSink(responses);
+
+    private final Command[] batch = new Command[BATCH_SIZE];
+    // connection of every command of the batch
+    private final Connection[] owners = new Connection[BATCH_SIZE];
+    private int count;
+    // connections with commands, that were not parsed yet, because the batch was full or their answers were not read
+    private final ArrayDeque<Connection> backlog = new ArrayDeque<>();
+    // connections, that got answers in the current batch
+    private final List<Connection> answered = new ArrayList<>();
+    private volatile boolean closed;
+
+    GatorTaxiServer(InetSocketAddress address) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, ACCEPT_BACKLOG);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        for(int i = 0; i < BATCH_SIZE; i++)
+            batch[i] = new Command();
+    }
+
+    /*
+        This function returns the output sink, that the engine must print into
+     */
+    OutputSink outputSink() {
+        return out;
+    }
+
+    /*
+        This function returns the port, that the server listens on, for example after binding port 0
+     */
+    int port() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /*
+        This function runs the selector loop, and executes the commands of the clients with the input executor, until close() is called.
+        Then all connections are closed
+     */
+    void serve(BatchExecutor executor) throws IOException {
+        try {
+            while(!closed) {
+                if(backlog.isEmpty())   selector.select();
+                else    selector.selectNow();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while(keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if(!key.isValid())  continue;
+                    if(key.isAcceptable())  accept();
+                    else {
+                        Connection connection = (Connection) key.attachment();
+                        if(key.isWritable())    write(connection);
+                        if(key.isValid() && key.isReadable())   read(connection);
+                    }
+                }
+                while(count < BATCH_SIZE && !backlog.isEmpty()) {
+                    Connection connection = backlog.poll();
+                    connection.backlogged = false;
+                    read(connection);
+                }
+                if(count > 0)   executeBatch(executor);
+                for(Connection connection : answered)
+                    write(connection);
+                answered.clear();
+            }
+        } finally {
+            for(SelectionKey key : selector.keys())
+                key.channel().close();
+            selector.close();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    /*
+        This function parses the whole lines, that the connection has sent, into the batch.
+        If the batch is full, or too many answers are waiting for the connection, the rest is read in a later round
+     */
+    private void read(Connection connection) throws IOException {
+        if(connection.closed || connection.inputClosed)    return;
+        if(connection.output.remaining() >= MAX_PENDING_OUTPUT) {
+            connection.throttled = true;
+            updateInterest(connection);
+            return;
+        }
+
+        try {
+            CommandType type;
+            while(count < BATCH_SIZE && (type = connection.parser.next()) != null) {
+                batch[count].set(type, connection.parser.args, connection.parser.argCount);
+                owners[count++] = connection;
+            }
+        } catch (IOException | NumberFormatException e) {
+            // the connection was reset, or sent a malformed command, the commands of it in the batch are executed without answers
+            close(connection);
+            return;
+        }
+
+        if(count == BATCH_SIZE) {
+            if(!connection.backlogged) {
+                connection.backlogged = true;
+                backlog.add(connection);
+            }
+        } else if(connection.parser.isEndOfInput()) {
+            // the client has sent all commands, the connection is closed once their answers are written
+            connection.inputClosed = true;
+            if(!connection.output.hasRemaining())   answered.add(connection);
+            updateInterest(connection);
+        }
+    }
+
+    /*
+        This function executes the batch, and hands the output lines to the connections of the printing commands, in order.
+        The connections, that got answers, are written to after the batch
+     */
+    private void executeBatch(BatchExecutor executor) throws IOException {
+        executor.execute(batch, count);
+        out.flush();
+
+        byte[] bytes = responses.bytes;
+        int lineStart = 0;
+        for(int i = 0; i < count; i++) {
+            if(!batch[i].type.printsLine()) continue;
+            int lineEnd = lineStart;
+            while(bytes[lineEnd] != '\n')   lineEnd++;
+            lineEnd++;
+
+            Connection connection = owners[i];
+            if(!connection.closed) {
+                if(!connection.output.hasRemaining())   answered.add(connection);
+                connection.append(bytes, lineStart, lineEnd - lineStart);
+            }
+            lineStart = lineEnd;
+        }
+        responses.size = 0;
+        count = 0;
+    }
+
+    /*
+        This function writes as much of the waiting answers as the connection takes without blocking
+     */
+    private void write(Connection connection) throws IOException {
+        if(connection.closed)   return;
+        try {
+            int written = 1;
+            while(connection.output.hasRemaining() && written > 0)
+                written = connection.channel.write(connection.output);
+        } catch (IOException e) {
+            close(connection);
+            return;
+        }
+
+        if(!connection.output.hasRemaining() && connection.inputClosed) {
+            close(connection);
+            return;
+        }
+        if(connection.throttled && connection.output.remaining() < MAX_PENDING_OUTPUT) {
+            // its lines, that are already in the parser, are not announced by the selector again
+            connection.throttled = false;
+            if(!connection.backlogged) {
+                connection.backlogged = true;
+                backlog.add(connection);
+            }
+        }
+        updateInterest(connection);
+    }
+
+    /*
+        This function selects the connection for writing while answers are waiting for it,
+        and for reading while it may send commands, and its answers are read
+     */
+    private void updateInterest(Connection connection) {
+        if(connection.closed)   return;
+        int interest = 0;
+        if(connection.output.hasRemaining())    interest |= SelectionKey.OP_WRITE;
+        if(!connection.inputClosed && !connection.throttled)  interest |= SelectionKey.OP_READ;
+        connection.key.interestOps(interest);
+    }
+
+    private void close(Connection connection) throws IOException {
+        connection.closed = true;
+        connection.key.cancel();
+        connection.channel.close();
+    }
+
+    /*
+        This function stops the selector loop of serve(), which then closes all connections
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        selector.wakeup();
+    }
+
+    /*
+        One client connection, with the parser of its commands and its answers, that are waiting to be written
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        final CommandParser parser;
+        SelectionKey key;
+        // answers between position and limit are waiting to be written
+        ByteBuffer output = ByteBuffer.allocate(WRITE_BUFFER_SIZE).flip();
+        boolean inputClosed;
+        boolean throttled;
+        boolean backlogged;
+        boolean closed;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.parser = new CommandParser(channel, READ_BUFFER_SIZE);
+        }
+
+        /*
+            This function appends the input bytes to the waiting answers, the buffer is compacted or grown, if they do not fit
+         */
+        void append(byte[] bytes, int offset, int length) {
+            if(output.capacity() - output.limit() < length) {
+                int remaining = output.remaining();
+                ByteBuffer moved = remaining + length <= output.capacity() ? output.compact()
+                        : ByteBuffer.allocate(Math.max(output.capacity() << 1, remaining + length)).put(output);
+                output = moved.flip();
+            }
+            int end = output.limit();
+            output.limit(end + length);
+            output.put(end, bytes, offset, length);
+        }
+    }
+
+    /*
+        Channel, that collects the output of a batch in a growable byte array
+     */
+    private static final class ResponseBuffer implements WritableByteChannel {
+        byte[] bytes = new byte[1 << 16];
+        int size;
+
+        @Override
+        public int write(ByteBuffer source) {
+            int length = source.remaining();
+            if(size + length > bytes.length)    bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, size + length));
+            source.get(bytes, size, length);
+            size += length;
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
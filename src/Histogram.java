@@ -0,0 +1,81 @@
+/*
+    Histogram of non-negative long values, for example latencies in nanoseconds, in the style of HdrHistogram:
+    values below 2 * SUB_BUCKETS are counted exactly, larger values in buckets of the same relative width,
+    SUB_BUCKETS buckets per power of two, so every value is recorded with a precision of about 3%.
+    The counts are one fixed array, recording a value is a few shifts and an increment, and never allocates.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // buckets for every magnitude of a positive long
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long totalCount;
+    private long sum;
+    private long max;
+
+    /*
+        This function returns the bucket of the input value.
+        A value with m significant bits keeps its SUB_BUCKET_BITS + 1 highest bits, the bits below are shifted out
+     */
+    private static int bucketOf(long value) {
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS + 1);
+        if(shift <= 0)  return (int) value;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /*
+        This function returns the largest value, that falls into the input bucket
+     */
+    private static long highestValueOf(int bucket) {
+        if(bucket < 2 * SUB_BUCKETS)    return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    public void record(long value) {
+        record(value, 1);
+    }
+
+    /*
+        This function records the input value count times, for example the average latency of a run of commands, that were executed together
+     */
+    public void record(long value, long count) {
+        value = Math.max(value, 0);
+        counts[bucketOf(value)] += count;
+        totalCount += count;
+        sum += value * count;
+        if(value > max) max = value;
+    }
+
+    public long count() {
+        return totalCount;
+    }
+
+    public long sum() {
+        return sum;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public double mean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /*
+        This function returns the value, that the input percentage of the recorded values are not greater than (within the bucket precision)
+     */
+    public long percentile(double percentile) {
+        if(totalCount == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount)), seen = 0;
+        for(int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if(seen >= rank)    return Math.min(highestValueOf(bucket), max);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,14 @@
+/*
+    InsertStatus class defines the outcomes of an Insert, that returns (see DuplicatePolicy)
+ */
+public enum InsertStatus {
+
+    // the ride was new, and is pending now
+    INSERTED,
+    // the ride no was pending, and the pending ride is kept
+    REJECTED,
+    // the ride no was pending, and the pending ride got the inserted cost and trip duration
+    UPDATED,
+    // the ride no was pending, "Duplicate RideNumber" was printed, and the engine executes no more commands
+    HALTED
+}
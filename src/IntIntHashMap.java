@@ -0,0 +1,189 @@
+import java.util.Arrays;
+
+/*
+    Primitive int -> int hash map, used instead of a boxed HashMap<Integer, Integer> on the hot paths.
+    It uses open addressing with linear probing. Removal shifts the following entries of the probe run back,
+    so there are no tombstones and lookups never slow down after many deletes.
+    Key 0 is used to mark empty slots, so the value of key 0 is kept outside the table.
+ */
+public class IntIntHashMap {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int EMPTY = 0;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    // value returned by get() and remove() when the key is not present
+    private final int missingValue;
+
+    IntIntHashMap(int missingValue) {
+        this(DEFAULT_CAPACITY, missingValue);
+    }
+
+    IntIntHashMap(int expectedSize, int missingValue) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, DEFAULT_CAPACITY / 2) * 2 - 1) << 1;
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        this.resizeThreshold = capacity / 4 * 3;
+        this.missingValue = missingValue;
+    }
+
+    /*
+        This function spreads the bits of the key, so that sequential ride numbers do not fill a single probe run
+     */
+    static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /*
+        This function returns the value for the input key, or missingValue if the key is not present
+     */
+    public int get(int key) {
+        if(key == EMPTY)    return hasZeroKey ? zeroValue : missingValue;
+
+        int index = hash(key) & mask;
+        int current;
+        while((current = keys[index]) != EMPTY) {
+            if(current == key)  return values[index];
+            index = (index + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    public boolean containsKey(int key) {
+        if(key == EMPTY)    return hasZeroKey;
+
+        int index = hash(key) & mask;
+        int current;
+        while((current = keys[index]) != EMPTY) {
+            if(current == key)  return true;
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /*
+        This function maps the key to the value, overwriting the existing value if the key is present
+     */
+    public void put(int key, int value) {
+        if(key == EMPTY) {
+            if(!hasZeroKey) size++;
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+
+        int index = hash(key) & mask;
+        int current;
+        while((current = keys[index]) != EMPTY) {
+            if(current == key) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        if(++size > resizeThreshold)    rehash(keys.length << 1);
+    }
+
+    /*
+        This function removes the key and returns its value, or missingValue if the key is not present.
+        The entries after the removed slot are shifted back, so that every key stays reachable from its home slot
+     */
+    public int remove(int key) {
+        if(key == EMPTY) {
+            if(!hasZeroKey) return missingValue;
+            hasZeroKey = false;
+            size--;
+            return zeroValue;
+        }
+
+        int index = hash(key) & mask;
+        int current;
+        while((current = keys[index]) != key) {
+            if(current == EMPTY)    return missingValue;
+            index = (index + 1) & mask;
+        }
+        int value = values[index];
+        size--;
+
+        // backward shift: move every following entry, whose home slot is not between the hole and itself, into the hole
+        int hole = index;
+        index = (index + 1) & mask;
+        while((current = keys[index]) != EMPTY) {
+            int home = hash(current) & mask;
+            if(((index - home) & mask) >= ((index - hole) & mask)) {
+                keys[hole] = current;
+                values[hole] = values[index];
+                hole = index;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        return value;
+    }
+
+    /*
+        This function grows the table once, so that expectedSize keys fit without further rehashing
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, DEFAULT_CAPACITY / 2) * 2 - 1) << 1;
+        if(capacity > keys.length)  rehash(capacity);
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    /*
+        This function moves all entries into a table with the new capacity
+     */
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys, oldValues = values;
+        keys = new int[newCapacity];
+        values = new int[newCapacity];
+        mask = newCapacity - 1;
+        resizeThreshold = newCapacity / 4 * 3;
+
+        for(int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if(key == EMPTY)    continue;
+            int index = hash(key) & mask;
+            while(keys[index] != EMPTY)
+                index = (index + 1) & mask;
+            keys[index] = key;
+            values[index] = oldValues[i];
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder("{");
+        if(hasZeroKey)  stringBuilder.append(EMPTY + "=" + zeroValue);
+        for(int i = 0; i < keys.length; i++) {
+            if(keys[i] == EMPTY)    continue;
+            if(stringBuilder.length() > 1)  stringBuilder.append(", ");
+            stringBuilder.append(keys[i] + "=" + values[i]);
+        }
+        return stringBuilder.append("}").toString();
+    }
+}
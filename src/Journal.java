@@ -0,0 +1,221 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+    Write-ahead log with snapshots, that keeps the pending rides of the GatorTaxi application across restarts.
+    The directory holds generations of files: snapshot-<g>.bin is the ride set at the start of generation g,
+    and log-<g>.bin (CommandLog) holds the changes made during generation g. Generation 0 starts empty, without a snapshot.
+
+    Every change is logged through LoggedRideIndex, and committed with commit() after each batch of commands.
+    Once the log holds snapshotEvery records, a snapshot of the ride set starts the next generation,
+    and the files of the older generations are deleted.
+
+    Recovery loads the latest snapshot, merges the changes of the log tail into its sorted arrays,
+    and builds the ride index and the ride queue from the merged rides in linear time, instead of replaying every change.
+ */
+public class Journal implements Closeable {
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String LOG_PREFIX = "log-";
+    private static final String SUFFIX = ".bin";
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    // number of logged changes, after which a snapshot is taken, 0 for no automatic snapshots
+    private final long snapshotEvery;
+
+    private long generation;
+    private CommandLog log;
+    // the ride index without logging, that snapshots are taken from
+    private RideIndex rides;
+
+    Journal(Path directory, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis, long snapshotEvery) {
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.snapshotEvery = snapshotEvery;
+    }
+
+    private Path snapshotPath(long generation) {
+        return directory.resolve(SNAPSHOT_PREFIX + generation + SUFFIX);
+    }
+
+    private Path logPath(long generation) {
+        return directory.resolve(LOG_PREFIX + generation + SUFFIX);
+    }
+
+    /*
+        This function returns the generation of a journal file name with the input prefix, or -1 for other files
+     */
+    private static long generationOf(String fileName, String prefix) {
+        if(!fileName.startsWith(prefix) || !fileName.endsWith(SUFFIX))  return -1;
+        try {
+            return Long.parseLong(fileName.substring(prefix.length(), fileName.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /*
+        This function recovers the pending rides from the journal into the empty ride index and ride queue,
+        and opens the log for appending. It returns the ride index to use from now on, which logs every change
+     */
+    RideIndex recover(RideIndex rides, RideQueue minCostRides) throws IOException {
+        Files.createDirectories(directory);
+        long snapshotGeneration = -1;
+        List<Long> logGenerations = new ArrayList<>();
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for(Path file : files) {
+                String fileName = file.getFileName().toString();
+                if(fileName.endsWith(".tmp"))   Files.delete(file); // snapshot that was not completed before a crash
+                snapshotGeneration = Math.max(snapshotGeneration, generationOf(fileName, SNAPSHOT_PREFIX));
+                long logGeneration = generationOf(fileName, LOG_PREFIX);
+                if(logGeneration >= 0)  logGenerations.add(logGeneration);
+            }
+        }
+
+        RideSnapshot snapshot = snapshotGeneration < 0 ? new RideSnapshot(new int[0], new int[0], new int[0], 0) : RideSnapshot.read(snapshotPath(snapshotGeneration));
+        generation = Math.max(snapshotGeneration, 0);
+
+        // the logs of the generations before the snapshot are already contained in it
+        RideChanges changes = new RideChanges();
+        logGenerations.sort(null);
+        for(long logGeneration : logGenerations) {
+            if(logGeneration < generation)  continue;
+            CommandLog.replay(logPath(logGeneration), changes);
+            generation = logGeneration;
+        }
+        deleteBefore(generation);
+
+        changes.mergeInto(snapshot).load(rides, minCostRides);
+        this.rides = rides;
+        this.log = new CommandLog(logPath(generation), fsyncPolicy, fsyncIntervalMillis);
+        return new LoggedRideIndex(rides, this);
+    }
+
+    void put(int rideNo, int rideCost, int tripDuration) {
+        log.put(rideNo, rideCost, tripDuration);
+    }
+
+    void remove(int rideNo) {
+        log.remove(rideNo);
+    }
+
+    /*
+        This function commits the changes logged since the last commit (group commit), and takes a snapshot if the log is long enough
+     */
+    public void commit() throws IOException {
+        log.commit();
+        if(snapshotEvery > 0 && log.records() >= snapshotEvery)  snapshot();
+    }
+
+    /*
+        This function writes a snapshot of the pending rides, which starts the next generation with an empty log
+     */
+    public void snapshot() throws IOException {
+        log.sync();
+        RideSnapshot.of(rides).write(snapshotPath(generation + 1));
+        log.close();
+        log = new CommandLog(logPath(++generation), fsyncPolicy, fsyncIntervalMillis);
+        deleteBefore(generation);
+    }
+
+    /*
+        This function deletes the snapshots and logs of the generations before the input generation
+     */
+    private void deleteBefore(long generation) throws IOException {
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for(Path file : files) {
+                String fileName = file.getFileName().toString();
+                long fileGeneration = Math.max(generationOf(fileName, SNAPSHOT_PREFIX), generationOf(fileName, LOG_PREFIX));
+                if(fileGeneration >= 0 && fileGeneration < generation)  Files.delete(file);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(log != null) log.close();
+    }
+
+    /*
+        Final state of every ride changed in the replayed logs, the last change of a ride wins
+     */
+    private static final class RideChanges implements CommandLog.Replayer {
+        private final IntIntHashMap slots = new IntIntHashMap(-1);
+        private int[] rideNos = new int[16];
+        private int[] rideCosts = new int[16];
+        private int[] tripDurations = new int[16];
+        private boolean[] removed = new boolean[16];
+        private int count;
+
+        private int slotOf(int rideNo) {
+            int slot = slots.get(rideNo);
+            if(slot >= 0)   return slot;
+            if(count == rideNos.length) {
+                int capacity = count << 1;
+                rideNos = Arrays.copyOf(rideNos, capacity);
+                rideCosts = Arrays.copyOf(rideCosts, capacity);
+                tripDurations = Arrays.copyOf(tripDurations, capacity);
+                removed = Arrays.copyOf(removed, capacity);
+            }
+            slots.put(rideNo, count);
+            rideNos[count] = rideNo;
+            return count++;
+        }
+
+        @Override
+        public void put(int rideNo, int rideCost, int tripDuration) {
+            int slot = slotOf(rideNo);
+            rideCosts[slot] = rideCost;
+            tripDurations[slot] = tripDuration;
+            removed[slot] = false;
+        }
+
+        @Override
+        public void remove(int rideNo) {
+            int slot = slotOf(rideNo);
+            removed[slot] = true;
+        }
+
+        /*
+            This function merges the changes into the sorted rides of the snapshot, and returns the merged rides.
+            The changes are sorted by rideNo, and merged with the snapshot in one linear pass
+         */
+        RideSnapshot mergeInto(RideSnapshot snapshot) {
+            if(count == 0)  return snapshot;
+
+            // sort the changes by rideNo, the slot is kept in the low bits of the sort key
+            long[] sortKeys = new long[count];
+            for(int i = 0; i < count; i++)
+                sortKeys[i] = ((long) rideNos[i] << 32) | i;
+            Arrays.sort(sortKeys);
+
+            int capacity = snapshot.count + count;
+            RideSnapshot merged = new RideSnapshot(new int[capacity], new int[capacity], new int[capacity], 0);
+            int next = 0;
+            for(long sortKey : sortKeys) {
+                int slot = (int) sortKey, rideNo = rideNos[slot];
+                while(next < snapshot.count && snapshot.rideNos[next] < rideNo)
+                    append(merged, snapshot.rideNos[next], snapshot.rideCosts[next], snapshot.tripDurations[next++]);
+                if(next < snapshot.count && snapshot.rideNos[next] == rideNo)   next++;
+                if(!removed[slot])  append(merged, rideNo, rideCosts[slot], tripDurations[slot]);
+            }
+            while(next < snapshot.count)
+                append(merged, snapshot.rideNos[next], snapshot.rideCosts[next], snapshot.tripDurations[next++]);
+            return merged;
+        }
+
+        private static void append(RideSnapshot rides, int rideNo, int rideCost, int tripDuration) {
+            rides.rideNos[rides.count] = rideNo;
+            rides.rideCosts[rides.count] = rideCost;
+            rides.tripDurations[rides.count++] = tripDuration;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+    Ride index, that records every change of the wrapped ride index in the Journal.
+    Every change of the pending rides goes through the ride index, so the log holds the full history since the last snapshot:
+    inserts and updates are logged with the full ride, deletes (CancelRide, UpdateTrip, GetNextRide) with the ride no.
+    Only changes that succeed are logged.
+ */
+public class LoggedRideIndex implements RideIndex {
+    private final RideIndex rides;
+    private final Journal journal;
+
+    LoggedRideIndex(RideIndex rides, Journal journal) {
+        this.rides = rides;
+        this.journal = journal;
+    }
+
+    @Override
+    public int size() {
+        return rides.size();
+    }
+
+    @Override
+    public boolean insert(int rideNo, int rideCost, int tripDuration) {
+        if(!rides.insert(rideNo, rideCost, tripDuration))   return false;
+        journal.put(rideNo, rideCost, tripDuration);
+        return true;
+    }
+
+    @Override
+    public boolean search(int rideNo, Ride result) {
+        return rides.search(rideNo, result);
+    }
+
+    @Override
+    public boolean update(int rideNo, int rideCost, int tripDuration) {
+        if(!rides.update(rideNo, rideCost, tripDuration))   return false;
+        journal.put(rideNo, rideCost, tripDuration);
+        return true;
+    }
+
+    @Override
+    public boolean delete(int rideNo) {
+        if(!rides.delete(rideNo))   return false;
+        journal.remove(rideNo);
+        return true;
+    }
+
+    @Override
+    public void rangeSearch(int rideNo1, int rideNo2, int limit, RideVisitor visitor) {
+        rides.rangeSearch(rideNo1, rideNo2, limit, visitor);
+    }
+
+    @Override
+    public void searchSorted(int[] sortedRideNos, int count, RideVisitor visitor) {
+        rides.searchSorted(sortedRideNos, count, visitor);
+    }
+
+    @Override
+    public void buildFromSorted(int[] sortedRideNos, int[] rideCosts, int[] tripDurations, int count) {
+        rides.buildFromSorted(sortedRideNos, rideCosts, tripDurations, count);
+        for(int i = 0; i < count; i++)
+            journal.put(sortedRideNos[i], rideCosts[i], tripDurations[i]);
+    }
+}
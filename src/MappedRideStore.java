@@ -0,0 +1,795 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/*
+    Off-heap store of the pending rides, in memory-mapped files (MappedSlots), with no object per ride.
+    <path>.rides  holds fixed 12 byte records (rideNo, rideCost, tripDuration), a ride stays in the slot of its record
+    <path>.links  holds per slot the red black tree links (left, right, parent), the heap index and the flags (red, indexed)
+    <path>.heap   holds the binary min heap as an array of slots
+
+    index() is the ride index (red black tree ordered by rideNo) and queue() the ride queue (min heap ordered by
+    rideCost and tripDuration). Both refer to the rides by slot, and read the keys from the records, so a ride is stored once.
+    A slot is freed once the ride is neither in the index nor in the queue, free records are marked with tripDuration FREE.
+
+    The first HEADER_SLOTS record slots hold the header, slot 0 is also the NIL sentinel of the tree.
+    close() writes the header and marks the files clean, so the next open() starts in O(1) from the mapped files.
+    If the files were not closed cleanly, open() rebuilds the tree and the heap from the live records.
+ */
+public class MappedRideStore implements Closeable {
+    static final int NIL = 0;
+    private static final int HEADER_SLOTS = 3;
+    // tripDuration of a free record
+    private static final int FREE = Integer.MIN_VALUE;
+    private static final int MAGIC = 0x47544D53;
+    private static final int VERSION = 1;
+
+    // fields of a record
+    private static final int RIDE_NO = 0, RIDE_COST = 1, TRIP_DURATION = 2;
+    // fields of the links of a slot
+    private static final int LEFT = 0, RIGHT = 1, PARENT = 2, HEAP_INDEX = 3, FLAGS = 4;
+    private static final int RED = 1, INDEXED = 2;
+    // header ints, as index into the ints of the header slots
+    private static final int H_MAGIC = 0, H_VERSION = 1, H_CLEAN = 2, H_ROOT = 3, H_SIZE = 4, H_HEAP_SIZE = 5, H_NEXT_SLOT = 6, H_FREE_SLOT = 7;
+
+    private final MappedSlots records;
+    private final MappedSlots links;
+    private final MappedSlots heap;
+
+    private int root;
+    private int size;
+    private int heapSize;
+    // next slot, that was never used
+    private int nextSlot;
+    // head of the list of free slots (linked through LEFT)
+    private int freeSlot;
+    // slot of the ride, that was inserted, searched or removed last. The queue finds the slot of a rideNo here first,
+    // since gatorTaxi always works on the same ride in the index and then in the queue
+    private int lastSlot = NIL;
+    private boolean closed;
+
+    private final Index index = new Index();
+    private final Queue queue = new Queue();
+
+    private MappedRideStore(MappedSlots records, MappedSlots links, MappedSlots heap) {
+        this.records = records;
+        this.links = links;
+        this.heap = heap;
+    }
+
+    /*
+        This function opens the store at the input path, creating it if it does not exist
+     */
+    static MappedRideStore open(Path path) throws IOException {
+        MappedRideStore store = new MappedRideStore(new MappedSlots(path.resolveSibling(path.getFileName() + ".rides"), 3),
+                new MappedSlots(path.resolveSibling(path.getFileName() + ".links"), 5),
+                new MappedSlots(path.resolveSibling(path.getFileName() + ".heap"), 1));
+        boolean created = store.records.capacity() == 0;
+        if(created) store.create();
+        // the links may be a segment short, if the store was not closed while the records grew
+        while(store.links.capacity() < store.records.capacity())    store.links.grow();
+
+        if(!created) {
+            if(store.header(H_MAGIC) != MAGIC || store.header(H_VERSION) != VERSION)
+                throw new IOException("Not a gatorTaxi ride store: " + path);
+            if(store.header(H_CLEAN) == 1)  store.load();
+            else    store.rebuild();
+        }
+
+        // until the next clean close, the header does not describe the files
+        store.setHeader(H_CLEAN, 0);
+        store.records.force();
+        return store;
+    }
+
+    public RideIndex index() {
+        return index;
+    }
+
+    public RideQueue queue() {
+        return queue;
+    }
+
+    private int header(int field) {
+        return records.getInt(field / 3, field % 3);
+    }
+
+    private void setHeader(int field, int value) {
+        records.putInt(field / 3, field % 3, value);
+    }
+
+    private void create() throws IOException {
+        growRecords();
+        setHeader(H_MAGIC, MAGIC);
+        setHeader(H_VERSION, VERSION);
+        nextSlot = HEADER_SLOTS;
+        root = freeSlot = NIL;
+    }
+
+    private void load() {
+        root = header(H_ROOT);
+        size = header(H_SIZE);
+        heapSize = header(H_HEAP_SIZE);
+        nextSlot = header(H_NEXT_SLOT);
+        freeSlot = header(H_FREE_SLOT);
+    }
+
+    /*
+        This function rebuilds the tree and the heap from the live records, after the store was not closed cleanly.
+        The live slots are sorted by rideNo and linked into a balanced tree, the heap is built with Floyd's heapify
+     */
+    private void rebuild() throws IOException {
+        int capacity = records.capacity();
+        long[] sortKeys = new long[Math.max(capacity - HEADER_SLOTS, 0)];
+        int count = 0;
+        nextSlot = HEADER_SLOTS;
+        for(int slot = HEADER_SLOTS; slot < capacity; slot++) {
+            if(tripDuration(slot) == FREE)  continue;
+            sortKeys[count++] = ((long) rideNo(slot) << 32) | slot;
+            nextSlot = slot + 1;
+        }
+        Arrays.sort(sortKeys, 0, count);
+
+        // a ride no can only be live twice, if the crash hit in the middle of a change, the first slot wins
+        int[] slots = new int[count];
+        int unique = 0;
+        for(int i = 0; i < count; i++) {
+            int slot = (int) sortKeys[i];
+            if(unique > 0 && rideNo(slots[unique - 1]) == rideNo(slot))    records.putInt(slot, TRIP_DURATION, FREE);
+            else    slots[unique++] = slot;
+        }
+
+        freeSlot = NIL;
+        for(int slot = nextSlot - 1; slot >= HEADER_SLOTS; slot--) {
+            if(tripDuration(slot) != FREE)  continue;
+            setLeft(slot, freeSlot);
+            links.putInt(slot, HEAP_INDEX, -1);
+            links.putInt(slot, FLAGS, 0);
+            freeSlot = slot;
+        }
+        clearLinks(NIL);
+
+        index.link(slots, unique);
+        heapSize = 0;
+        queue.ensureCapacity(unique);
+        for(int i = 0; i < unique; i++)
+            queue.place(heapSize++, slots[i]);
+        queue.heapify();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(closed)  return;
+        closed = true;
+        setHeader(H_ROOT, root);
+        setHeader(H_SIZE, size);
+        setHeader(H_HEAP_SIZE, heapSize);
+        setHeader(H_NEXT_SLOT, nextSlot);
+        setHeader(H_FREE_SLOT, freeSlot);
+        heap.close();
+        links.close();
+        records.force();
+        // the clean flag is forced last, so it only reaches the disk after everything else
+        setHeader(H_CLEAN, 1);
+        records.close();
+    }
+
+    /*
+        These functions access the record and the links of a slot
+     */
+    private int rideNo(int slot) {
+        return records.getInt(slot, RIDE_NO);
+    }
+
+    private int rideCost(int slot) {
+        return records.getInt(slot, RIDE_COST);
+    }
+
+    private int tripDuration(int slot) {
+        return records.getInt(slot, TRIP_DURATION);
+    }
+
+    private long key(int slot) {
+        return MinHeap.key(records.getInt(slot, RIDE_COST), records.getInt(slot, TRIP_DURATION));
+    }
+
+    private int left(int node) {
+        return links.getInt(node, LEFT);
+    }
+
+    private int right(int node) {
+        return links.getInt(node, RIGHT);
+    }
+
+    private int parent(int node) {
+        return links.getInt(node, PARENT);
+    }
+
+    private void setLeft(int node, int value) {
+        links.putInt(node, LEFT, value);
+    }
+
+    private void setRight(int node, int value) {
+        links.putInt(node, RIGHT, value);
+    }
+
+    private void setParent(int node, int value) {
+        links.putInt(node, PARENT, value);
+    }
+
+    private boolean isRed(int node) {
+        return (links.getInt(node, FLAGS) & RED) != 0;
+    }
+
+    private void setRed(int node) {
+        links.putInt(node, FLAGS, links.getInt(node, FLAGS) | RED);
+    }
+
+    private void setBlack(int node) {
+        links.putInt(node, FLAGS, links.getInt(node, FLAGS) & ~RED);
+    }
+
+    private void setColor(int node, boolean red) {
+        if(red) setRed(node);
+        else    setBlack(node);
+    }
+
+    private boolean isIndexed(int slot) {
+        return (links.getInt(slot, FLAGS) & INDEXED) != 0;
+    }
+
+    private void setIndexed(int slot, boolean indexed) {
+        int flags = links.getInt(slot, FLAGS);
+        links.putInt(slot, FLAGS, indexed ? flags | INDEXED : flags & ~INDEXED);
+    }
+
+    private void clearLinks(int slot) {
+        setLeft(slot, NIL);
+        setRight(slot, NIL);
+        setParent(slot, NIL);
+        links.putInt(slot, FLAGS, 0);
+    }
+
+    /*
+        This function maps the next segment of records, whose new records are marked free, and the matching segment of links
+     */
+    private void growRecords() throws IOException {
+        int from = records.capacity();
+        records.grow();
+        for(int slot = from; slot < records.capacity(); slot++)
+            records.putInt(slot, TRIP_DURATION, FREE);
+        while(links.capacity() < records.capacity())    links.grow();
+    }
+
+    /*
+        This function returns a free slot with the input ride, which is neither in the index nor in the queue yet
+     */
+    private int allocate(int rideNo, int rideCost, int tripDuration) {
+        int slot;
+        if(freeSlot != NIL) {
+            slot = freeSlot;
+            freeSlot = left(slot);
+        } else {
+            if(nextSlot == records.capacity()) {
+                try {
+                    growRecords();
+                } catch (IOException e) {
+                    throw new IllegalStateException("MappedRideStore cannot grow beyond " + nextSlot + " slots", e);
+                }
+            }
+            slot = nextSlot++;
+        }
+        records.putInt(slot, RIDE_NO, rideNo);
+        records.putInt(slot, RIDE_COST, rideCost);
+        records.putInt(slot, TRIP_DURATION, tripDuration);
+        clearLinks(slot);
+        links.putInt(slot, HEAP_INDEX, -1);
+        return slot;
+    }
+
+    /*
+        This function frees the slot, once its ride is neither in the index nor in the queue
+     */
+    private void releaseIfUnused(int slot) {
+        if(isIndexed(slot) || links.getInt(slot, HEAP_INDEX) >= 0)  return;
+        records.putInt(slot, TRIP_DURATION, FREE);
+        clearLinks(slot);
+        setLeft(slot, freeSlot);
+        freeSlot = slot;
+        if(lastSlot == slot)    lastSlot = NIL;
+    }
+
+    /*
+        This function returns the slot of the ride with input rideNo, that is in the index or was just removed from it
+     */
+    private int slotOf(int rideNo) {
+        if(lastSlot != NIL && rideNo(lastSlot) == rideNo)   return lastSlot;
+        int slot = index.search(rideNo);
+        if(slot != NIL) lastSlot = slot;
+        return slot;
+    }
+
+    /*
+        Red black tree of the slots ordered by rideNo, the same algorithms as ArrayRBT over the mapped links
+     */
+    private final class Index implements RideIndex {
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        private void rotateLeft(int node) {
+            int rightChild = right(node);
+            setRight(node, left(rightChild));
+            if(left(rightChild) != NIL) setParent(left(rightChild), node);
+            setParent(rightChild, parent(node));
+
+            if(parent(node) == NIL) root = rightChild;
+            else if(node == left(parent(node))) setLeft(parent(node), rightChild);
+            else    setRight(parent(node), rightChild);
+
+            setLeft(rightChild, node);
+            setParent(node, rightChild);
+        }
+
+        private void rotateRight(int node) {
+            int leftChild = left(node);
+            setLeft(node, right(leftChild));
+            if(right(leftChild) != NIL) setParent(right(leftChild), node);
+            setParent(leftChild, parent(node));
+
+            if(parent(node) == NIL) root = leftChild;
+            else if(node == right(parent(node))) setRight(parent(node), leftChild);
+            else    setLeft(parent(node), leftChild);
+
+            setRight(leftChild, node);
+            setParent(node, leftChild);
+        }
+
+        @Override
+        public boolean insert(int rideNo, int rideCost, int tripDuration) {
+            int prevNode = NIL, currentNode = root;
+            while(currentNode != NIL) {
+                prevNode = currentNode;
+                int currentRideNo = rideNo(currentNode);
+                if(rideNo == currentRideNo)  return false;
+                currentNode = rideNo < currentRideNo ? left(currentNode) : right(currentNode);
+            }
+
+            int newNode = allocate(rideNo, rideCost, tripDuration);
+            setParent(newNode, prevNode);
+            links.putInt(newNode, FLAGS, RED | INDEXED);
+
+            if(prevNode == NIL) root = newNode;
+            else if(rideNo < rideNo(prevNode)) setLeft(prevNode, newNode);
+            else    setRight(prevNode, newNode);
+
+            fixColorViolations(newNode);
+            size++;
+            lastSlot = newNode;
+            return true;
+        }
+
+        private void fixColorViolations(int node) {
+            while(isRed(parent(node))) {
+                int parentNode = parent(node), grandParent = parent(parentNode);
+                if(parentNode == left(grandParent)) {
+                    int uncle = right(grandParent);
+                    if(isRed(uncle)) {
+                        setBlack(parentNode);
+                        setBlack(uncle);
+                        setRed(grandParent);
+                        node = grandParent;
+                    } else {
+                        if(node == right(parentNode)) {
+                            node = parentNode;
+                            rotateLeft(node);
+                            parentNode = parent(node);
+                        }
+                        setBlack(parentNode);
+                        setRed(grandParent);
+                        rotateRight(grandParent);
+                    }
+                } else {
+                    int uncle = left(grandParent);
+                    if(isRed(uncle)) {
+                        setBlack(parentNode);
+                        setBlack(uncle);
+                        setRed(grandParent);
+                        node = grandParent;
+                    } else {
+                        if(node == left(parentNode)) {
+                            node = parentNode;
+                            rotateRight(node);
+                            parentNode = parent(node);
+                        }
+                        setBlack(parentNode);
+                        setRed(grandParent);
+                        rotateLeft(grandParent);
+                    }
+                }
+            }
+            setBlack(root);
+        }
+
+        /*
+            This function returns the slot of the ride with input rideNo in the tree, or NIL
+         */
+        int search(int rideNo) {
+            int current = root;
+            while(current != NIL) {
+                int currentRideNo = rideNo(current);
+                if(currentRideNo == rideNo) return current;
+                current = rideNo < currentRideNo ? left(current) : right(current);
+            }
+            return NIL;
+        }
+
+        @Override
+        public boolean search(int rideNo, Ride result) {
+            int node = slotOf(rideNo);
+            if(node == NIL || !isIndexed(node)) return false;
+            result.rideNo = rideNo;
+            result.rideCost = rideCost(node);
+            result.tripDuration = tripDuration(node);
+            return true;
+        }
+
+        @Override
+        public boolean update(int rideNo, int rideCost, int tripDuration) {
+            int node = slotOf(rideNo);
+            if(node == NIL || !isIndexed(node)) return false;
+            // the queue reads the same record, it restores its order in decreaseKey / increaseKey
+            records.putInt(node, RIDE_COST, rideCost);
+            records.putInt(node, TRIP_DURATION, tripDuration);
+            return true;
+        }
+
+        @Override
+        public void buildFromSorted(int[] sortedRideNos, int[] rideCosts, int[] tripDurations, int count) {
+            if(size != 0)   throw new IllegalStateException("MappedRideStore index must be empty to be built from sorted rides");
+            int[] slots = new int[count];
+            for(int i = 0; i < count; i++)
+                slots[i] = allocate(sortedRideNos[i], rideCosts[i], tripDurations[i]);
+            link(slots, count);
+        }
+
+        /*
+            This function links the input slots, which must be sorted by rideNo, into a balanced tree.
+            All nodes are black, except the nodes on the deepest level, which are red
+         */
+        void link(int[] slots, int count) {
+            size = count;
+            root = count == 0 ? NIL : linkSubtree(slots, 0, count - 1, 0, 31 - Integer.numberOfLeadingZeros(count));
+            setParent(root, NIL);
+            setParent(NIL, NIL);
+            setBlack(root);
+        }
+
+        private int linkSubtree(int[] slots, int low, int high, int level, int deepestLevel) {
+            if(low > high)  return NIL;
+
+            int mid = (low + high) >>> 1, node = slots[mid];
+            links.putInt(node, FLAGS, level == deepestLevel ? RED | INDEXED : INDEXED);
+            int leftChild = linkSubtree(slots, low, mid - 1, level + 1, deepestLevel);
+            int rightChild = linkSubtree(slots, mid + 1, high, level + 1, deepestLevel);
+            setLeft(node, leftChild);
+            setRight(node, rightChild);
+            setParent(leftChild, node);
+            setParent(rightChild, node);
+            return node;
+        }
+
+        private int minimum(int node) {
+            while(left(node) != NIL)    node = left(node);
+            return node;
+        }
+
+        private int successor(int node) {
+            if(right(node) != NIL)  return minimum(right(node));
+            int parentNode = parent(node);
+            while(parentNode != NIL && node == right(parentNode)) {
+                node = parentNode;
+                parentNode = parent(parentNode);
+            }
+            return parentNode;
+        }
+
+        @Override
+        public void rangeSearch(int rideNo1, int rideNo2, int limit, RideVisitor visitor) {
+            int first = NIL, current = root;
+            while(current != NIL) {
+                if(rideNo(current) >= rideNo1) {
+                    first = current;
+                    current = left(current);
+                } else  current = right(current);
+            }
+
+            for(int node = first, visited = 0; node != NIL && rideNo(node) <= rideNo2 && visited < limit; node = successor(node), visited++)
+                visitor.visit(rideNo(node), rideCost(node), tripDuration(node));
+        }
+
+        private void transplant(int node, int replacement) {
+            if(parent(node) == NIL) root = replacement;
+            else if(node == left(parent(node))) setLeft(parent(node), replacement);
+            else    setRight(parent(node), replacement);
+            setParent(replacement, parent(node));
+        }
+
+        @Override
+        public boolean delete(int rideNo) {
+            int node = slotOf(rideNo);
+            if(node == NIL || !isIndexed(node)) return false;
+
+            int removed = node, child;
+            boolean removedRed = isRed(removed);
+            if(left(node) == NIL) {
+                child = right(node);
+                transplant(node, child);
+            } else if(right(node) == NIL) {
+                child = left(node);
+                transplant(node, child);
+            } else {
+                removed = minimum(right(node));
+                removedRed = isRed(removed);
+                child = right(removed);
+                if(parent(removed) == node) setParent(child, removed);
+                else {
+                    transplant(removed, right(removed));
+                    setRight(removed, right(node));
+                    setParent(right(removed), removed);
+                }
+                transplant(node, removed);
+                setLeft(removed, left(node));
+                setParent(left(removed), removed);
+                setColor(removed, isRed(node));
+            }
+
+            if(!removedRed) fixDoubleBlack(child);
+            setParent(NIL, NIL);
+            size--;
+
+            // the slot stays allocated, until the ride also left the queue
+            int heapIndex = links.getInt(node, HEAP_INDEX);
+            clearLinks(node);
+            links.putInt(node, HEAP_INDEX, heapIndex);
+            lastSlot = node;
+            releaseIfUnused(node);
+            return true;
+        }
+
+        private void fixDoubleBlack(int node) {
+            while(node != root && !isRed(node)) {
+                int parentNode = parent(node);
+                if(node == left(parentNode)) {
+                    int sibling = right(parentNode);
+                    if(isRed(sibling)) {
+                        setBlack(sibling);
+                        setRed(parentNode);
+                        rotateLeft(parentNode);
+                        sibling = right(parentNode);
+                    }
+                    if(!isRed(left(sibling)) && !isRed(right(sibling))) {
+                        setRed(sibling);
+                        node = parentNode;
+                    } else {
+                        if(!isRed(right(sibling))) {
+                            setBlack(left(sibling));
+                            setRed(sibling);
+                            rotateRight(sibling);
+                            sibling = right(parentNode);
+                        }
+                        setColor(sibling, isRed(parentNode));
+                        setBlack(parentNode);
+                        setBlack(right(sibling));
+                        rotateLeft(parentNode);
+                        node = root;
+                    }
+                } else {
+                    int sibling = left(parentNode);
+                    if(isRed(sibling)) {
+                        setBlack(sibling);
+                        setRed(parentNode);
+                        rotateRight(parentNode);
+                        sibling = left(parentNode);
+                    }
+                    if(!isRed(left(sibling)) && !isRed(right(sibling))) {
+                        setRed(sibling);
+                        node = parentNode;
+                    } else {
+                        if(!isRed(left(sibling))) {
+                            setBlack(right(sibling));
+                            setRed(sibling);
+                            rotateLeft(sibling);
+                            sibling = left(parentNode);
+                        }
+                        setColor(sibling, isRed(parentNode));
+                        setBlack(parentNode);
+                        setBlack(left(sibling));
+                        rotateRight(parentNode);
+                        node = root;
+                    }
+                }
+            }
+            setBlack(node);
+        }
+    }
+
+    /*
+        Binary min heap of the slots ordered by (rideCost, tripDuration), read from the records.
+        The heap index of every slot is kept in its links, so rides are found by rideNo through slotOf
+     */
+    private final class Queue implements RideQueue {
+        // candidates of peekTopK, kept between calls
+        private final CandidateHeap candidates = new CandidateHeap();
+
+        @Override
+        public int size() {
+            return heapSize;
+        }
+
+        @Override
+        public void ensureCapacity(int capacity) {
+            try {
+                while(heap.capacity() < capacity)   heap.grow();
+            } catch (IOException e) {
+                throw new IllegalStateException("MappedRideStore heap cannot grow to " + capacity + " rides", e);
+            }
+        }
+
+        void place(int index, int slot) {
+            heap.putInt(index, 0, slot);
+            links.putInt(slot, HEAP_INDEX, index);
+        }
+
+        private int slotAt(int index) {
+            return heap.getInt(index, 0);
+        }
+
+        /*
+            This function returns the slot of the ride, which must already be in the index
+         */
+        private int indexedSlot(int rideNo) {
+            int slot = slotOf(rideNo);
+            if(slot == NIL) throw new IllegalStateException("Ride " + rideNo + " must be in the index before it is queued");
+            return slot;
+        }
+
+        @Override
+        public void insert(int rideNo, int rideCost, int tripDuration) {
+            add(rideNo, rideCost, tripDuration);
+            heapifyUp(heapSize - 1);
+        }
+
+        @Override
+        public void add(int rideNo, int rideCost, int tripDuration) {
+            int slot = indexedSlot(rideNo);
+            ensureCapacity(heapSize + 1);
+            place(heapSize++, slot);
+        }
+
+        @Override
+        public void heapify() {
+            for(int index = heapSize / 2 - 1; index >= 0; index--)
+                heapifyDown(index);
+        }
+
+        private void heapifyUp(int index) {
+            int slot = slotAt(index);
+            long slotKey = key(slot);
+            while(index > 0) {
+                int parentIndex = (index - 1) >>> 1, parentSlot = slotAt(parentIndex);
+                if(slotKey >= key(parentSlot))  break;
+                place(index, parentSlot);
+                index = parentIndex;
+            }
+            place(index, slot);
+        }
+
+        private void heapifyDown(int index) {
+            int slot = slotAt(index);
+            long slotKey = key(slot);
+            while(true) {
+                int child = 2 * index + 1;
+                if(child >= heapSize)   break;
+                int childSlot = slotAt(child);
+                long childKey = key(childSlot);
+                if(child + 1 < heapSize) {
+                    int rightSlot = slotAt(child + 1);
+                    long rightKey = key(rightSlot);
+                    if(rightKey < childKey) {
+                        child++;
+                        childSlot = rightSlot;
+                        childKey = rightKey;
+                    }
+                }
+                if(childKey >= slotKey) break;
+                place(index, childSlot);
+                index = child;
+            }
+            place(index, slot);
+        }
+
+        @Override
+        public int peekRideNo() {
+            return rideNo(slotAt(0));
+        }
+
+        @Override
+        public int peekRideCost() {
+            return rideCost(slotAt(0));
+        }
+
+        @Override
+        public int peekTripDuration() {
+            return tripDuration(slotAt(0));
+        }
+
+        @Override
+        public void peekTopK(int k, RideVisitor visitor) {
+            candidates.clear();
+            if(heapSize > 0)    candidates.push(key(slotAt(0)), 0);
+            for(int visited = 0; visited < k && !candidates.isEmpty(); visited++) {
+                int index = candidates.pop(), slot = slotAt(index);
+                visitor.visit(rideNo(slot), rideCost(slot), tripDuration(slot));
+                for(int childIndex = 2 * index + 1; childIndex <= 2 * index + 2 && childIndex < heapSize; childIndex++)
+                    candidates.push(key(slotAt(childIndex)), childIndex);
+            }
+        }
+
+        @Override
+        public int extractMin() {
+            int slot = slotAt(0), rideNo = rideNo(slot);
+            removeAt(0);
+            return rideNo;
+        }
+
+        /*
+            This function removes the slot at the input heap index: the last slot is moved into the hole, and sifted up or down
+         */
+        private void removeAt(int index) {
+            int slot = slotAt(index);
+            links.putInt(slot, HEAP_INDEX, -1);
+            lastSlot = slot;
+            if(--heapSize != index) {
+                int last = slotAt(heapSize);
+                place(index, last);
+                if(index > 0 && key(last) < key(slotAt((index - 1) >>> 1)))    heapifyUp(index);
+                else    heapifyDown(index);
+            }
+            releaseIfUnused(slot);
+        }
+
+        @Override
+        public boolean remove(int rideNo) {
+            int slot = slotOf(rideNo);
+            if(slot == NIL) return false;
+            int index = links.getInt(slot, HEAP_INDEX);
+            if(index < 0)   return false;
+            removeAt(index);
+            return true;
+        }
+
+        @Override
+        public boolean decreaseKey(int rideNo, int rideCost, int tripDuration) {
+            int slot = slotOf(rideNo);
+            if(slot == NIL || links.getInt(slot, HEAP_INDEX) < 0)   return false;
+            records.putInt(slot, RIDE_COST, rideCost);
+            records.putInt(slot, TRIP_DURATION, tripDuration);
+            heapifyUp(links.getInt(slot, HEAP_INDEX));
+            return true;
+        }
+
+        @Override
+        public boolean increaseKey(int rideNo, int rideCost, int tripDuration) {
+            int slot = slotOf(rideNo);
+            if(slot == NIL || links.getInt(slot, HEAP_INDEX) < 0)   return false;
+            records.putInt(slot, RIDE_COST, rideCost);
+            records.putInt(slot, TRIP_DURATION, tripDuration);
+            heapifyDown(links.getInt(slot, HEAP_INDEX));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+    File of fixed size slots of ints, memory-mapped in segments of SEGMENT_SLOTS slots.
+    The contents live in the page cache instead of the Java heap, so the garbage collector never scans them,
+    and they are still there when the file is opened again. A single mapping is limited to 2 GB, segments are not,
+    the file grows by one segment at a time. Ints are stored little endian.
+ */
+public class MappedSlots implements Closeable {
+    private static final int SEGMENT_SHIFT = 20;
+    static final int SEGMENT_SLOTS = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SLOTS - 1;
+
+    private final FileChannel channel;
+    // bytes per slot
+    private final int slotSize;
+    private MappedByteBuffer[] segments = new MappedByteBuffer[4];
+    private int segmentCount;
+
+    MappedSlots(Path file, int intsPerSlot) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.slotSize = intsPerSlot * Integer.BYTES;
+        long segmentSize = (long) SEGMENT_SLOTS * slotSize;
+        long existingSegments = (channel.size() + segmentSize - 1) / segmentSize;
+        for(long i = 0; i < existingSegments; i++)
+            grow();
+    }
+
+    /*
+        This function returns the number of slots, that are mapped
+     */
+    public int capacity() {
+        return segmentCount << SEGMENT_SHIFT;
+    }
+
+    /*
+        This function maps one more segment at the end of the file, which extends the file
+     */
+    public void grow() throws IOException {
+        if(segmentCount == segments.length) segments = Arrays.copyOf(segments, segmentCount << 1);
+        long segmentSize = (long) SEGMENT_SLOTS * slotSize;
+        MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentCount * segmentSize, segmentSize);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segments[segmentCount++] = segment;
+    }
+
+    public int getInt(int slot, int field) {
+        return segments[slot >>> SEGMENT_SHIFT].getInt((slot & SEGMENT_MASK) * slotSize + field * Integer.BYTES);
+    }
+
+    public void putInt(int slot, int field, int value) {
+        segments[slot >>> SEGMENT_SHIFT].putInt((slot & SEGMENT_MASK) * slotSize + field * Integer.BYTES, value);
+    }
+
+    /*
+        This function writes the changed pages of all segments back to the file
+     */
+    public void force() {
+        for(int i = 0; i < segmentCount; i++)
+            segments[i].force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
@@ -0,0 +1,214 @@
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Hot path metrics of the GatorTaxi application: the count and latency histogram of every command type,
+    and structural counters of the ride index and ride queue (RBT rotations and fixDoubleBlack calls,
+    MinHeap sift depths and moves, rejected duplicate inserts, rides expired by their time to live).
+
+    Metrics are switched on with -DgatorTaxi.metrics=true. ENABLED is a static final constant,
+    so with metrics off the JIT removes every "if(Metrics.ENABLED)" block, and the hot path pays nothing.
+    Every command is counted, but only one in SAMPLE_EVERY single commands is timed, because reading the clock twice
+    costs as much as a cheap command; runs of commands executed together are always timed once for the whole run.
+    The counters are plain fields written by the command thread, recording never allocates or synchronizes;
+    JMX (gatorTaxi:type=Metrics) and the periodic dump (-DgatorTaxi.metricsDumpInterval=<seconds>, to standard error)
+    read them from other threads, so a value read while a command executes may be one update behind.
+ */
+public final class Metrics implements MetricsMXBean {
+    public static final boolean ENABLED = Boolean.getBoolean("gatorTaxi.metrics");
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p99.9"};
+    private static final String OBJECT_NAME = "gatorTaxi:type=Metrics";
+    private static final int SAMPLE_EVERY = 64;
+    // start time of a command, that is not timed
+    private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    // number of commands and sampled latencies in nanoseconds of every command type, by ordinal
+    private static final long[] counts = new long[CommandType.values().length];
+    private static final Histogram[] latencies = new Histogram[CommandType.values().length];
+    private static int untilSample = SAMPLE_EVERY;
+    static long heapSifts;
+    // levels the rides moved in all MinHeap sifts, and the most levels of one sift
+    static long heapSiftMoves;
+    static int heapMaxSiftDepth;
+    static long rbtRotations;
+    static long rbtFixDoubleBlacks;
+    static long rejectedInserts;
+    static long expiredRides;
+
+    private static ScheduledExecutorService dumper;
+
+    static {
+        for(int i = 0; i < latencies.length; i++)
+            latencies[i] = new Histogram();
+    }
+
+    private Metrics() {
+    }
+
+    /*
+        This function returns the start time of the next single command, if it is sampled
+     */
+    static long startCommand() {
+        if(--untilSample > 0)   return NOT_SAMPLED;
+        untilSample = SAMPLE_EVERY;
+        return System.nanoTime();
+    }
+
+    /*
+        This function records one command of the input type, that started at startNanos (returned by startCommand())
+     */
+    static void recordCommand(CommandType type, long startNanos) {
+        counts[type.ordinal()]++;
+        if(startNanos != NOT_SAMPLED)   latencies[type.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    /*
+        This function returns the start time of a run of commands, that are executed together
+     */
+    static long startRun() {
+        return System.nanoTime();
+    }
+
+    /*
+        This function records count commands of the input type, that were executed together since startNanos (returned by startRun()).
+        Each gets the average latency of the run, and the run is weighted like the samples of as many single commands
+     */
+    static void recordCommands(CommandType type, long startNanos, int count) {
+        if(count <= 0)  return;
+        counts[type.ordinal()] += count;
+        latencies[type.ordinal()].record((System.nanoTime() - startNanos) / count, (count + SAMPLE_EVERY - 1) / SAMPLE_EVERY);
+    }
+
+    static void recordSift(int depth) {
+        heapSifts++;
+        heapSiftMoves += depth;
+        if(depth > heapMaxSiftDepth)    heapMaxSiftDepth = depth;
+    }
+
+    /*
+        This function registers the metrics in JMX, and starts the periodic dump, if an interval is configured.
+        The final dump is written on exit, also when a duplicate ride halts the system
+     */
+    static synchronized void start() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Metrics(), new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register " + OBJECT_NAME, e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(Metrics::stop));
+        long interval = Long.getLong("gatorTaxi.metricsDumpInterval", 0);
+        if(interval <= 0)   return;
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gatorTaxi-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> System.err.print(text()), interval, interval, TimeUnit.SECONDS);
+    }
+
+    /*
+        This function stops the periodic dump, and writes the final dump to standard error
+     */
+    private static synchronized void stop() {
+        if(dumper != null)  dumper.shutdownNow();
+        System.err.print(text());
+    }
+
+    /*
+        This function returns the name of the command type, that the metrics are reported under, for example RANGE_PRINT -> RangePrint
+     */
+    private static String nameOf(CommandType type) {
+        StringBuilder name = new StringBuilder();
+        for(String word : type.name().split("_"))
+            name.append(word.charAt(0)).append(word.substring(1).toLowerCase(Locale.ROOT));
+        return name.toString();
+    }
+
+    /*
+        This function returns all metrics as text, one line per command type followed by the structural counters
+     */
+    static String text() {
+        StringBuilder text = new StringBuilder(String.format(Locale.ROOT, "%-14s %12s %10s %10s %10s %10s %10s %10s%n",
+                "command", "count", "mean(us)", "p50(us)", "p90(us)", "p99(us)", "p99.9(us)", "max(us)"));
+        for(CommandType type : CommandType.values()) {
+            Histogram latency = latencies[type.ordinal()];
+            if(counts[type.ordinal()] == 0) continue;
+            text.append(String.format(Locale.ROOT, "%-14s %12d %10.3f", nameOf(type), counts[type.ordinal()], latency.mean() / 1000));
+            for(double percentile : PERCENTILES)
+                text.append(String.format(Locale.ROOT, " %10.3f", latency.percentile(percentile) / 1000.0));
+            text.append(String.format(Locale.ROOT, " %10.3f%n", latency.max() / 1000.0));
+        }
+        text.append(String.format(Locale.ROOT, "rbt rotations %d, fixDoubleBlack %d, heap sifts %d, sift moves %d, max sift depth %d, rejected inserts %d, expired rides %d%n",
+                rbtRotations, rbtFixDoubleBlacks, heapSifts, heapSiftMoves, heapMaxSiftDepth, rejectedInserts, expiredRides));
+        return text.toString();
+    }
+
+    @Override
+    public Map<String, Long> getCommandCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for(CommandType type : CommandType.values())
+            counts.put(nameOf(type), Metrics.counts[type.ordinal()]);
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getLatencyNanos() {
+        Map<String, Long> percentiles = new LinkedHashMap<>();
+        for(CommandType type : CommandType.values()) {
+            Histogram latency = latencies[type.ordinal()];
+            for(int i = 0; i < PERCENTILES.length; i++)
+                percentiles.put(nameOf(type) + "." + PERCENTILE_NAMES[i], latency.percentile(PERCENTILES[i]));
+            percentiles.put(nameOf(type) + ".max", latency.max());
+        }
+        return percentiles;
+    }
+
+    @Override
+    public long getRbtRotations() {
+        return rbtRotations;
+    }
+
+    @Override
+    public long getRbtFixDoubleBlacks() {
+        return rbtFixDoubleBlacks;
+    }
+
+    @Override
+    public long getHeapSifts() {
+        return heapSifts;
+    }
+
+    @Override
+    public long getHeapSiftMoves() {
+        return heapSiftMoves;
+    }
+
+    @Override
+    public long getHeapMaxSiftDepth() {
+        return heapMaxSiftDepth;
+    }
+
+    @Override
+    public long getRejectedInserts() {
+        return rejectedInserts;
+    }
+
+    @Override
+    public long getExpiredRides() {
+        return expiredRides;
+    }
+
+    @Override
+    public String dump() {
+        return text();
+    }
+}
@@ -0,0 +1,36 @@
+import java.util.Map;
+
+/*
+    JMX view of the Metrics of the GatorTaxi application, registered as gatorTaxi:type=Metrics
+ */
+public interface MetricsMXBean {
+
+    /*
+        This function returns the number of executed commands by command name
+     */
+    Map<String, Long> getCommandCounts();
+
+    /*
+        This function returns the latency percentiles in nanoseconds by command and percentile, for example "Insert.p99"
+     */
+    Map<String, Long> getLatencyNanos();
+
+    long getRbtRotations();
+
+    long getRbtFixDoubleBlacks();
+
+    long getHeapSifts();
+
+    long getHeapSiftMoves();
+
+    long getHeapMaxSiftDepth();
+
+    long getRejectedInserts();
+
+    long getExpiredRides();
+
+    /*
+        This function returns the text dump of all metrics
+     */
+    String dump();
+}
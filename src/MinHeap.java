@@ -1,22 +1,61 @@
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 
 /*
-    This class defines the implementation of MinHeap data structure for Ride
+    This class defines the implementation of MinHeap data structure for Ride.
+    Rides are not stored as objects, instead each heap slot is spread over parallel primitive arrays:
+    keys[i] packs (rideCost, tripDuration) into a single long, so that comparing two slots is one long comparison,
+    and rideNos[i] holds the ride number of the slot.
+    The heap grows on its own, so there is no ceiling on the number of pending rides.
+    rideMap maps every rideNo to its slot, it is a primitive map so sifting does not allocate.
  */
-public class MinHeap {
-    public Ride[] heap;
+public class MinHeap implements RideQueue {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    public long[] keys;
+    public int[] rideNos;
     public int size;
     public int capacity;
 
-    Map<Integer, Integer> rideMap;
+    IntIntHashMap rideMap;
+    // false while heapify() sifts, then rideMap is filled in one pass afterwards
+    private boolean mapping = true;
+    // candidates of peekTopK, kept between calls
+    private final CandidateHeap candidates = new CandidateHeap();
+
+    MinHeap(){
+        this(DEFAULT_CAPACITY);
+    }
 
     MinHeap(int capacity){
-        this.heap = new Ride[capacity];
+        capacity = Math.max(capacity, 1);
+        this.keys = new long[capacity];
+        this.rideNos = new int[capacity];
         this.size = 0;
         this.capacity = capacity;
-        this.rideMap = new HashMap<>();
+        this.rideMap = new IntIntHashMap(capacity, -1);
+    }
+
+    /*
+        This function packs rideCost and tripDuration into a single key.
+        Ordering of keys is the same as Ride.compareTo: rideCost first, followed by tripDuration.
+        The sign bit of tripDuration is flipped in the low word, so negative trip durations come before the positive ones
+     */
+    public static long key(int rideCost, int tripDuration) {
+        return ((long) rideCost << 32) | ((tripDuration ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+
+    /*
+        This function unpacks the rideCost from the key
+     */
+    public static int rideCost(long key) {
+        return (int) (key >> 32);
+    }
+
+    /*
+        This function unpacks the tripDuration from the key
+     */
+    public static int tripDuration(long key) {
+        return (int) key ^ Integer.MIN_VALUE;
     }
 
     /*
@@ -40,102 +79,239 @@ public class MinHeap {
         return (index - 1)/2;
     }
 
+    /*
+        This function doubles the capacity of the heap arrays, when the heap is full
+     */
+    private void grow() {
+        int newCapacity = capacity < (Integer.MAX_VALUE >> 1) ? capacity << 1 : Integer.MAX_VALUE - 8;
+        if(newCapacity <= capacity)    throw new IllegalStateException("MinHeap cannot grow beyond " + capacity + " rides");
+        keys = Arrays.copyOf(keys, newCapacity);
+        rideNos = Arrays.copyOf(rideNos, newCapacity);
+        capacity = newCapacity;
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        if(capacity > this.capacity) {
+            keys = Arrays.copyOf(keys, capacity);
+            rideNos = Arrays.copyOf(rideNos, capacity);
+            this.capacity = capacity;
+        }
+        rideMap.ensureCapacity(capacity);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
     /*
         This function provides the implementation of insert into min heap
      */
-    public boolean insert(Ride newRide) {
-        if(size == capacity)    return false;
+    @Override
+    public void insert(int rideNo, int rideCost, int tripDuration) {
+        if(size == capacity)    grow();
 
-        heap[size++] = newRide;
-        rideMap.put(newRide.rideNo, size - 1);
+        keys[size] = key(rideCost, tripDuration);
+        rideNos[size++] = rideNo;
         heapifyUp(size - 1);
-        return true;
     }
 
     /*
-        This function provides the implementation of swap the values of two indexes of the heap
+        This function appends a ride to the end of the heap, without restoring the heap order and without mapping its rideNo.
+        It is used for bulk loading, heapify() must be called once all rides are added
      */
-    private void swap(int index1, int index2) {
-        Ride temp = heap[index1];
-        heap[index1] = heap[index2];
-        heap[index2] = temp;
+    @Override
+    public void add(int rideNo, int rideCost, int tripDuration) {
+        if(size == capacity)    grow();
 
-        rideMap.put(heap[index1].rideNo, index1);
-        rideMap.put(heap[index2].rideNo, index2);
+        keys[size] = key(rideCost, tripDuration);
+        rideNos[size++] = rideNo;
     }
 
     /*
-        This function provides the implementation of finding the index with minimum ride
+        This function restores the heap order of the whole heap, with Floyd's bottom-up heapify. O(n)
+        The sifts only move the arrays, then rideMap is filled in one pass over the final slots,
+        instead of being written again for every ride that a sift moves
      */
-    public int findMinIndex(int index1, int index2) {
-        return heap[index1].compareTo(heap[index2]) < 0 ? index1 : index2;
+    @Override
+    public void heapify() {
+        mapping = false;
+        for(int index = size / 2 - 1; index >= 0; index--)
+            heapifyDown(index);
+        mapping = true;
+        rideMap.ensureCapacity(size);
+        for(int index = 0; index < size; index++)
+            rideMap.put(rideNos[index], index);
     }
 
     /*
-        This function provides the implementation of heapifyUp for the input index
+        This function provides the implementation of placing the ride (key, rideNo) into the input index of the heap
+     */
+    private void place(int index, long key, int rideNo) {
+        keys[index] = key;
+        rideNos[index] = rideNo;
+        if(mapping) rideMap.put(rideNo, index);
+    }
+
+    /*
+        This function provides the implementation of heapifyUp for the input index.
+        Instead of swapping at every level, the parents are moved down into the hole,
+        and the ride is written once into its final slot
      */
     private void heapifyUp(int index) {
-        Ride heapifyRide = heap[index];
-        int parent = getParent(index);
-        while(parent >= 0 && heapifyRide.compareTo(heap[parent]) < 0) {
-            swap(index, parent);
+        long heapifyKey = keys[index];
+        int heapifyRideNo = rideNos[index];
+        int parent = getParent(index), depth = 0;
+        while(index > 0 && heapifyKey < keys[parent]) {
+            place(index, keys[parent], rideNos[parent]);
             index = parent;
             parent = getParent(index);
+            depth++;
         }
+        place(index, heapifyKey, heapifyRideNo);
+        if(Metrics.ENABLED) Metrics.recordSift(depth);
     }
 
     /*
-        This function provides the implementation of heapifyDown for the input index
+        This function provides the implementation of heapifyDown for the input index.
+        The smaller child is moved up into the hole, until the ride fits
      */
     private void heapifyDown(int index) {
-        while(index < size) {
+        long heapifyKey = keys[index];
+        int heapifyRideNo = rideNos[index], depth = 0;
+        while(true) {
             int minIndex = index, left = getLeft(index), right = getRight(index);
+            long minKey = heapifyKey;
             if(left < size){
-                minIndex = findMinIndex(minIndex, left);
-                if(right < size)
-                    minIndex = findMinIndex(minIndex, right);
+                if(keys[left] <= minKey) {
+                    minIndex = left;
+                    minKey = keys[left];
+                }
+                if(right < size && keys[right] <= minKey)
+                    minIndex = right;
             }
             if(minIndex == index)   break;
-            swap(index, minIndex);
+            place(index, keys[minIndex], rideNos[minIndex]);
             index = minIndex;
+            depth++;
         }
+        place(index, heapifyKey, heapifyRideNo);
+        if(Metrics.ENABLED) Metrics.recordSift(depth);
+    }
+
+    /*
+        These functions return the ride at the top of the heap, without removing it
+     */
+    @Override
+    public int peekRideNo() {
+        return rideNos[0];
+    }
+
+    @Override
+    public int peekRideCost() {
+        return rideCost(keys[0]);
+    }
+
+    @Override
+    public int peekTripDuration() {
+        return tripDuration(keys[0]);
     }
 
     /*
-        This function provides the implementation of extracting the minimum from the heap
+        This function visits the k cheapest rides in order, without removing them.
+        The heap array is walked from the root with a small candidate heap: every visited slot makes its two children candidates,
+        so it costs O(k log(k)) instead of the O(k log(n)) of extracting and reinserting them
      */
-    public Ride extractMin() {
-        if(size == 0)   return null;
+    @Override
+    public void peekTopK(int k, RideVisitor visitor) {
+        candidates.clear();
+        if(size > 0)    candidates.push(keys[0], 0);
+        for(int visited = 0; visited < k && !candidates.isEmpty(); visited++) {
+            int index = candidates.pop();
+            visitor.visit(rideNos[index], rideCost(keys[index]), tripDuration(keys[index]));
+            int left = getLeft(index), right = getRight(index);
+            if(left < size) candidates.push(keys[left], left);
+            if(right < size)    candidates.push(keys[right], right);
+        }
+    }
 
-        swap(0, --size);
-        heapifyDown(0);
-        rideMap.remove(heap[size].rideNo);
-        return heap[size];
+    /*
+        This function provides the implementation of extracting the minimum from the heap.
+        It returns the rideNo of the extracted ride, the caller must check isEmpty() first
+     */
+    @Override
+    public int extractMin() {
+        int minRideNo = rideNos[0];
+        deleteKey(0);
+        return minRideNo;
     }
 
     /*
-        This function provides the implementation of deleting the key with input index
+        This function provides the implementation of deleting the key with input index.
+        The last ride of the heap is moved into the hole, and sifted up or down from there,
+        so the cost depends on how far that ride has to move, not on the depth of the whole heap
      */
     public void deleteKey(int index) {
-        heap[index].rideCost = Integer.MIN_VALUE;
-        heapifyUp(index);
-        extractMin();
+        rideMap.remove(rideNos[index]);
+        if(--size == index) return;
+
+        long key = keys[size];
+        keys[index] = key;
+        rideNos[index] = rideNos[size];
+        if(index > 0 && key < keys[getParent(index)])   heapifyUp(index);
+        else    heapifyDown(index);
     }
 
     /*
         This function provides the implementation of deleting the node with input rideNo
      */
-    public void deleteRide(int rideNo) {
-        if(rideMap.containsKey(rideNo)){
-            deleteKey(rideMap.get(rideNo));
-            rideMap.remove(rideNo);
-        }
+    @Override
+    public boolean remove(int rideNo) {
+        int index = rideMap.get(rideNo);
+        if(index < 0)   return false;
+        deleteKey(index);
+        return true;
+    }
+
+    /*
+        This function provides the implementation of lowering the key of the ride with input rideNo.
+        Since the key can only get smaller, the ride is sifted up from its current slot
+     */
+    @Override
+    public boolean decreaseKey(int rideNo, int rideCost, int tripDuration) {
+        int index = rideMap.get(rideNo);
+        if(index < 0)   return false;
+
+        keys[index] = key(rideCost, tripDuration);
+        heapifyUp(index);
+        return true;
+    }
+
+    /*
+        This function provides the implementation of raising the key of the ride with input rideNo.
+        Since the key can only get larger, the ride is sifted down from its current slot
+     */
+    @Override
+    public boolean increaseKey(int rideNo, int rideCost, int tripDuration) {
+        int index = rideMap.get(rideNo);
+        if(index < 0)   return false;
+
+        keys[index] = key(rideCost, tripDuration);
+        heapifyDown(index);
+        return true;
     }
 
     @Override
     public String toString() {
+        StringBuilder stringBuilder = new StringBuilder("[");
+        for(int i = 0; i < size; i++) {
+            if(i > 0)   stringBuilder.append(", ");
+            stringBuilder.append("(" + rideNos[i] + "," + rideCost(keys[i]) + "," + tripDuration(keys[i]) + ")");
+        }
+        stringBuilder.append("]");
         return "MinHeap{" +
-                "heap=" + Arrays.toString(heap) +
+                "heap=" + stringBuilder +
                 ", size=" + size +
                 ", capacity=" + capacity +
                 ", rideMap=" + rideMap +
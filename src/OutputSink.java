@@ -0,0 +1,186 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+    Buffered output of the GatorTaxi application.
+    Triplets (rideNo,rideCost,tripDuration) are formatted straight into a reusable byte buffer,
+    integers are converted to ASCII digits in place, so no String is created per output line.
+    The buffer is written to the channel only when it is full, or on flush() / close().
+    BinaryOutputSink writes the same output in the binary format instead.
+ */
+public class OutputSink implements Closeable, Flushable {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    // longest output of a single int: "-2147483648"
+    private static final int MAX_INT_LENGTH = 11;
+    private static final int MAX_TRIPLET_LENGTH = 3 * MAX_INT_LENGTH + 4;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    private final WritableByteChannel channel;
+    // bytes[0, position) are buffered
+    byte[] bytes;
+    private ByteBuffer buffer;
+    int position;
+
+    OutputSink(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    OutputSink(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.bytes = new byte[Math.max(bufferSize, MAX_TRIPLET_LENGTH + LINE_SEPARATOR.length)];
+        this.buffer = ByteBuffer.wrap(bytes);
+    }
+
+    /*
+        This function writes the buffered bytes to the channel, if less than required bytes are free in the buffer
+     */
+    void ensureSpace(int required) {
+        if(bytes.length - position >= required)  return;
+        try {
+            drain(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+        This function writes bytes[0, end) to the channel, and moves the buffered bytes after end to the front of the buffer
+     */
+    void drain(int end) throws IOException {
+        buffer.clear().limit(end);
+        while(buffer.hasRemaining())
+            channel.write(buffer);
+        System.arraycopy(bytes, end, bytes, 0, position - end);
+        position -= end;
+    }
+
+    /*
+        This function replaces the buffer with a larger one, that holds at least capacity bytes
+     */
+    void grow(int capacity) {
+        bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length << 1));
+        buffer = ByteBuffer.wrap(bytes);
+    }
+
+    /*
+        This function writes the decimal digits of the input value into the buffer
+     */
+    private void putInt(int value) {
+        if(value < 0)   bytes[position++] = '-';
+        else    value = -value; // digits are produced from the negative value, so that Integer.MIN_VALUE needs no special case
+
+        int end = position + digitCount(value);
+        int index = end;
+        do {
+            bytes[--index] = (byte) ('0' - value % 10);
+            value /= 10;
+        } while(value != 0);
+        position = end;
+    }
+
+    /*
+        This function returns the number of decimal digits of the input value, the value must not be positive
+     */
+    private static int digitCount(int value) {
+        int count = 1;
+        while(value <= -10) {
+            value /= 10;
+            count++;
+        }
+        return count;
+    }
+
+    public void writeInt(int value) {
+        ensureSpace(MAX_INT_LENGTH);
+        putInt(value);
+    }
+
+    public void writeByte(char value) {
+        ensureSpace(1);
+        bytes[position++] = (byte) value;
+    }
+
+    /*
+        This function writes the triplet (rideNo,rideCost,tripDuration)
+     */
+    public void writeTriplet(int rideNo, int rideCost, int tripDuration) {
+        ensureSpace(MAX_TRIPLET_LENGTH);
+        bytes[position++] = '(';
+        putInt(rideNo);
+        bytes[position++] = ',';
+        putInt(rideCost);
+        bytes[position++] = ',';
+        putInt(tripDuration);
+        bytes[position++] = ')';
+    }
+
+    private void writeBytes(byte[] values) {
+        int offset = 0;
+        while(offset < values.length) {
+            ensureSpace(1);
+            int length = Math.min(values.length - offset, bytes.length - position);
+            System.arraycopy(values, offset, bytes, position, length);
+            position += length;
+            offset += length;
+        }
+    }
+
+    /*
+        This function ends the answer of a command, that was written with writeTriplet and writeByte, by a line separator
+     */
+    public void endAnswer() {
+        writeBytes(LINE_SEPARATOR);
+    }
+
+    /*
+        This function writes the input bytes, followed by a line separator
+     */
+    private void writeLine(byte[] values) {
+        writeBytes(values);
+        writeBytes(LINE_SEPARATOR);
+    }
+
+    /*
+        These functions write the answers without rides: a ride no that is not found or an empty range,
+        no rides to get, and a duplicate ride that halts the engine (DuplicatePolicy.HALT)
+     */
+    public void noRide() {
+        writeLine(gatorTaxi.NO_RIDE);
+    }
+
+    public void noActiveRides() {
+        writeLine(gatorTaxi.NO_ACTIVE_RIDES);
+    }
+
+    public void duplicateRide() {
+        writeLine(gatorTaxi.DUPLICATE_RIDE);
+    }
+
+    /*
+        This function writes the triplet (rideNo,rideCost,tripDuration), followed by a line separator
+     */
+    public void writeTripletLine(int rideNo, int rideCost, int tripDuration) {
+        writeTriplet(rideNo, rideCost, tripDuration);
+        endAnswer();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain(position);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain(position);
+        } finally {
+            channel.close();
+        }
+    }
+}
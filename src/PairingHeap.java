@@ -0,0 +1,251 @@
+import java.util.Arrays;
+
+/*
+    This class defines the implementation of a pairing heap for Ride.
+    The heap is a tree, where every node is not larger than its children. The children of a node form a linked list,
+    child[node] is the first child, sibling[node] the next one, and previous[node] is the previous sibling,
+    or the parent for a first child. Nodes are slots of primitive arrays, slot 0 is the NIL sentinel,
+    and slots of removed nodes are reused through a free list (linked through sibling).
+
+    Insert and decreaseKey are O(1): the node is cut from its parent and melded with the root.
+    extractMin and remove meld the children of the removed node in two passes, O(log(n)) amortized.
+ */
+public class PairingHeap implements RideQueue {
+    private static final int NIL = 0;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] rideNos;
+    private int[] child;
+    private int[] sibling;
+    private int[] previous;
+
+    private int root;
+    private int size;
+    private int nextSlot;
+    private int freeSlot;
+
+    // maps every rideNo to its node
+    private final IntIntHashMap rideMap;
+    // roots of the sub heaps, that are melded in the second pass of mergePairs
+    private int[] pairs;
+    // candidates of peekTopK, kept between calls
+    private final CandidateHeap candidates = new CandidateHeap();
+
+    PairingHeap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    PairingHeap(int capacity) {
+        capacity = Math.max(capacity, 1) + 1;
+        this.keys = new long[capacity];
+        this.rideNos = new int[capacity];
+        this.child = new int[capacity];
+        this.sibling = new int[capacity];
+        this.previous = new int[capacity];
+        this.pairs = new int[DEFAULT_CAPACITY];
+        this.root = NIL;
+        this.nextSlot = 1;
+        this.freeSlot = NIL;
+        this.rideMap = new IntIntHashMap(capacity, NIL);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        // slot 0 is the NIL sentinel
+        if(capacity + 1 > keys.length) {
+            keys = Arrays.copyOf(keys, capacity + 1);
+            rideNos = Arrays.copyOf(rideNos, capacity + 1);
+            child = Arrays.copyOf(child, capacity + 1);
+            sibling = Arrays.copyOf(sibling, capacity + 1);
+            previous = Arrays.copyOf(previous, capacity + 1);
+        }
+        rideMap.ensureCapacity(capacity);
+    }
+
+    private int allocate() {
+        if(freeSlot != NIL) {
+            int node = freeSlot;
+            freeSlot = sibling[node];
+            return node;
+        }
+        if(nextSlot == keys.length) {
+            int capacity = keys.length << 1;
+            keys = Arrays.copyOf(keys, capacity);
+            rideNos = Arrays.copyOf(rideNos, capacity);
+            child = Arrays.copyOf(child, capacity);
+            sibling = Arrays.copyOf(sibling, capacity);
+            previous = Arrays.copyOf(previous, capacity);
+        }
+        return nextSlot++;
+    }
+
+    private void free(int node) {
+        child[node] = previous[node] = NIL;
+        sibling[node] = freeSlot;
+        freeSlot = node;
+    }
+
+    /*
+        This function melds two heaps with the input roots, and returns the root of the melded heap.
+        The root with the larger key becomes the first child of the other root
+     */
+    private int meld(int first, int second) {
+        if(first == NIL)    return second;
+        if(second == NIL)   return first;
+        if(keys[second] < keys[first]) {
+            int temp = first;
+            first = second;
+            second = temp;
+        }
+
+        sibling[second] = child[first];
+        if(child[first] != NIL) previous[child[first]] = second;
+        child[first] = second;
+        previous[second] = first;
+        return first;
+    }
+
+    /*
+        This function detaches the input node (with its subtree) from its parent and siblings
+     */
+    private void cut(int node) {
+        int before = previous[node];
+        if(child[before] == node)   child[before] = sibling[node];
+        else    sibling[before] = sibling[node];
+        if(sibling[node] != NIL)    previous[sibling[node]] = before;
+        sibling[node] = previous[node] = NIL;
+    }
+
+    /*
+        This function melds the sibling list starting at the input node into one heap, and returns its root.
+        First pass: meld the siblings in pairs from left to right. Second pass: meld the pairs from right to left
+     */
+    private int mergePairs(int first) {
+        int count = 0;
+        while(first != NIL) {
+            int second = sibling[first];
+            int next = second == NIL ? NIL : sibling[second];
+            sibling[first] = previous[first] = NIL;
+            if(second != NIL)   sibling[second] = previous[second] = NIL;
+
+            if(count == pairs.length)   pairs = Arrays.copyOf(pairs, count << 1);
+            pairs[count++] = meld(first, second);
+            first = next;
+        }
+
+        int result = NIL;
+        while(count > 0)
+            result = meld(pairs[--count], result);
+        return result;
+    }
+
+    @Override
+    public void insert(int rideNo, int rideCost, int tripDuration) {
+        int node = allocate();
+        keys[node] = MinHeap.key(rideCost, tripDuration);
+        rideNos[node] = rideNo;
+        child[node] = sibling[node] = previous[node] = NIL;
+        rideMap.put(rideNo, node);
+        root = meld(root, node);
+        size++;
+    }
+
+    @Override
+    public int peekRideNo() {
+        return rideNos[root];
+    }
+
+    @Override
+    public int peekRideCost() {
+        return MinHeap.rideCost(keys[root]);
+    }
+
+    @Override
+    public int peekTripDuration() {
+        return MinHeap.tripDuration(keys[root]);
+    }
+
+    /*
+        This function visits the k cheapest rides in order, without removing them.
+        The children of a node are not ordered among each other, so all children of a visited node become candidates
+     */
+    @Override
+    public void peekTopK(int k, RideVisitor visitor) {
+        candidates.clear();
+        if(root != NIL) candidates.push(keys[root], root);
+        for(int visited = 0; visited < k && !candidates.isEmpty(); visited++) {
+            int node = candidates.pop();
+            visitor.visit(rideNos[node], MinHeap.rideCost(keys[node]), MinHeap.tripDuration(keys[node]));
+            for(int childNode = child[node]; childNode != NIL; childNode = sibling[childNode])
+                candidates.push(keys[childNode], childNode);
+        }
+    }
+
+    @Override
+    public int extractMin() {
+        int node = root, rideNo = rideNos[node];
+        root = mergePairs(child[node]);
+        rideMap.remove(rideNo);
+        free(node);
+        size--;
+        return rideNo;
+    }
+
+    @Override
+    public boolean remove(int rideNo) {
+        int node = rideMap.get(rideNo);
+        if(node == NIL) return false;
+        if(node == root) {
+            extractMin();
+            return true;
+        }
+
+        cut(node);
+        root = meld(root, mergePairs(child[node]));
+        rideMap.remove(rideNo);
+        free(node);
+        size--;
+        return true;
+    }
+
+    /*
+        This function lowers the key of the ride with input rideNo in O(1):
+        the node is cut from its parent together with its subtree, which stays a valid heap, and melded with the root
+     */
+    @Override
+    public boolean decreaseKey(int rideNo, int rideCost, int tripDuration) {
+        int node = rideMap.get(rideNo);
+        if(node == NIL) return false;
+
+        keys[node] = MinHeap.key(rideCost, tripDuration);
+        if(node != root) {
+            cut(node);
+            root = meld(root, node);
+        }
+        return true;
+    }
+
+    /*
+        This function raises the key of the ride with input rideNo:
+        the children of the node may now be smaller, so they are melded without it, and the node is melded back as a single node
+     */
+    @Override
+    public boolean increaseKey(int rideNo, int rideCost, int tripDuration) {
+        int node = rideMap.get(rideNo);
+        if(node == NIL) return false;
+
+        if(node == root)    root = NIL;
+        else    cut(node);
+        int children = mergePairs(child[node]);
+        child[node] = NIL;
+        keys[node] = MinHeap.key(rideCost, tripDuration);
+        root = meld(meld(root, children), node);
+        return true;
+    }
+}
@@ -1,15 +1,27 @@
+import java.util.Arrays;
 import java.util.List;
 
 /*
     Red Black Tree Implementation
+    Insert and delete fix ups and range walks are loops over the parent links, nothing recurses along a path of the tree.
+    A node keeps its ride for its whole life, delete moves nodes instead of rides, so RBTNode handles stay valid
  */
-public class RBT {
+public class RBT implements RideIndex {
+    // number of rides, from which buildFromSorted allocates the nodes in parallel
+    private static final int PARALLEL_BUILD_SIZE = 1 << 16;
+
     public RBTNode root;
+    private int size;
 
     RBT() {
         this.root = null;
     }
 
+    @Override
+    public int size() {
+        return size;
+    }
+
     /*
         The function is used as part of fixing up the coloring
         of red-black tree, while insertion or deletion operations.
@@ -21,6 +33,7 @@ public class RBT {
         D   E                                  C   D
     */
     private RBTNode rotateLeft(RBTNode node) {
+        if(Metrics.ENABLED) Metrics.rbtRotations++;
         RBTNode rightChild = node.right;
         node.right = rightChild.left;
 
@@ -48,6 +61,7 @@ public class RBT {
         C   D                                          D   E
      */
     private RBTNode rotateRight(RBTNode node) {
+        if(Metrics.ENABLED) Metrics.rbtRotations++;
         RBTNode leftChild = node.left;
         node.left = leftChild.right;
 
@@ -64,62 +78,80 @@ public class RBT {
         return node;
     }
 
+    /*
+        This function returns true, if the input node is red. Null children are black leaves
+     */
+    private static boolean isRed(RBTNode node) {
+        return node != null && node.color == Color.RED;
+    }
+
     /*
         The function provides the implementation of fixing 2 consecutive red nodes
         (generated while insertion of nodes) in the red black tree.
-        The function is called after each insertion.
+        The function is called after each insertion. It loops up the tree, instead of calling itself for the grandparent
      */
     private void fixColorViolations(RBTNode node){
-        //If the inserted node is root, change the color to black
-        if(node == root){
-            root.color = Color.BLACK;
-            return;
-        }
-
-        //If the parent of newly inserted node is black, nothing to do
-        if(node.parent.color == Color.BLACK)    return;
-        RBTNode parent = node.parent, grandParent = node.parent.parent, uncle = null;
-        if(grandParent != null){
-            uncle = (parent == grandParent.left) ?  grandParent.right : grandParent.left;
-            //If the color of uncle is red, make uncle black, parent black, and grandparent red
-            //Propagate the violation to grandparent
-            if(uncle != null && uncle.color == Color.RED) {
-                parent.color = Color.BLACK;
-                uncle.color = Color.BLACK;
-                grandParent.color = Color.RED;
-                fixColorViolations(grandParent);
-            } else { // If uncle is null or its color is black
-                if(parent == grandParent.left && node == parent.right) //If parent is left child of grandparent and node is right child of parent(LR case), rotate left first & convert to LL case
-                    node = rotateLeft(parent);
-                else if(parent == grandParent.right && node == parent.left) //If parent is right child of grandparent and node is left child of parent(RL case), rotate right first & convert to RR case
-                    node = rotateRight(parent);
-                parent = node.parent;
-                // fix the colors, after rotation
-                parent.color = Color.BLACK;
-                grandParent.color = Color.RED;
-
-                //Fix the LL case by right rotation of grandparent
-                if(node == parent.left)    rotateRight(grandParent);
-                //Fix the RR case by right rotation of grandparent
-                else if(node == parent.right)    rotateLeft(grandParent);
+        while(isRed(node.parent)) {
+            RBTNode parent = node.parent, grandParent = parent.parent;
+            if(parent == grandParent.left) {
+                RBTNode uncle = grandParent.right;
+                //If the color of uncle is red, make uncle black, parent black, and grandparent red
+                //Propagate the violation to grandparent
+                if(isRed(uncle)) {
+                    parent.color = Color.BLACK;
+                    uncle.color = Color.BLACK;
+                    grandParent.color = Color.RED;
+                    node = grandParent;
+                } else {
+                    //If node is right child of parent (LR case), rotate left first & convert to LL case
+                    if(node == parent.right) {
+                        node = parent;
+                        rotateLeft(node);
+                        parent = node.parent;
+                    }
+                    //Fix the LL case by right rotation of grandparent
+                    parent.color = Color.BLACK;
+                    grandParent.color = Color.RED;
+                    rotateRight(grandParent);
+                }
+            } else {
+                RBTNode uncle = grandParent.left;
+                if(isRed(uncle)) {
+                    parent.color = Color.BLACK;
+                    uncle.color = Color.BLACK;
+                    grandParent.color = Color.RED;
+                    node = grandParent;
+                } else {
+                    //If node is left child of parent (RL case), rotate right first & convert to RR case
+                    if(node == parent.left) {
+                        node = parent;
+                        rotateRight(node);
+                        parent = node.parent;
+                    }
+                    //Fix the RR case by left rotation of grandparent
+                    parent.color = Color.BLACK;
+                    grandParent.color = Color.RED;
+                    rotateLeft(grandParent);
+                }
             }
         }
+        //The root is always black
+        root.color = Color.BLACK;
     }
 
     /*
-        This function provides the implementation of insert operation in the red black tree
+        This function provides the implementation of insert operation in the red black tree.
+        It returns false and leaves the tree unchanged, if the ride no already exists
      */
-    public void insert(RBTNode newNode) {
+    public boolean insert(RBTNode newNode) {
         RBTNode prevNode = null;
         RBTNode currentNode = this.root;
 
         while(currentNode != null) {
             prevNode = currentNode;
-            //If the ride no already exists, print "Duplicate RideNumber" and exit the system
+            //If the ride no already exists, report the duplicate to the caller
             if(newNode.ride.rideNo == currentNode.ride.rideNo){
-                System.out.println("Duplicate RideNumber");
-                System.exit(0);
-                return;
+                return false;
             } else if(newNode.ride.rideNo < currentNode.ride.rideNo)   currentNode = currentNode.left; // If new node rideno is less than current node rideno, go to left subtree
             else if(newNode.ride.rideNo > currentNode.ride.rideNo)   currentNode = currentNode.right; // If new node rideno is greater than current node rideno, go to right subtree
         }
@@ -133,6 +165,13 @@ public class RBT {
 
         //fix violations, if any
         fixColorViolations(newNode);
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean insert(int rideNo, int rideCost, int tripDuration) {
+        return insert(new RBTNode(new Ride(rideNo, rideCost, tripDuration)));
     }
 
     /*
@@ -147,184 +186,285 @@ public class RBT {
         return current;
     }
 
+    @Override
+    public boolean search(int rideNo, Ride result) {
+        RBTNode node = search(rideNo);
+        if(node == null)    return false;
+        result.rideNo = node.ride.rideNo;
+        result.rideCost = node.ride.rideCost;
+        result.tripDuration = node.ride.tripDuration;
+        return true;
+    }
+
+    @Override
+    public boolean update(int rideNo, int rideCost, int tripDuration) {
+        RBTNode node = search(rideNo);
+        if(node == null)    return false;
+        node.ride.rideCost = rideCost;
+        node.ride.tripDuration = tripDuration;
+        return true;
+    }
+
     /*
-        This function is a helper function for range search.
-        It performs an in-order traversal and adds the rides into rides list
+        This function searches all the input ride numbers, which must be sorted in ascending order, and visits the rides that exist.
+        Instead of starting every search from the root, it climbs up from the node of the previous search,
+        only as far as needed, and descends from there. So k sorted searches cost O(k * log(n / k)) in total
      */
-    private void rangeSearchHelper(RBTNode node, int lowerBound, int upperBound, List<Ride> rides) {
-        if(node == null)    return;
-
-        if(lowerBound < node.ride.rideNo)   rangeSearchHelper(node.left, lowerBound, upperBound, rides); // If lower bound is less than node rideno, search in left subtree
-        if(lowerBound <= node.ride.rideNo && upperBound >= node.ride.rideNo)    rides.add(node.ride); // If current node ride no is between lower bound and upper bound, add to rides list
-        if(upperBound > node.ride.rideNo)   rangeSearchHelper(node.right, lowerBound, upperBound, rides); // If upper bound is greater than node rideno, search in right subtree
+    @Override
+    public void searchSorted(int[] sortedRideNos, int count, RideVisitor visitor) {
+        RBTNode finger = root;
+        for(int i = 0; i < count && finger != null; i++) {
+            int rideNo = sortedRideNos[i];
+
+            // climb up, until the subtree of the finger can contain the ride no
+            while(finger.parent != null && !(finger == finger.parent.left && rideNo < finger.parent.ride.rideNo))
+                finger = finger.parent;
+
+            RBTNode current = finger;
+            while(current != null && current.ride.rideNo != rideNo){
+                finger = current;
+                if(rideNo < current.ride.rideNo)    current = current.left;
+                else    current = current.right;
+            }
+            if(current != null) {
+                finger = current;
+                visitor.visit(current.ride.rideNo, current.ride.rideCost, current.ride.tripDuration);
+            }
+        }
     }
 
     /*
-        This function provides an implementation of search the rides between teh given bounds
+        This function builds the tree from the input rides, which must be sorted by ride no without duplicates.
+        The nodes of a large load are allocated in parallel, they are independent of each other until they are linked
      */
-    public void rangeSearch(int rideNo1, int rideNo2, List<Ride> rides) {
-        rangeSearchHelper(root, rideNo1, rideNo2, rides);
+    @Override
+    public void buildFromSorted(int[] sortedRideNos, int[] rideCosts, int[] tripDurations, int count) {
+        RBTNode[] sortedNodes = new RBTNode[count];
+        if(count >= PARALLEL_BUILD_SIZE) {
+            Arrays.parallelSetAll(sortedNodes, i -> new RBTNode(new Ride(sortedRideNos[i], rideCosts[i], tripDurations[i])));
+        } else {
+            for(int i = 0; i < count; i++)
+                sortedNodes[i] = new RBTNode(new Ride(sortedRideNos[i], rideCosts[i], tripDurations[i]));
+        }
+        buildFromSorted(sortedNodes, count);
     }
 
     /*
-        This function provides the successor info for the input node.
-        The successor node is needed, while performing the delete operation on the RBT node, with 2 child
+        This function builds the tree from the input nodes, which must be sorted by ride no without duplicates.
+        The tree must be empty. The middle node becomes the root of every subtree, so the tree is perfectly balanced,
+        and it is colored level by level: all nodes are black, except the nodes on the deepest level, which are red.
+        Every path from a node down to null then has the same number of black nodes, no rotations are needed. O(n)
      */
-    public RBTNode getSuccessor(RBTNode node) {
-        RBTNode successor = node;
-        while(successor.left != null)
-            successor = successor.left;
+    public void buildFromSorted(RBTNode[] sortedNodes, int count) {
+        if(root != null)    throw new IllegalStateException("RBT must be empty to be built from sorted nodes");
+        if(count == 0)  return;
+
+        int deepestLevel = 31 - Integer.numberOfLeadingZeros(count);
+        root = buildSubtree(sortedNodes, 0, count - 1, 0, deepestLevel);
+        root.parent = null;
+        root.color = Color.BLACK;
+        size = count;
+    }
 
-        return successor;
+    /*
+        This function is a helper function for buildFromSorted.
+        It builds the subtree of sortedNodes[low, high] at the input level, and returns its root
+     */
+    private RBTNode buildSubtree(RBTNode[] sortedNodes, int low, int high, int level, int deepestLevel) {
+        if(low > high)  return null;
+
+        int mid = (low + high) >>> 1;
+        RBTNode node = sortedNodes[mid];
+        node.color = level == deepestLevel ? Color.RED : Color.BLACK;
+        node.left = buildSubtree(sortedNodes, low, mid - 1, level + 1, deepestLevel);
+        node.right = buildSubtree(sortedNodes, mid + 1, high, level + 1, deepestLevel);
+        if(node.left != null)   node.left.parent = node;
+        if(node.right != null)  node.right.parent = node;
+        return node;
     }
 
     /*
-        This function provides the replacement node for the node to be deleted in the RBT
+        This function returns the node with the smallest ride no, that is not less than the input ride no, or null if there is none
      */
-    public RBTNode getReplacementNode(RBTNode node) {
-        //If the node has two child, return the in-order successor of the node
-        if(node.left != null && node.right != null) {
-            return getSuccessor(node.right);
+    private RBTNode ceiling(int rideNo) {
+        RBTNode ceiling = null, current = root;
+        while(current != null) {
+            if(current.ride.rideNo >= rideNo) {
+                ceiling = current;
+                current = current.left;
+            } else  current = current.right;
         }
-        //if the node is a leaf node, return null
-        if (node.left == null && node.right == null)    return null;
-        //If the node left child is not null return left
-        if(node.left != null)   return  node.left;
-        //If the node right child is not null return right
-        else   return  node.right;
+        return ceiling;
     }
 
     /*
-        This function is a helper function, which helps swap the rides values between 2 RBT nodes.
-        This function needed when performing the delete operation
+        This function returns the next node in order of ride no, or null for the last node.
+        It walks up the parent links, so a range search needs no recursion and no stack
      */
-    private void swapRides(RBTNode node1, RBTNode node2) {
-        Ride temp = node1.ride;
-        node1.ride = node2.ride;
-        node2.ride = temp;
+    private RBTNode next(RBTNode node) {
+        if(node.right != null)  return getSuccessor(node.right);
+        RBTNode parentNode = node.parent;
+        while(parentNode != null && node == parentNode.right) {
+            node = parentNode;
+            parentNode = parentNode.parent;
+        }
+        return parentNode;
     }
 
     /*
-        This function provides the sibling info for the input node.
-        The sibling node is needed, while performing the delete operation on the RBT
+        This function provides an implementation of search the rides between teh given bounds
      */
-    private RBTNode getSibling(RBTNode node) {
-        if(node == root)    return null;
-        return node.parent.left == node ? node.parent.right : node.parent.left;
+    public void rangeSearch(int rideNo1, int rideNo2, List<Ride> rides) {
+        for(RBTNode node = ceiling(rideNo1); node != null && node.ride.rideNo <= rideNo2; node = next(node))
+            rides.add(node.ride);
     }
 
     /*
-        This function checks if the input node has any red child
-        The red child info is needed, while performing the delete operation on the RBT
+        This function visits at most limit rides between the given bounds in order of ride no.
+        It finds the first node in the range, and walks the successors from there, so the memory used does not depend on the range
      */
-    private boolean hasRedChild(RBTNode node) {
-        return (node.left != null && node.left.color == Color.RED) || (node.right != null && node.right.color == Color.RED);
+    @Override
+    public void rangeSearch(int rideNo1, int rideNo2, int limit, RideVisitor visitor) {
+        RBTNode node = ceiling(rideNo1);
+        for(int visited = 0; node != null && node.ride.rideNo <= rideNo2 && visited < limit; node = next(node), visited++)
+            visitor.visit(node.ride.rideNo, node.ride.rideCost, node.ride.tripDuration);
     }
 
-
     /*
-        This function provides the implementation of fixing the double black,
-        that is generated as part of delete node
+        This function provides the successor info for the input node.
+        The successor node is needed, while performing the delete operation on the RBT node, with 2 child
      */
-    private void fixDoubleBlack(RBTNode node) {
-        if(node == root)    return;
-
-        RBTNode parent = node.parent, sibling = getSibling(node);
+    public RBTNode getSuccessor(RBTNode node) {
+        RBTNode successor = node;
+        while(successor.left != null)
+            successor = successor.left;
 
-        if(sibling != null) {
-            if(sibling.color == Color.RED)  { // If sibling color is red
-                if(sibling.parent.left == sibling)  rotateRight(parent); // If sibling is left child of its parent, rotate right on parent
-                else    rotateLeft(parent); // If sibling is right child of its parent, rotate left on parent
+        return successor;
+    }
 
-                //fix the colors of parent and sibling
-                parent.color = Color.RED;
-                sibling.color = Color.BLACK;
-                fixDoubleBlack(node); // since the double black still exists on the node, call fix double black for node
-            } else {
-                if(hasRedChild(sibling)) {
-                    // If the sibling has left red child
-                    if(sibling.left != null && sibling.left.color == Color.RED) {
-                        if(sibling.parent.left == sibling) { // If sibling is left child of its parent (LL case)
-                            //fix the colors
-                            sibling.left.color = sibling.color;
-                            sibling.color = parent.color;
-                            rotateRight(parent); // rotate right
-                        } else { // If sibling is right child of its parent (RL case)
-                            sibling.left.color = parent.color; // fix colors
-                            rotateRight(sibling); // rotate right on sibling
-                            rotateLeft(parent); // rotate left on parent
-                        }
-                    } else { // If the sibling has right red child
-                        if(sibling.parent.left == sibling){ // If sibling is left child of its parent (LR case)
-                            sibling.right.color = parent.color; // fix colors
-                            rotateLeft(sibling); // rotate left on sibling
-                            rotateRight(parent); // rotate right on parent
-                        } else { // If sibling is right child of its parent (RR case)
-                            //fix the colors
-                            sibling.right.color = sibling.color;
-                            sibling.color = parent.color;
-                            rotateLeft(parent); // rotate right on parent
-                        }
-                    }
-                } else { // if sibling has no red child
-                    //fix the color of sibling
-                    sibling.color = Color.RED;
-                    if(parent.color == Color.BLACK) fixDoubleBlack(parent); // If parent was black and since the double black os propagated to parent now, call fix dpuble black
-                    else    parent.color = Color.BLACK; // Since parent was red, it can cover the deficit, make it black.
-                }
-            }
-        } else fixDoubleBlack(parent); // if sibling is null, fix double black on parent
+    /*
+        This function replaces the subtree of node with the subtree of replacement, which may be null
+     */
+    private void transplant(RBTNode node, RBTNode replacement) {
+        if(node.parent == null) root = replacement;
+        else if(node == node.parent.left)   node.parent.left = replacement;
+        else    node.parent.right = replacement;
+        if(replacement != null) replacement.parent = node.parent;
     }
 
     /*
-        This function provides the implementation for node deletion, with input RBT node
+        This function provides the implementation for node deletion, with input RBT node.
+        A node with two children is replaced by its in-order successor node, which is moved into its place with its links,
+        the rides are never swapped between nodes. So every other node keeps its ride, and handles to them stay valid
      */
     public void deleteRBTNode(RBTNode nodeToDelete) {
-        RBTNode replacementNode = getReplacementNode(nodeToDelete); // get the replacement node
-        boolean bothBlack = (replacementNode == null || replacementNode.color == Color.BLACK) && (nodeToDelete.color == Color.BLACK); // check if replacement node and the node to delete are both black
-
-        if(replacementNode == null){ // If replacement node is null
-            if(nodeToDelete == root)    root = null; // If node to delete us root, make the root null
+        // child takes the place of the node, that is removed from its position in the tree, childParent is its new parent
+        RBTNode child, childParent;
+        boolean removedBlack = nodeToDelete.color == Color.BLACK;
+        if(nodeToDelete.left == null) {
+            child = nodeToDelete.right;
+            childParent = nodeToDelete.parent;
+            transplant(nodeToDelete, child);
+        } else if(nodeToDelete.right == null) {
+            child = nodeToDelete.left;
+            childParent = nodeToDelete.parent;
+            transplant(nodeToDelete, child);
+        } else {
+            // the successor has no left child, it leaves its position to its right child, and takes the position of the node
+            RBTNode successor = getSuccessor(nodeToDelete.right);
+            removedBlack = successor.color == Color.BLACK;
+            child = successor.right;
+            if(successor.parent == nodeToDelete)    childParent = successor;
             else {
-                if(bothBlack)   fixDoubleBlack(nodeToDelete); //If the flag is true, call fix double black case on node to delete
-                else if(getSibling(nodeToDelete) != null)   getSibling(nodeToDelete).color = Color.RED; // else if sibling is not null color, it red
-
-                if(nodeToDelete.parent.left == nodeToDelete)    nodeToDelete.parent.left = null; //If node to delete is left child of parent, make left child of parent null
-                else    nodeToDelete.parent.right = null; //If node to delete is right child of parent, make right child of parent null
+                childParent = successor.parent;
+                transplant(successor, child);
+                successor.right = nodeToDelete.right;
+                successor.right.parent = successor;
             }
-            return;
+            transplant(nodeToDelete, successor);
+            successor.left = nodeToDelete.left;
+            successor.left.parent = successor;
+            successor.color = nodeToDelete.color;
         }
 
-        //If the node to delete has atmost one child
-        if(nodeToDelete.left == null || nodeToDelete.right == null) {
-            if(nodeToDelete == root){ // If node to delete is root
-                nodeToDelete.ride = replacementNode.ride; // copy the ride details from replacement node to root node
-                nodeToDelete.left = nodeToDelete.right = null; // make root's left and right child null
-            } else { // if node to delete is not root
-                if(nodeToDelete.parent.left == nodeToDelete)    nodeToDelete.parent.left = replacementNode;  // if node to delete is left child of parent, make replacement node as left child
-                else    nodeToDelete.parent.right = replacementNode; // if node to delete is right child of parent, make replacement node as right child
-
-                replacementNode.parent = nodeToDelete.parent; // Update parent node
+        if(removedBlack)    fixDoubleBlack(child, childParent);
+        nodeToDelete.left = nodeToDelete.right = nodeToDelete.parent = null;
+        size--;
+    }
 
-                if(bothBlack)    fixDoubleBlack(replacementNode); // if both of node to delete and replacement nodes were black, call the fix double black
-                else    replacementNode.color = Color.BLACK; // else make the replacement node as black
+    /*
+        This function provides the implementation of fixing the double black, that is generated as part of delete node.
+        The double black node may be a null leaf, so its parent is passed along. It loops up the tree, instead of calling itself
+     */
+    private void fixDoubleBlack(RBTNode node, RBTNode parent) {
+        while(node != root && !isRed(node)) {
+            if(Metrics.ENABLED) Metrics.rbtFixDoubleBlacks++;
+            if(node == parent.left) {
+                RBTNode sibling = parent.right;
+                if(isRed(sibling)) { // If sibling color is red, rotate left on parent to get a black sibling
+                    sibling.color = Color.BLACK;
+                    parent.color = Color.RED;
+                    rotateLeft(parent);
+                    sibling = parent.right;
+                }
+                if(!isRed(sibling.left) && !isRed(sibling.right)) { // if sibling has no red child, the double black moves up to the parent
+                    sibling.color = Color.RED;
+                    node = parent;
+                    parent = node.parent;
+                } else {
+                    if(!isRed(sibling.right)) { // If the sibling has only a left red child (RL case), rotate right on sibling to get the RR case
+                        sibling.left.color = Color.BLACK;
+                        sibling.color = Color.RED;
+                        rotateRight(sibling);
+                        sibling = parent.right;
+                    }
+                    // RR case, rotate left on parent
+                    sibling.color = parent.color;
+                    parent.color = Color.BLACK;
+                    sibling.right.color = Color.BLACK;
+                    rotateLeft(parent);
+                    node = root;
+                }
+            } else {
+                RBTNode sibling = parent.left;
+                if(isRed(sibling)) { // If sibling color is red, rotate right on parent to get a black sibling
+                    sibling.color = Color.BLACK;
+                    parent.color = Color.RED;
+                    rotateRight(parent);
+                    sibling = parent.left;
+                }
+                if(!isRed(sibling.left) && !isRed(sibling.right)) { // if sibling has no red child, the double black moves up to the parent
+                    sibling.color = Color.RED;
+                    node = parent;
+                    parent = node.parent;
+                } else {
+                    if(!isRed(sibling.left)) { // If the sibling has only a right red child (LR case), rotate left on sibling to get the LL case
+                        sibling.right.color = Color.BLACK;
+                        sibling.color = Color.RED;
+                        rotateLeft(sibling);
+                        sibling = parent.left;
+                    }
+                    // LL case, rotate right on parent
+                    sibling.color = parent.color;
+                    parent.color = Color.BLACK;
+                    sibling.left.color = Color.BLACK;
+                    rotateRight(parent);
+                    node = root;
+                }
             }
-            return;
         }
-
-        // if the node to delete had both left and right child, swap rides between node to delete and replacement node
-        swapRides(nodeToDelete, replacementNode);
-        // call delete for replacement node
-        deleteRBTNode(replacementNode);
+        if(node != null)    node.color = Color.BLACK;
     }
 
     /*
         This function provides the implementation of delete function in RBT for input ride no
      */
-    public void delete(int rideNo) {
+    @Override
+    public boolean delete(int rideNo) {
         RBTNode nodeToDelete = search(rideNo); // search the node to delete
-        if(nodeToDelete == null)    return;
+        if(nodeToDelete == null)    return false;
 
         deleteRBTNode(nodeToDelete);
+        return true;
     }
 }
@@ -0,0 +1,87 @@
+/*
+    Index of the pending rides by ride number, that the GatorTaxi application uses for Print, range Print,
+    and for looking up rides by number in UpdateTrip, CancelRide and GetNextRide.
+    Implementations keep the rides ordered by ride number, and do not allow duplicate ride numbers.
+ */
+public interface RideIndex {
+
+    /*
+        This function returns the implementation with the input name: "rbt" (RBT), "array-rbt" (ArrayRBT) or "bplus" (BPlusTree)
+     */
+    static RideIndex create(String name) {
+        switch(name) {
+            case "rbt": return new RBT();
+            case "array-rbt": return new ArrayRBT();
+            case "bplus": return new BPlusTree();
+            default: throw new IllegalArgumentException("Unknown ride index: " + name);
+        }
+    }
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /*
+        This function inserts a new ride, it returns false and leaves the index unchanged, if the ride no already exists
+     */
+    boolean insert(int rideNo, int rideCost, int tripDuration);
+
+    /*
+        This function copies the ride with input ride no into result, it returns false if the ride does not exist
+     */
+    boolean search(int rideNo, Ride result);
+
+    /*
+        This function updates the rideCost and tripDuration of the ride with input ride no, it returns false if the ride does not exist
+     */
+    boolean update(int rideNo, int rideCost, int tripDuration);
+
+    /*
+        This function deletes the ride with input ride no, it returns false if the ride does not exist
+     */
+    boolean delete(int rideNo);
+
+    /*
+        This function visits the rides between the given bounds in order of ride no
+     */
+    default void rangeSearch(int rideNo1, int rideNo2, RideVisitor visitor) {
+        rangeSearch(rideNo1, rideNo2, Integer.MAX_VALUE, visitor);
+    }
+
+    /*
+        This function visits the first limit rides between the given bounds in order of ride no.
+        Implementations walk the rides one by one, so the memory used does not depend on the width of the range
+     */
+    void rangeSearch(int rideNo1, int rideNo2, int limit, RideVisitor visitor);
+
+    /*
+        This function searches all the input ride numbers, which must be sorted in ascending order,
+        and visits the rides that exist in the same order. Implementations may share work between the searches
+     */
+    default void searchSorted(int[] sortedRideNos, int count, RideVisitor visitor) {
+        Ride ride = new Ride(0, 0, 0);
+        for(int i = 0; i < count; i++) {
+            if(search(sortedRideNos[i], ride))  visitor.visit(ride.rideNo, ride.rideCost, ride.tripDuration);
+        }
+    }
+
+    /*
+        This function deletes all the input ride numbers, which must be sorted in ascending order.
+        Ride numbers that do not exist are skipped
+     */
+    default void deleteSorted(int[] sortedRideNos, int count) {
+        for(int i = 0; i < count; i++)
+            delete(sortedRideNos[i]);
+    }
+
+    /*
+        This function loads the input rides, which must be sorted by ride no without duplicates, into the empty index
+     */
+    default void buildFromSorted(int[] sortedRideNos, int[] rideCosts, int[] tripDurations, int count) {
+        if(!isEmpty())  throw new IllegalStateException("Ride index must be empty to be built from sorted rides");
+        for(int i = 0; i < count; i++)
+            insert(sortedRideNos[i], rideCosts[i], tripDurations[i]);
+    }
+}
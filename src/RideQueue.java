@@ -0,0 +1,88 @@
+/*
+    Priority queue of the pending rides, ordered by rideCost followed by tripDuration,
+    that the GatorTaxi application uses for GetNextRide.
+    Rides can be addressed by ride number, so that UpdateTrip and CancelRide can change or remove them in place.
+ */
+public interface RideQueue {
+
+    /*
+        This function returns the implementation with the input name: "binary" (MinHeap), "4-ary" (DaryHeap), "pairing" (PairingHeap)
+        or "bucket" (BucketQueue)
+     */
+    static RideQueue create(String name) {
+        switch(name) {
+            case "binary": return new MinHeap();
+            case "4-ary": return new DaryHeap(4);
+            case "pairing": return new PairingHeap();
+            case "bucket": return new BucketQueue();
+            default: throw new IllegalArgumentException("Unknown ride queue: " + name);
+        }
+    }
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /*
+        This function inserts a new ride, the ride no must not be in the queue yet
+     */
+    void insert(int rideNo, int rideCost, int tripDuration);
+
+    /*
+        These functions return the ride with the lowest cost, without removing it. The queue must not be empty
+     */
+    int peekRideNo();
+
+    int peekRideCost();
+
+    int peekTripDuration();
+
+    /*
+        This function removes the ride with the lowest cost, and returns its ride no. The queue must not be empty
+     */
+    int extractMin();
+
+    /*
+        This function visits the k rides with the lowest cost in queue order, without removing them.
+        It visits all rides, if the queue holds fewer than k
+     */
+    void peekTopK(int k, RideVisitor visitor);
+
+    /*
+        This function removes the ride with the input ride no, it returns false if the ride is not in the queue
+     */
+    boolean remove(int rideNo);
+
+    /*
+        This function lowers the (rideCost, tripDuration) of the ride with the input ride no, it returns false if the ride is not in the queue.
+        The new key must not be greater than the current key
+     */
+    boolean decreaseKey(int rideNo, int rideCost, int tripDuration);
+
+    /*
+        This function raises the (rideCost, tripDuration) of the ride with the input ride no, it returns false if the ride is not in the queue.
+        The new key must not be less than the current key
+     */
+    boolean increaseKey(int rideNo, int rideCost, int tripDuration);
+
+    /*
+        This function makes room for the input number of rides, so that bulk loading does not grow the queue step by step
+     */
+    default void ensureCapacity(int capacity) {
+    }
+
+    /*
+        This function adds a ride for bulk loading, the queue order may only be restored by the following heapify() call
+     */
+    default void add(int rideNo, int rideCost, int tripDuration) {
+        insert(rideNo, rideCost, tripDuration);
+    }
+
+    /*
+        This function restores the queue order after bulk loading with add()
+     */
+    default void heapify() {
+    }
+}
@@ -0,0 +1,200 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/*
+    Compact dump of all pending rides, as primitive arrays sorted by ride no.
+    Since the rides are sorted, the ride index can be built from a snapshot in linear time (RideIndex.buildFromSorted).
+
+    File: MAGIC, VERSION, count, rideNos[count], rideCosts[count], tripDurations[count], CRC32 of all preceding bytes.
+    A snapshot is written into a temporary file, that is forced to the disk and then renamed, so a crash never leaves a half written snapshot.
+ */
+public class RideSnapshot {
+    private static final int MAGIC = 0x47545353;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int CHUNK_SIZE = 1 << 20;
+    // number of rides, from which sorted sorts and gathers them in parallel
+    private static final int PARALLEL_SORT_SIZE = 1 << 16;
+
+    public int[] rideNos;
+    public int[] rideCosts;
+    public int[] tripDurations;
+    public int count;
+
+    RideSnapshot(int[] rideNos, int[] rideCosts, int[] tripDurations, int count) {
+        this.rideNos = rideNos;
+        this.rideCosts = rideCosts;
+        this.tripDurations = tripDurations;
+        this.count = count;
+    }
+
+    /*
+        This function returns a snapshot of all rides of the input ride index
+     */
+    static RideSnapshot of(RideIndex rides) {
+        int size = rides.size();
+        RideSnapshot snapshot = new RideSnapshot(new int[size], new int[size], new int[size], 0);
+        rides.rangeSearch(Integer.MIN_VALUE, Integer.MAX_VALUE, (rideNo, rideCost, tripDuration) -> {
+            snapshot.rideNos[snapshot.count] = rideNo;
+            snapshot.rideCosts[snapshot.count] = rideCost;
+            snapshot.tripDurations[snapshot.count++] = tripDuration;
+        });
+        return snapshot;
+    }
+
+    /*
+        This function returns a snapshot of the input rides, that may be in any order.
+        The rides are sorted by keys, that hold the rideNo in the high bits and the offset of the ride in the low bits,
+        and gathered into the arrays of the snapshot. A large load is sorted and gathered in parallel, a small one in this thread,
+        where starting the parallel tasks would cost more than the sort. A duplicate ride no throws an IllegalArgumentException
+     */
+    static RideSnapshot sorted(int[] rideNos, int[] rideCosts, int[] tripDurations, int count) {
+        long[] sortKeys = new long[count];
+        RideSnapshot snapshot = new RideSnapshot(new int[count], new int[count], new int[count], count);
+        IntConsumer gather = i -> {
+            int offset = (int) sortKeys[i];
+            snapshot.rideNos[i] = rideNos[offset];
+            snapshot.rideCosts[i] = rideCosts[offset];
+            snapshot.tripDurations[i] = tripDurations[offset];
+        };
+
+        int duplicate = -1;
+        if(count >= PARALLEL_SORT_SIZE) {
+            Arrays.parallelSetAll(sortKeys, i -> ((long) rideNos[i] << 32) | i);
+            Arrays.parallelSort(sortKeys);
+            IntStream.range(0, count).parallel().forEach(gather);
+            duplicate = IntStream.range(1, count).parallel().filter(i -> snapshot.rideNos[i] == snapshot.rideNos[i - 1]).findAny().orElse(-1);
+        } else {
+            for(int i = 0; i < count; i++)
+                sortKeys[i] = ((long) rideNos[i] << 32) | i;
+            Arrays.sort(sortKeys);
+            for(int i = 0; i < count; i++)
+                gather.accept(i);
+            for(int i = 1; i < count && duplicate < 0; i++) {
+                if(snapshot.rideNos[i] == snapshot.rideNos[i - 1])  duplicate = i;
+            }
+        }
+        if(duplicate >= 0)  throw new IllegalArgumentException("Duplicate RideNumber " + snapshot.rideNos[duplicate]);
+        return snapshot;
+    }
+
+    /*
+        This function loads the rides of this snapshot into the empty ride index and ride queue, both in linear time
+     */
+    void load(RideIndex rides, RideQueue minCostRides) {
+        rides.buildFromSorted(rideNos, rideCosts, tripDurations, count);
+        minCostRides.ensureCapacity(minCostRides.size() + count);
+        for(int i = 0; i < count; i++)
+            minCostRides.add(rideNos[i], rideCosts[i], tripDurations[i]);
+        minCostRides.heapify();
+    }
+
+    /*
+        This function writes this snapshot into the input file, through a temporary file next to it
+     */
+    void write(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(count);
+            writeInts(channel, buffer, crc, rideNos);
+            writeInts(channel, buffer, crc, rideCosts);
+            writeInts(channel, buffer, crc, tripDurations);
+            drain(channel, buffer, crc);
+            buffer.putInt((int) crc.getValue()).flip();
+            while(buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void writeInts(FileChannel channel, ByteBuffer buffer, CRC32 crc, int[] values) throws IOException {
+        int offset = 0;
+        while(offset < count) {
+            if(buffer.remaining() < Integer.BYTES)  drain(channel, buffer, crc);
+            IntBuffer ints = buffer.asIntBuffer();
+            int length = Math.min(ints.remaining(), count - offset);
+            ints.put(values, offset, length);
+            buffer.position(buffer.position() + length * Integer.BYTES);
+            offset += length;
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while(buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /*
+        This function reads the snapshot from the input file, it throws an IOException if the file is not a complete snapshot
+     */
+    static RideSnapshot read(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer.limit(HEADER_SIZE);
+            fill(channel, buffer, file);
+            crc.update(buffer.duplicate());
+            int magic = buffer.getInt(), version = buffer.getInt(), count = buffer.getInt();
+            if(magic != MAGIC || version != VERSION || count < 0 || channel.size() != HEADER_SIZE + 12L * count + Integer.BYTES)
+                throw new IOException("Not a complete gatorTaxi snapshot: " + file);
+
+            RideSnapshot snapshot = new RideSnapshot(new int[count], new int[count], new int[count], count);
+            long dataEnd = HEADER_SIZE + 12L * count;
+            buffer.clear().limit(0);
+            readInts(channel, buffer, crc, snapshot.rideNos, count, dataEnd, file);
+            readInts(channel, buffer, crc, snapshot.rideCosts, count, dataEnd, file);
+            readInts(channel, buffer, crc, snapshot.tripDurations, count, dataEnd, file);
+
+            buffer.clear().limit(Integer.BYTES);
+            fill(channel, buffer, file);
+            if(buffer.getInt() != (int) crc.getValue())
+                throw new IOException("Corrupt gatorTaxi snapshot: " + file);
+            return snapshot;
+        }
+    }
+
+    /*
+        This function reads count ints into values, refilling the buffer from the channel up to dataEnd, the start of the checksum
+     */
+    private static void readInts(FileChannel channel, ByteBuffer buffer, CRC32 crc, int[] values, int count, long dataEnd, Path file) throws IOException {
+        int offset = 0;
+        while(offset < count) {
+            if(!buffer.hasRemaining()) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), dataEnd - channel.position()));
+                fill(channel, buffer, file);
+                crc.update(buffer.duplicate());
+            }
+            IntBuffer ints = buffer.asIntBuffer();
+            int length = Math.min(ints.remaining(), count - offset);
+            ints.get(values, offset, length);
+            buffer.position(buffer.position() + length * Integer.BYTES);
+            offset += length;
+        }
+    }
+
+    /*
+        This function reads from the channel until the buffer is full up to its limit, and flips the buffer
+     */
+    private static void fill(FileChannel channel, ByteBuffer buffer, Path file) throws IOException {
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer) < 0)    throw new IOException("Truncated gatorTaxi snapshot: " + file);
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,558 @@
+import java.util.Arrays;
+
+/*
+    Store of the pending rides on the Java heap, that keeps every ride in one node: the node carries the ride,
+    its red black tree links and its position in the binary min heap. The heap is an array of the nodes.
+
+    index() is the ride index (red black tree ordered by rideNo) and queue() the ride queue (min heap ordered by
+    rideCost and tripDuration), the same split as MappedRideStore. There is no Ride object, no second node and no map from
+    rideNo to heap position per ride: the heap position is a field of the node, so the queue needs no hash lookup.
+
+    gatorTaxi always works on the same ride in the index and then in the queue, or the other way around (GetNextRide).
+    The node of the ride, that was inserted, searched or removed last, is kept, so the second structure finds it
+    in O(1) instead of searching the tree again. A node is dropped once it is neither in the index nor in the queue.
+ */
+public class RideStore {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /*
+        One pending ride: the packed (rideCost, tripDuration) key of MinHeap.key, the tree links and the heap index,
+        which is -1 while the node is not in the heap
+     */
+    static final class Node {
+        final int rideNo;
+        long key;
+        int heapIndex = -1;
+        boolean red;
+        boolean indexed;
+        Node left;
+        Node right;
+        Node parent;
+
+        Node(int rideNo, long key) {
+            this.rideNo = rideNo;
+            this.key = key;
+        }
+
+        @Override
+        public String toString() {
+            return rideNo + "(" + (red ? Color.RED : Color.BLACK) + ")";
+        }
+    }
+
+    private Node root;
+    private int size;
+    private Node[] heap = new Node[INITIAL_CAPACITY];
+    private int heapSize;
+    // node of the ride, that was inserted, searched or removed last
+    private Node lastNode;
+
+    private final Index index = new Index();
+    private final Queue queue = new Queue();
+
+    public RideIndex index() {
+        return index;
+    }
+
+    public RideQueue queue() {
+        return queue;
+    }
+
+    /*
+        This function returns the node of the ride with input rideNo, that is in the index or was just removed from it, or null
+     */
+    private Node nodeOf(int rideNo) {
+        if(lastNode != null && lastNode.rideNo == rideNo)   return lastNode;
+        Node node = index.search(rideNo);
+        if(node != null)    lastNode = node;
+        return node;
+    }
+
+    /*
+        This function forgets the node, once its ride is neither in the index nor in the queue
+     */
+    private void releaseIfUnused(Node node) {
+        if(!node.indexed && node.heapIndex < 0 && lastNode == node) lastNode = null;
+    }
+
+    /*
+        Red black tree of the nodes ordered by rideNo, the same algorithms as RBT over the links of the nodes.
+        Delete moves nodes instead of rides, so the heap keeps pointing at the right nodes
+     */
+    private final class Index implements RideIndex {
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        private boolean isRed(Node node) {
+            return node != null && node.red;
+        }
+
+        private void rotateLeft(Node node) {
+            if(Metrics.ENABLED) Metrics.rbtRotations++;
+            Node rightChild = node.right;
+            node.right = rightChild.left;
+            if(rightChild.left != null) rightChild.left.parent = node;
+            rightChild.parent = node.parent;
+
+            if(node.parent == null) root = rightChild;
+            else if(node == node.parent.left)   node.parent.left = rightChild;
+            else    node.parent.right = rightChild;
+
+            rightChild.left = node;
+            node.parent = rightChild;
+        }
+
+        private void rotateRight(Node node) {
+            if(Metrics.ENABLED) Metrics.rbtRotations++;
+            Node leftChild = node.left;
+            node.left = leftChild.right;
+            if(leftChild.right != null) leftChild.right.parent = node;
+            leftChild.parent = node.parent;
+
+            if(node.parent == null) root = leftChild;
+            else if(node == node.parent.right)  node.parent.right = leftChild;
+            else    node.parent.left = leftChild;
+
+            leftChild.right = node;
+            node.parent = leftChild;
+        }
+
+        @Override
+        public boolean insert(int rideNo, int rideCost, int tripDuration) {
+            Node prevNode = null, currentNode = root;
+            while(currentNode != null) {
+                prevNode = currentNode;
+                if(rideNo == currentNode.rideNo)    return false;
+                currentNode = rideNo < currentNode.rideNo ? currentNode.left : currentNode.right;
+            }
+
+            Node newNode = new Node(rideNo, MinHeap.key(rideCost, tripDuration));
+            newNode.parent = prevNode;
+            newNode.red = true;
+            newNode.indexed = true;
+            if(prevNode == null)    root = newNode;
+            else if(rideNo < prevNode.rideNo)   prevNode.left = newNode;
+            else    prevNode.right = newNode;
+
+            fixColorViolations(newNode);
+            size++;
+            lastNode = newNode;
+            return true;
+        }
+
+        private void fixColorViolations(Node node) {
+            while(isRed(node.parent)) {
+                Node parentNode = node.parent, grandParent = parentNode.parent;
+                if(parentNode == grandParent.left) {
+                    Node uncle = grandParent.right;
+                    if(isRed(uncle)) {
+                        parentNode.red = false;
+                        uncle.red = false;
+                        grandParent.red = true;
+                        node = grandParent;
+                    } else {
+                        if(node == parentNode.right) {
+                            node = parentNode;
+                            rotateLeft(node);
+                            parentNode = node.parent;
+                        }
+                        parentNode.red = false;
+                        grandParent.red = true;
+                        rotateRight(grandParent);
+                    }
+                } else {
+                    Node uncle = grandParent.left;
+                    if(isRed(uncle)) {
+                        parentNode.red = false;
+                        uncle.red = false;
+                        grandParent.red = true;
+                        node = grandParent;
+                    } else {
+                        if(node == parentNode.left) {
+                            node = parentNode;
+                            rotateRight(node);
+                            parentNode = node.parent;
+                        }
+                        parentNode.red = false;
+                        grandParent.red = true;
+                        rotateLeft(grandParent);
+                    }
+                }
+            }
+            root.red = false;
+        }
+
+        /*
+            This function returns the node of the ride with input rideNo in the tree, or null
+         */
+        Node search(int rideNo) {
+            Node current = root;
+            while(current != null && current.rideNo != rideNo)
+                current = rideNo < current.rideNo ? current.left : current.right;
+            return current;
+        }
+
+        @Override
+        public boolean search(int rideNo, Ride result) {
+            Node node = nodeOf(rideNo);
+            if(node == null || !node.indexed)   return false;
+            result.rideNo = rideNo;
+            result.rideCost = MinHeap.rideCost(node.key);
+            result.tripDuration = MinHeap.tripDuration(node.key);
+            return true;
+        }
+
+        @Override
+        public boolean update(int rideNo, int rideCost, int tripDuration) {
+            Node node = nodeOf(rideNo);
+            if(node == null || !node.indexed)   return false;
+            // the queue reads the same key, it restores its order in decreaseKey / increaseKey
+            node.key = MinHeap.key(rideCost, tripDuration);
+            return true;
+        }
+
+        @Override
+        public void buildFromSorted(int[] sortedRideNos, int[] rideCosts, int[] tripDurations, int count) {
+            if(size != 0)   throw new IllegalStateException("RideStore index must be empty to be built from sorted rides");
+            Node[] nodes = new Node[count];
+            for(int i = 0; i < count; i++)
+                nodes[i] = new Node(sortedRideNos[i], MinHeap.key(rideCosts[i], tripDurations[i]));
+            size = count;
+            root = count == 0 ? null : linkSubtree(nodes, 0, count - 1, 0, 31 - Integer.numberOfLeadingZeros(count));
+            if(root != null) {
+                root.parent = null;
+                root.red = false;
+            }
+            // the last node may be a dropped node with one of the loaded ride nos
+            lastNode = null;
+        }
+
+        /*
+            This function links the input nodes, which are sorted by rideNo, into a balanced tree.
+            All nodes are black, except the nodes on the deepest level, which are red
+         */
+        private Node linkSubtree(Node[] nodes, int low, int high, int level, int deepestLevel) {
+            if(low > high)  return null;
+
+            int mid = (low + high) >>> 1;
+            Node node = nodes[mid];
+            node.red = level == deepestLevel;
+            node.indexed = true;
+            node.left = linkSubtree(nodes, low, mid - 1, level + 1, deepestLevel);
+            node.right = linkSubtree(nodes, mid + 1, high, level + 1, deepestLevel);
+            if(node.left != null)   node.left.parent = node;
+            if(node.right != null)  node.right.parent = node;
+            return node;
+        }
+
+        private Node minimum(Node node) {
+            while(node.left != null)    node = node.left;
+            return node;
+        }
+
+        private Node successor(Node node) {
+            if(node.right != null)  return minimum(node.right);
+            Node parentNode = node.parent;
+            while(parentNode != null && node == parentNode.right) {
+                node = parentNode;
+                parentNode = parentNode.parent;
+            }
+            return parentNode;
+        }
+
+        @Override
+        public void rangeSearch(int rideNo1, int rideNo2, int limit, RideVisitor visitor) {
+            Node first = null, current = root;
+            while(current != null) {
+                if(current.rideNo >= rideNo1) {
+                    first = current;
+                    current = current.left;
+                } else  current = current.right;
+            }
+
+            for(Node node = first; node != null && node.rideNo <= rideNo2 && limit > 0; node = successor(node), limit--)
+                visitor.visit(node.rideNo, MinHeap.rideCost(node.key), MinHeap.tripDuration(node.key));
+        }
+
+        private void transplant(Node node, Node replacement) {
+            if(node.parent == null) root = replacement;
+            else if(node == node.parent.left)   node.parent.left = replacement;
+            else    node.parent.right = replacement;
+            if(replacement != null) replacement.parent = node.parent;
+        }
+
+        /*
+            This function deletes the ride with input rideNo from the tree. After GetNextRide, the node is the one, that
+            the queue has just removed, so it is unlinked without searching the tree
+         */
+        @Override
+        public boolean delete(int rideNo) {
+            Node node = nodeOf(rideNo);
+            if(node == null || !node.indexed)   return false;
+
+            // child takes the place of the node, that is removed from its position in the tree, childParent is its new parent
+            Node child, childParent;
+            boolean removedBlack = !node.red;
+            if(node.left == null) {
+                child = node.right;
+                childParent = node.parent;
+                transplant(node, child);
+            } else if(node.right == null) {
+                child = node.left;
+                childParent = node.parent;
+                transplant(node, child);
+            } else {
+                Node successor = minimum(node.right);
+                removedBlack = !successor.red;
+                child = successor.right;
+                if(successor.parent == node)    childParent = successor;
+                else {
+                    childParent = successor.parent;
+                    transplant(successor, child);
+                    successor.right = node.right;
+                    successor.right.parent = successor;
+                }
+                transplant(node, successor);
+                successor.left = node.left;
+                successor.left.parent = successor;
+                successor.red = node.red;
+            }
+
+            if(removedBlack)    fixDoubleBlack(child, childParent);
+            node.left = node.right = node.parent = null;
+            node.indexed = false;
+            size--;
+            releaseIfUnused(node);
+            return true;
+        }
+
+        private void fixDoubleBlack(Node node, Node parentNode) {
+            while(node != root && !isRed(node)) {
+                if(Metrics.ENABLED) Metrics.rbtFixDoubleBlacks++;
+                if(node == parentNode.left) {
+                    Node sibling = parentNode.right;
+                    if(isRed(sibling)) {
+                        sibling.red = false;
+                        parentNode.red = true;
+                        rotateLeft(parentNode);
+                        sibling = parentNode.right;
+                    }
+                    if(!isRed(sibling.left) && !isRed(sibling.right)) {
+                        sibling.red = true;
+                        node = parentNode;
+                        parentNode = node.parent;
+                    } else {
+                        if(!isRed(sibling.right)) {
+                            sibling.left.red = false;
+                            sibling.red = true;
+                            rotateRight(sibling);
+                            sibling = parentNode.right;
+                        }
+                        sibling.red = parentNode.red;
+                        parentNode.red = false;
+                        sibling.right.red = false;
+                        rotateLeft(parentNode);
+                        node = root;
+                    }
+                } else {
+                    Node sibling = parentNode.left;
+                    if(isRed(sibling)) {
+                        sibling.red = false;
+                        parentNode.red = true;
+                        rotateRight(parentNode);
+                        sibling = parentNode.left;
+                    }
+                    if(!isRed(sibling.left) && !isRed(sibling.right)) {
+                        sibling.red = true;
+                        node = parentNode;
+                        parentNode = node.parent;
+                    } else {
+                        if(!isRed(sibling.left)) {
+                            sibling.right.red = false;
+                            sibling.red = true;
+                            rotateLeft(sibling);
+                            sibling = parentNode.left;
+                        }
+                        sibling.red = parentNode.red;
+                        parentNode.red = false;
+                        sibling.left.red = false;
+                        rotateRight(parentNode);
+                        node = root;
+                    }
+                }
+            }
+            if(node != null)    node.red = false;
+        }
+    }
+
+    /*
+        Binary min heap of the nodes ordered by their key. The heap index of every node is kept in the node,
+        so rides are found by rideNo through nodeOf
+     */
+    private final class Queue implements RideQueue {
+        // candidates of peekTopK, kept between calls
+        private final CandidateHeap candidates = new CandidateHeap();
+
+        @Override
+        public int size() {
+            return heapSize;
+        }
+
+        @Override
+        public void ensureCapacity(int capacity) {
+            if(capacity > heap.length)  heap = Arrays.copyOf(heap, Math.max(capacity, heap.length << 1));
+        }
+
+        private void place(int index, Node node) {
+            heap[index] = node;
+            node.heapIndex = index;
+        }
+
+        /*
+            This function returns the node of the ride, which must already be in the index
+         */
+        private Node indexedNode(int rideNo) {
+            Node node = nodeOf(rideNo);
+            if(node == null)    throw new IllegalStateException("Ride " + rideNo + " must be in the index before it is queued");
+            return node;
+        }
+
+        @Override
+        public void insert(int rideNo, int rideCost, int tripDuration) {
+            add(rideNo, rideCost, tripDuration);
+            heapifyUp(heapSize - 1);
+        }
+
+        @Override
+        public void add(int rideNo, int rideCost, int tripDuration) {
+            Node node = indexedNode(rideNo);
+            ensureCapacity(heapSize + 1);
+            place(heapSize++, node);
+        }
+
+        @Override
+        public void heapify() {
+            for(int index = heapSize / 2 - 1; index >= 0; index--)
+                heapifyDown(index);
+        }
+
+        private void heapifyUp(int index) {
+            Node node = heap[index];
+            long nodeKey = node.key;
+            int depth = 0;
+            while(index > 0) {
+                int parentIndex = (index - 1) >>> 1;
+                Node parentNode = heap[parentIndex];
+                if(nodeKey >= parentNode.key)   break;
+                place(index, parentNode);
+                index = parentIndex;
+                depth++;
+            }
+            place(index, node);
+            if(Metrics.ENABLED) Metrics.recordSift(depth);
+        }
+
+        private void heapifyDown(int index) {
+            Node node = heap[index];
+            long nodeKey = node.key;
+            int depth = 0;
+            // ties go down as in MinHeap, so both queues give the same order of rides with the same key
+            while(true) {
+                int child = 2 * index + 1;
+                if(child >= heapSize)   break;
+                Node childNode = heap[child];
+                if(child + 1 < heapSize && heap[child + 1].key <= childNode.key)   childNode = heap[++child];
+                if(childNode.key > nodeKey) break;
+                place(index, childNode);
+                index = child;
+                depth++;
+            }
+            place(index, node);
+            if(Metrics.ENABLED) Metrics.recordSift(depth);
+        }
+
+        @Override
+        public int peekRideNo() {
+            return heap[0].rideNo;
+        }
+
+        @Override
+        public int peekRideCost() {
+            return MinHeap.rideCost(heap[0].key);
+        }
+
+        @Override
+        public int peekTripDuration() {
+            return MinHeap.tripDuration(heap[0].key);
+        }
+
+        @Override
+        public void peekTopK(int k, RideVisitor visitor) {
+            candidates.clear();
+            if(heapSize > 0)    candidates.push(heap[0].key, 0);
+            for(int visited = 0; visited < k && !candidates.isEmpty(); visited++) {
+                int index = candidates.pop();
+                Node node = heap[index];
+                visitor.visit(node.rideNo, MinHeap.rideCost(node.key), MinHeap.tripDuration(node.key));
+                for(int childIndex = 2 * index + 1; childIndex <= 2 * index + 2 && childIndex < heapSize; childIndex++)
+                    candidates.push(heap[childIndex].key, childIndex);
+            }
+        }
+
+        /*
+            This function removes the cheapest ride, its node is kept as the last node, so the index deletes it without a search
+         */
+        @Override
+        public int extractMin() {
+            Node node = heap[0];
+            removeAt(0);
+            return node.rideNo;
+        }
+
+        /*
+            This function removes the node at the input heap index: the last node is moved into the hole, and sifted up or down
+         */
+        private void removeAt(int index) {
+            Node node = heap[index];
+            node.heapIndex = -1;
+            lastNode = node;
+            if(--heapSize != index) {
+                Node last = heap[heapSize];
+                place(index, last);
+                if(index > 0 && last.key < heap[(index - 1) >>> 1].key) heapifyUp(index);
+                else    heapifyDown(index);
+            }
+            heap[heapSize] = null;
+            releaseIfUnused(node);
+        }
+
+        @Override
+        public boolean remove(int rideNo) {
+            Node node = nodeOf(rideNo);
+            if(node == null || node.heapIndex < 0)  return false;
+            removeAt(node.heapIndex);
+            return true;
+        }
+
+        @Override
+        public boolean decreaseKey(int rideNo, int rideCost, int tripDuration) {
+            Node node = nodeOf(rideNo);
+            if(node == null || node.heapIndex < 0)  return false;
+            node.key = MinHeap.key(rideCost, tripDuration);
+            heapifyUp(node.heapIndex);
+            return true;
+        }
+
+        @Override
+        public boolean increaseKey(int rideNo, int rideCost, int tripDuration) {
+            Node node = nodeOf(rideNo);
+            if(node == null || node.heapIndex < 0)  return false;
+            node.key = MinHeap.key(rideCost, tripDuration);
+            heapifyDown(node.heapIndex);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+/*
+    Callback that receives rides one by one, for example the rides of a range search.
+    The ride is passed as primitive values, so no Ride object is needed per visited ride
+ */
+public interface RideVisitor {
+    void visit(int rideNo, int rideCost, int tripDuration);
+}
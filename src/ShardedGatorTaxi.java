@@ -0,0 +1,409 @@
+import java.io.Closeable;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+
+/*
+    Sharded front end of the GatorTaxi application, that spreads the pending rides over several cores.
+    Ride numbers are split over shardCount independent engines (a ride index and a ride queue each),
+    every shard is owned by its own thread, and fed with the commands of its rides through its own task list.
+
+    Commands are executed in batches with the same output as gatorTaxi, up to the order of rides with equal cost and duration,
+    which the spec leaves open: the tournament tree takes them from the shards in another order. A batch is cut into phases at every command,
+    that needs all rides (GetNextRide, range Print, PeekNextRides):
+    - Insert, Print(rideNo), UpdateTrip and CancelRide of a phase are routed to the shard of their ride, and the shards
+      execute their tasks in parallel. Commands on the same ride stay in order, commands on different rides commute.
+      Print results are kept by command, and written in command order once the phase is done.
+    - A command on all rides runs on the dispatcher thread, while the shards wait for the next phase.
+      GetNextRide takes the winner of a tournament tree over the cheapest ride of every shard, and only replays
+      the path of the shard it took from. A range Print merges the sorted streams of the shards, read in chunks
+      of RANGE_CHUNK rides with the cursor of the paged range search, so it needs no memory per ride in the range.
+
+    The more commands on all rides a workload has, the shorter the phases, and the less the shards run in parallel.
+    Phases with fewer than MIN_PARALLEL_TASKS tasks are executed on the dispatcher thread, because handing them to
+    the shard threads costs more than executing them. The shard threads are idle then, and the semaphores of the
+    next phase publish the changes to them.
+
+    The shards have no common logical clock, so rides do not expire here: the time to live of an Insert is ignored.
+    A duplicate ride, that halts the dispatcher, ends the batch after the output of the commands before it. The shards have executed
+    the other per ride commands of that phase already, so the rides of a halted ShardedGatorTaxi may include their changes.
+ */
+public class ShardedGatorTaxi implements Closeable {
+    // number of rides of a shard, that a range print reads at a time
+    private static final int RANGE_CHUNK = 256;
+    private static final int MIN_PARALLEL_TASKS = 64;
+    // key of a shard without rides in the tournament tree
+    private static final long NO_RIDE_KEY = Long.MAX_VALUE;
+
+    // results of the per ride commands of a phase
+    private static final byte NO_RESULT = 0, FOUND = 1, NOT_FOUND = 2, DUPLICATE = 3;
+
+    private final OutputSink out;
+    // whether a duplicate ride halts the dispatcher, the shards reject it, and the dispatcher halts in command order
+    private final boolean halt;
+    // true once a duplicate ride halted the dispatcher, then execute does not execute commands any more
+    private boolean halted;
+    private final Shard[] shards;
+    private final Semaphore finished = new Semaphore(0);
+
+    // batch of the current execute, and the results of its per ride commands by offset in the batch
+    private Command[] batch;
+    private byte[] results = new byte[0];
+    private int[] resultCosts = new int[0];
+    private int[] resultDurations = new int[0];
+
+    // tournament tree over the cheapest ride of every shard: winners[1] is the shard with the cheapest ride,
+    // the leaf of shard s is winners[leafBase + s], and -1 marks an empty leaf
+    private final int leafBase;
+    private final int[] winners;
+    private final long[] minKeys;
+
+    // candidates of the range print merge and of PeekNextRides, by shard or by peeked ride
+    private final CandidateHeap candidates = new CandidateHeap();
+    private long[] peekedKeys = new long[0];
+    private int[] peekedRideNos = new int[0];
+    private int peekedCount;
+
+    ShardedGatorTaxi(OutputSink out, int shardCount, String rideIndex, String rideQueue) {
+        this(out, shardCount, rideIndex, rideQueue, DuplicatePolicy.REJECT);
+    }
+
+    ShardedGatorTaxi(OutputSink out, int shardCount, String rideIndex, String rideQueue, DuplicatePolicy duplicatePolicy) {
+        if(shardCount < 1)  throw new IllegalArgumentException("Number of shards must be at least 1: " + shardCount);
+        this.out = out;
+        this.halt = duplicatePolicy == DuplicatePolicy.HALT;
+        this.shards = new Shard[shardCount];
+        OutputSink discard = new OutputSink(Channels.newChannel(OutputStream.nullOutputStream()));
+        for(int i = 0; i < shardCount; i++)
+            shards[i] = new Shard(i, RideIndex.create(rideIndex), RideQueue.create(rideQueue), discard, halt ? DuplicatePolicy.REJECT : duplicatePolicy);
+
+        this.leafBase = Integer.highestOneBit(Math.max(shardCount - 1, 1)) << 1;
+        this.winners = new int[2 * leafBase];
+        this.minKeys = new long[shardCount];
+        Arrays.fill(winners, -1);
+        for(int i = 0; i < shardCount; i++)
+            updateLeaf(i);
+
+        for(Shard shard : shards)
+            shard.thread.start();
+    }
+
+    /*
+        This function returns the shard owning the input rideNo.
+        The ride number is scrambled first, and mapped to [0, shardCount) by a multiply and shift
+     */
+    private Shard shardOf(int rideNo) {
+        long hash = (rideNo * 0x9E3779B9) & 0xFFFFFFFFL;
+        return shards[(int) ((hash * shards.length) >>> 32)];
+    }
+
+    /*
+        This function executes the first count commands of the batch, with the same output as gatorTaxi,
+        up to the order of rides with equal cost and duration
+     */
+    public void execute(Command[] batch, int count) {
+        if(halted)  return;
+        this.batch = batch;
+        if(results.length < count) {
+            results = new byte[count];
+            resultCosts = new int[count];
+            resultDurations = new int[count];
+        }
+
+        int phaseStart = 0;
+        for(int i = 0; i < count; i++) {
+            Command command = batch[i];
+            switch(command.type) {
+                case INSERT:
+                case PRINT:
+                case UPDATE_TRIP:
+                case CANCEL_RIDE:
+                    results[i] = NO_RESULT;
+                    shardOf(command.args[0]).add(i);
+                    break;
+                default:
+                    runPhase(phaseStart, i);
+                    if(halted)  return;
+                    executeOnAllRides(command);
+                    phaseStart = i + 1;
+            }
+        }
+        runPhase(phaseStart, count);
+    }
+
+    /*
+        This function executes the tasks, that were routed to the shards for the commands batch[from, to),
+        and writes the output of these commands in command order
+     */
+    private void runPhase(int from, int to) {
+        if(from == to)  return;
+
+        if(to - from < MIN_PARALLEL_TASKS) {
+            for(Shard shard : shards)
+                shard.runTasks();
+        } else {
+            int started = 0;
+            for(Shard shard : shards) {
+                if(shard.taskCount == 0)    continue;
+                shard.work.release();
+                started++;
+            }
+            finished.acquireUninterruptibly(started);
+        }
+        for(Shard shard : shards) {
+            if(shard.changed)   updateLeaf(shard.id);
+            shard.changed = false;
+        }
+
+        for(int i = from; i < to; i++) {
+            if(results[i] == FOUND) out.writeTripletLine(batch[i].args[0], resultCosts[i], resultDurations[i]);
+            else if(results[i] == NOT_FOUND)    out.noRide();
+            else if(results[i] == DUPLICATE) {
+                // like gatorTaxi, the output ends with the duplicate
+                out.duplicateRide();
+                halted = true;
+                return;
+            }
+        }
+    }
+
+    /*
+        This function returns true, if a duplicate ride halted the dispatcher (see DuplicatePolicy.HALT)
+     */
+    public boolean isHalted() {
+        return halted;
+    }
+
+    private void executeOnAllRides(Command command) {
+        int[] inputs = command.args;
+        switch(command.type) {
+            case GET_NEXT_RIDE: getNextRides(1); break;
+            case GET_NEXT_RIDES: getNextRides(inputs[0]); break;
+            case RANGE_PRINT: rangeSearch(inputs[0], inputs[1], inputs[2], inputs[3]); break;
+            case PEEK_NEXT_RIDES: peekNextRides(inputs[0]); break;
+            default: throw new IllegalArgumentException("Not a command on all rides: " + command);
+        }
+    }
+
+    /*
+        This function sets the leaf of the input shard to its cheapest ride, and replays the matches on the path to the root
+     */
+    private void updateLeaf(int shard) {
+        RideQueue queue = shards[shard].queue;
+        minKeys[shard] = queue.isEmpty() ? NO_RIDE_KEY : MinHeap.key(queue.peekRideCost(), queue.peekTripDuration());
+        int index = leafBase + shard;
+        // the key of a real ride may be NO_RIDE_KEY too, (Integer.MAX_VALUE, Integer.MAX_VALUE)
+        winners[index] = queue.isEmpty() ? -1 : shard;
+        for(index >>>= 1; index > 0; index >>>= 1) {
+            int left = winners[2 * index], right = winners[2 * index + 1];
+            if(left < 0)    winners[index] = right;
+            else if(right < 0)  winners[index] = left;
+            else    winners[index] = minKeys[right] < minKeys[left] ? right : left;
+        }
+    }
+
+    /*
+        This function removes the k rides with the lowest cost over all shards, and prints them like gatorTaxi:
+        one ride on its own line for GetNextRide(), all rides on one comma separated line for GetNextRide(k)
+     */
+    private void getNextRides(int k) {
+        int taken = 0;
+        for(; taken < k && winners[1] >= 0; taken++) {
+            Shard shard = shards[winners[1]];
+            if(taken > 0)   out.writeByte(',');
+            out.writeTriplet(shard.queue.peekRideNo(), shard.queue.peekRideCost(), shard.queue.peekTripDuration());
+            shard.rides.delete(shard.queue.extractMin());
+            updateLeaf(shard.id);
+        }
+        if(taken == 0)  out.noActiveRides();
+        else    out.endAnswer();
+    }
+
+    /*
+        This function prints at most limit rides between rideNo1 and rideNo2 after afterRideNo, like gatorTaxi.rangeSearch.
+        Every shard is read in chunks of RANGE_CHUNK rides, and the heads of the chunks are merged by ride no
+     */
+    private void rangeSearch(int rideNo1, int rideNo2, int limit, int afterRideNo) {
+        if(afterRideNo != Command.NO_CURSOR && afterRideNo >= rideNo1) {
+            if(afterRideNo == Integer.MAX_VALUE)    rideNo2 = Integer.MIN_VALUE; // nothing after the largest ride no
+            rideNo1 = afterRideNo + 1;
+        }
+
+        candidates.clear();
+        if(limit > 0 && rideNo1 <= rideNo2) {
+            for(Shard shard : shards) {
+                if(shard.fillChunk(rideNo1, rideNo2))   candidates.push(shard.chunkRideNos[0], shard.id);
+            }
+        }
+
+        int printed = 0;
+        while(printed < limit && !candidates.isEmpty()) {
+            Shard shard = shards[candidates.pop()];
+            int position = shard.chunkPosition++;
+            if(printed++ > 0)   out.writeByte(',');
+            out.writeTriplet(shard.chunkRideNos[position], shard.chunkRideCosts[position], shard.chunkTripDurations[position]);
+
+            int lastRideNo = shard.chunkRideNos[position];
+            if(shard.chunkPosition < shard.chunkCount)  candidates.push(shard.chunkRideNos[shard.chunkPosition], shard.id);
+            else if(shard.chunkCount == RANGE_CHUNK && lastRideNo < rideNo2 && shard.fillChunk(lastRideNo + 1, rideNo2))
+                candidates.push(shard.chunkRideNos[0], shard.id);
+        }
+        if(printed == 0)    out.noRide();
+        else    out.endAnswer();
+    }
+
+    /*
+        This function prints the k rides with the lowest cost over all shards, without removing them.
+        The k cheapest rides of every shard are collected, and the k cheapest of those are printed
+     */
+    private void peekNextRides(int k) {
+        peekedCount = 0;
+        if(k > 0) {
+            for(Shard shard : shards)
+                shard.queue.peekTopK(k, shard);
+        }
+
+        candidates.clear();
+        for(int i = 0; i < peekedCount; i++)
+            candidates.push(peekedKeys[i], i);
+        int printed = 0;
+        for(; printed < k && !candidates.isEmpty(); printed++) {
+            int ride = candidates.pop();
+            if(printed > 0) out.writeByte(',');
+            out.writeTriplet(peekedRideNos[ride], MinHeap.rideCost(peekedKeys[ride]), MinHeap.tripDuration(peekedKeys[ride]));
+        }
+        if(printed == 0)    out.noActiveRides();
+        else    out.endAnswer();
+    }
+
+    /*
+        This function stops the shard threads
+     */
+    @Override
+    public void close() {
+        for(Shard shard : shards) {
+            shard.closed = true;
+            shard.work.release();
+        }
+        for(Shard shard : shards) {
+            try {
+                shard.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /*
+        One shard: the rides of a part of the ride numbers, owned by one thread.
+        It is also the visitor of its range chunks and peeked rides
+     */
+    private final class Shard implements Runnable, RideVisitor {
+        final int id;
+        final RideIndex rides;
+        final RideQueue queue;
+        // engine of the shard's rides for Insert, UpdateTrip and CancelRide, which do not print
+        final gatorTaxi engine;
+        final Thread thread;
+        final Semaphore work = new Semaphore(0);
+        volatile boolean closed;
+
+        // offsets of the commands of the current phase in the batch
+        int[] tasks = new int[16];
+        int taskCount;
+        // whether the cheapest ride of the shard may have changed in the current phase
+        boolean changed;
+        private final Ride foundRide = new Ride(0, 0, 0);
+
+        // current chunk of a range print
+        final int[] chunkRideNos = new int[RANGE_CHUNK];
+        final int[] chunkRideCosts = new int[RANGE_CHUNK];
+        final int[] chunkTripDurations = new int[RANGE_CHUNK];
+        int chunkCount;
+        int chunkPosition;
+        // whether the shard visits range chunks or peeked rides
+        private boolean collectingChunk;
+
+        Shard(int id, RideIndex rides, RideQueue queue, OutputSink discard, DuplicatePolicy duplicatePolicy) {
+            this.id = id;
+            this.rides = rides;
+            this.queue = queue;
+            this.engine = new gatorTaxi(discard, rides, queue, duplicatePolicy);
+            this.thread = new Thread(this, "gatorTaxi-shard-" + id);
+            this.thread.setDaemon(true);
+        }
+
+        void add(int offset) {
+            if(taskCount == tasks.length)   tasks = Arrays.copyOf(tasks, taskCount << 1);
+            tasks[taskCount++] = offset;
+        }
+
+        @Override
+        public void run() {
+            while(true) {
+                work.acquireUninterruptibly();
+                if(closed)  return;
+                runTasks();
+                finished.release();
+            }
+        }
+
+        /*
+            This function executes the commands routed to this shard in the current phase, in order
+         */
+        void runTasks() {
+            if(taskCount > 0)   changed = true;
+            for(int i = 0; i < taskCount; i++) {
+                int offset = tasks[i];
+                int[] inputs = batch[offset].args;
+                switch(batch[offset].type) {
+                    case INSERT:
+                        if(engine.insert(inputs[0], inputs[1], inputs[2]) == InsertStatus.REJECTED && halt) results[offset] = DUPLICATE;
+                        break;
+                    case PRINT:
+                        if(rides.search(inputs[0], foundRide)) {
+                            results[offset] = FOUND;
+                            resultCosts[offset] = foundRide.rideCost;
+                            resultDurations[offset] = foundRide.tripDuration;
+                        } else  results[offset] = NOT_FOUND;
+                        break;
+                    case UPDATE_TRIP: engine.updateTrip(inputs[0], inputs[1]); break;
+                    case CANCEL_RIDE: engine.cancelTrip(inputs[0]); break;
+                    default: break;
+                }
+            }
+            taskCount = 0;
+        }
+
+        /*
+            This function reads the first RANGE_CHUNK rides between the bounds into the chunk, it returns false if there are none
+         */
+        boolean fillChunk(int rideNo1, int rideNo2) {
+            chunkCount = chunkPosition = 0;
+            collectingChunk = true;
+            rides.rangeSearch(rideNo1, rideNo2, RANGE_CHUNK, this);
+            collectingChunk = false;
+            return chunkCount > 0;
+        }
+
+        @Override
+        public void visit(int rideNo, int rideCost, int tripDuration) {
+            if(collectingChunk) {
+                chunkRideNos[chunkCount] = rideNo;
+                chunkRideCosts[chunkCount] = rideCost;
+                chunkTripDurations[chunkCount++] = tripDuration;
+                return;
+            }
+
+            if(peekedCount == peekedKeys.length) {
+                int capacity = Math.max(16, peekedCount << 1);
+                peekedKeys = Arrays.copyOf(peekedKeys, capacity);
+                peekedRideNos = Arrays.copyOf(peekedRideNos, capacity);
+            }
+            peekedKeys[peekedCount] = MinHeap.key(rideCost, tripDuration);
+            peekedRideNos[peekedCount++] = rideNo;
+        }
+    }
+}
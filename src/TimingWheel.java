@@ -0,0 +1,225 @@
+import java.util.Arrays;
+
+/*
+    Hierarchical timing wheel (Varghese and Lauck), that keeps a deadline for ride numbers on a logical clock of ticks,
+    and returns the rides whose deadline has come, as the clock advances.
+
+    There are LEVELS wheels of SLOTS slots, a slot of level l spans SLOTS^l ticks, so the wheels together span 2^32 ticks,
+    more than any int time to live. A ride is filed into the slot of its deadline on the lowest level, whose span reaches the deadline.
+    Whenever a wheel turns over, the rides of the next slot of the level above are filed again, into lower levels (cascading),
+    so a ride moves down at most LEVELS - 1 times, and is expired by the slot of level 0 of its deadline tick.
+    Scheduling, cancelling and expiring a ride is O(1), and a tick is O(1) besides the rides it moves or expires.
+
+    The timers are kept in primitive arrays, linked into a circular doubly linked list per slot.
+    The entries 0 .. HEADS - 1 are the list heads of the slots, so an entry is unlinked without knowing its slot.
+ */
+public class TimingWheel {
+    private static final int SLOT_BITS = 8;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final int HEADS = LEVELS * SLOTS;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int NONE = -1;
+
+    private int[] rideNos;
+    private long[] deadlines;
+    private int[] levels;
+    private int[] next;
+    private int[] prev;
+    // entries in use or on the free list, the free list is linked by next
+    private int used = HEADS;
+    private int free = NONE;
+    // entry of every scheduled ride no
+    private final IntIntHashMap entries = new IntIntHashMap(NONE);
+    // scheduled rides on every level
+    private final int[] levelSizes = new int[LEVELS];
+
+    // current tick, every tick up to it is expired
+    private long now;
+    // no deadline is before this tick, it is computed again, once the clock has passed it
+    private long earliest = Long.MAX_VALUE;
+    // ride nos expired by the last advance
+    int[] expired = new int[16];
+
+    TimingWheel(long now) {
+        this.now = now;
+        int capacity = HEADS + INITIAL_CAPACITY;
+        rideNos = new int[capacity];
+        deadlines = new long[capacity];
+        levels = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        for(int head = 0; head < HEADS; head++) {
+            next[head] = head;
+            prev[head] = head;
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /*
+        This function sets the deadline tick of the ride no, which must be after the current tick.
+        A ride no, that is scheduled already, gets the new deadline
+     */
+    public void schedule(int rideNo, long deadline) {
+        int entry = entries.get(rideNo);
+        if(entry == NONE) {
+            entry = allocate();
+            rideNos[entry] = rideNo;
+            entries.put(rideNo, entry);
+        } else {
+            unlink(entry);
+        }
+        deadlines[entry] = deadline;
+        file(entry);
+        earliest = Math.min(earliest, deadline);
+    }
+
+    /*
+        This function removes the deadline of the ride no, and returns false, if it had none
+     */
+    public boolean cancel(int rideNo) {
+        int entry = entries.remove(rideNo);
+        if(entry == NONE)   return false;
+        unlink(entry);
+        release(entry);
+        return true;
+    }
+
+    /*
+        This function advances the clock tick by tick up to the input tick,
+        and returns the number of rides, whose deadline has come, their ride nos are in expired[0, count).
+        Their deadlines are removed
+     */
+    public int advance(long to) {
+        int count = 0;
+        while(now < to) {
+            if(entries.isEmpty()) {
+                // the slots are found by the deadline, so an empty wheel moves to any tick at once
+                now = to;
+                break;
+            }
+            now++;
+            for(int level = LEVELS - 1; level > 0; level--) {
+                if((now & ((1L << (SLOT_BITS * level)) - 1)) == 0)  cascade(level);
+            }
+
+            int head = (int) (now & SLOT_MASK);
+            for(int entry = next[head]; entry != head; ) {
+                int following = next[entry];
+                if(count == expired.length) expired = Arrays.copyOf(expired, count << 1);
+                expired[count++] = rideNos[entry];
+                entries.remove(rideNos[entry]);
+                levelSizes[0]--;
+                release(entry);
+                entry = following;
+            }
+            next[head] = head;
+            prev[head] = head;
+        }
+        return count;
+    }
+
+    /*
+        This function returns false, if no ride expires up to the input tick, true if some ride may.
+        The answer is based on a lower bound of the deadlines, that is computed from the first scheduled slot of every level
+     */
+    public boolean mayExpireBy(long tick) {
+        if(entries.isEmpty())   return false;
+        if(earliest <= now) earliest = deadlineBound();
+        return earliest <= tick;
+    }
+
+    /*
+        This function returns the first tick, that any scheduled ride may expire on.
+        A slot of level 0 holds the rides of one tick, a slot of a higher level holds rides from the tick, it is cascaded on
+     */
+    private long deadlineBound() {
+        long bound = Long.MAX_VALUE;
+        for(int level = 0; level < LEVELS; level++) {
+            if(levelSizes[level] == 0)  continue;
+            int shift = SLOT_BITS * level;
+            long block = now >>> shift;
+            for(int step = 1; step <= SLOTS; step++) {
+                long start = (block + step) << shift;
+                if(start >= bound)  break;
+                int head = level * SLOTS + (int) ((block + step) & SLOT_MASK);
+                if(next[head] != head) {
+                    bound = start;
+                    break;
+                }
+            }
+        }
+        return bound;
+    }
+
+    /*
+        This function files the rides of the slot of the level, that the current tick has reached, into the lower levels
+     */
+    private void cascade(int level) {
+        int head = level * SLOTS + (int) ((now >>> (SLOT_BITS * level)) & SLOT_MASK);
+        int entry = next[head];
+        next[head] = head;
+        prev[head] = head;
+        while(entry != head) {
+            int following = next[entry];
+            levelSizes[level]--;
+            file(entry);
+            entry = following;
+        }
+    }
+
+    /*
+        This function links the entry into the slot of its deadline, on the lowest level that spans the deadline from the current tick
+     */
+    private void file(int entry) {
+        long deadline = deadlines[entry];
+        long delta = Math.max(deadline - now, 0);
+        int level = 0;
+        while(level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1)))   level++;
+
+        int head = level * SLOTS + (int) ((deadline >>> (SLOT_BITS * level)) & SLOT_MASK);
+        int last = prev[head];
+        next[last] = entry;
+        prev[entry] = last;
+        next[entry] = head;
+        prev[head] = entry;
+        levels[entry] = level;
+        levelSizes[level]++;
+    }
+
+    private void unlink(int entry) {
+        next[prev[entry]] = next[entry];
+        prev[next[entry]] = prev[entry];
+        levelSizes[levels[entry]]--;
+    }
+
+    private int allocate() {
+        if(free != NONE) {
+            int entry = free;
+            free = next[entry];
+            return entry;
+        }
+        if(used == rideNos.length) {
+            int capacity = rideNos.length << 1;
+            rideNos = Arrays.copyOf(rideNos, capacity);
+            deadlines = Arrays.copyOf(deadlines, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+        }
+        return used++;
+    }
+
+    private void release(int entry) {
+        next[entry] = free;
+        free = entry;
+    }
+}
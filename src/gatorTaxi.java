@@ -1,39 +1,97 @@
 import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 /*
     GatorTaxi application that provides the information about the pending rides.
     It offers functions like:
     Print(rideNo) -> that prints the triplet (rideNo, rideCost, tripDuration)
     Print(rideNo1, rideNo2) -> that prints all triplets (rx, rideCost, tripDuration) for which rideNo1 <= rx <= rideNo2
-    Insert(rideNo, rideCost, tripDuration) -> inserts new ride if the rideno is not duplicate
+    Insert(rideNo, rideCost, tripDuration) -> inserts new ride if the rideno is not duplicate, a duplicate is handled by the DuplicatePolicy
+    Insert(rideNo, rideCost, tripDuration, ttl) -> inserts new ride, that expires after ttl commands, if it is still pending
     GetNextRide() -> returns the ride with lowest rideCost. If two rides have same rideCost, one with lower trip duration is returned
+    GetNextRide(k) -> returns and removes the k rides with lowest rideCost
+    PeekNextRides(k) -> prints the k rides with lowest rideCost, without removing them
     CancelRide(rideNo) -> deletes the triplet (rideNo, rideCost, tripDuration) if the rideNo exists
     UpdateTrip(rideNo, newTripDuration) ->
         1. if newTripDuration <= existingTripDuration, just update the tripDuration of the ride to newTripDuration
         2. if existingTripDuration < newTripDuration <= 2 * existingTripDuration, cancel the existing ride and add a new ride (rideNo, existingRideCost + 10, newTripDuration)
         3. if newTripDuration > 2 * existingTripDuration, cancel the existing ride
+
+    Time is a logical clock, that advances by one tick for every executed command, so a replay of the same commands expires the same rides.
+    A ride with a time to live of ttl ticks, inserted by the command of tick t, is cancelled right before the command of tick t + ttl.
+    An UpdateTrip, that raises the cost, adds a new ride, so its deadline starts again with the time to live of an Insert without one.
+    The deadlines are kept in a TimingWheel, that is created by the first ride with a time to live.
  */
 public class gatorTaxi {
 
-    private static final int maxSize = 2000;
-    private MinHeap minCostRides;
-    private RBT rides;
+    static final byte[] NO_RIDE = "(0,0,0)".getBytes(StandardCharsets.US_ASCII);
+    static final byte[] NO_ACTIVE_RIDES = "No active ride requests".getBytes(StandardCharsets.US_ASCII);
+    static final byte[] DUPLICATE_RIDE = "Duplicate RideNumber".getBytes(StandardCharsets.US_ASCII);
+    // number of commands, that main reads from the input before executing them as one batch
+    private static final int BATCH_SIZE = 4096;
+    // runs of consecutive Insert or Print commands shorter than this are executed one by one
+    private static final int MIN_BULK_RUN = 4;
+
+    private RideQueue minCostRides;
+    private RideIndex rides;
+    private OutputSink out;
+    private final DuplicatePolicy duplicatePolicy;
+    // true once a duplicate ride halted this gatorTaxi, then execute does not execute commands any more
+    private boolean halted;
+    // time to live of the inserted rides in ticks, if the Insert does not give one, Command.NO_TTL for none
+    private final int rideTtl;
+    // logical clock, the tick of the last executed command
+    private long clock;
+    // deadlines of the pending rides with a time to live, null until the first of them
+    private TimingWheel expiry;
+
+    // ride returned by the searches in the ride index, reused for every search
+    private final Ride foundRide = new Ride(0, 0, 0);
+    // visitor that prints the rides of a range search as a comma separated line
+    private final RangePrinter rangePrinter = new RangePrinter();
+
+    // scratch arrays of the batch execution, reused from batch to batch
+    private long[] sortKeys = new long[0];
+    private int[] sortedPositions = new int[0];
+    private int[] batchRideNos = new int[0];
+    private int[] batchRideCosts = new int[0];
+    private int[] batchTripDurations = new int[0];
+    private boolean[] batchFound = new boolean[0];
+    private final SortedSearchCollector sortedSearchCollector = new SortedSearchCollector();
+
+    gatorTaxi(OutputSink out){
+        this(out, new RBT(), new MinHeap());
+    }
+
+    gatorTaxi(OutputSink out, RideIndex rides, RideQueue minCostRides){
+        this(out, rides, minCostRides, DuplicatePolicy.REJECT);
+    }
+
+    gatorTaxi(OutputSink out, RideIndex rides, RideQueue minCostRides, DuplicatePolicy duplicatePolicy){
+        this(out, rides, minCostRides, duplicatePolicy, Command.NO_TTL);
+    }
 
-    gatorTaxi(){
-        this.minCostRides = new MinHeap(maxSize);
-        this.rides = new RBT();
+    gatorTaxi(OutputSink out, RideIndex rides, RideQueue minCostRides, DuplicatePolicy duplicatePolicy, int rideTtl){
+        this.minCostRides = minCostRides;
+        this.rides = rides;
+        this.out = out;
+        this.duplicatePolicy = duplicatePolicy;
+        this.rideTtl = rideTtl;
     }
 
     /*
         This function provides implementation of cancellation of ride with input rideNo, if it exists
      */
     public void cancelTrip(int rideNo) { //O(log(n))
-        RBTNode node = rides.search(rideNo);
-        if(node != null) {
-            rides.delete(rideNo);
-            minCostRides.deleteRide(rideNo);
+        if(rides.delete(rideNo)) {
+            minCostRides.remove(rideNo);
+            if(expiry != null)  expiry.cancel(rideNo);
         }
     }
 
@@ -44,19 +102,29 @@ public class gatorTaxi {
         3. if newTripDuration > 2 * existingTripDuration, cancel the existing ride
      */
     public void updateTrip(int rideNo, int newTripDuration) { // O(log(n))
-        RBTNode node = rides.search(rideNo);
-        if(node != null) {
-            int rideCost = node.ride.rideCost, tripDuration = node.ride.tripDuration;
+        if(rides.search(rideNo, foundRide)) {
+            int rideCost = foundRide.rideCost, tripDuration = foundRide.tripDuration;
             if(newTripDuration <= tripDuration){
-                node.ride.tripDuration = newTripDuration;
+                rides.update(rideNo, rideCost, newTripDuration);
+                minCostRides.decreaseKey(rideNo, rideCost, newTripDuration);
             }
             else if(newTripDuration > tripDuration && newTripDuration <= 2 * (tripDuration)){
-                rides.deleteRBTNode(node);
-                minCostRides.deleteRide(rideNo);
-                insert(rideNo, rideCost + 10, newTripDuration);
+                // the ride no stays the same, so the ride is updated in place, instead of deleted and inserted again.
+                // Only a larger key can be sifted down, a cost, that overflows past Integer.MAX_VALUE, is queued again
+                int newRideCost = rideCost + 10;
+                rides.update(rideNo, newRideCost, newTripDuration);
+                if(MinHeap.key(newRideCost, newTripDuration) > MinHeap.key(rideCost, tripDuration))
+                    minCostRides.increaseKey(rideNo, newRideCost, newTripDuration);
+                else {
+                    minCostRides.remove(rideNo);
+                    minCostRides.insert(rideNo, newRideCost, newTripDuration);
+                }
+                // the updated ride is a new ride, it gets the time to live of an Insert without one
+                scheduleExpiry(rideNo, Command.NO_TTL);
             } else if (newTripDuration > 2 * tripDuration) {
-                rides.deleteRBTNode(node);
-                minCostRides.deleteRide(rideNo);
+                rides.delete(rideNo);
+                minCostRides.remove(rideNo);
+                if(expiry != null)  expiry.cancel(rideNo);
             }
         }
     }
@@ -66,86 +134,513 @@ public class gatorTaxi {
         In case of tie, it returns the ride with the lowest trip duration
      */
     public void getNextRide() {
-        Ride result = minCostRides.extractMin();
-        if(result == null)   System.out.println("No active ride requests");
+        if(minCostRides.isEmpty())   out.noActiveRides();
         else {
-            System.out.println("(" + result.rideNo + "," + result.rideCost + "," + result.tripDuration + ")");
-            rides.delete(result.rideNo);
+            out.writeTripletLine(minCostRides.peekRideNo(), minCostRides.peekRideCost(), minCostRides.peekTripDuration());
+            int rideNo = minCostRides.extractMin();
+            rides.delete(rideNo);
+            if(expiry != null)  expiry.cancel(rideNo);
         }
     }
 
     /*
-        This function provides implementation of printing the ride triplets between the input rideNo1 and rideNo2
+        This function removes the k rides with the lowest cost, and prints them as one comma separated line, cheapest first.
+        The rides are taken from the ride queue one after the other, and then deleted from the ride index in order of ride no,
+        so the deletes walk the index from left to right
      */
-    public void rangeSearch(int rideNo1, int rideNo2) { // O(log(n) + S)
-        List<Ride> result = new ArrayList<>();
+    public void getNextRides(int k) { // O(k * log(n))
+        int count = Math.min(k, minCostRides.size());
+        if(count <= 0) {
+            out.noActiveRides();
+            return;
+        }
 
-        rides.rangeSearch(rideNo1, rideNo2, result);
-        StringBuilder stringBuilder = new StringBuilder();
-        if(result.size() == 0)   stringBuilder.append("(0,0,0)");
-        else {
-            stringBuilder.append("(" + result.get(0).rideNo + "," + result.get(0).rideCost + "," + result.get(0).tripDuration + ")");
-            for(int i = 1; i < result.size(); i++) {
-                stringBuilder.append(",");
-                stringBuilder.append("(" + result.get(i).rideNo + "," + result.get(i).rideCost + "," + result.get(i).tripDuration + ")");
-            }
+        ensureScratchCapacity(count);
+        for(int i = 0; i < count; i++) {
+            if(i > 0)   out.writeByte(',');
+            out.writeTriplet(minCostRides.peekRideNo(), minCostRides.peekRideCost(), minCostRides.peekTripDuration());
+            batchRideNos[i] = minCostRides.extractMin();
+            if(expiry != null)  expiry.cancel(batchRideNos[i]);
         }
+        out.endAnswer();
+        Arrays.sort(batchRideNos, 0, count);
+        rides.deleteSorted(batchRideNos, count);
+    }
 
-        System.out.println(stringBuilder.toString());
+    /*
+        This function prints the k rides with the lowest cost as one comma separated line, cheapest first, without removing them
+     */
+    public void peekNextRides(int k) { // O(k * log(k))
+        rangePrinter.count = 0;
+        if(k > 0)   minCostRides.peekTopK(k, rangePrinter);
+        if(rangePrinter.count == 0)   out.noActiveRides();
+        else    out.endAnswer();
+    }
+
+    /*
+        Visitor that prints the visited rides as comma separated triplets
+     */
+    private final class RangePrinter implements RideVisitor {
+        int count;
+
+        @Override
+        public void visit(int rideNo, int rideCost, int tripDuration) {
+            if(count++ > 0) out.writeByte(',');
+            out.writeTriplet(rideNo, rideCost, tripDuration);
+        }
+    }
+
+    /*
+        This function provides implementation of printing the ride triplets between the input rideNo1 and rideNo2.
+        The rides are streamed from the ride index straight to the output, without collecting them first
+     */
+    public void rangeSearch(int rideNo1, int rideNo2) { // O(log(n) + S)
+        rangeSearch(rideNo1, rideNo2, Command.NO_LIMIT, Command.NO_CURSOR);
+    }
+
+    /*
+        This function prints at most limit ride triplets between the input rideNo1 and rideNo2, after the ride no afterRideNo.
+        The last printed ride no is the cursor of the next page, Command.NO_CURSOR starts at rideNo1
+     */
+    public void rangeSearch(int rideNo1, int rideNo2, int limit, int afterRideNo) { // O(log(n) + min(S, limit))
+        rangePrinter.count = 0;
+        if(afterRideNo != Command.NO_CURSOR && afterRideNo >= rideNo1) {
+            if(afterRideNo == Integer.MAX_VALUE)    rideNo2 = Integer.MIN_VALUE; // nothing after the largest ride no
+            rideNo1 = afterRideNo + 1;
+        }
+        if(limit > 0 && rideNo1 <= rideNo2)   rides.rangeSearch(rideNo1, rideNo2, limit, rangePrinter);
+        if(rangePrinter.count == 0)   out.noRide();
+        else    out.endAnswer();
     }
 
     /*
         This function provides implementation of printing the triplet with input rideNo
      */
     public void print(int rideNo) { // Search and print - O(logn)
-        RBTNode node = rides.search(rideNo);
-        if(node != null) System.out.println("(" + node.ride.rideNo + "," + node.ride.rideCost + "," + node.ride.tripDuration + ")");
-        else System.out.println("(0,0,0)");
+        if(rides.search(rideNo, foundRide)) out.writeTripletLine(foundRide.rideNo, foundRide.rideCost, foundRide.tripDuration);
+        else out.noRide();
+    }
+
+    /*
+        This function provides implementation of insertion of new ride with input rideNo, rideCost, tripDuration.
+        The ride index finds a duplicate rideNo in the same search, that inserts a new ride, then the DuplicatePolicy decides.
+        With the halt policy, it prints "Duplicate RideNumber", and returns HALTED: this gatorTaxi does not execute commands any more
+     */
+    public InsertStatus insert(int rideNo, int rideCost, int tripDuration) {  // O(log(n))
+        return insert(rideNo, rideCost, tripDuration, Command.NO_TTL);
+    }
+
+    /*
+        This function inserts the ride like insert(rideNo, rideCost, tripDuration), that expires after ttl ticks.
+        Command.NO_TTL gives the ride the time to live of this gatorTaxi, if any. An upserted ride gets the new time to live
+     */
+    public InsertStatus insert(int rideNo, int rideCost, int tripDuration, int ttl) {  // O(log(n))
+        InsertStatus status;
+        if(rides.insert(rideNo, rideCost, tripDuration)) {
+            minCostRides.insert(rideNo, rideCost, tripDuration);
+            status = InsertStatus.INSERTED;
+        } else {
+            status = duplicateRide(rideNo, rideCost, tripDuration);
+            if(status != InsertStatus.UPDATED)  return status;
+        }
+
+        scheduleExpiry(rideNo, ttl);
+        return status;
+    }
+
+    /*
+        This function sets the deadline of the pending ride with input rideNo to ttl ticks from now,
+        Command.NO_TTL gives it the time to live of this gatorTaxi, and a ride without a time to live gets no deadline
+     */
+    private void scheduleExpiry(int rideNo, int ttl) {
+        if(ttl == Command.NO_TTL)   ttl = rideTtl;
+        if(ttl > 0) {
+            if(expiry == null)  expiry = new TimingWheel(clock);
+            expiry.schedule(rideNo, clock + ttl);
+        } else if(expiry != null) {
+            expiry.cancel(rideNo);
+        }
+    }
+
+    /*
+        This function loads the input rides, in any order, into this gatorTaxi, which must not have pending rides.
+        Instead of count inserts in O(n log(n)) with rotations and sifts, the rides are sorted by rideNo with a parallel sort,
+        then the ride index is built from the sorted rides and the ride queue is heapified, both in O(n) (see RideSnapshot).
+        A duplicate rideNo throws an IllegalArgumentException. The loaded rides do not expire
+     */
+    public void load(int[] rideNos, int[] rideCosts, int[] tripDurations, int count) {
+        if(!rides.isEmpty())    throw new IllegalStateException("Rides can only be loaded into a gatorTaxi without pending rides");
+        RideSnapshot.sorted(rideNos, rideCosts, tripDurations, count).load(rides, minCostRides);
+    }
+
+    /*
+        This function handles an Insert of the input rideNo, that is already pending, as the DuplicatePolicy says
+     */
+    private InsertStatus duplicateRide(int rideNo, int rideCost, int tripDuration) {
+        if(duplicatePolicy == DuplicatePolicy.UPSERT) {
+            // the old key of the ride is not known, so it is taken out of the ride queue and put back with the new one
+            rides.update(rideNo, rideCost, tripDuration);
+            minCostRides.remove(rideNo);
+            minCostRides.insert(rideNo, rideCost, tripDuration);
+            return InsertStatus.UPDATED;
+        }
+
+        if(Metrics.ENABLED) Metrics.rejectedInserts++;
+        if(duplicatePolicy == DuplicatePolicy.REJECT)   return InsertStatus.REJECTED;
+        out.duplicateRide();
+        halted = true;
+        return InsertStatus.HALTED;
+    }
+
+    /*
+        This function returns true, if a duplicate ride halted this gatorTaxi (see DuplicatePolicy.HALT)
+     */
+    public boolean isHalted() {
+        return halted;
+    }
+
+    /*
+        This function executes the input command, unless this gatorTaxi is halted
+     */
+    public void execute(Command command) {
+        if(halted)  return;
+        long start = Metrics.ENABLED ? Metrics.startCommand() : 0;
+        advanceClock(1);
+        int[] inputs = command.args;
+        switch(command.type) {
+            case INSERT: insert(inputs[0], inputs[1], inputs[2], inputs[3]); break; //If the input command is Insert, call insertion of new ride
+            case PRINT: print(inputs[0]); break; // if the print command has only one argument, then call print logic of gator taxi
+            case RANGE_PRINT: rangeSearch(inputs[0], inputs[1], inputs[2], inputs[3]); break; // if the print command has two or more arguments, then call range search of gator taxi
+            case GET_NEXT_RIDE: getNextRide(); break; //If the input command is GetNextRide, call getNextRide logic of gator taxi
+            case UPDATE_TRIP: updateTrip(inputs[0], inputs[1]); break; //If the input command is UpdateTrip, call update trip logic of gator taxi
+            case CANCEL_RIDE: cancelTrip(inputs[0]); break; //If the input command is CancelRide, call cancel ride logic of gator taxi
+            case GET_NEXT_RIDES: getNextRides(inputs[0]); break; //If the input command is GetNextRide(k), dispatch the k cheapest rides
+            case PEEK_NEXT_RIDES: peekNextRides(inputs[0]); break; //If the input command is PeekNextRides(k), print the k cheapest rides
+        }
+        if(Metrics.ENABLED) Metrics.recordCommand(command.type, start);
     }
 
     /*
-        This function provides implementation of insertion of new ride with input rideNo, rideCost, tripDuration
+        This function advances the logical clock by the input ticks, and cancels the rides, whose time to live has run out
      */
-    public void insert(int rideNo, int rideCost, int tripDuration) {  // O(log(n))
-        Ride ride = new Ride(rideNo, rideCost, tripDuration);
-        RBTNode rbtNode = new RBTNode(ride);
-        if(minCostRides.insert(ride))
-            rides.insert(rbtNode);
+    private void advanceClock(int ticks) {
+        clock += ticks;
+        if(expiry == null)  return;
+        int count = expiry.advance(clock);
+        for(int i = 0; i < count; i++) {
+            int rideNo = expiry.expired[i];
+            if(rides.delete(rideNo))    minCostRides.remove(rideNo);
+        }
+        if(Metrics.ENABLED) Metrics.expiredRides += count;
+    }
+
+    /*
+        This function returns the tick of the last executed command
+     */
+    public long clock() {
+        return clock;
+    }
+
+    /*
+        This function executes the first count commands of the batch, with the same output as executing them one by one.
+        Runs of consecutive Insert commands are loaded in bulk, and runs of consecutive Print commands are answered in one sorted pass.
+        A run, that a ride expires in, or that inserts rides with a time to live, is executed one by one.
+        A duplicate ride, that halts this gatorTaxi, ends the batch
+     */
+    public void execute(Command[] batch, int count) {
+        int index = 0;
+        while(index < count && !halted) {
+            CommandType type = batch[index].type;
+            int end = index + 1;
+            if(type == CommandType.INSERT) {
+                while(end < count && batch[end].type == CommandType.INSERT)    end++;
+            } else if(type == CommandType.PRINT || type == CommandType.RANGE_PRINT) {
+                while(end < count && (batch[end].type == CommandType.PRINT || batch[end].type == CommandType.RANGE_PRINT))    end++;
+            }
+
+            if(end - index < MIN_BULK_RUN || !isBulkRun(batch, index, end)) {
+                for(int i = index; i < end; i++)
+                    execute(batch[i]);
+            } else if(type == CommandType.INSERT) {
+                long start = Metrics.ENABLED ? Metrics.startRun() : 0;
+                insertAll(batch, index, end);
+                advanceClock(end - index);
+                if(Metrics.ENABLED) Metrics.recordCommands(CommandType.INSERT, start, end - index);
+            } else {
+                printAll(batch, index, end);
+                advanceClock(end - index);
+            }
+            index = end;
+        }
+    }
+
+    /*
+        This function returns true, if the run batch[from, to) can be executed together: no ride expires during the run,
+        and its Inserts do not give the rides a time to live
+     */
+    private boolean isBulkRun(Command[] batch, int from, int to) {
+        if(expiry != null && expiry.mayExpireBy(clock + to - from)) return false;
+        if(batch[from].type != CommandType.INSERT)  return true;
+        if(rideTtl > 0) return false;
+        for(int i = from; i < to; i++) {
+            if(batch[i].args[3] != Command.NO_TTL)  return false;
+        }
+        return true;
+    }
+
+    /*
+        This function makes sure, that the scratch arrays can hold the input number of commands
+     */
+    private void ensureScratchCapacity(int count) {
+        if(sortKeys.length >= count)    return;
+        sortKeys = new long[count];
+        sortedPositions = new int[count];
+        batchRideNos = new int[count];
+        batchRideCosts = new int[count];
+        batchTripDurations = new int[count];
+        batchFound = new boolean[count];
+    }
+
+    /*
+        This function sorts sortKeys[0, count), each key holds a rideNo in the high bits and the offset of its command in the low bits.
+        The rideNos are copied into batchRideNos in sorted order, and sortedPositions maps every command offset to its sorted position
+     */
+    private void sortByRideNo(int count) {
+        Arrays.sort(sortKeys, 0, count);
+        for(int i = 0; i < count; i++) {
+            batchRideNos[i] = (int) (sortKeys[i] >> 32);
+            sortedPositions[(int) sortKeys[i]] = i;
+        }
+    }
+
+    /*
+        This function inserts the rides of the Insert commands batch[from, to).
+        If there are no pending rides, the commands are sorted by rideNo and the ride index is built directly from the sorted rides,
+        otherwise the rides are inserted into the ride index one by one.
+        Then they are added to the ride queue
+     */
+    private void insertAll(Command[] batch, int from, int to) {
+        int count = to - from;
+        ensureScratchCapacity(count);
+
+        if(rides.isEmpty()) {
+            // sort the commands by rideNo, the offset of the command is kept in the low bits of the sort key
+            for(int i = 0; i < count; i++)
+                sortKeys[i] = ((long) batch[from + i].args[0] << 32) | i;
+            sortByRideNo(count);
+            for(int i = 1; i < count; i++) {
+                if(batchRideNos[i] == batchRideNos[i - 1]) {
+                    // a duplicate rideNo must be handled exactly where it occurs, so insert one by one
+                    for(int j = from; j < to && !halted; j++)
+                        insert(batch[j].args[0], batch[j].args[1], batch[j].args[2]);
+                    return;
+                }
+            }
+            for(int i = 0; i < count; i++) {
+                int[] inputs = batch[from + (int) sortKeys[i]].args;
+                batchRideCosts[i] = inputs[1];
+                batchTripDurations[i] = inputs[2];
+            }
+            rides.buildFromSorted(batchRideNos, batchRideCosts, batchTripDurations, count);
+        } else {
+            for(int i = from; i < to; i++) {
+                int[] inputs = batch[i].args;
+                if(!rides.insert(inputs[0], inputs[1], inputs[2])) {
+                    // the rides before the duplicate join the ride queue first, the duplicate and the rest are inserted one by one
+                    addToQueue(batch, from, i);
+                    insert(inputs[0], inputs[1], inputs[2]);
+                    for(int j = i + 1; j < to && !halted; j++)
+                        insert(batch[j].args[0], batch[j].args[1], batch[j].args[2]);
+                    return;
+                }
+            }
+        }
+        addToQueue(batch, from, to);
+    }
+
+    /*
+        This function inserts the rides of the Insert commands batch[from, to) into the ride queue.
+        If the run is at least as large as the queue, the rides are appended, and the heap is rebuilt with Floyd's heapify
+     */
+    private void addToQueue(Command[] batch, int from, int to) {
+        int count = to - from;
+        if(count >= minCostRides.size()) {
+            minCostRides.ensureCapacity(minCostRides.size() + count);
+            for(int i = from; i < to; i++)
+                minCostRides.add(batch[i].args[0], batch[i].args[1], batch[i].args[2]);
+            minCostRides.heapify();
+        } else {
+            for(int i = from; i < to; i++)
+                minCostRides.insert(batch[i].args[0], batch[i].args[1], batch[i].args[2]);
+        }
+    }
+
+    /*
+        Visitor that collects the rides found by a sorted search into the batch arrays, at the sorted position of their rideNo
+     */
+    private final class SortedSearchCollector implements RideVisitor {
+        int position;
+
+        @Override
+        public void visit(int rideNo, int rideCost, int tripDuration) {
+            // rides are visited in sorted order, the positions of rideNos that were not found are skipped
+            while(batchRideNos[position] != rideNo) position++;
+            batchFound[position] = true;
+            batchRideCosts[position] = rideCost;
+            batchTripDurations[position++] = tripDuration;
+        }
+    }
+
+    /*
+        This function answers the Print commands batch[from, to).
+        The rideNos of the single ride prints are sorted, and searched in one sorted pass over the ride index.
+        Then the results are printed in the order of the commands
+     */
+    private void printAll(Command[] batch, int from, int to) {
+        long start = Metrics.ENABLED ? Metrics.startRun() : 0;
+        ensureScratchCapacity(to - from);
+
+        int count = 0;
+        for(int i = from; i < to; i++) {
+            if(batch[i].type == CommandType.PRINT) {
+                sortKeys[count] = ((long) batch[i].args[0] << 32) | count;
+                count++;
+            }
+        }
+        sortByRideNo(count);
+        Arrays.fill(batchFound, 0, count, false);
+        sortedSearchCollector.position = 0;
+        rides.searchSorted(batchRideNos, count, sortedSearchCollector);
+        if(Metrics.ENABLED) Metrics.recordCommands(CommandType.PRINT, start, count);
+
+        int printIndex = 0;
+        for(int i = from; i < to; i++) {
+            if(batch[i].type == CommandType.PRINT) {
+                int position = sortedPositions[printIndex++];
+                if(batchFound[position])    out.writeTripletLine(batchRideNos[position], batchRideCosts[position], batchTripDurations[position]);
+                else    out.noRide();
+            } else {
+                long rangeStart = Metrics.ENABLED ? Metrics.startCommand() : 0;
+                rangeSearch(batch[i].args[0], batch[i].args[1], batch[i].args[2], batch[i].args[3]);
+                if(Metrics.ENABLED) Metrics.recordCommand(CommandType.RANGE_PRINT, rangeStart);
+            }
+        }
     }
 
     /*
         This function is the starter of GatorTaxi application
      */
     public static void main(String[] args) throws IOException {
-        gatorTaxi gTaxi = new gatorTaxi();
-
-        //Create a new output file
-        File outputFile = new File("output_file.txt");
-        //Attach the output file to print stream
-        PrintStream printStream = new PrintStream(outputFile);
-        //Redirect the system output stream to print stream, such that all print commands are redirected into the output_file.txt
-        System.setOut(printStream);
-
-        // Buffered reader that that input as the file reader with file name as passed in program arguments
-        BufferedReader bufferedReader = new BufferedReader(new FileReader(args[0]));
-        while(true) {
-            String command = bufferedReader.readLine();
-            if(command.startsWith("Insert")) { //If the input command starts with Insert, call insertion of new ride
-                String [] inputs = command.replaceAll(".*\\(|\\).*", "").trim().split(",");
-                gTaxi.insert(Integer.parseInt(inputs[0]), Integer.parseInt(inputs[1]), Integer.parseInt(inputs[2]));
-            } else if (command.startsWith("Print")) { //If the input command starts with Print
-                String [] inputs = command.replaceAll(".*\\(|\\).*", "").trim().split(",");
-                if(inputs.length == 1)  gTaxi.print(Integer.parseInt(inputs[0])); // if the command has only one argument, then call print logic of gator taxi
-                if(inputs.length == 2)  gTaxi.rangeSearch(Integer.parseInt(inputs[0]), Integer.parseInt(inputs[1])); // if the command has only two arguments, then call range search of gator taxi
-            } else if(command.startsWith("GetNextRide()")) { //If the input command starts with GetNextRide, call getNextRide logic of gator taxi
-                gTaxi.getNextRide();
-            } else if(command.startsWith("UpdateTrip")) { //If the input command starts with UpdateTrip, call update trip logic of gator taxi
-                String [] inputs = command.replaceAll(".*\\(|\\).*", "").trim().split(",");
-                gTaxi.updateTrip(Integer.parseInt(inputs[0]), Integer.parseInt(inputs[1]));
-            } else if(command.startsWith("CancelRide")) { //If the input command starts with CancelRide, call cancel ride logic of gator taxi
-                String [] inputs = command.replaceAll(".*\\(|\\).*", "").trim().split(",");
-                gTaxi.cancelTrip(Integer.parseInt(inputs[0]));
+        // -DgatorTaxi.port=<port> serves the commands of TCP clients on localhost instead of reading an input file, see GatorTaxiServer
+        Integer port = Integer.getInteger("gatorTaxi.port");
+        GatorTaxiServer server = port == null ? null : new GatorTaxiServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        // -DgatorTaxi.format=binary reads the commands in the binary format of BinaryProtocol, and writes the binary answers to output_file.bin
+        boolean binary = System.getProperty("gatorTaxi.format", "text").equals("binary");
+        if(binary && server != null)    throw new IllegalArgumentException("gatorTaxi.format=binary cannot be used with gatorTaxi.port");
+        //Create a new output file, and attach the buffered output sink to it, such that all print commands are written into the output_file.txt
+        //A server answers the print commands to the clients instead
+        OutputSink outputSink;
+        if(server != null)  outputSink = server.outputSink();
+        else if(binary) outputSink = new BinaryOutputSink(FileChannel.open(Paths.get("output_file.bin"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+        else    outputSink = new OutputSink(FileChannel.open(Paths.get("output_file.txt"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+        // The ride index and ride queue implementations can be chosen with
+        // -DgatorTaxi.rideIndex=rbt|array-rbt|bplus and -DgatorTaxi.rideQueue=binary|4-ary|pairing|bucket
+        String rideIndex = System.getProperty("gatorTaxi.rideIndex", "rbt"), rideQueue = System.getProperty("gatorTaxi.rideQueue", "binary");
+        RideIndex rides = RideIndex.create(rideIndex);
+        RideQueue minCostRides = RideQueue.create(rideQueue);
+        // -DgatorTaxi.rideStore=unified keeps every pending ride in one node of a RideStore, that is the ride index and the ride queue.
+        // It replaces the ride index and ride queue chosen above
+        boolean unified = System.getProperty("gatorTaxi.rideStore", "separate").equals("unified");
+        if(unified) {
+            RideStore rideStore = new RideStore();
+            rides = rideStore.index();
+            minCostRides = rideStore.queue();
+        }
+
+        // -DgatorTaxi.journal=<directory> keeps the pending rides in a write-ahead log with snapshots in that directory,
+        // and recovers them before the input is executed. The log is committed after every batch, and forced to the disk
+        // as -DgatorTaxi.fsync=always|interval|never says (-DgatorTaxi.fsyncInterval in ms), a snapshot is taken every
+        // -DgatorTaxi.snapshotEvery logged changes
+        String journalDirectory = System.getProperty("gatorTaxi.journal");
+        Journal journal = null;
+
+        // -DgatorTaxi.store=<path> keeps the pending rides off the Java heap, in memory-mapped files next to path,
+        // that are opened again on the next start. It replaces the ride index and ride queue chosen above
+        String storePath = System.getProperty("gatorTaxi.store");
+        MappedRideStore store = null;
+        if(storePath != null) {
+            if(journalDirectory != null)    throw new IllegalArgumentException("gatorTaxi.store and gatorTaxi.journal cannot be used together");
+            if(unified) throw new IllegalArgumentException("gatorTaxi.store and gatorTaxi.rideStore cannot be used together");
+            store = MappedRideStore.open(Paths.get(storePath));
+            rides = store.index();
+            minCostRides = store.queue();
+        }
+
+        if(journalDirectory != null) {
+            journal = new Journal(Paths.get(journalDirectory), FsyncPolicy.of(System.getProperty("gatorTaxi.fsync", "interval")),
+                    Long.getLong("gatorTaxi.fsyncInterval", 100), Long.getLong("gatorTaxi.snapshotEvery", 1_000_000));
+            rides = journal.recover(rides, minCostRides);
+        }
+        // -DgatorTaxi.duplicates=reject|upsert|halt decides what an Insert of a pending ride no does, see DuplicatePolicy.
+        // An input file halts by default: the commands after the duplicate are not executed, and main exits. A server rejects by default,
+        // it cannot halt, since the "Duplicate RideNumber" line would not be the answer of a command
+        DuplicatePolicy duplicatePolicy = DuplicatePolicy.of(System.getProperty("gatorTaxi.duplicates", server != null ? "reject" : "halt"));
+        if(duplicatePolicy == DuplicatePolicy.HALT && server != null)
+            throw new IllegalArgumentException("gatorTaxi.duplicates=halt cannot be used with gatorTaxi.port");
+        // -DgatorTaxi.rideTtl=<commands> expires every ride, that is inserted without a time to live of its own, after that many commands.
+        // The deadlines are not journaled or stored, the recovered rides do not expire
+        int rideTtl = Integer.getInteger("gatorTaxi.rideTtl", Command.NO_TTL);
+        gatorTaxi gTaxi = new gatorTaxi(outputSink, rides, minCostRides, duplicatePolicy, rideTtl);
+
+        // -DgatorTaxi.shards=<n> splits the rides over n engines, each executed by its own thread, see ShardedGatorTaxi
+        int shardCount = Integer.getInteger("gatorTaxi.shards", 0);
+        ShardedGatorTaxi sharded = null;
+        if(shardCount > 0) {
+            if(journal != null || store != null || unified)
+                throw new IllegalArgumentException("gatorTaxi.shards cannot be used with gatorTaxi.journal, gatorTaxi.store or gatorTaxi.rideStore");
+            if(rideTtl != Command.NO_TTL)   throw new IllegalArgumentException("gatorTaxi.shards cannot be used with gatorTaxi.rideTtl");
+            sharded = new ShardedGatorTaxi(outputSink, shardCount, rideIndex, rideQueue, duplicatePolicy);
+        }
+        // -DgatorTaxi.metrics=true records the count and latency of every command, see Metrics
+        if(Metrics.ENABLED) Metrics.start();
+
+        ShardedGatorTaxi shardedEngine = sharded;
+        Journal batchJournal = journal;
+        GatorTaxiServer.BatchExecutor executor = (batch, count) -> {
+            if(shardedEngine != null)   shardedEngine.execute(batch, count);
+            else    gTaxi.execute(batch, count);
+            if(batchJournal != null)    batchJournal.commit();
+        };
+        try {
+            if(server != null) {
+                System.err.println("gatorTaxi listening on " + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.port());
+                server.serve(executor);
+                return;
+            }
+
+            // Command source that reads the file passed in program arguments, as text or binary commands
+            // The commands are executed in batches of BATCH_SIZE commands
+            FileChannel input = FileChannel.open(Paths.get(args[0]), StandardOpenOption.READ);
+            try(CommandSource source = binary ? new BinaryCommandDecoder(input) : new CommandParser(input)) {
+                Command[] batch = new Command[BATCH_SIZE];
+                for(int i = 0; i < BATCH_SIZE; i++)
+                    batch[i] = new Command();
+
+                // a duplicate ride halts the engine, the rest of the input is not read, the changes before it are committed
+                int count;
+                do {
+                    count = source.nextBatch(batch);
+                    executor.execute(batch, count);
+                } while(count == BATCH_SIZE && !(sharded != null ? sharded.isHalted() : gTaxi.isHalted()));
             }
+        } finally {
+            if(server != null)  server.close();
+            if(sharded != null) sharded.close();
+            outputSink.close();
+            if(journal != null) journal.close();
+            if(store != null)   store.close();
         }
     }
 }
@@ -0,0 +1,102 @@
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/*
+    Allocation counting tests: the bytes, that the test thread allocates, are read from com.sun.management.ThreadMXBean
+    around a steady-state loop, after warm up rounds of the same loop, which grow the arrays and compile the code
+ */
+class AllocationTest {
+    private static final int RIDES = 100_000;
+    private static final int WARMUP_ROUNDS = 3;
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    /*
+        This function runs the loop WARMUP_ROUNDS times, and returns the bytes allocated by the next run.
+        Reading the counter allocates a few hundred bytes itself, so the tests assert a bound instead of 0
+     */
+    private static long allocatedBy(Runnable loop) {
+        for(int round = 0; round < WARMUP_ROUNDS; round++)
+            loop.run();
+        long before = allocatedBytes();
+        loop.run();
+        return allocatedBytes() - before;
+    }
+
+    /*
+        Sifting, removing and re-keying rides moves primitives only: the rideNo index is a primitive map, so nothing is boxed.
+        The bound leaves room for the reading of the counter, and the rare allocations of the JIT compiler
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"binary", "4-ary", "pairing", "bucket"})
+    void rideQueueOperationsDoNotAllocate(String queueName) {
+        RideQueue queue = RideQueue.create(queueName);
+        queue.ensureCapacity(RIDES);
+        for(int rideNo = 0; rideNo < RIDES; rideNo++)
+            queue.insert(rideNo, rideNo % 997, rideNo % 241);
+
+        int operations = 4 * RIDES;
+        int[] round = {0};
+        long allocated = allocatedBy(() -> {
+            round[0]++;
+            for(int rideNo = 0; rideNo < RIDES; rideNo++) {
+                int extracted = queue.extractMin();
+                queue.insert(extracted, (extracted * 31) % 997, extracted % 241);
+                queue.decreaseKey(rideNo, -round[0], 0);
+                queue.increaseKey(rideNo, 2000 + round[0], 5);
+            }
+        });
+        assertTrue(allocated < operations / 100, allocated + " bytes allocated by " + RIDES + " rounds of extractMin, insert, decreaseKey and increaseKey");
+    }
+
+    /*
+        The command loop of gatorTaxi over the ride index in primitive arrays allocates nothing per command.
+        Every iteration adds one ride and GetNextRide dispatches one, so the arrays do not grow after the warm up.
+        The B+ tree and the RBT are left out, their leaves and nodes are objects.
+        A little slack is left for the rare allocations of the JIT compiler, that are counted for the thread
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"binary", "4-ary", "pairing", "bucket"})
+    void commandLoopDoesNotAllocate(String queueName) {
+        gatorTaxi gTaxi = new gatorTaxi(new OutputSink(Channels.newChannel(OutputStream.nullOutputStream())),
+                RideIndex.create("array-rbt"), RideQueue.create(queueName));
+        for(int rideNo = 1; rideNo <= RIDES; rideNo++)
+            gTaxi.insert(rideNo, rideNo % 997, 1 + rideNo % 241);
+
+        Command print = new Command(CommandType.PRINT, 0), rangePrint = new Command(CommandType.RANGE_PRINT, 0, 0),
+                insert = new Command(CommandType.INSERT, 0, 0, 0), updateTrip = new Command(CommandType.UPDATE_TRIP, 0, 0),
+                cancelRide = new Command(CommandType.CANCEL_RIDE, 0), getNextRide = new Command(CommandType.GET_NEXT_RIDE);
+        int commands = 7 * RIDES;
+        int[] nextRideNo = {RIDES + 1};
+        long allocated = allocatedBy(() -> {
+            for(int i = 1; i <= RIDES; i++) {
+                print.args[0] = i;
+                gTaxi.execute(print);
+                rangePrint.args[0] = i;
+                rangePrint.args[1] = i + 5;
+                gTaxi.execute(rangePrint);
+                // a new ride, raised by a longer trip, cancelled and inserted again
+                int rideNo = nextRideNo[0]++, tripDuration = 1 + i % 241;
+                insert.args[0] = rideNo;
+                insert.args[1] = i % 997;
+                insert.args[2] = tripDuration;
+                gTaxi.execute(insert);
+                updateTrip.args[0] = rideNo;
+                updateTrip.args[1] = tripDuration + 1;
+                gTaxi.execute(updateTrip);
+                cancelRide.args[0] = rideNo;
+                gTaxi.execute(cancelRide);
+                gTaxi.execute(insert);
+                gTaxi.execute(getNextRide);
+            }
+        });
+        assertTrue(allocated < commands / 100, allocated + " bytes allocated by " + commands + " commands");
+    }
+}
@@ -0,0 +1,19 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/*
+    Tests of the statistics of the benchmark results
+ */
+class BenchmarkRunnerTest {
+
+    /*
+        The two-sided 99.9% quantiles of Student's t distribution, from the published tables, and the normal limit
+     */
+    @Test
+    void studentQuantileMatchesTheTables() {
+        double[][] quantiles = {{1, 636.619}, {2, 31.599}, {3, 12.924}, {4, 8.610}, {5, 6.869}, {9, 4.781}, {10, 4.587}, {29, 3.659}, {100, 3.390}, {100_000, 3.291}};
+        for(double[] quantile : quantiles)
+            assertEquals(quantile[1], BenchmarkRunner.studentQuantile(0.999, (int) quantile[0]), 0.001, "degrees of freedom " + (int) quantile[0]);
+    }
+}
@@ -0,0 +1,127 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+    Tests of the binary format: the opcodes, and the answers of a binary run, that must convert to the output of the same text commands
+ */
+class BinaryProtocolTest {
+    private static final int BATCH_SIZE = 8;
+
+    @TempDir
+    Path directory;
+
+    /*
+        The opcodes and argument counts are the format, they must not follow the order of the CommandType values
+     */
+    @Test
+    void opcodesAreFixed() {
+        Object[][] expected = {{CommandType.INSERT, 1, 3}, {CommandType.PRINT, 2, 1}, {CommandType.RANGE_PRINT, 3, 4}, {CommandType.GET_NEXT_RIDE, 4, 0},
+                {CommandType.UPDATE_TRIP, 5, 2}, {CommandType.CANCEL_RIDE, 6, 1}, {CommandType.GET_NEXT_RIDES, 7, 1}, {CommandType.PEEK_NEXT_RIDES, 8, 1}};
+        assertEquals(CommandType.values().length, expected.length);
+        for(Object[] type : expected) {
+            assertEquals(type[1], BinaryProtocol.opcode((CommandType) type[0]));
+            assertEquals(type[2], BinaryProtocol.argCount((CommandType) type[0]));
+            assertEquals(type[0], BinaryProtocol.typeOf((Integer) type[1]));
+        }
+        for(int opcode : new int[]{0, 9, -1, Byte.MIN_VALUE})
+            assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.typeOf(opcode));
+    }
+
+    /*
+        This function runs the commands of the input source on a new engine, that writes into the output sink, like main does
+     */
+    private static void run(CommandSource commands, OutputSink out) throws IOException {
+        gatorTaxi gTaxi = new gatorTaxi(out, new RBT(), new MinHeap(), DuplicatePolicy.HALT);
+        Command[] batch = new Command[BATCH_SIZE];
+        for(int i = 0; i < BATCH_SIZE; i++)
+            batch[i] = new Command();
+        int count;
+        do {
+            count = commands.nextBatch(batch);
+            gTaxi.execute(batch, count);
+        } while(count == BATCH_SIZE && !gTaxi.isHalted());
+        out.close();
+        commands.close();
+    }
+
+    /*
+        Every answer is covered: rides, no ride, an empty range, answers longer than the buffer of the sink,
+        no active rides, and the duplicate, that halts the engine
+     */
+    @Test
+    void binaryAnswersConvertToTheTextOutput() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for(int rideNo = 1; rideNo <= 40; rideNo++)
+            lines.add("Insert(" + rideNo + "," + (rideNo * 7) % 13 + "," + (rideNo * 3) % 11 + ")");
+        lines.addAll(List.of("Print(5)", "Print(99)", "Print(1,40)", "Print(50,60)", "Print(1,40,5,10)", "PeekNextRides(3)",
+                "UpdateTrip(3,1)", "UpdateTrip(4,100)", "CancelRide(6)", "Print(1,10)", "GetNextRide()", "GetNextRide(5)", "GetNextRide(100)",
+                "GetNextRide()", "GetNextRide(2)", "PeekNextRides(2)", "Print(1,40)", "Insert(7,1,1)", "Insert(7,2,2)", "Print(7)"));
+        Path textCommands = directory.resolve("input.txt"), binaryCommands = directory.resolve("input.bin");
+        Path textOutput = directory.resolve("output.txt"), binaryOutput = directory.resolve("output.bin"), convertedOutput = directory.resolve("converted.txt");
+        Files.write(textCommands, lines, StandardCharsets.US_ASCII);
+
+        run(new CommandParser(FileChannel.open(textCommands, StandardOpenOption.READ)),
+                new OutputSink(FileChannel.open(textOutput, StandardOpenOption.CREATE, StandardOpenOption.WRITE)));
+        BinaryConverter.encodeCommands(textCommands.toString(), binaryCommands.toString());
+        run(new BinaryCommandDecoder(FileChannel.open(binaryCommands, StandardOpenOption.READ), 16),
+                new BinaryOutputSink(FileChannel.open(binaryOutput, StandardOpenOption.CREATE, StandardOpenOption.WRITE), 16));
+        BinaryConverter.decodeAnswers(binaryOutput.toString(), convertedOutput.toString());
+
+        String expected = Files.readString(textOutput, StandardCharsets.US_ASCII);
+        assertEquals(expected, Files.readString(convertedOutput, StandardCharsets.US_ASCII));
+        // the run ends with the duplicate
+        assertEquals("Duplicate RideNumber" + System.lineSeparator(), expected.substring(expected.lastIndexOf("Duplicate")));
+    }
+
+    /*
+        Random commands of every type and their optional arguments, with negative and large numbers,
+        must give the same answers in both formats. The binary format has no time to live of an Insert
+     */
+    @Test
+    void randomCommandsConvertToTheTextOutput() throws IOException {
+        Random random = new Random(19);
+        List<String> lines = new ArrayList<>();
+        int nextRideNo = -2000;
+        for(int i = 0; i < 5000; i++) {
+            int rideNo = -2000 + random.nextInt(4000);
+            switch(random.nextInt(9)) {
+                // every Insert gets a new ride no, since a duplicate halts the engine
+                case 0, 1: lines.add("Insert(" + nextRideNo++ + "," + (random.nextInt(2000) - 1000) + "," + random.nextInt(Integer.MAX_VALUE) + ")"); break;
+                case 2: lines.add("Insert(" + nextRideNo++ + "," + random.nextInt(100) + "," + random.nextInt(100) + ")"); break;
+                case 3: lines.add("Print(" + rideNo + ")"); break;
+                case 4: lines.add(random.nextBoolean() ? "Print(" + rideNo + "," + (rideNo + random.nextInt(50)) + ")"
+                        : "Print(" + Integer.MIN_VALUE + "," + Integer.MAX_VALUE + "," + random.nextInt(10) + "," + rideNo + ")"); break;
+                case 5: lines.add("UpdateTrip(" + rideNo + "," + random.nextInt(Integer.MAX_VALUE) + ")"); break;
+                case 6: lines.add("CancelRide(" + rideNo + ")"); break;
+                case 7: lines.add(random.nextBoolean() ? "GetNextRide()" : "GetNextRide(" + random.nextInt(5) + ")"); break;
+                default: lines.add("PeekNextRides(" + random.nextInt(5) + ")");
+            }
+        }
+        Path textCommands = directory.resolve("input.txt"), binaryCommands = directory.resolve("input.bin");
+        Path textOutput = directory.resolve("output.txt"), binaryOutput = directory.resolve("output.bin"), convertedOutput = directory.resolve("converted.txt");
+        Files.write(textCommands, lines, StandardCharsets.US_ASCII);
+
+        run(new CommandParser(FileChannel.open(textCommands, StandardOpenOption.READ)),
+                new OutputSink(FileChannel.open(textOutput, StandardOpenOption.CREATE, StandardOpenOption.WRITE)));
+        BinaryConverter.encodeCommands(textCommands.toString(), binaryCommands.toString());
+        run(new BinaryCommandDecoder(FileChannel.open(binaryCommands, StandardOpenOption.READ), 16),
+                new BinaryOutputSink(FileChannel.open(binaryOutput, StandardOpenOption.CREATE, StandardOpenOption.WRITE), 16));
+        BinaryConverter.decodeAnswers(binaryOutput.toString(), convertedOutput.toString());
+
+        String expected = Files.readString(textOutput, StandardCharsets.US_ASCII);
+        assertEquals(expected, Files.readString(convertedOutput, StandardCharsets.US_ASCII));
+        assertEquals(false, expected.contains("Duplicate"));
+    }
+}
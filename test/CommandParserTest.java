@@ -0,0 +1,75 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/*
+    Tests of the text command parser
+ */
+class CommandParserTest {
+
+    private static CommandParser parser(String input) {
+        return new CommandParser(Channels.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII))), 16);
+    }
+
+    @Test
+    void parsesEveryCommand() throws IOException {
+        CommandParser parser = parser("Insert(5,50,120)\nInsert(6, -50, 120, 7)\r\n\nPrint(5)\nPrint(1,6)\nPrint(1,6,10,3)\n"
+                + "GetNextRide()\nGetNextRide(3)\nPeekNextRides(2)\nUpdateTrip(5,130)\nCancelRide(6)\nbogus\n");
+        Object[][] expected = {{CommandType.INSERT, new int[]{5, 50, 120}}, {CommandType.INSERT, new int[]{6, -50, 120, 7}},
+                {CommandType.PRINT, new int[]{5}}, {CommandType.RANGE_PRINT, new int[]{1, 6}}, {CommandType.RANGE_PRINT, new int[]{1, 6, 10, 3}},
+                {CommandType.GET_NEXT_RIDE, new int[0]}, {CommandType.GET_NEXT_RIDES, new int[]{3}}, {CommandType.PEEK_NEXT_RIDES, new int[]{2}},
+                {CommandType.UPDATE_TRIP, new int[]{5, 130}}, {CommandType.CANCEL_RIDE, new int[]{6}}};
+        for(Object[] command : expected) {
+            assertEquals(command[0], parser.next());
+            assertArrayEquals((int[]) command[1], Arrays.copyOf(parser.args, parser.argCount));
+        }
+        assertNull(parser.next());
+    }
+
+    /*
+        The parsed commands are copied into reused Command objects, a short command must not run with the arguments of an earlier one
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"Insert(1,2)", "Insert()", "Print()", "UpdateTrip(1)", "CancelRide()", "PeekNextRides()"})
+    void rejectsMissingArguments(String line) throws IOException {
+        CommandParser parser = parser("Insert(7,8,9)\n" + line + "\nPrint(7)\n");
+        assertEquals(CommandType.INSERT, parser.next());
+        assertThrows(NumberFormatException.class, parser::next);
+        assertEquals(CommandType.PRINT, parser.next());
+        assertEquals(7, parser.args[0]);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Insert(1,2,3,4,5)", "Print(1,x)", "CancelRide(2147483648)", "Print(-)"})
+    void rejectsInvalidArguments(String line) {
+        assertThrows(NumberFormatException.class, () -> parser(line + "\n").next());
+    }
+
+    /*
+        A line longer than the buffer grows the buffer, the optional arguments of a short command get their defaults
+     */
+    @Test
+    void fillsInTheDefaultsOfOptionalArguments() throws IOException {
+        CommandParser parser = parser("Insert(1,2,3,4)\n" + " ".repeat(40) + "Print(1,   2)\nInsert(5,6,7)\n");
+        Command[] batch = {new Command(), new Command(), new Command()};
+        assertEquals(3, parser.nextBatch(batch));
+        assertEquals("Insert(1,2,3,4)", batch[0].toString());
+        assertEquals("Print(1,2)", batch[1].toString());
+        assertEquals(Command.NO_LIMIT, batch[1].args[2]);
+        assertEquals(Command.NO_CURSOR, batch[1].args[3]);
+        assertEquals("Insert(5,6,7)", batch[2].toString());
+        // a reused command does not keep the time to live of the Insert before
+        batch[0].set(CommandType.INSERT, new int[]{5, 6, 7}, 3);
+        assertEquals(Command.NO_TTL, batch[0].args[3]);
+    }
+}
@@ -0,0 +1,199 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+/*
+    Stress tests of ConcurrentGatorTaxi, in the style of jcstress: two actors race on a small fresh engine many times,
+    and every outcome must be one of a sequential order of their operations.
+    The conservation test lets many threads insert, update, cancel and dispatch, and checks that every ride leaves exactly once
+ */
+class ConcurrentGatorTaxiTest {
+    private static final int RACES = 20_000;
+
+    /*
+        Two actors, each a sequence of operations, that are started together on their own threads for every race.
+        The actors record their outcome in arrays of the test, run returns once both are done
+     */
+    private static final class Race {
+        private final CyclicBarrier start = new CyclicBarrier(3);
+        private final CyclicBarrier end = new CyclicBarrier(3);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private volatile Runnable actor1, actor2;
+        private volatile boolean done;
+
+        Race() {
+            startActor(() -> actor1);
+            startActor(() -> actor2);
+        }
+
+        private void startActor(Supplier<Runnable> actor) {
+            Thread thread = new Thread(() -> {
+                while(true) {
+                    await(start);
+                    if(done)    return;
+                    try {
+                        actor.get().run();
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                    await(end);
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void run(Runnable actor1, Runnable actor2) {
+            this.actor1 = actor1;
+            this.actor2 = actor2;
+            await(start);
+            await(end);
+            if(failure.get() != null)   throw new AssertionError(failure.get());
+        }
+
+        void close() {
+            done = true;
+            await(start);
+        }
+
+        private static void await(CyclicBarrier barrier) {
+            try {
+                barrier.await();
+            } catch (InterruptedException | BrokenBarrierException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static int rideNo(Ride ride) {
+        return ride == null ? 0 : ride.rideNo;
+    }
+
+    /*
+        A GetNextRide races with an Insert of a cheaper ride followed by a Print of the ride, that was the cheapest.
+        Allowed: GetNextRide first (1, not found), or after the Insert (2, found). Forbidden: it dispatches 1, after Print still found 1
+     */
+    @Test
+    void getNextRideDoesNotTakeARideThatIsNoLongerTheCheapest() {
+        Race race = new Race();
+        for(int i = 0; i < RACES; i++) {
+            ConcurrentGatorTaxi gTaxi = new ConcurrentGatorTaxi(4);
+            gTaxi.insert(1, 10, 10);
+            int[] outcome = new int[2];
+            race.run(() -> outcome[0] = rideNo(gTaxi.getNextRide()),
+                    () -> {
+                        gTaxi.insert(2, 5, 10);
+                        outcome[1] = rideNo(gTaxi.print(1));
+                    });
+            boolean first = outcome[0] == 1 && outcome[1] == 0, second = outcome[0] == 2 && outcome[1] == 1;
+            assertTrue(first || second, "forbidden outcome getNextRide=" + outcome[0] + " print(1)=" + outcome[1]);
+        }
+        race.close();
+    }
+
+    /*
+        A GetNextRide races with an UpdateTrip of the cheapest ride, which stays the cheapest either way.
+        Allowed: GetNextRide dispatches 1, before or after the update. Forbidden: it dispatches 2, while 1 is being updated
+     */
+    @Test
+    void updateTripNeverHidesAPendingRide() {
+        Race race = new Race();
+        for(int i = 0; i < RACES; i++) {
+            ConcurrentGatorTaxi gTaxi = new ConcurrentGatorTaxi(4);
+            gTaxi.insert(1, 5, 10);
+            gTaxi.insert(2, 20, 10);
+            int[] outcome = new int[1];
+            // a longer trip raises the cost to 15, a shorter one keeps it
+            int newTripDuration = i % 2 == 0 ? 11 : 9;
+            race.run(() -> outcome[0] = rideNo(gTaxi.getNextRide()),
+                    () -> gTaxi.updateTrip(1, newTripDuration));
+            assertEquals(1, outcome[0], "getNextRide must dispatch the cheapest ride");
+        }
+        race.close();
+    }
+
+    /*
+        Two GetNextRide race for two rides: each ride is dispatched exactly once
+     */
+    @Test
+    void getNextRideDispatchesEveryRideOnce() {
+        Race race = new Race();
+        for(int i = 0; i < RACES; i++) {
+            ConcurrentGatorTaxi gTaxi = new ConcurrentGatorTaxi(4);
+            gTaxi.insert(1, 5, 10);
+            gTaxi.insert(2, 20, 10);
+            int[] outcome = new int[2];
+            race.run(() -> outcome[0] = rideNo(gTaxi.getNextRide()), () -> outcome[1] = rideNo(gTaxi.getNextRide()));
+            assertEquals(3, outcome[0] + outcome[1]);
+            assertNull(gTaxi.getNextRide());
+        }
+        race.close();
+    }
+
+    /*
+        Threads insert rides of their own ride numbers, shorten and cancel some of them, and dispatch rides of all threads.
+        Afterwards every ride was either cancelled or dispatched, and never both or twice
+     */
+    @Test
+    void everyRideLeavesExactlyOnce() throws InterruptedException {
+        int threads = 8, ridesPerThread = 20_000;
+        ConcurrentGatorTaxi gTaxi = new ConcurrentGatorTaxi(16);
+        Set<Integer> left = ConcurrentHashMap.newKeySet();
+        AtomicInteger cancelled = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> workers = new ArrayList<>();
+        for(int thread = 0; thread < threads; thread++) {
+            int first = thread * ridesPerThread + 1;
+            workers.add(new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(first);
+                try {
+                    for(int rideNo = first; rideNo < first + ridesPerThread; rideNo++) {
+                        int tripDuration = random.nextInt(100);
+                        assertTrue(gTaxi.insert(rideNo, random.nextInt(100), tripDuration));
+                        int choice = random.nextInt(4);
+                        if(choice == 0 && gTaxi.cancelTrip(rideNo - random.nextInt(rideNo - first + 1)))
+                            cancelled.incrementAndGet();
+                        if(choice == 1) {
+                            Ride ride = gTaxi.getNextRide();
+                            if(ride != null)    assertTrue(left.add(ride.rideNo), "ride dispatched twice: " + ride.rideNo);
+                        }
+                        // a shorter trip never cancels the ride
+                        if(choice == 2) gTaxi.updateTrip(rideNo, random.nextInt(tripDuration + 1));
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for(Thread worker : workers)
+            worker.join();
+        if(failure.get() != null)   throw new AssertionError(failure.get());
+
+        List<Ride> pending = gTaxi.rangeSearch(1, threads * ridesPerThread);
+        for(Ride ride : pending)
+            assertFalse(left.contains(ride.rideNo), "dispatched ride still pending: " + ride.rideNo);
+        int previousCost = Integer.MIN_VALUE, previousDuration = Integer.MIN_VALUE;
+        for(Ride ride; (ride = gTaxi.getNextRide()) != null; ) {
+            assertTrue(ride.rideCost > previousCost || (ride.rideCost == previousCost && ride.tripDuration >= previousDuration));
+            previousCost = ride.rideCost;
+            previousDuration = ride.tripDuration;
+            assertTrue(left.add(ride.rideNo), "ride dispatched twice: " + ride.rideNo);
+        }
+        assertEquals(threads * ridesPerThread, left.size() + cancelled.get());
+        assertTrue(gTaxi.rangeSearch(1, threads * ridesPerThread).isEmpty());
+    }
+}
@@ -0,0 +1,217 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/*
+    Differential test of every engine against the reference, an RBT with a binary MinHeap, that executes the commands one by one.
+    The engine under test executes the same random commands in batches, so runs of Inserts and Prints take the bulk paths,
+    and must print the same output after every batch.
+    Every trip duration is used once, so no two pending rides have the same (rideCost, tripDuration) and the order of GetNextRide is unique
+ */
+class DifferentialTest {
+    private static final int BATCHES = 300;
+    private static final int MAX_BATCH_SIZE = 64;
+    private static final int RIDE_NOS = 3000;
+
+    @TempDir
+    Path directory;
+
+    static Stream<Arguments> engines() {
+        List<Arguments> engines = new ArrayList<>();
+        for(String indexName : new String[]{"rbt", "array-rbt", "bplus"}) {
+            for(String queueName : new String[]{"binary", "4-ary", "pairing", "bucket"}) {
+                engines.add(Arguments.of(indexName, queueName, false));
+                engines.add(Arguments.of(indexName, queueName, true));
+            }
+        }
+        for(String storeName : new String[]{"unified", "mapped"}) {
+            engines.add(Arguments.of(storeName, storeName, false));
+            engines.add(Arguments.of(storeName, storeName, true));
+        }
+        // shards do not expire rides
+        engines.add(Arguments.of("sharded", "sharded", false));
+        return engines.stream();
+    }
+
+    /*
+        Engine under test, with the output it printed and what has to be closed after the test
+     */
+    private static final class Engine {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final OutputSink out = new OutputSink(Channels.newChannel(bytes));
+        gatorTaxi gTaxi;
+        ShardedGatorTaxi sharded;
+        Closeable store;
+
+        void execute(Command[] batch, int count) {
+            if(sharded != null) sharded.execute(batch, count);
+            else    gTaxi.execute(batch, count);
+        }
+
+        String output() throws IOException {
+            out.flush();
+            String output = bytes.toString(StandardCharsets.US_ASCII);
+            bytes.reset();
+            return output;
+        }
+    }
+
+    private Engine engine(String indexName, String queueName) throws IOException {
+        Engine engine = new Engine();
+        switch(indexName) {
+            case "unified":
+                RideStore rideStore = new RideStore();
+                engine.gTaxi = new gatorTaxi(engine.out, rideStore.index(), rideStore.queue());
+                break;
+            case "mapped":
+                MappedRideStore mappedStore = MappedRideStore.open(directory.resolve("store"));
+                engine.gTaxi = new gatorTaxi(engine.out, mappedStore.index(), mappedStore.queue());
+                engine.store = mappedStore;
+                break;
+            case "sharded":
+                engine.sharded = new ShardedGatorTaxi(engine.out, 3, "rbt", "binary");
+                engine.store = engine.sharded;
+                break;
+            default:
+                engine.gTaxi = new gatorTaxi(engine.out, RideIndex.create(indexName), RideQueue.create(queueName));
+        }
+        return engine;
+    }
+
+    /*
+        This function parses the input command lines into the batch, and returns their count
+     */
+    private static int parse(List<String> lines, Command[] batch) throws IOException {
+        CommandParser parser = new CommandParser(Channels.newChannel(new ByteArrayInputStream((String.join("\n", lines) + "\n").getBytes(StandardCharsets.US_ASCII))));
+        return parser.nextBatch(batch);
+    }
+
+    /*
+        Generator of random commands, that reads the pending rides from the ride index of the reference,
+        to update rides into each of the three cases of UpdateTrip
+     */
+    private static final class Commands {
+        private final Random random;
+        private final RideIndex rides;
+        private final boolean withTtl;
+        private final Set<Integer> usedDurations = new HashSet<>();
+        private final Ride ride = new Ride(0, 0, 0);
+
+        Commands(long seed, RideIndex rides, boolean withTtl) {
+            this.random = new Random(seed);
+            this.rides = rides;
+            this.withTtl = withTtl;
+        }
+
+        /*
+            This function returns a trip duration in [low, high], that was not used before, or -1 if none was found
+         */
+        private int freshDuration(int low, int high) {
+            for(int attempt = 0; attempt < 20; attempt++) {
+                int tripDuration = low + random.nextInt(high - low + 1);
+                if(usedDurations.add(tripDuration)) return tripDuration;
+            }
+            return -1;
+        }
+
+        private int rideNo() {
+            return random.nextInt(RIDE_NOS);
+        }
+
+        /*
+            This function returns the next command line, that often repeats the kind of the previous one
+         */
+        String next(String previous) {
+            int choice = random.nextInt(100);
+            // runs of Inserts and Prints, that are long enough for the bulk paths
+            if(previous != null && random.nextInt(3) == 0)  choice = previous.startsWith("Insert") ? 0 : previous.startsWith("Print") ? 40 : choice;
+            if(choice < 35) {
+                int tripDuration = random.nextBoolean() ? freshDuration(1, 500) : -1;
+                if(tripDuration < 0)    tripDuration = freshDuration(1, 1 << 20);
+                if(tripDuration < 0)    return "GetNextRide()";
+                String ride = rideNo() + "," + random.nextInt(random.nextBoolean() ? 50 : 3000) + "," + tripDuration;
+                return withTtl && random.nextInt(5) == 0 ? "Insert(" + ride + "," + (1 + random.nextInt(200)) + ")" : "Insert(" + ride + ")";
+            }
+            if(choice < 50) return "Print(" + rideNo() + ")";
+            if(choice < 55) {
+                int rideNo1 = rideNo();
+                return "Print(" + rideNo1 + "," + (rideNo1 + random.nextInt(300)) + ")";
+            }
+            if(choice < 60) {
+                int rideNo1 = rideNo();
+                return "Print(" + rideNo1 + "," + (rideNo1 + random.nextInt(300)) + "," + (1 + random.nextInt(5)) + "," + (rideNo1 + random.nextInt(100)) + ")";
+            }
+            if(choice < 75) {
+                int rideNo = rideNo(), tripDuration = -1;
+                if(rides.search(rideNo, ride)) {
+                    int existing = ride.tripDuration, kind = random.nextInt(3);
+                    if(kind == 0 || existing > 1 << 28)   tripDuration = freshDuration(1, existing);
+                    else if(kind == 1)  tripDuration = freshDuration(existing + 1, 2 * existing);
+                    else    tripDuration = freshDuration(2 * existing + 1, 2 * existing + 1000);
+                }
+                // an update of a ride, that is not pending, or without a fresh trip duration
+                return "UpdateTrip(" + rideNo + "," + (tripDuration < 0 ? freshDuration(1, Integer.MAX_VALUE - 1) : tripDuration) + ")";
+            }
+            if(choice < 85) return "CancelRide(" + rideNo() + ")";
+            if(choice < 92) return "GetNextRide()";
+            if(choice < 96) return "GetNextRide(" + random.nextInt(8) + ")";
+            return "PeekNextRides(" + random.nextInt(8) + ")";
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    void answersLikeTheReference(String indexName, String queueName, boolean withTtl) throws IOException {
+        ByteArrayOutputStream referenceBytes = new ByteArrayOutputStream();
+        OutputSink referenceOut = new OutputSink(Channels.newChannel(referenceBytes));
+        RBT referenceRides = new RBT();
+        gatorTaxi reference = new gatorTaxi(referenceOut, referenceRides, new MinHeap());
+        Engine engine = engine(indexName, queueName);
+        Commands commands = new Commands(indexName.hashCode() * 31L + queueName.hashCode(), referenceRides, withTtl);
+
+        Command[] batch = new Command[MAX_BATCH_SIZE];
+        for(int i = 0; i < MAX_BATCH_SIZE; i++)
+            batch[i] = new Command();
+        Command[] single = {new Command()};
+        Random random = new Random(BATCHES);
+        try {
+            for(int b = 0; b < BATCHES; b++) {
+                List<String> lines = new ArrayList<>();
+                int size = 1 + random.nextInt(MAX_BATCH_SIZE);
+                // the ride set grows in the first batches, and is drained by GetNextRide in some of the later ones
+                boolean drain = b > BATCHES / 2 && b % 10 == 0;
+                for(int i = 0; i < size; i++) {
+                    String line = drain ? "GetNextRide(" + random.nextInt(50) + ")" : commands.next(lines.isEmpty() ? null : lines.get(lines.size() - 1));
+                    lines.add(line);
+                    parse(List.of(line), single);
+                    reference.execute(single[0]);
+                }
+                assertEquals(size, parse(lines, batch));
+                engine.execute(batch, size);
+
+                referenceOut.flush();
+                String expected = referenceBytes.toString(StandardCharsets.US_ASCII);
+                referenceBytes.reset();
+                assertEquals(expected, engine.output(), "batch " + b + ": " + lines);
+            }
+        } finally {
+            if(engine.store != null)    engine.store.close();
+        }
+    }
+}
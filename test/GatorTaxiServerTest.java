@@ -0,0 +1,194 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/*
+    Tests of the GatorTaxiServer with real TCP clients on localhost
+ */
+class GatorTaxiServerTest {
+    private static final int TIMEOUT_MILLIS = 10_000;
+
+    private GatorTaxiServer server;
+    private Thread serverThread;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new GatorTaxiServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        gatorTaxi engine = new gatorTaxi(server.outputSink(), new RBT(), new MinHeap(), DuplicatePolicy.REJECT);
+        serverThread = new Thread(() -> {
+            try {
+                server.serve(engine::execute);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, "gatorTaxi-server");
+        serverThread.start();
+    }
+
+    @AfterEach
+    void stopServer() throws IOException, InterruptedException {
+        server.close();
+        serverThread.join(TIMEOUT_MILLIS);
+    }
+
+    /*
+        One client connection, that sends command lines and reads answer lines
+     */
+    private final class Client implements AutoCloseable {
+        final Socket socket;
+        final OutputStream output;
+        final BufferedReader input;
+
+        Client() throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), server.port());
+            socket.setSoTimeout(TIMEOUT_MILLIS);
+            output = socket.getOutputStream();
+            input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        }
+
+        void send(String... lines) throws IOException {
+            output.write((String.join("\n", lines) + "\n").getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+        }
+
+        String readLine() throws IOException {
+            return input.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Test
+    void answersEveryClientInTheOrderOfItsCommands() throws IOException {
+        try(Client client1 = new Client(); Client client2 = new Client()) {
+            client1.send("Insert(1,10,20)", "Insert(2,5,30)", "Print(1,2)");
+            assertEquals("(1,10,20),(2,5,30)", client1.readLine());
+            client2.send("Print(2)", "GetNextRide()", "Print(2)", "Insert(1,1,1)");
+            assertEquals("(2,5,30)", client2.readLine());
+            assertEquals("(2,5,30)", client2.readLine());
+            assertEquals("(0,0,0)", client2.readLine());
+            client1.send("GetNextRide()", "GetNextRide()");
+            assertEquals("(1,10,20)", client1.readLine());
+            assertEquals("No active ride requests", client1.readLine());
+        }
+    }
+
+    /*
+        A short command of one client would run with the arguments of an earlier command in the same slot of the shared batch.
+        The server closes that connection instead, and the other client sees no ride from it
+     */
+    @Test
+    void closesAConnectionThatSendsAShortCommand() throws IOException {
+        try(Client client1 = new Client(); Client client2 = new Client()) {
+            client1.send("Insert(1,10,20)", "Print(1)");
+            assertEquals("(1,10,20)", client1.readLine());
+
+            client2.send("Insert(5,6,7)", "Insert(9,2)", "Print(5)");
+            assertNull(client2.readLine(), "the connection must be closed without answers");
+
+            client1.send("Print(9)", "Print(5)", "Print(1)");
+            assertEquals("(0,0,0)", client1.readLine());
+            assertEquals("(5,6,7)", client1.readLine());
+            assertEquals("(1,10,20)", client1.readLine());
+        }
+    }
+
+    /*
+        This function returns the answers of the input command lines, executed one by one on a new engine
+     */
+    private static List<String> answers(List<String> lines) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputSink out = new OutputSink(Channels.newChannel(bytes));
+        gatorTaxi gTaxi = new gatorTaxi(out, new RBT(), new MinHeap(), DuplicatePolicy.REJECT);
+        CommandParser parser = new CommandParser(Channels.newChannel(new ByteArrayInputStream((String.join("\n", lines) + "\n").getBytes(StandardCharsets.US_ASCII))));
+        Command command = new Command();
+        CommandType type;
+        while((type = parser.next()) != null) {
+            command.set(type, parser.args, parser.argCount);
+            gTaxi.execute(command);
+        }
+        out.flush();
+        return bytes.toString(StandardCharsets.US_ASCII).lines().toList();
+    }
+
+    /*
+        Clients pipeline thousands of commands without waiting for answers, in writes that split lines,
+        so their commands fill many reads and batches, mixed with the commands of the other clients.
+        Every client works on rides of its own, and gets the answers of its commands, in order
+     */
+    @Test
+    void answersPipelinedCommandsOfManyClients() throws Exception {
+        int clientCount = 4, commandCount = 10_000;
+        List<Client> clients = new ArrayList<>();
+        List<Thread> writers = new ArrayList<>();
+        List<List<String>> expected = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        try {
+            for(int c = 0; c < clientCount; c++) {
+                Random random = new Random(c);
+                List<String> lines = new ArrayList<>();
+                for(int i = 0; i < commandCount; i++) {
+                    int rideNo = c * 1000 + random.nextInt(1000);
+                    switch(random.nextInt(6)) {
+                        case 0, 1: lines.add("Insert(" + rideNo + "," + random.nextInt(100) + "," + (1 + random.nextInt(100)) + ")"); break;
+                        case 2: lines.add("Print(" + rideNo + ")"); break;
+                        case 3: lines.add("Print(" + rideNo + "," + Math.min(rideNo + random.nextInt(20), c * 1000 + 999) + ")"); break;
+                        case 4: lines.add("UpdateTrip(" + rideNo + "," + (1 + random.nextInt(150)) + ")"); break;
+                        default: lines.add("CancelRide(" + rideNo + ")");
+                    }
+                }
+                expected.add(answers(lines));
+
+                Client client = new Client();
+                clients.add(client);
+                byte[] bytes = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.US_ASCII);
+                Thread writer = new Thread(() -> {
+                    try {
+                        for(int offset = 0; offset < bytes.length; ) {
+                            int length = Math.min(1 + random.nextInt(700), bytes.length - offset);
+                            client.output.write(bytes, offset, length);
+                            client.output.flush();
+                            offset += length;
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+                writers.add(writer);
+            }
+            writers.forEach(Thread::start);
+            for(int c = 0; c < clientCount; c++) {
+                for(String answer : expected.get(c))
+                    assertEquals(answer, clients.get(c).readLine(), "client " + c);
+            }
+            for(Thread writer : writers)
+                writer.join(TIMEOUT_MILLIS);
+            assertNull(failure.get());
+        } finally {
+            for(Client client : clients)
+                client.close();
+        }
+    }
+}
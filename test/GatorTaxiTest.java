@@ -0,0 +1,212 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/*
+    Tests of the commands of gatorTaxi, run as text commands on an engine, that writes its output into a byte array
+ */
+class GatorTaxiTest {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final OutputSink out = new OutputSink(Channels.newChannel(bytes));
+
+    private gatorTaxi engine(String queueName, DuplicatePolicy duplicatePolicy, int rideTtl) {
+        if(queueName.equals("unified")) {
+            RideStore rideStore = new RideStore();
+            return new gatorTaxi(out, rideStore.index(), rideStore.queue(), duplicatePolicy, rideTtl);
+        }
+        return new gatorTaxi(out, RideIndex.create("rbt"), RideQueue.create(queueName), duplicatePolicy, rideTtl);
+    }
+
+    /*
+        This function executes the input command lines one by one, and returns what was printed since the last call
+     */
+    private String execute(gatorTaxi gTaxi, String... lines) {
+        for(String line : lines) {
+            CommandParser parser = new CommandParser(Channels.newChannel(new ByteArrayInputStream(line.getBytes(StandardCharsets.US_ASCII))));
+            try {
+                CommandType type = parser.next();
+                Command command = new Command();
+                command.set(type, parser.args, parser.argCount);
+                gTaxi.execute(command);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String output = bytes.toString(StandardCharsets.US_ASCII);
+        bytes.reset();
+        return output;
+    }
+
+    /*
+        UpdateTrip raises the cost by 10, which overflows for a cost near Integer.MAX_VALUE: the ride gets the cheapest
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"binary", "4-ary", "pairing", "bucket", "unified"})
+    void updateTripQueuesARideAgainWhenItsCostOverflows(String queueName) {
+        gatorTaxi gTaxi = engine(queueName, DuplicatePolicy.REJECT, Command.NO_TTL);
+        execute(gTaxi, "Insert(2,0,10)", "Insert(3,100,10)", "Insert(1," + (Integer.MAX_VALUE - 5) + ",10)", "UpdateTrip(1,15)");
+        assertEquals("(1," + (Integer.MIN_VALUE + 4) + ",15)\n(2,0,10)\n(3,100,10)\n",
+                execute(gTaxi, "GetNextRide()", "GetNextRide()", "GetNextRide()"));
+    }
+
+    /*
+        A ride with a time to live, that UpdateTrip replaces by a costlier one, gets the time to live of the gatorTaxi
+     */
+    @Test
+    void updateTripRestartsTheTimeToLiveOfTheNewRide() {
+        gatorTaxi gTaxi = engine("binary", DuplicatePolicy.REJECT, Command.NO_TTL);
+        execute(gTaxi, "Insert(1,10,10,3)", "UpdateTrip(1,15)");
+        assertEquals("(1,20,15)\n(1,20,15)\n(1,20,15)\n", execute(gTaxi, "Print(1)", "Print(1)", "Print(1)"));
+
+        gTaxi = engine("binary", DuplicatePolicy.REJECT, 3);
+        execute(gTaxi, "Insert(1,10,10,100)", "UpdateTrip(1,15)");
+        assertEquals("(1,20,15)\n(1,20,15)\n(0,0,0)\n", execute(gTaxi, "Print(1)", "Print(1)", "Print(1)"));
+    }
+
+    /*
+        A shorter trip keeps the ride, and its deadline
+     */
+    @Test
+    void updateTripKeepsTheTimeToLiveOfAShorterTrip() {
+        gatorTaxi gTaxi = engine("binary", DuplicatePolicy.REJECT, Command.NO_TTL);
+        execute(gTaxi, "Insert(1,10,10,3)", "UpdateTrip(1,5)");
+        assertEquals("(1,10,5)\n(0,0,0)\n", execute(gTaxi, "Print(1)", "Print(1)"));
+    }
+
+    /*
+        This function parses the input command lines into a batch
+     */
+    private static Command[] batch(String... lines) {
+        CommandParser parser = new CommandParser(Channels.newChannel(new ByteArrayInputStream((String.join("\n", lines) + "\n").getBytes(StandardCharsets.US_ASCII))));
+        Command[] batch = new Command[lines.length];
+        for(int i = 0; i < lines.length; i++)
+            batch[i] = new Command();
+        try {
+            assertEquals(lines.length, parser.nextBatch(batch));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return batch;
+    }
+
+    @Test
+    void embeddedEnginesRejectDuplicatesByDefault() throws IOException {
+        gatorTaxi gTaxi = new gatorTaxi(out);
+        assertEquals(InsertStatus.INSERTED, gTaxi.insert(1, 10, 20));
+        assertEquals(InsertStatus.REJECTED, gTaxi.insert(1, 30, 40));
+        assertEquals("(1,10,20)\n", execute(gTaxi, "Print(1)"));
+        assertFalse(gTaxi.isHalted());
+    }
+
+    /*
+        A halting duplicate prints "Duplicate RideNumber" as the last line, whether the commands run one by one,
+        in a bulk insert into an empty or a non-empty ride index, or on shards
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"Insert(9,1,1)", "Insert(9,1,1)\nInsert(10,1,1)\nInsert(11,1,1)\nInsert(12,1,1)"})
+    void haltingDuplicateEndsTheOutput(String before) throws IOException {
+        String[] lines = (before + "\nInsert(1,10,20)\nInsert(2,5,5)\nInsert(1,30,40)\nInsert(3,1,1)\nPrint(1)\nGetNextRide()").split("\n");
+        String expected = "Duplicate RideNumber\n";
+
+        gatorTaxi gTaxi = engine("binary", DuplicatePolicy.HALT, Command.NO_TTL);
+        assertEquals(expected, execute(gTaxi, lines));
+        assertTrue(gTaxi.isHalted());
+        assertEquals("", execute(gTaxi, "Print(1)"));
+
+        for(String prefix : new String[]{"", "Insert(100,1,1)"}) {
+            gTaxi = engine("binary", DuplicatePolicy.HALT, Command.NO_TTL);
+            if(!prefix.isEmpty())   gTaxi.execute(batch(prefix), 1);
+            Command[] commands = batch(lines);
+            gTaxi.execute(commands, commands.length);
+            assertEquals(expected, execute(gTaxi));
+            assertTrue(gTaxi.isHalted());
+            // a halted engine executes no commands, its functions still work: the rides after the duplicate were not inserted
+            assertEquals("", execute(gTaxi, "Print(3)"));
+            gTaxi.print(3);
+            assertEquals("(0,0,0)\n", execute(gTaxi));
+            assertEquals(InsertStatus.HALTED, gTaxi.insert(1, 1, 1));
+            assertEquals(expected, execute(gTaxi));
+        }
+
+        ShardedGatorTaxi sharded = new ShardedGatorTaxi(out, 2, "rbt", "binary", DuplicatePolicy.HALT);
+        Command[] commands = batch(lines);
+        sharded.execute(commands, commands.length);
+        sharded.close();
+        assertEquals(expected, execute(gTaxi));
+        assertTrue(sharded.isHalted());
+    }
+
+    /*
+        This function returns count distinct ride nos, negative and positive, in random order
+     */
+    private static int[] shuffledRideNos(int count) {
+        int[] rideNos = new int[count];
+        for(int i = 0; i < count; i++)
+            rideNos[i] = i - count / 2;
+        Random random = new Random(count);
+        for(int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = rideNos[i];
+            rideNos[i] = rideNos[j];
+            rideNos[j] = temp;
+        }
+        return rideNos;
+    }
+
+    /*
+        load sorts the rides, a small load in this thread and a large one in parallel, and builds every ride index from them
+        The engine then answers like one, that got the same rides by Insert
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1000, 70_000})
+    void loadSortsUnsortedRides(int count) {
+        int[] rideNos = shuffledRideNos(count), rideCosts = new int[count], tripDurations = new int[count];
+        for(int i = 0; i < count; i++) {
+            // equal costs, and distinct keys, so that the order of GetNextRide is unique
+            rideCosts[i] = (rideNos[i] * 31) % 100;
+            tripDurations[i] = rideNos[i];
+        }
+        String[] commands = {"Print(" + Integer.MIN_VALUE + "," + Integer.MAX_VALUE + ")", "Print(" + rideNos[0] + ")", "GetNextRide(100)", "PeekNextRides(5)"};
+
+        gatorTaxi inserted = engine("binary", DuplicatePolicy.REJECT, Command.NO_TTL);
+        for(int i = 0; i < count; i++)
+            inserted.insert(rideNos[i], rideCosts[i], tripDurations[i]);
+        String expected = execute(inserted, commands);
+
+        for(String indexName : new String[]{"rbt", "array-rbt", "bplus"}) {
+            gatorTaxi loaded = new gatorTaxi(out, RideIndex.create(indexName), RideQueue.create("binary"));
+            loaded.load(rideNos, rideCosts, tripDurations, count);
+            assertEquals(expected, execute(loaded, commands), indexName);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1000, 70_000})
+    void loadRejectsADuplicateRideNo(int count) {
+        int[] rideNos = shuffledRideNos(count);
+        rideNos[count / 3] = rideNos[count - 1];
+        gatorTaxi gTaxi = engine("binary", DuplicatePolicy.REJECT, Command.NO_TTL);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> gTaxi.load(rideNos, new int[count], new int[count], count));
+        assertEquals("Duplicate RideNumber " + rideNos[count - 1], e.getMessage());
+        // nothing was loaded
+        assertEquals("No active ride requests\n", execute(gTaxi, "GetNextRide()"));
+    }
+}
@@ -0,0 +1,97 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/*
+    Tests of IntIntHashMap against a HashMap, and of the backward shift of removal on a probe run, that wraps around the end of the table
+ */
+class IntIntHashMapTest {
+    private static final int MISSING = -1;
+    // a map for 8 keys has 16 slots
+    private static final int SLOTS = 16;
+
+    private static void assertSameEntries(Map<Integer, Integer> expected, IntIntHashMap map, Iterable<Integer> keys) {
+        assertEquals(expected.size(), map.size());
+        for(int key : keys) {
+            assertEquals(expected.getOrDefault(key, MISSING), map.get(key), "get " + key);
+            assertEquals(expected.containsKey(key), map.containsKey(key), "containsKey " + key);
+        }
+    }
+
+    /*
+        This function returns count keys, whose home slot in a table of SLOTS slots is the input slot
+     */
+    private static List<Integer> keysWithHome(int slot, int count) {
+        List<Integer> keys = new ArrayList<>();
+        for(int key = 1; keys.size() < count; key++) {
+            if((IntIntHashMap.hash(key) & (SLOTS - 1)) == slot) keys.add(key);
+        }
+        return keys;
+    }
+
+    /*
+        One probe run holds keys of the home slots 14, 15 and 0, and wraps around the end of the table.
+        Removing the keys in any order must keep every other key reachable from its home slot
+     */
+    @Test
+    void removalShiftsBackAWrappedProbeRun() {
+        List<Integer> keys = new ArrayList<>(keysWithHome(14, 3));
+        keys.addAll(keysWithHome(15, 2));
+        keys.addAll(keysWithHome(0, 2));
+        // a key outside of the run, and the key 0, that is kept outside of the table
+        keys.add(keysWithHome(5, 1).get(0));
+        keys.add(0);
+
+        Random random = new Random(3);
+        for(int round = 0; round < 2000; round++) {
+            IntIntHashMap map = new IntIntHashMap(SLOTS / 2, MISSING);
+            Map<Integer, Integer> expected = new HashMap<>();
+            List<Integer> order = new ArrayList<>(keys);
+            Collections.shuffle(order, random);
+            for(int key : order) {
+                map.put(key, key * 10);
+                expected.put(key, key * 10);
+            }
+            Collections.shuffle(order, random);
+            for(int key : order) {
+                assertEquals(key * 10, map.remove(key));
+                assertEquals(MISSING, map.remove(key));
+                expected.remove(key);
+                assertSameEntries(expected, map, keys);
+            }
+        }
+    }
+
+    @Test
+    void behavesLikeAHashMap() {
+        IntIntHashMap map = new IntIntHashMap(MISSING);
+        Map<Integer, Integer> expected = new HashMap<>();
+        List<Integer> keys = new ArrayList<>();
+        for(int key = -300; key <= 300; key++)
+            keys.add(key);
+        Random random = new Random(5);
+        for(int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(601) - 300, value = random.nextInt();
+            // the map grows to a few hundred keys and shrinks again, with many removals in between
+            if(random.nextInt(100) < (i / 20_000 % 2 == 0 ? 60 : 40)) {
+                map.put(key, value);
+                expected.put(key, value);
+            } else {
+                assertEquals(expected.getOrDefault(key, MISSING), map.remove(key));
+                expected.remove(key);
+            }
+            if(i % 10_000 == 0) assertSameEntries(expected, map, keys);
+        }
+        assertSameEntries(expected, map, keys);
+
+        map.clear();
+        expected.clear();
+        assertSameEntries(expected, map, keys);
+    }
+}
@@ -0,0 +1,223 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/*
+    Tests of the recovery of the pending rides from the Journal: from the log alone, from snapshots with a log tail,
+    after a torn frame at the end of the log, and of the checks of a snapshot file
+ */
+class JournalTest {
+    private static final int BATCH_SIZE = 32;
+
+    @TempDir
+    Path directory;
+
+    private final OutputSink out = new OutputSink(Channels.newChannel(new ByteArrayOutputStream()));
+
+    /*
+        Engine with a journal, that commits after every batch, like main does
+     */
+    private final class JournaledEngine {
+        final Journal journal;
+        final RideIndex rides = new RBT();
+        final RideQueue minCostRides = new MinHeap();
+        final gatorTaxi gTaxi;
+
+        JournaledEngine(long snapshotEvery) throws IOException {
+            journal = new Journal(directory, FsyncPolicy.NEVER, 0, snapshotEvery);
+            gTaxi = new gatorTaxi(out, journal.recover(rides, minCostRides), minCostRides);
+        }
+
+        void execute(Command[] batch) throws IOException {
+            gTaxi.execute(batch, batch.length);
+            journal.commit();
+        }
+    }
+
+    /*
+        This function returns the rides of the ride index in order, and the rides of the ride queue sorted,
+        so that rides with equal keys may leave the queue in any order. The queue must visit its rides in the order of their keys
+     */
+    private static String state(RideIndex rides, RideQueue minCostRides) {
+        StringBuilder index = new StringBuilder();
+        rides.rangeSearch(Integer.MIN_VALUE, Integer.MAX_VALUE, (rideNo, rideCost, tripDuration) -> index.append(rideNo + "," + rideCost + "," + tripDuration + ";"));
+        List<String> queue = new ArrayList<>();
+        long[] lastKey = {Long.MIN_VALUE};
+        minCostRides.peekTopK(minCostRides.size(), (rideNo, rideCost, tripDuration) -> {
+            assertTrue(MinHeap.key(rideCost, tripDuration) >= lastKey[0], "queue order at ride " + rideNo);
+            lastKey[0] = MinHeap.key(rideCost, tripDuration);
+            queue.add(rideNo + "," + rideCost + "," + tripDuration);
+        });
+        queue.sort(null);
+        return index + " " + queue;
+    }
+
+    /*
+        This function returns a batch of random commands, that change the pending rides in every way the log records:
+        Insert, UpdateTrip in place and as a costlier ride, CancelRide and, if withGetNextRide, GetNextRide.
+        A recovered ride queue may order rides with equal keys differently, so the batches after a recovery leave out GetNextRide
+     */
+    private static Command[] randomBatch(Random random, boolean withGetNextRide) {
+        Command[] batch = new Command[BATCH_SIZE];
+        for(int i = 0; i < BATCH_SIZE; i++) {
+            int choice = random.nextInt(withGetNextRide ? 10 : 9), rideNo = random.nextInt(500);
+            if(choice < 5)  batch[i] = new Command(CommandType.INSERT, rideNo, random.nextInt(100), 1 + random.nextInt(100));
+            else if(choice < 7) batch[i] = new Command(CommandType.UPDATE_TRIP, rideNo, 1 + random.nextInt(250));
+            else if(choice < 9) batch[i] = new Command(CommandType.CANCEL_RIDE, rideNo);
+            else    batch[i] = new Command(CommandType.GET_NEXT_RIDE);
+        }
+        return batch;
+    }
+
+    /*
+        This function returns a batch of Inserts of distinct rides, that is loaded in bulk
+     */
+    private static Command[] insertBatch(int from, int count) {
+        Command[] batch = new Command[count];
+        for(int i = 0; i < count; i++)
+            batch[i] = new Command(CommandType.INSERT, from + count - 1 - i, i % 7, i);
+        return batch;
+    }
+
+    private List<String> journalFiles() throws IOException {
+        try(Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    /*
+        The rides are recovered from the log alone, and from the latest snapshot with the log after it, into every ride index.
+        Only the files of the latest generation are kept
+     */
+    @ParameterizedTest
+    @ValueSource(longs = {0, 40})
+    void recoversTheCommittedRides(long snapshotEvery) throws IOException {
+        JournaledEngine engine = new JournaledEngine(snapshotEvery);
+        Random random = new Random(snapshotEvery);
+        engine.execute(insertBatch(1000, 200));
+        for(int i = 0; i < 100; i++)
+            engine.execute(randomBatch(random, true));
+        engine.journal.close();
+        String expected = state(engine.rides, engine.minCostRides);
+
+        List<String> files = journalFiles();
+        if(snapshotEvery == 0)  assertEquals(List.of("log-0.bin"), files);
+        else {
+            assertEquals(2, files.size(), files.toString());
+            assertTrue(files.get(0).startsWith("log-") && files.get(1).equals("snapshot-" + files.get(0).substring(4)), files.toString());
+        }
+
+        for(String indexName : new String[]{"rbt", "array-rbt", "bplus"}) {
+            RideIndex rides = RideIndex.create(indexName);
+            RideQueue minCostRides = new MinHeap();
+            Journal journal = new Journal(directory, FsyncPolicy.NEVER, 0, snapshotEvery);
+            journal.recover(rides, minCostRides);
+            journal.close();
+            assertEquals(expected, state(rides, minCostRides), indexName);
+        }
+    }
+
+    /*
+        A crash in the middle of writing a frame leaves a torn frame at the end of the log: recovery drops it,
+        and cuts the log, so that the frames of the next run follow the last complete one
+     */
+    @Test
+    void recoveryCutsATornFrame() throws IOException {
+        JournaledEngine engine = new JournaledEngine(0);
+        // the engine without the last batch, the frame of that batch is torn
+        RideIndex committedRides = new RBT();
+        RideQueue committedQueue = new MinHeap();
+        gatorTaxi committed = new gatorTaxi(out, committedRides, committedQueue);
+        Random random = new Random(1);
+        for(int i = 0; i < 20; i++) {
+            Command[] batch = randomBatch(random, true);
+            engine.execute(batch);
+            committed.execute(batch, batch.length);
+        }
+        engine.execute(randomBatch(random, true));
+        engine.journal.close();
+
+        Path log = directory.resolve("log-0.bin");
+        try(FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        JournaledEngine recovered = new JournaledEngine(0);
+        assertEquals(state(committedRides, committedQueue), state(recovered.rides, recovered.minCostRides));
+
+        for(int i = 0; i < 5; i++) {
+            Command[] batch = randomBatch(random, false);
+            recovered.execute(batch);
+            committed.execute(batch, batch.length);
+        }
+        recovered.journal.close();
+        JournaledEngine again = new JournaledEngine(0);
+        again.journal.close();
+        assertEquals(state(committedRides, committedQueue), state(again.rides, again.minCostRides));
+    }
+
+    /*
+        A snapshot, that a crash left as a temporary file, is deleted, the completed snapshot before it is recovered
+     */
+    @Test
+    void recoveryDeletesAnIncompleteSnapshot() throws IOException {
+        JournaledEngine engine = new JournaledEngine(0);
+        engine.execute(insertBatch(0, 50));
+        engine.journal.snapshot();
+        engine.journal.close();
+        Files.write(directory.resolve("snapshot-2.bin.tmp"), new byte[]{1, 2, 3});
+
+        JournaledEngine recovered = new JournaledEngine(0);
+        recovered.journal.close();
+        assertEquals(state(engine.rides, engine.minCostRides), state(recovered.rides, recovered.minCostRides));
+        assertEquals(List.of("log-1.bin", "snapshot-1.bin"), journalFiles());
+    }
+
+    /*
+        A snapshot larger than the buffer is read back as written, a changed or a cut snapshot is rejected
+     */
+    @Test
+    void snapshotIsReadBackOrRejected() throws IOException {
+        int count = 300_000;
+        RideSnapshot snapshot = new RideSnapshot(new int[count], new int[count], new int[count], count);
+        for(int i = 0; i < count; i++) {
+            snapshot.rideNos[i] = 2 * i - count;
+            snapshot.rideCosts[i] = i % 1000;
+            snapshot.tripDurations[i] = count - i;
+        }
+        Path file = directory.resolve("snapshot.bin");
+        snapshot.write(file);
+        RideSnapshot read = RideSnapshot.read(file);
+        assertEquals(count, read.count);
+        assertArrayEquals(snapshot.rideNos, read.rideNos);
+        assertArrayEquals(snapshot.rideCosts, read.rideCosts);
+        assertArrayEquals(snapshot.tripDurations, read.tripDurations);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> RideSnapshot.read(file));
+
+        snapshot.write(file);
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        assertThrows(IOException.class, () -> RideSnapshot.read(file));
+    }
+}
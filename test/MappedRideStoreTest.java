@@ -0,0 +1,127 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+    Tests of MappedRideStore across restarts: after a clean close the store is opened as it was,
+    after a crash the tree and the heap are rebuilt from the records, and the files grow past one mapped segment
+ */
+class MappedRideStoreTest {
+    private static final int BATCH_SIZE = 32;
+
+    @TempDir
+    Path directory;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final OutputSink out = new OutputSink(Channels.newChannel(bytes));
+
+    /*
+        This function returns the rides of the ride index in order, and the rides of the ride queue sorted,
+        so that rides with equal keys may leave the queue in any order. The queue must visit its rides in the order of their keys
+     */
+    private static String state(MappedRideStore store) {
+        StringBuilder index = new StringBuilder();
+        store.index().rangeSearch(Integer.MIN_VALUE, Integer.MAX_VALUE, (rideNo, rideCost, tripDuration) -> index.append(rideNo + "," + rideCost + "," + tripDuration + ";"));
+        List<String> queue = new ArrayList<>();
+        long[] lastKey = {Long.MIN_VALUE};
+        store.queue().peekTopK(store.queue().size(), (rideNo, rideCost, tripDuration) -> {
+            assertTrue(MinHeap.key(rideCost, tripDuration) >= lastKey[0], "queue order at ride " + rideNo);
+            lastKey[0] = MinHeap.key(rideCost, tripDuration);
+            queue.add(rideNo + "," + rideCost + "," + tripDuration);
+        });
+        queue.sort(null);
+        return index + " " + queue;
+    }
+
+    /*
+        This function executes random batches of Insert, UpdateTrip, CancelRide and GetNextRide on the store,
+        so that slots are freed and used again
+     */
+    private void executeRandomBatches(MappedRideStore store, long seed) {
+        gatorTaxi gTaxi = new gatorTaxi(out, store.index(), store.queue());
+        Random random = new Random(seed);
+        Command[] batch = new Command[BATCH_SIZE];
+        for(int b = 0; b < 200; b++) {
+            for(int i = 0; i < BATCH_SIZE; i++) {
+                int choice = random.nextInt(10), rideNo = random.nextInt(1000);
+                if(choice < 5)  batch[i] = new Command(CommandType.INSERT, rideNo, random.nextInt(100), 1 + random.nextInt(100));
+                else if(choice < 7) batch[i] = new Command(CommandType.UPDATE_TRIP, rideNo, 1 + random.nextInt(250));
+                else if(choice < 9) batch[i] = new Command(CommandType.CANCEL_RIDE, rideNo);
+                else    batch[i] = new Command(CommandType.GET_NEXT_RIDE);
+            }
+            gTaxi.execute(batch, BATCH_SIZE);
+        }
+    }
+
+    @Test
+    void reopensTheRidesOfACleanClose() throws IOException {
+        Path path = directory.resolve("rides");
+        MappedRideStore store = MappedRideStore.open(path);
+        executeRandomBatches(store, 1);
+        String expected = state(store);
+        store.close();
+
+        store = MappedRideStore.open(path);
+        assertEquals(expected, state(store));
+        // the reopened store keeps working on the same files
+        executeRandomBatches(store, 2);
+        expected = state(store);
+        store.close();
+        store = MappedRideStore.open(path);
+        assertEquals(expected, state(store));
+        store.close();
+    }
+
+    /*
+        A store, that was not closed, is opened again like after a crash of the process: the mapped files hold the records,
+        but the header does not describe them, so the tree and the heap are rebuilt
+     */
+    @Test
+    void rebuildsTheRidesAfterACrash() throws IOException {
+        Path path = directory.resolve("rides");
+        MappedRideStore crashed = MappedRideStore.open(path);
+        executeRandomBatches(crashed, 3);
+        String expected = state(crashed);
+
+        MappedRideStore store = MappedRideStore.open(path);
+        assertEquals(expected, state(store));
+        executeRandomBatches(store, 4);
+        expected = state(store);
+        store.close();
+        store = MappedRideStore.open(path);
+        assertEquals(expected, state(store));
+        store.close();
+    }
+
+    @Test
+    void growsPastOneSegment() throws IOException {
+        Path path = directory.resolve("rides");
+        int count = MappedSlots.SEGMENT_SLOTS + 1000;
+        MappedRideStore store = MappedRideStore.open(path);
+        gatorTaxi gTaxi = new gatorTaxi(out, store.index(), store.queue());
+        for(int rideNo = 0; rideNo < count; rideNo++)
+            gTaxi.insert(rideNo, count - rideNo, rideNo);
+        store.close();
+
+        store = MappedRideStore.open(path);
+        assertEquals(count, store.index().size());
+        gTaxi = new gatorTaxi(out, store.index(), store.queue());
+        gTaxi.print(count - 1);
+        gTaxi.getNextRide();
+        gTaxi.print(count - 1);
+        out.flush();
+        assertEquals("(" + (count - 1) + ",1," + (count - 1) + ")\n(" + (count - 1) + ",1," + (count - 1) + ")\n(0,0,0)\n",
+                bytes.toString(StandardCharsets.US_ASCII));
+        store.close();
+    }
+}
@@ -0,0 +1,86 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+/*
+    Tests of the iterative fix-ups of RBT: the tree keeps the red black rules through inserts and deletes,
+    and a delete moves nodes instead of rides, so the nodes of the other rides stay valid
+ */
+class RBTTest {
+
+    /*
+        This function checks the links, the order and the colors of the subtree, and returns its black height
+     */
+    private static int blackHeight(RBTNode node, RBTNode parent, long low, long high) {
+        if(node == null)    return 1;
+        assertSame(parent, node.parent, "parent of " + node);
+        assertTrue(low < node.ride.rideNo && node.ride.rideNo < high, "order of " + node);
+        if(node.color == Color.RED) {
+            assertTrue(node.left == null || node.left.color == Color.BLACK, "red child of " + node);
+            assertTrue(node.right == null || node.right.color == Color.BLACK, "red child of " + node);
+        }
+        int left = blackHeight(node.left, node, low, node.ride.rideNo), right = blackHeight(node.right, node, node.ride.rideNo, high);
+        assertEquals(left, right, "black height of " + node);
+        return left + (node.color == Color.BLACK ? 1 : 0);
+    }
+
+    private static void assertRedBlack(RBT tree, TreeSet<Integer> expected) {
+        assertEquals(expected.size(), tree.size());
+        if(tree.root != null)   assertEquals(Color.BLACK, tree.root.color);
+        blackHeight(tree.root, null, Long.MIN_VALUE, Long.MAX_VALUE);
+        List<Integer> rideNos = new ArrayList<>();
+        tree.rangeSearch(Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, (rideNo, rideCost, tripDuration) -> rideNos.add(rideNo));
+        assertEquals(new ArrayList<>(expected), rideNos);
+    }
+
+    @Test
+    void keepsTheRedBlackRules() {
+        RBT tree = new RBT();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(11);
+        for(int i = 0; i < 100_000; i++) {
+            // the tree grows to a few thousand rides, and shrinks again
+            int rideNo = random.nextInt(5000);
+            if(random.nextInt(100) < (i / 10_000 % 2 == 0 ? 65 : 35)) {
+                assertEquals(expected.add(rideNo), tree.insert(rideNo, rideNo, rideNo));
+            } else {
+                assertEquals(expected.remove(rideNo), tree.delete(rideNo));
+            }
+            if(i % 1000 == 0)   assertRedBlack(tree, expected);
+        }
+        assertRedBlack(tree, expected);
+    }
+
+    @Test
+    void deleteKeepsTheNodesOfOtherRides() {
+        RBT tree = new RBT();
+        Map<Integer, RBTNode> nodes = new HashMap<>();
+        for(int rideNo = 0; rideNo < 2000; rideNo++) {
+            tree.insert(rideNo, rideNo * 3, rideNo * 7);
+            nodes.put(rideNo, tree.search(rideNo));
+        }
+        Random random = new Random(13);
+        List<Integer> rideNos = new ArrayList<>(nodes.keySet());
+        while(!rideNos.isEmpty()) {
+            int rideNo = rideNos.remove(random.nextInt(rideNos.size()));
+            RBTNode node = nodes.remove(rideNo);
+            // most deletes of a large tree remove an inner node with two children
+            tree.deleteRBTNode(node);
+            assertEquals(rideNo, node.ride.rideNo);
+            for(int other : rideNos.subList(0, Math.min(rideNos.size(), 50))) {
+                RBTNode otherNode = nodes.get(other);
+                assertSame(otherNode, tree.search(other));
+                assertEquals(other + "," + other * 3 + "," + other * 7, otherNode.ride.rideNo + "," + otherNode.ride.rideCost + "," + otherNode.ride.tripDuration);
+            }
+        }
+        assertEquals(0, tree.size());
+    }
+}
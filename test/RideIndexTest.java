@@ -0,0 +1,73 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/*
+    Tests of the ride indexes against a TreeMap: the index grows to thousands of rides and shrinks to a few again,
+    deleting from the low end, the high end and at random, so nodes are split, refilled, merged and removed
+ */
+class RideIndexTest {
+
+    /*
+        This function checks size, a full range search, a limited range search, and the search of present and absent ride nos
+     */
+    private static void assertSameRides(TreeMap<Integer, int[]> expected, RideIndex rides, Random random) {
+        assertEquals(expected.size(), rides.size());
+        List<String> all = new ArrayList<>();
+        rides.rangeSearch(Integer.MIN_VALUE, Integer.MAX_VALUE, (rideNo, rideCost, tripDuration) -> all.add(rideNo + "," + rideCost + "," + tripDuration));
+        List<String> expectedAll = new ArrayList<>();
+        for(Map.Entry<Integer, int[]> ride : expected.entrySet())
+            expectedAll.add(ride.getKey() + "," + ride.getValue()[0] + "," + ride.getValue()[1]);
+        assertEquals(expectedAll, all);
+
+        Ride found = new Ride(0, 0, 0);
+        for(int i = 0; i < 100; i++) {
+            int rideNo = random.nextInt(20_000);
+            int[] ride = expected.get(rideNo);
+            assertEquals(ride != null, rides.search(rideNo, found), "search " + rideNo);
+            if(ride != null)    assertEquals(ride[0] + "," + ride[1], found.rideCost + "," + found.tripDuration);
+
+            List<Integer> range = new ArrayList<>();
+            rides.rangeSearch(rideNo, rideNo + 500, 5, (no, rideCost, tripDuration) -> range.add(no));
+            assertEquals(expected.subMap(rideNo, true, rideNo + 500, true).keySet().stream().limit(5).toList(), range);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"rbt", "array-rbt", "bplus"})
+    void growsAndShrinksLikeATreeMap(String indexName) {
+        RideIndex rides = RideIndex.create(indexName);
+        TreeMap<Integer, int[]> expected = new TreeMap<>();
+        Random random = new Random(7);
+        for(int phase = 0; phase < 12; phase++) {
+            int target = phase % 2 == 0 ? 5_000 + random.nextInt(10_000) : random.nextInt(20);
+            while(expected.size() != target) {
+                if(expected.size() < target) {
+                    int rideNo = random.nextInt(20_000), rideCost = random.nextInt(100), tripDuration = random.nextInt(100);
+                    boolean inserted = expected.putIfAbsent(rideNo, new int[]{rideCost, tripDuration}) == null;
+                    assertEquals(inserted, rides.insert(rideNo, rideCost, tripDuration));
+                } else {
+                    Integer rideNo = phase % 6 == 1 ? expected.firstKey() : phase % 6 == 3 ? expected.lastKey() : expected.ceilingKey(random.nextInt(20_000));
+                    if(rideNo == null)  rideNo = expected.firstKey();
+                    expected.remove(rideNo);
+                    assertEquals(true, rides.delete(rideNo));
+                    assertEquals(false, rides.delete(rideNo));
+                }
+                if(random.nextInt(1000) == 0)   assertSameRides(expected, rides, random);
+            }
+            // an update changes the ride in place
+            if(!expected.isEmpty()) {
+                int rideNo = expected.firstKey();
+                expected.put(rideNo, new int[]{-1, -2});
+                assertEquals(true, rides.update(rideNo, -1, -2));
+            }
+            assertSameRides(expected, rides, random);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/*
+    Tests of the order of the ride queues: rideCost first, followed by tripDuration, for any int values
+ */
+class RideQueueTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keyKeepsTheOrderOfNegativeTripDurations() {
+        int[] values = {Integer.MIN_VALUE, -1000, -1, 0, 1, 1000, Integer.MAX_VALUE};
+        for(int cost1 : values)
+            for(int duration1 : values)
+                for(int cost2 : values)
+                    for(int duration2 : values) {
+                        boolean before = cost1 < cost2 || (cost1 == cost2 && duration1 < duration2);
+                        assertEquals(before, MinHeap.key(cost1, duration1) < MinHeap.key(cost2, duration2));
+                    }
+        for(int cost : values)
+            for(int duration : values) {
+                assertEquals(cost, MinHeap.rideCost(MinHeap.key(cost, duration)));
+                assertEquals(duration, MinHeap.tripDuration(MinHeap.key(cost, duration)));
+            }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"binary", "4-ary", "pairing", "bucket", "unified", "mapped"})
+    void extractsNegativeTripDurationsFirst(String queueName) throws IOException {
+        RideIndex rides = RideIndex.create("rbt");
+        RideQueue queue;
+        MappedRideStore store = null;
+        if(queueName.equals("unified")) {
+            RideStore rideStore = new RideStore();
+            rides = rideStore.index();
+            queue = rideStore.queue();
+        } else if(queueName.equals("mapped")) {
+            store = MappedRideStore.open(directory.resolve("rides"));
+            rides = store.index();
+            queue = store.queue();
+        } else  queue = RideQueue.create(queueName);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputSink out = new OutputSink(Channels.newChannel(bytes));
+        gatorTaxi gTaxi = new gatorTaxi(out, rides, queue);
+        gTaxi.insert(1, 5, 3);
+        gTaxi.insert(2, 5, -1);
+        gTaxi.getNextRide();
+        gTaxi.getNextRide();
+        out.flush();
+        if(store != null)   store.close();
+        assertEquals("(2,5,-1)\n(1,5,3)\n", bytes.toString(StandardCharsets.US_ASCII));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"binary", "4-ary", "pairing", "bucket"})
+    void extractsRandomKeysInOrder(String queueName) {
+        RideQueue queue = RideQueue.create(queueName);
+        Random random = new Random(7);
+        for(int rideNo = 0; rideNo < 10_000; rideNo++)
+            queue.insert(rideNo, random.nextInt(600) - 100, random.nextInt(1200) - 600);
+
+        long previous = Long.MIN_VALUE;
+        while(!queue.isEmpty()) {
+            long key = MinHeap.key(queue.peekRideCost(), queue.peekTripDuration());
+            assertTrue(previous <= key, "rides must leave the queue in key order");
+            previous = key;
+            queue.extractMin();
+        }
+    }
+
+    /*
+        This function returns a random ride cost or trip duration: mostly small values, that fit the buckets of BucketQueue,
+        and some negative and large ones, that do not
+     */
+    private static int randomValue(Random random) {
+        switch(random.nextInt(8)) {
+            case 0: return -random.nextInt(1000) - 1;
+            case 1: return random.nextInt(Integer.MAX_VALUE / 2);
+            default: return random.nextInt(600);
+        }
+    }
+
+    /*
+        This function extracts the cheapest ride, which must have the first key of the expected rides, and removes it from them
+     */
+    private static void extractAndCheck(RideQueue queue, TreeSet<long[]> expected, Map<Integer, Long> keys) {
+        long firstKey = expected.first()[0];
+        assertEquals(firstKey, MinHeap.key(queue.peekRideCost(), queue.peekTripDuration()));
+        int extracted = queue.extractMin();
+        assertEquals(firstKey, keys.get(extracted), "key of ride " + extracted);
+        expected.remove(new long[]{keys.remove(extracted), extracted});
+    }
+
+    /*
+        Every operation of the queue is checked against a sorted set of (key, rideNo): rides with equal keys may leave in any order,
+        but the key of every extracted or visited ride must be the next key of the set
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"binary", "4-ary", "pairing", "bucket"})
+    void matchesASortedSetUnderEveryOperation(String queueName) {
+        RideQueue queue = RideQueue.create(queueName);
+        TreeSet<long[]> expected = new TreeSet<>((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        Map<Integer, Long> keys = new HashMap<>();
+        Random random = new Random(queueName.hashCode());
+        for(int i = 0; i < 200_000; i++) {
+            int rideNo = random.nextInt(3000), choice = random.nextInt(100);
+            Long key = keys.get(rideNo);
+            if(i % 50_000 == 0) {
+                // the queue is drained, and loaded in bulk again
+                while(!queue.isEmpty())
+                    extractAndCheck(queue, expected, keys);
+                int count = 1 + random.nextInt(2000);
+                queue.ensureCapacity(count);
+                for(int no = 0; no < count; no++) {
+                    int rideCost = randomValue(random), tripDuration = randomValue(random);
+                    queue.add(no, rideCost, tripDuration);
+                    keys.put(no, MinHeap.key(rideCost, tripDuration));
+                    expected.add(new long[]{MinHeap.key(rideCost, tripDuration), no});
+                }
+                queue.heapify();
+            } else if(choice < 40) {
+                if(key != null) continue;
+                int rideCost = randomValue(random), tripDuration = randomValue(random);
+                queue.insert(rideNo, rideCost, tripDuration);
+                keys.put(rideNo, MinHeap.key(rideCost, tripDuration));
+                expected.add(new long[]{MinHeap.key(rideCost, tripDuration), rideNo});
+            } else if(choice < 55) {
+                assertEquals(key != null, queue.remove(rideNo));
+                if(key != null) expected.remove(new long[]{keys.remove(rideNo), rideNo});
+            } else if(choice < 75) {
+                // a lower or a higher key, like UpdateTrip gives a ride, in place of the old one
+                int rideCost = randomValue(random), tripDuration = randomValue(random);
+                long newKey = MinHeap.key(rideCost, tripDuration);
+                boolean lower = key == null || newKey <= key;
+                assertEquals(key != null, lower ? queue.decreaseKey(rideNo, rideCost, tripDuration) : queue.increaseKey(rideNo, rideCost, tripDuration));
+                if(key != null) {
+                    expected.remove(new long[]{key, rideNo});
+                    expected.add(new long[]{newKey, rideNo});
+                    keys.put(rideNo, newKey);
+                }
+            } else if(choice < 95) {
+                if(!queue.isEmpty())    extractAndCheck(queue, expected, keys);
+            } else {
+                int k = random.nextInt(20);
+                List<Long> visited = new ArrayList<>();
+                queue.peekTopK(k, (no, rideCost, tripDuration) -> {
+                    assertEquals(keys.get(no), MinHeap.key(rideCost, tripDuration), "key of ride " + no);
+                    visited.add(MinHeap.key(rideCost, tripDuration));
+                });
+                assertEquals(expected.stream().limit(k).map(ride -> ride[0]).toList(), visited);
+            }
+            assertEquals(expected.size(), queue.size());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/*
+    Tests of TimingWheel against a map of the deadlines: rides are scheduled on every level, rescheduled, cancelled,
+    and must expire exactly on their deadline tick, also when the clock crosses the turn of the highest wheel
+ */
+class TimingWheelTest {
+    private static final int RIDE_NOS = 2000;
+
+    /*
+        This function returns a time to live, that files the ride on a random level of the wheel
+     */
+    private static long ttl(Random random) {
+        switch(random.nextInt(4)) {
+            case 0: return 1 + random.nextInt(255);
+            case 1: return 256 + random.nextInt(65_536 - 256);
+            case 2: return 65_536 + random.nextInt(1 << 20);
+            default: return (1L << 24) + random.nextInt(1 << 30);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, (1L << 32) - 150_000})
+    void expiresEveryRideOnItsDeadline(long start) {
+        TimingWheel wheel = new TimingWheel(start);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        Random random = new Random(start);
+        long now = start;
+        while(now < start + 400_000) {
+            for(int i = random.nextInt(20); i > 0; i--) {
+                int rideNo = random.nextInt(RIDE_NOS);
+                if(random.nextInt(4) == 0) {
+                    assertEquals(deadlines.remove(rideNo) != null, wheel.cancel(rideNo));
+                } else {
+                    long deadline = now + ttl(random);
+                    wheel.schedule(rideNo, deadline);
+                    deadlines.put(rideNo, deadline);
+                }
+            }
+            assertEquals(deadlines.size(), wheel.size());
+
+            long to = now + 1 + random.nextInt(random.nextBoolean() ? 10 : 3000);
+            long earliest = deadlines.values().stream().min(Long::compare).orElse(Long.MAX_VALUE);
+            // a bound of the deadlines: no ride, that expires up to the tick, is missed
+            if(earliest != Long.MAX_VALUE)  assertTrue(wheel.mayExpireBy(earliest), "mayExpireBy " + earliest);
+            if(earliest <= to)  assertTrue(wheel.mayExpireBy(to), "mayExpireBy " + to);
+
+            Map<Integer, Long> due = new HashMap<>();
+            for(Map.Entry<Integer, Long> ride : deadlines.entrySet()) {
+                if(ride.getValue() <= to)   due.put(ride.getKey(), ride.getValue());
+            }
+            due.keySet().forEach(deadlines::remove);
+
+            // advance one tick at a time, so that every ride must expire on its deadline tick, or at once, like after a bulk run
+            List<Integer> expired = new ArrayList<>();
+            boolean tickByTick = random.nextBoolean();
+            for(long tick = tickByTick ? now + 1 : to; tick <= to; tick++) {
+                int count = wheel.advance(tick);
+                for(int rideNo : Arrays.copyOf(wheel.expired, count)) {
+                    assertTrue(due.containsKey(rideNo), "ride " + rideNo + " expired on " + tick);
+                    if(tickByTick)  assertEquals(due.get(rideNo), tick, "deadline of ride " + rideNo);
+                    expired.add(rideNo);
+                }
+            }
+            List<Integer> expected = new ArrayList<>(due.keySet());
+            expected.sort(null);
+            expired.sort(null);
+            assertEquals(expected, expired, "rides expired up to " + to);
+            now = to;
+        }
+    }
+
+    /*
+        Rides on the higher levels are cascaded down, whenever a wheel turns over, and expire on their deadline tick,
+        while the clock crosses the turn of every wheel
+     */
+    @Test
+    void cascadesFarDeadlinesDown() {
+        long start = (1L << 32) - 1000;
+        long[] ttls = {300, 70_000, (1L << 24) + 5, (1L << 25) + 77, (1L << 26) + 1};
+        TimingWheel wheel = new TimingWheel(start);
+        for(int rideNo = 0; rideNo < ttls.length; rideNo++)
+            wheel.schedule(rideNo, start + ttls[rideNo]);
+        for(int rideNo = 0; rideNo < ttls.length; rideNo++) {
+            long deadline = start + ttls[rideNo];
+            assertEquals(0, wheel.advance(deadline - 1), "ride " + rideNo);
+            assertTrue(wheel.mayExpireBy(deadline));
+            assertEquals(1, wheel.advance(deadline), "ride " + rideNo);
+            assertEquals(rideNo, wheel.expired[0]);
+            assertEquals(ttls.length - rideNo - 1, wheel.size());
+        }
+    }
+}